@@ -3,10 +3,35 @@
 -- Contains tables for viewing products on the Solar System Geek site, 
 -- and for placing an order.
 
+DROP VIEW IF EXISTS line_item_all;
+DROP VIEW IF EXISTS sale_all;
+DROP TABLE IF EXISTS sale_id_registry;
+DROP TABLE IF EXISTS shard_config;
+DROP TABLE IF EXISTS sale_order_key;
+DROP TABLE IF EXISTS outbox_relay;
+DROP TABLE IF EXISTS sale_outbox;
+DROP TABLE IF EXISTS rollup_watermark;
+DROP TABLE IF EXISTS state_sales_monthly;
+DROP TABLE IF EXISTS state_sales_daily;
+DROP TABLE IF EXISTS product_sales_monthly;
+DROP TABLE IF EXISTS product_sales_daily;
+DROP TABLE IF EXISTS line_item_archive;
+DROP TABLE IF EXISTS sale_archive;
 DROP TABLE IF EXISTS line_item;
 DROP TABLE IF EXISTS sale;
 DROP TABLE IF EXISTS customer;
 DROP TABLE IF EXISTS product;
+DROP TABLE IF EXISTS product_image;
+DROP FUNCTION IF EXISTS line_item_refresh_sale_totals();
+DROP FUNCTION IF EXISTS line_item_set_price();
+DROP FUNCTION IF EXISTS refresh_sale_totals(INT[]);
+DROP FUNCTION IF EXISTS create_sale_partitions(date, date);
+DROP FUNCTION IF EXISTS archive_shipped_sales(date, INT);
+DROP FUNCTION IF EXISTS configure_shard(INT, INT);
+DROP FUNCTION IF EXISTS sale_register_id();
+DROP FUNCTION IF EXISTS sale_unroll();
+DROP FUNCTION IF EXISTS line_item_unroll_sale();
+DROP FUNCTION IF EXISTS unroll_sale(INT, date);
 
 CREATE TABLE product (
 	product_id serial,
@@ -14,9 +39,32 @@ CREATE TABLE product (
 	description varchar NOT NULL,
 	price decimal (10,2) NOT NULL,
 	image_name varchar(256),
+	-- Full-text search document: name words rank above description words
+	search_vector tsvector GENERATED ALWAYS AS (
+		setweight(to_tsvector('english', name), 'A') ||
+		setweight(to_tsvector('english', description), 'B')
+	) STORED,
+	-- Incremented by every update, for optimistic locking and as a change token
+	version INT NOT NULL DEFAULT 1,
 	CONSTRAINT PK_product PRIMARY KEY (product_id)
 );
 
+CREATE INDEX IX_product_search_vector ON product USING GIN (search_vector);
+
+-- Stored image files. image_name is the value kept in product.image_name, and uploaded
+-- images are named by the SHA-256 of their content, so equal files share one row.
+CREATE TABLE product_image (
+	image_name varchar(256) NOT NULL,
+	sha256 char(64) NOT NULL,
+	content_type varchar(64) NOT NULL,
+	size_bytes bigint NOT NULL,
+	width int NOT NULL,
+	height int NOT NULL,
+	created_at timestamp NOT NULL DEFAULT now(),
+	CONSTRAINT PK_product_image PRIMARY KEY (image_name),
+	CONSTRAINT UQ_product_image_sha256 UNIQUE (sha256)
+);
+
 CREATE TABLE customer (
 	customer_id serial,
 	name varchar(128) NOT NULL,
@@ -25,30 +73,467 @@ CREATE TABLE customer (
 	city varchar(64) NOT NULL,
 	state char(2) NOT NULL,
 	zip_code char(5) NOT NULL,
+	version INT NOT NULL DEFAULT 1,
 	CONSTRAINT PK_customer PRIMARY KEY (customer_id)
 );
 
--- A bill-of-sale (sales order)
+-- Customer search: trigram indexes find misspelled or partial names and addresses,
+-- and pattern_ops indexes serve zip code prefixes
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IX_customer_name_trgm ON customer USING GIN (name gin_trgm_ops);
+CREATE INDEX IX_customer_street_address1_trgm ON customer USING GIN (street_address1 gin_trgm_ops);
+CREATE INDEX IX_customer_city_trgm ON customer USING GIN (city gin_trgm_ops);
+CREATE INDEX IX_customer_zip_code ON customer (zip_code bpchar_pattern_ops);
+CREATE INDEX IX_customer_state ON customer (state);
+
+-- A bill-of-sale (sales order). Partitioned by year of sale_date, as is line_item, so recent orders
+-- are found without reading through years of history. Moving a sale to another year by changing its
+-- sale_date needs PostgreSQL 15 or later.
 CREATE TABLE sale (
 	sale_id serial,
 	customer_id INT NOT NULL,
 	sale_date date NOT NULL,
 	ship_date date,
-	CONSTRAINT PK_sale PRIMARY KEY (sale_id),
+	-- Denormalized from line_item, maintained by the line_item triggers below
+	item_count INT NOT NULL DEFAULT 0,
+	total_amount decimal(12,2) NOT NULL DEFAULT 0,
+	version INT NOT NULL DEFAULT 1,
+	-- Fulfillment queue lease, set while a worker is shipping the sale
+	leased_by varchar(50),
+	lease_expires_at timestamp,
+	-- Transaction that last changed what the sale adds to the revenue rollups, see rollup_watermark
+	rollup_txid bigint NOT NULL DEFAULT txid_current(),
+	CONSTRAINT PK_sale PRIMARY KEY (sale_id, sale_date),
 	CONSTRAINT FK_sale_customer FOREIGN KEY(customer_id) REFERENCES customer(customer_id)
-);
+) PARTITION BY RANGE (sale_date);
 
 -- A single line of a bill-of-sale
 CREATE TABLE line_item (
 	line_item_id serial,
 	sale_id INT NOT NULL,
+	-- Copied from sale, to partition line items along with their sale
+	sale_date date NOT NULL,
 	product_id INT NOT NULL,
 	quantity INT NOT NULL,
-	CONSTRAINT PK_line_item PRIMARY KEY (line_item_id),
-	CONSTRAINT FK_line_item_sale FOREIGN KEY(sale_id) REFERENCES sale(sale_id),
+	-- Unit price the line was sold at, copied from product when the line is added
+	price decimal(10,2) NOT NULL,
+	-- Transaction that added the line. Kept when the line moves partition or is archived, so loads that
+	-- pick up lines added since a transaction id see each line once, whatever order sales commit in
+	txid bigint NOT NULL DEFAULT txid_current(),
+	CONSTRAINT PK_line_item PRIMARY KEY (line_item_id, sale_date),
+	CONSTRAINT FK_line_item_sale FOREIGN KEY(sale_id, sale_date) REFERENCES sale(sale_id, sale_date) ON UPDATE CASCADE,
 	CONSTRAINT FK_line_item_product FOREIGN KEY(product_id) REFERENCES product(product_id)
+) PARTITION BY RANGE (sale_date);
+
+-- Rows dated in a year with no partition of its own
+CREATE TABLE sale_default PARTITION OF sale DEFAULT;
+CREATE TABLE line_item_default PARTITION OF line_item DEFAULT;
+
+-- Create yearly partitions of sale and line_item for each year from from_date through through_date that
+-- does not have them yet, returning the number of years added. Fails if the default partitions already
+-- hold rows dated in one of those years.
+CREATE FUNCTION create_sale_partitions(from_date date, through_date date) RETURNS INT AS $$
+DECLARE
+	partition_year INT;
+	created INT := 0;
+BEGIN
+	FOR partition_year IN EXTRACT(YEAR FROM from_date)::INT .. EXTRACT(YEAR FROM through_date)::INT LOOP
+		IF to_regclass('sale_y' || partition_year) IS NULL THEN
+			EXECUTE format('CREATE TABLE %I PARTITION OF sale FOR VALUES FROM (%L) TO (%L)',
+				'sale_y' || partition_year, make_date(partition_year, 1, 1), make_date(partition_year + 1, 1, 1));
+			EXECUTE format('CREATE TABLE %I PARTITION OF line_item FOR VALUES FROM (%L) TO (%L)',
+				'line_item_y' || partition_year, make_date(partition_year, 1, 1), make_date(partition_year + 1, 1, 1));
+			created := created + 1;
+		END IF;
+	END LOOP;
+	RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_sale_partitions('2020-01-01', CURRENT_DATE + 365);
+
+CREATE INDEX IX_line_item_sale_id ON line_item (sale_id);
+CREATE INDEX IX_line_item_txid ON line_item (txid);
+-- Unshipped orders are few next to shipped ones, and are picked out by sale date when shipping in bulk
+CREATE INDEX IX_sale_unshipped ON sale (sale_date) WHERE ship_date IS NULL;
+
+-- Recalculate sale.item_count (total quantity) and sale.total_amount (quantity times the unit price of
+-- each line) for the given sales, moving sale.version on when either changes. Called from the line_item
+-- triggers, so the totals always change in the same transaction as the line items.
+CREATE FUNCTION refresh_sale_totals(sale_ids INT[]) RETURNS void AS $$
+	UPDATE sale AS s SET item_count = t.item_count, total_amount = t.total_amount, version = s.version + 1
+	FROM (
+		SELECT s2.sale_id, COALESCE(SUM(li.quantity), 0) AS item_count,
+			COALESCE(SUM(li.quantity * li.price), 0) AS total_amount
+		FROM sale AS s2
+		LEFT JOIN line_item AS li ON s2.sale_id = li.sale_id
+		WHERE s2.sale_id = ANY(sale_ids)
+		GROUP BY s2.sale_id
+	) AS t
+	WHERE s.sale_id = t.sale_id
+		AND (s.item_count, s.total_amount) IS DISTINCT FROM (t.item_count, t.total_amount);
+$$ LANGUAGE sql;
+
+-- Statement-level, so a bulk insert or delete recalculates each affected sale once
+CREATE FUNCTION line_item_refresh_sale_totals() RETURNS trigger AS $$
+BEGIN
+	IF TG_OP = 'INSERT' THEN
+		PERFORM refresh_sale_totals(ARRAY(SELECT DISTINCT sale_id FROM new_line_item));
+	ELSIF TG_OP = 'UPDATE' THEN
+		PERFORM refresh_sale_totals(ARRAY(SELECT sale_id FROM new_line_item UNION SELECT sale_id FROM old_line_item));
+	ELSE
+		PERFORM refresh_sale_totals(ARRAY(SELECT DISTINCT sale_id FROM old_line_item));
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER line_item_insert_sale_totals AFTER INSERT ON line_item
+	REFERENCING NEW TABLE AS new_line_item
+	FOR EACH STATEMENT EXECUTE PROCEDURE line_item_refresh_sale_totals();
+
+CREATE TRIGGER line_item_update_sale_totals AFTER UPDATE ON line_item
+	REFERENCING OLD TABLE AS old_line_item NEW TABLE AS new_line_item
+	FOR EACH STATEMENT EXECUTE PROCEDURE line_item_refresh_sale_totals();
+
+CREATE TRIGGER line_item_delete_sale_totals AFTER DELETE ON line_item
+	REFERENCING OLD TABLE AS old_line_item
+	FOR EACH STATEMENT EXECUTE PROCEDURE line_item_refresh_sale_totals();
+
+-- A line added without a price is sold at the current product price, so later product price changes
+-- leave existing sales and their totals as they were
+CREATE FUNCTION line_item_set_price() RETURNS trigger AS $$
+BEGIN
+	IF NEW.price IS NULL THEN
+		SELECT price INTO NEW.price FROM product WHERE product_id = NEW.product_id;
+	END IF;
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER line_item_insert_price BEFORE INSERT ON line_item
+	FOR EACH ROW EXECUTE PROCEDURE line_item_set_price();
+
+-- Revenue rollups. Each table holds closed periods only; anything newer than
+-- rollup_watermark.rolled_through is still read from sale/line_item.
+CREATE TABLE product_sales_daily (
+	sale_date date NOT NULL,
+	product_id INT NOT NULL,
+	order_count INT NOT NULL,
+	units INT NOT NULL,
+	revenue decimal(14,2) NOT NULL,
+	CONSTRAINT PK_product_sales_daily PRIMARY KEY (sale_date, product_id)
+);
+
+CREATE TABLE product_sales_monthly (
+	sale_month date NOT NULL,
+	product_id INT NOT NULL,
+	order_count INT NOT NULL,
+	units INT NOT NULL,
+	revenue decimal(14,2) NOT NULL,
+	CONSTRAINT PK_product_sales_monthly PRIMARY KEY (sale_month, product_id)
+);
+
+CREATE TABLE state_sales_daily (
+	sale_date date NOT NULL,
+	state char(2) NOT NULL,
+	order_count INT NOT NULL,
+	units INT NOT NULL,
+	revenue decimal(14,2) NOT NULL,
+	CONSTRAINT PK_state_sales_daily PRIMARY KEY (sale_date, state)
 );
 
+CREATE TABLE state_sales_monthly (
+	sale_month date NOT NULL,
+	state char(2) NOT NULL,
+	order_count INT NOT NULL,
+	units INT NOT NULL,
+	revenue decimal(14,2) NOT NULL,
+	CONSTRAINT PK_state_sales_monthly PRIMARY KEY (sale_month, state)
+);
+
+-- High-water mark of the rollups. A sale is in the rollup tables when it is dated before rolled_through
+-- and its rollup_txid is below last_txid, the oldest transaction still running when the rollups were last
+-- refreshed. Every transaction below last_txid had ended by then, so none of them can still add a sale
+-- that the refresh missed.
+CREATE TABLE rollup_watermark (
+	rollup_name varchar(64) NOT NULL,
+	rolled_through date NOT NULL,
+	last_txid bigint NOT NULL,
+	refreshed_at timestamp,
+	CONSTRAINT PK_rollup_watermark PRIMARY KEY (rollup_name)
+);
+
+INSERT INTO rollup_watermark (rollup_name, rolled_through, last_txid) VALUES ('sales', '-infinity', 0);
+
+-- Take a sale that is already in the rollup tables back out of them, before its line items, date or
+-- customer change or it is deleted, returning true if it was there. The caller then stamps the sale with
+-- the current transaction in rollup_txid, so the next refresh adds it again as it is then. Sales leaving
+-- for the archive stay in the rollups. Holding the watermark row keeps a refresh from starting until this
+-- transaction ends, and makes this wait for a refresh already under way.
+CREATE FUNCTION unroll_sale(unrolled_sale_id INT, unrolled_sale_date date) RETURNS boolean AS $$
+DECLARE
+	unrolled_txid bigint;
+	rolled_date date;
+	rolled_txid bigint;
+BEGIN
+	SELECT rollup_txid INTO unrolled_txid FROM sale WHERE sale_id = unrolled_sale_id AND sale_date = unrolled_sale_date;
+	-- Not found, or already taken out or written by this transaction
+	IF unrolled_txid IS NULL OR unrolled_txid = txid_current() THEN
+		RETURN false;
+	END IF;
+	SELECT rolled_through, last_txid INTO rolled_date, rolled_txid
+	FROM rollup_watermark WHERE rollup_name = 'sales' FOR SHARE;
+	IF unrolled_sale_date >= rolled_date OR unrolled_txid >= rolled_txid
+			OR EXISTS (SELECT 1 FROM sale_archive WHERE sale_id = unrolled_sale_id) THEN
+		RETURN false;
+	END IF;
+
+	UPDATE product_sales_daily AS r
+	SET order_count = r.order_count - d.order_count, units = r.units - d.units, revenue = r.revenue - d.revenue
+	FROM (
+		SELECT s.sale_date, li.product_id, COUNT(DISTINCT s.sale_id) AS order_count, SUM(li.quantity) AS units,
+			SUM(li.quantity * li.price) AS revenue
+		FROM sale AS s JOIN line_item AS li ON s.sale_id = li.sale_id
+		WHERE s.sale_id = unrolled_sale_id
+		GROUP BY s.sale_date, li.product_id
+	) AS d
+	WHERE r.sale_date = d.sale_date AND r.product_id = d.product_id;
+
+	UPDATE product_sales_monthly AS r
+	SET order_count = r.order_count - d.order_count, units = r.units - d.units, revenue = r.revenue - d.revenue
+	FROM (
+		SELECT date_trunc('month', s.sale_date)::date AS sale_month, li.product_id,
+			COUNT(DISTINCT s.sale_id) AS order_count, SUM(li.quantity) AS units, SUM(li.quantity * li.price) AS revenue
+		FROM sale AS s JOIN line_item AS li ON s.sale_id = li.sale_id
+		WHERE s.sale_id = unrolled_sale_id
+		GROUP BY 1, li.product_id
+	) AS d
+	WHERE r.sale_month = d.sale_month AND r.product_id = d.product_id;
+
+	UPDATE state_sales_daily AS r
+	SET order_count = r.order_count - d.order_count, units = r.units - d.units, revenue = r.revenue - d.revenue
+	FROM (
+		SELECT s.sale_date, c.state, COUNT(DISTINCT s.sale_id) AS order_count, SUM(li.quantity) AS units,
+			SUM(li.quantity * li.price) AS revenue
+		FROM sale AS s JOIN line_item AS li ON s.sale_id = li.sale_id
+		JOIN customer AS c ON s.customer_id = c.customer_id
+		WHERE s.sale_id = unrolled_sale_id
+		GROUP BY s.sale_date, c.state
+	) AS d
+	WHERE r.sale_date = d.sale_date AND r.state = d.state;
+
+	UPDATE state_sales_monthly AS r
+	SET order_count = r.order_count - d.order_count, units = r.units - d.units, revenue = r.revenue - d.revenue
+	FROM (
+		SELECT date_trunc('month', s.sale_date)::date AS sale_month, c.state,
+			COUNT(DISTINCT s.sale_id) AS order_count, SUM(li.quantity) AS units, SUM(li.quantity * li.price) AS revenue
+		FROM sale AS s JOIN line_item AS li ON s.sale_id = li.sale_id
+		JOIN customer AS c ON s.customer_id = c.customer_id
+		WHERE s.sale_id = unrolled_sale_id
+		GROUP BY 1, c.state
+	) AS d
+	WHERE r.sale_month = d.sale_month AND r.state = d.state;
+
+	-- Groups left with no orders would otherwise show up in reports with zero revenue
+	DELETE FROM product_sales_daily WHERE sale_date = unrolled_sale_date AND order_count = 0;
+	DELETE FROM product_sales_monthly WHERE sale_month = date_trunc('month', unrolled_sale_date) AND order_count = 0;
+	DELETE FROM state_sales_daily WHERE sale_date = unrolled_sale_date AND order_count = 0;
+	DELETE FROM state_sales_monthly WHERE sale_month = date_trunc('month', unrolled_sale_date) AND order_count = 0;
+	RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION line_item_unroll_sale() RETURNS trigger AS $$
+BEGIN
+	IF TG_OP <> 'INSERT' AND unroll_sale(OLD.sale_id, OLD.sale_date) THEN
+		UPDATE sale SET rollup_txid = txid_current() WHERE sale_id = OLD.sale_id AND sale_date = OLD.sale_date;
+	END IF;
+	IF TG_OP <> 'DELETE' AND unroll_sale(NEW.sale_id, NEW.sale_date) THEN
+		UPDATE sale SET rollup_txid = txid_current() WHERE sale_id = NEW.sale_id AND sale_date = NEW.sale_date;
+	END IF;
+	IF TG_OP = 'DELETE' THEN
+		RETURN OLD;
+	END IF;
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER line_item_change_unroll_sale BEFORE INSERT OR UPDATE OR DELETE ON line_item
+	FOR EACH ROW EXECUTE PROCEDURE line_item_unroll_sale();
+
+-- A sale is deleted by deleting its line items first, which takes it out of the rollups, so only a
+-- changed date or customer needs this
+CREATE FUNCTION sale_unroll() RETURNS trigger AS $$
+BEGIN
+	IF unroll_sale(OLD.sale_id, OLD.sale_date) THEN
+		NEW.rollup_txid := txid_current();
+	END IF;
+	RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER sale_redate_unroll BEFORE UPDATE ON sale
+	FOR EACH ROW WHEN (OLD.sale_date IS DISTINCT FROM NEW.sale_date OR OLD.customer_id IS DISTINCT FROM NEW.customer_id)
+	EXECUTE PROCEDURE sale_unroll();
+
+-- Sale change events, written by the sale DAO in the same statement as the change itself. txid is the
+-- writing transaction, so a relay can wait until every transaction that might still add an earlier event
+-- has ended.
+CREATE TABLE sale_outbox (
+	event_id bigserial,
+	txid bigint NOT NULL DEFAULT txid_current(),
+	sale_id INT NOT NULL,
+	event_type varchar(16) NOT NULL,
+	payload json NOT NULL,
+	created_at timestamp NOT NULL DEFAULT now(),
+	CONSTRAINT PK_sale_outbox PRIMARY KEY (event_id)
+);
+
+CREATE INDEX IX_sale_outbox_position ON sale_outbox (txid, event_id);
+
+-- How far each relay has delivered the outbox, in (txid, event_id) order
+CREATE TABLE outbox_relay (
+	relay_name varchar(64) NOT NULL,
+	last_txid bigint NOT NULL,
+	last_event_id bigint NOT NULL,
+	relayed_at timestamp,
+	CONSTRAINT PK_outbox_relay PRIMARY KEY (relay_name)
+);
+
+-- Key of each order written from the local order buffer or loaded by the order ingest, so an order
+-- replayed after a crash or loaded a second time is not created twice. sale_id is the sale the order created.
+CREATE TABLE sale_order_key (
+	order_key uuid NOT NULL,
+	sale_id INT NOT NULL,
+	created_at timestamp NOT NULL DEFAULT now(),
+	CONSTRAINT PK_sale_order_key PRIMARY KEY (order_key)
+);
+
+-- Which shard this database is, set by configure_shard(). Empty when the database is not a shard.
+CREATE TABLE shard_config (
+	shard_index INT NOT NULL,
+	shard_count INT NOT NULL,
+	CONSTRAINT PK_shard_config PRIMARY KEY (shard_index)
+);
+
+-- Make this database shard number shard of shards, when customers and sales are spread over several
+-- databases. Customer and sale ids are from then on only allocated with (id - 1) % shards = shard, so
+-- the id alone says which shard a row is on. The first id allocated is above every id already used.
+-- Customers and sales already in the database must follow the same rule, or it is refused.
+CREATE FUNCTION configure_shard(shard INT, shards INT) RETURNS void AS $$
+DECLARE
+	next_id bigint;
+BEGIN
+	IF shards < 1 OR shard < 0 OR shard >= shards THEN
+		RAISE EXCEPTION 'Shard % of % is not valid', shard, shards;
+	END IF;
+	IF EXISTS (SELECT 1 FROM customer WHERE (customer_id - 1) % shards <> shard)
+			OR EXISTS (SELECT 1 FROM sale WHERE (sale_id - 1) % shards <> shard)
+			OR EXISTS (SELECT 1 FROM sale_archive WHERE (sale_id - 1) % shards <> shard) THEN
+		RAISE EXCEPTION 'Existing customers or sales have ids that do not belong on shard % of %', shard, shards
+			USING ERRCODE = 'check_violation';
+	END IF;
+
+	SELECT COALESCE(MAX(customer_id), 0) + 1 INTO next_id FROM customer;
+	next_id := next_id + ((shard - (next_id - 1)) % shards + shards) % shards;
+	EXECUTE format('ALTER SEQUENCE %s INCREMENT BY %s RESTART WITH %s',
+		pg_get_serial_sequence('customer', 'customer_id'), shards, next_id);
+
+	SELECT GREATEST((SELECT MAX(sale_id) FROM sale), (SELECT MAX(sale_id) FROM sale_archive),
+			(SELECT MAX(sale_id) FROM sale_id_registry), 0) + 1
+		INTO next_id;
+	next_id := next_id + ((shard - (next_id - 1)) % shards + shards) % shards;
+	EXECUTE format('ALTER SEQUENCE %s INCREMENT BY %s RESTART WITH %s',
+		pg_get_serial_sequence('sale', 'sale_id'), shards, next_id);
+
+	DELETE FROM shard_config;
+	INSERT INTO shard_config (shard_index, shard_count) VALUES (shard, shards);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Shipped sales, with their line items, moved out of sale and line_item by archive_shipped_sales()
+CREATE TABLE sale_archive (LIKE sale, CONSTRAINT PK_sale_archive PRIMARY KEY (sale_id));
+CREATE INDEX IX_sale_archive_customer_id ON sale_archive (customer_id);
+CREATE TABLE line_item_archive (LIKE line_item, CONSTRAINT PK_line_item_archive PRIMARY KEY (line_item_id));
+CREATE INDEX IX_line_item_archive_sale_id ON line_item_archive (sale_id);
+
+-- Every sale and line item, live or archived. Reads over the whole sales history go through these, so
+-- archiving a sale does not take it out of lookups, reports or exports. A sale is only ever in one of the
+-- two tables once the archiving transaction has committed.
+CREATE VIEW sale_all AS
+	SELECT sale_id, customer_id, sale_date, ship_date, item_count, total_amount, version FROM sale
+	UNION ALL
+	SELECT sale_id, customer_id, sale_date, ship_date, item_count, total_amount, version FROM sale_archive;
+
+CREATE VIEW line_item_all AS
+	SELECT line_item_id, sale_id, sale_date, product_id, quantity, price, txid FROM line_item
+	UNION ALL
+	SELECT line_item_id, sale_id, sale_date, product_id, quantity, price, txid FROM line_item_archive;
+
+-- The primary key of sale has to include sale_date, the partition key, and an archived sale is in a
+-- different table, so neither makes sale_id unique on its own. Every sale_id in use, live or archived, is
+-- held here instead, and a second sale with the same id fails on this primary key. Moving a sale to another
+-- partition deletes and re-inserts it, which frees and takes the id again. line_item_id is only ever
+-- assigned by its sequence and no line item is looked up by it alone, so it has no registry of its own.
+CREATE TABLE sale_id_registry (
+	sale_id INT NOT NULL,
+	CONSTRAINT PK_sale_id_registry PRIMARY KEY (sale_id)
+);
+
+CREATE FUNCTION sale_register_id() RETURNS trigger AS $$
+BEGIN
+	IF TG_OP IN ('DELETE', 'UPDATE') AND NOT EXISTS (SELECT 1 FROM sale_archive WHERE sale_id = OLD.sale_id) THEN
+		DELETE FROM sale_id_registry WHERE sale_id = OLD.sale_id;
+	END IF;
+	IF TG_OP IN ('INSERT', 'UPDATE') THEN
+		INSERT INTO sale_id_registry (sale_id) VALUES (NEW.sale_id);
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER sale_insert_register_id AFTER INSERT ON sale
+	FOR EACH ROW EXECUTE PROCEDURE sale_register_id();
+
+CREATE TRIGGER sale_update_register_id AFTER UPDATE OF sale_id ON sale
+	FOR EACH ROW WHEN (OLD.sale_id <> NEW.sale_id) EXECUTE PROCEDURE sale_register_id();
+
+-- An archived sale keeps its id, so it is not freed when the sale leaves the live table
+CREATE TRIGGER sale_delete_register_id AFTER DELETE ON sale
+	FOR EACH ROW EXECUTE PROCEDURE sale_register_id();
+
+-- Move up to batch_size shipped sales dated before sale_date_before, and their line items, to the archive
+-- tables, returning the number moved. Only sales already added to the revenue rollups are moved, so
+-- reports over past periods are unchanged.
+CREATE FUNCTION archive_shipped_sales(sale_date_before date, batch_size INT) RETURNS INT AS $$
+DECLARE
+	cutoff date;
+	rolled_txid bigint;
+	sale_ids INT[];
+BEGIN
+	SELECT LEAST(sale_date_before, rolled_through), last_txid INTO cutoff, rolled_txid
+	FROM rollup_watermark WHERE rollup_name = 'sales';
+	sale_ids := ARRAY(
+		SELECT sale_id FROM sale
+		WHERE ship_date IS NOT NULL AND sale_date < cutoff AND rollup_txid < rolled_txid
+		ORDER BY sale_id
+		LIMIT batch_size
+		FOR UPDATE);
+	IF cardinality(sale_ids) = 0 THEN
+		RETURN 0;
+	END IF;
+	-- The sales are copied before their line items are moved, as that sets their live totals to zero
+	INSERT INTO sale_archive SELECT * FROM sale WHERE sale_id = ANY(sale_ids) AND sale_date < cutoff;
+	WITH moved AS (
+		DELETE FROM line_item WHERE sale_id = ANY(sale_ids) AND sale_date < cutoff RETURNING *
+	)
+	INSERT INTO line_item_archive SELECT * FROM moved;
+	DELETE FROM sale WHERE sale_id = ANY(sale_ids) AND sale_date < cutoff;
+	RETURN cardinality(sale_ids);
+END;
+$$ LANGUAGE plpgsql;
+
 INSERT INTO product(name, description, price, image_name) VALUES
 -- 1
  ('Coffee Mug', 'Staying up late to take in the wonders of the solar system can make a geek a little sluggish in the morning. This awesome mug is just what you need to perk up in the morning with your caffeinatened beverage of choice!', 9.99, 'ssg_mug.png' ),
@@ -93,45 +578,45 @@ INSERT INTO sale (customer_id, sale_date, ship_date) VALUES
 -- 8
   (3, '2022-06-02', null);
 
-INSERT INTO line_item (sale_id, product_id, quantity) VALUES
+INSERT INTO line_item (sale_id, sale_date, product_id, quantity) VALUES
 -- 1
-  (1, 1, 10),
+  (1, '2022-01-01', 1, 10),
 -- 2
-  (1, 2, 1),
+  (1, '2022-01-01', 2, 1),
 -- 3
-  (1, 4, 4),
+  (1, '2022-01-01', 4, 4),
 -- 4
-  (2, 3, 5),
+  (2, '2022-02-01', 3, 5),
 -- 5
-  (2, 4, 4),
+  (2, '2022-02-01', 4, 4),
 -- 6
-  (3, 1, 4),
+  (3, '2022-05-15', 1, 4),
 -- 7
-  (3, 2, 5),
+  (3, '2022-05-15', 2, 5),
 -- 8
-  (3, 3, 1),
+  (3, '2022-05-15', 3, 1),
 -- 9
-  (3, 4, 3),
+  (3, '2022-05-15', 4, 3),
 -- 10
-  (4, 2, 2),
+  (4, '2022-02-01', 2, 2),
 -- 11
-  (5, 1, 10),
+  (5, '2022-02-28', 1, 10),
 -- 12
-  (5, 2, 1),
+  (5, '2022-02-28', 2, 1),
 -- 13
-  (5, 4, 4),
+  (5, '2022-02-28', 4, 4),
 -- 14
-  (6, 3, 5),
+  (6, '2022-06-01', 3, 5),
 -- 15
-  (6, 4, 4),
+  (6, '2022-06-01', 4, 4),
 -- 16
-  (7, 1, 4),
+  (7, '2022-06-02', 1, 4),
 -- 17
-  (7, 2, 5),
+  (7, '2022-06-02', 2, 5),
 -- 18
-  (7, 3, 1),
+  (7, '2022-06-02', 3, 1),
 -- 19
-  (7, 4, 3),
+  (7, '2022-06-02', 4, 3),
 -- 20
-  (8, 2, 2);
+  (8, '2022-06-02', 2, 2);
   
@@ -1,9 +1,45 @@
 package com.techelevator.ssgeek;
 
+import com.techelevator.ssgeek.api.CatalogApiServer;
+import com.techelevator.ssgeek.audit.AuditJournal;
+import com.techelevator.ssgeek.audit.DurabilityMode;
+import com.techelevator.ssgeek.buffer.SaleOrderBuffer;
+import com.techelevator.ssgeek.buffer.SaleOrderLog;
 import com.techelevator.ssgeek.dao.*;
+import com.techelevator.ssgeek.exception.AuditException;
+import com.techelevator.ssgeek.exception.ImageException;
+import com.techelevator.ssgeek.exception.OrderBufferException;
+import com.techelevator.ssgeek.image.HotImageCache;
+import com.techelevator.ssgeek.image.ImageHttpServer;
+import com.techelevator.ssgeek.image.ImageStore;
+import com.techelevator.ssgeek.image.ThumbnailPipeline;
+import com.techelevator.ssgeek.image.ThumbnailingProductDao;
+import com.techelevator.ssgeek.search.IndexedProductDao;
+import com.techelevator.ssgeek.snapshot.SnapshotProductDao;
+import com.techelevator.ssgeek.task.ProductSnapshotTask;
+import com.techelevator.ssgeek.outbox.FileSaleEventSink;
+import com.techelevator.ssgeek.outbox.SaleOutboxRelay;
+import com.techelevator.ssgeek.replica.ReplicaReadingCustomerDao;
+import com.techelevator.ssgeek.replica.ReplicaReadingProductDao;
+import com.techelevator.ssgeek.replica.ReplicaReadingSaleDao;
+import com.techelevator.ssgeek.replica.ReplicaRoutingDataSource;
+import com.techelevator.ssgeek.task.ReplicaLagTask;
+import com.techelevator.ssgeek.task.RollupRefreshTask;
+import com.techelevator.ssgeek.task.SaleArchiveTask;
+import com.techelevator.ssgeek.task.SaleOrderDrainTask;
+import com.techelevator.ssgeek.task.SaleOutboxRelayTask;
 import com.techelevator.util.SystemInOutConsole;
 import org.apache.commons.dbcp2.BasicDataSource;
 
+import javax.sql.DataSource;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Application is the class that launches the Solar System Geek Administrator by creating
  * the objects needed to interact with the user and file system and passing them to
@@ -12,29 +48,168 @@ import org.apache.commons.dbcp2.BasicDataSource;
 
 public class Application {
 
+    // Longest edge, in pixels, of each thumbnail made for product images
+    private static final int[] THUMBNAIL_SIZES = {800, 256, 64};
+
+    // Port the storefront fetches product images from, and bytes of popular images kept in memory
+    private static final int IMAGE_SERVER_PORT = 8081;
+    private static final long HOT_IMAGE_CACHE_BYTES = 64L * 1024 * 1024;
+
+    // Port storefront services read customers, products and sales from, and threads answering them
+    private static final int API_SERVER_PORT = 8082;
+    private static final int API_SERVER_THREADS = 64;
+
+    // Shipped sales older than this are moved to the archive tables
+    private static final Period SALE_RETENTION = Period.ofYears(2);
+
+    // Most orders held in the local order log waiting for the database, and orders written per statement
+    private static final int ORDER_BUFFER_CAPACITY = 100_000;
+    private static final int ORDER_DRAIN_BATCH_SIZE = 500;
+
+    // Read replicas further behind the primary than this, or not checked this recently, are not read from
+    private static final long MAX_REPLICA_LAG_BYTES = 16L * 1024 * 1024;
+    private static final Duration MAX_REPLICA_CHECK_AGE = Duration.ofSeconds(10);
+
     public static void main(String[] args) {
+        // The JDK HTTP server writes headers and body separately; without TCP_NODELAY each small response
+        // waits on a delayed ACK, about 40 ms. Read once, when the first server is created
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
         // Create the datasource used by all the DAOs
         BasicDataSource dataSource = new BasicDataSource();
         dataSource.setUrl("jdbc:postgresql://localhost:5432/SSGeek");
         dataSource.setUsername("postgres");
         dataSource.setPassword("postgres1");
 
+        // Each command line argument is the JDBC URL of a streaming replica of the SSGeek database, for
+        // example jdbc:postgresql://localhost:5433/SSGeek. Customer, product and sale reads made through
+        // the DAOs below go to a replica that is close enough behind; everything else uses the primary
+        List<DataSource> replicaDataSources = new ArrayList<>();
+        for (String replicaUrl : args) {
+            BasicDataSource replicaDataSource = new BasicDataSource();
+            replicaDataSource.setUrl(replicaUrl);
+            replicaDataSource.setUsername("postgres");
+            replicaDataSource.setPassword("postgres1");
+            replicaDataSources.add(replicaDataSource);
+        }
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(dataSource, replicaDataSources,
+                MAX_REPLICA_LAG_BYTES, MAX_REPLICA_CHECK_AGE);
+        ReplicaLagTask replicaLagTask = new ReplicaLagTask(routingDataSource);
+        replicaLagTask.start(Duration.ofSeconds(1));
+
+        // Uploaded product images are kept on local disk, named by their content hash,
+        // and their thumbnails are made in the background
+        ImageStore imageStore = new ImageStore(Paths.get("product-images"));
+        ThumbnailPipeline thumbnailPipeline = new ThumbnailPipeline(imageStore, 256, THUMBNAIL_SIZES);
+
         // Controller expects the DAOs it needs to be "injected" in the constructor.
         // Create the DAOs needed by the controller.
         //*****************************************************************************************
         // TODO: When you implement a new DAO, create an instance of it here, replacing the NULL
-        CustomerDao customerDao = new JdbcCustomerDao(dataSource);
-        ProductDao productDao = new JdbcProductDao(dataSource);
-        SaleDao saleDao = new JdbcSaleDao(dataSource);
-        LineItemDao lineItemDao = new JdbcSaleDao(dataSource);
+        CustomerDao customerDao = new ReplicaReadingCustomerDao(new JdbcCustomerDao(routingDataSource), routingDataSource);
+        // Products are read from a memory-mapped snapshot of the product table when one is current.
+        // Product writes keep the in-memory name index current and queue thumbnails of the product image
+        SnapshotProductDao snapshotProductDao = new SnapshotProductDao(
+                new ReplicaReadingProductDao(new JdbcProductDao(routingDataSource), routingDataSource),
+                new JdbcProductSnapshotDao(dataSource), Paths.get("product-snapshot.bin"));
+        IndexedProductDao productDao = new IndexedProductDao(
+                new ThumbnailingProductDao(snapshotProductDao, thumbnailPipeline));
+        JdbcSaleDao jdbcSaleDao = new JdbcSaleDao(routingDataSource);
+        ReplicaReadingSaleDao replicaReadingSaleDao = new ReplicaReadingSaleDao(jdbcSaleDao, jdbcSaleDao, routingDataSource);
+        SaleDao saleDao = replicaReadingSaleDao;
+        LineItemDao lineItemDao = replicaReadingSaleDao;
+        ReportDao reportDao = new JdbcReportDao(dataSource);
+        RollupDao rollupDao = new JdbcRollupDao(dataSource);
+        ProductImageDao productImageDao = new JdbcProductImageDao(dataSource);
         //*****************************************************************************************
 
         // Create the basic i/o mechanism (the console)
         SystemInOutConsole systemInOutConsole = new SystemInOutConsole();
 
+        // Changes made through the menus are recorded in a local journal. ASYNC doesn't hold up the menus
+        // for the disk; each group of records is still forced to disk as soon as it is written
+        AuditJournal auditJournal = null;
+        try {
+            auditJournal = AuditJournal.open(Paths.get("admin-audit.journal"), DurabilityMode.ASYNC);
+        } catch (AuditException e) {
+            System.out.println(e.getMessage() + ", changes will not be audited");
+        }
+
         // The controller manages the program flow. Create a control and call its run() method to start the menu loop.
         SSGeekAdminController controller =
-                new SSGeekAdminController(systemInOutConsole, customerDao, productDao, saleDao, lineItemDao);
+                new SSGeekAdminController(systemInOutConsole, customerDao, productDao, saleDao, lineItemDao, reportDao, rollupDao,
+                        productImageDao, imageStore, productDao.getNameIndex(), auditJournal);
+
+        // Serve product images to the storefront while the program runs
+        ImageHttpServer imageServer = new ImageHttpServer(imageStore, new HotImageCache(HOT_IMAGE_CACHE_BYTES, 2));
+        try {
+            imageServer.start(new InetSocketAddress(IMAGE_SERVER_PORT), Runtime.getRuntime().availableProcessors() * 2);
+        } catch (ImageException e) {
+            System.out.println(e.getMessage() + ", images will not be served");
+        }
+
+        // Serve read-only JSON to storefront services; no more of their requests use the DAOs at once
+        // than the connection pool has connections
+        CatalogApiServer apiServer = new CatalogApiServer(customerDao, productDao, saleDao, lineItemDao,
+                dataSource.getMaxTotal());
+        try {
+            apiServer.start(new InetSocketAddress(API_SERVER_PORT), API_SERVER_THREADS);
+        } catch (UncheckedIOException e) {
+            System.out.println(e.getMessage() + ", the API will not be served");
+        }
+
+        // Keep the revenue rollups current in the background while the program runs
+        RollupRefreshTask rollupRefreshTask = new RollupRefreshTask(rollupDao);
+        rollupRefreshTask.start(Duration.ofMinutes(15));
+
+        // Check the product snapshot against the product table in the background, rewriting it when stale
+        ProductSnapshotTask productSnapshotTask = new ProductSnapshotTask(snapshotProductDao);
+        productSnapshotTask.start(Duration.ofMinutes(10));
+
+        // Pass sale change events on to downstream systems; they read sale-events.jsonl instead of the sale table
+        SaleOutboxDao saleOutboxDao = new JdbcSaleOutboxDao(dataSource);
+        SaleOutboxRelayTask saleOutboxRelayTask = new SaleOutboxRelayTask(saleOutboxDao, List.of(
+                new SaleOutboxRelay("sale-events-file", saleOutboxDao, new FileSaleEventSink(Paths.get("sale-events.jsonl")), 500)));
+        saleOutboxRelayTask.start(Duration.ofSeconds(5));
+
+        // Add sale partitions ahead of need and archive old shipped sales in the background
+        SaleArchiveTask saleArchiveTask = new SaleArchiveTask(new JdbcSaleArchiveDao(dataSource), SALE_RETENTION);
+        saleArchiveTask.start(Duration.ofHours(24));
+
+        // New orders are accepted into a local log and written to the database in the background, so they
+        // are not lost while the database is down. Orders left in the log by the last run are drained first.
+        // Nothing in this program takes orders yet, so the buffer is only drained here
+        SaleOrderLog saleOrderLog = null;
+        SaleOrderDrainTask saleOrderDrainTask = null;
+        try {
+            saleOrderLog = SaleOrderLog.open(Paths.get("sale-orders.wal"));
+            SaleOrderBuffer saleOrderBuffer = new SaleOrderBuffer(saleOrderLog, saleDao, ORDER_BUFFER_CAPACITY);
+            saleOrderDrainTask = new SaleOrderDrainTask(saleOrderBuffer, ORDER_DRAIN_BATCH_SIZE);
+            saleOrderDrainTask.start(Duration.ofSeconds(1));
+        } catch (OrderBufferException e) {
+            System.out.println(e.getMessage() + ", buffered orders will not be drained");
+        }
+
         controller.run();
+
+        if (saleOrderDrainTask != null) {
+            saleOrderDrainTask.stop();
+        }
+        if (saleOrderLog != null) {
+            saleOrderLog.close();
+        }
+        saleArchiveTask.stop();
+        saleOutboxRelayTask.stop();
+        productSnapshotTask.stop();
+        rollupRefreshTask.stop();
+        apiServer.stop();
+        replicaLagTask.stop();
+        imageServer.stop();
+        if (auditJournal != null) {
+            auditJournal.close();
+        }
+        if (!thumbnailPipeline.shutdown(Duration.ofSeconds(30))) {
+            System.out.println("Thumbnails still in progress were abandoned: " + thumbnailPipeline);
+        }
     }
 }
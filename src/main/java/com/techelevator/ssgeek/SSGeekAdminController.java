@@ -1,12 +1,24 @@
 package com.techelevator.ssgeek;
 
+import com.techelevator.ssgeek.audit.AuditAction;
+import com.techelevator.ssgeek.audit.AuditEntity;
+import com.techelevator.ssgeek.audit.AuditJournal;
+import com.techelevator.ssgeek.audit.AuditRecord;
 import com.techelevator.ssgeek.dao.*;
+import com.techelevator.ssgeek.exception.AuditException;
 import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.exception.ImageException;
+import com.techelevator.ssgeek.image.ImageStore;
 import com.techelevator.ssgeek.model.*;
+import com.techelevator.ssgeek.search.ProductNameIndex;
+import com.techelevator.ssgeek.search.TypeAhead;
 import com.techelevator.util.BasicConsole;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * SSGeekAdminController orchestrates all of its operations through a series of menus. It relies
@@ -15,6 +27,15 @@ import java.util.List;
 
 public class SSGeekAdminController {
 
+    // Number of customers shown in the top customers report
+    private static final int TOP_CUSTOMER_COUNT = 10;
+
+    // Number of search matches shown when picking a product
+    private static final int PRODUCT_SEARCH_LIMIT = 25;
+
+    // Number of search matches shown when picking a customer
+    private static final int CUSTOMER_SEARCH_LIMIT = 25;
+
     // The view manages all the user interaction, inputs and outputs.
     private final SSGeekAdminView view;
 
@@ -23,13 +44,34 @@ public class SSGeekAdminController {
     private CustomerDao customerDao;
     private SaleDao saleDao;
     private LineItemDao lineItemDao;
+    private ReportDao reportDao;
+    private RollupDao rollupDao;
+    private ProductImageDao productImageDao;
+
+    // Optional in-memory index of product names used when picking a product
+    private ProductNameIndex productNameIndex;
+
+    // Where uploaded product image files are kept
+    private ImageStore imageStore;
+
+    // Optional journal every change made through the menus is recorded in
+    private AuditJournal auditJournal;
+    private final String auditActor = System.getProperty("user.name");
 
-    public SSGeekAdminController(BasicConsole console, CustomerDao customerDao, ProductDao productDao, SaleDao saleDao, LineItemDao lineItemDao) {
+    public SSGeekAdminController(BasicConsole console, CustomerDao customerDao, ProductDao productDao, SaleDao saleDao, LineItemDao lineItemDao, ReportDao reportDao, RollupDao rollupDao,
+                                 ProductImageDao productImageDao, ImageStore imageStore, ProductNameIndex productNameIndex,
+                                 AuditJournal auditJournal) {
         view = new SSGeekAdminView(console);
         this.productDao = productDao;
         this.customerDao = customerDao;
         this.saleDao = saleDao;
         this.lineItemDao = lineItemDao;
+        this.reportDao = reportDao;
+        this.rollupDao = rollupDao;
+        this.productImageDao = productImageDao;
+        this.imageStore = imageStore;
+        this.productNameIndex = productNameIndex;
+        this.auditJournal = auditJournal;
     }
 
     /**
@@ -47,8 +89,9 @@ public class SSGeekAdminController {
         final String CUSTOMER_MENU = "Customer admin menu";
         final String PRODUCT_MENU = "Product admin menu";
         final String SALES_MENU = "Sales admin menu";
+        final String REPORTS_MENU = "Sales reports menu";
         final String EXIT = "Exit the program";
-        final String[] MENU_OPTIONS = {CUSTOMER_MENU, PRODUCT_MENU, SALES_MENU, EXIT};
+        final String[] MENU_OPTIONS = {CUSTOMER_MENU, PRODUCT_MENU, SALES_MENU, REPORTS_MENU, EXIT};
 
         boolean finished = false;
 
@@ -66,6 +109,9 @@ public class SSGeekAdminController {
                 case SALES_MENU:
                     displaySalesMenu();
                     break;
+                case REPORTS_MENU:
+                    displayReportsMenu();
+                    break;
                 case EXIT:
                     // Set finished to true so the loop exits.
                     finished = true;
@@ -127,8 +173,9 @@ public class SSGeekAdminController {
         final String PRODUCT_ADD = "Add product";
         final String PRODUCT_UPDATE = "Update product details";
         final String PRODUCT_DELETE = "Delete product";
+        final String PRODUCT_IMAGE = "Set product image from a file";
         final String DONE = "Main menu";
-        final String[] MENU_OPTIONS = {PRODUCT_LIST, PRODUCT_DETAILS, PRODUCT_ADD, PRODUCT_UPDATE, PRODUCT_DELETE, DONE};
+        final String[] MENU_OPTIONS = {PRODUCT_LIST, PRODUCT_DETAILS, PRODUCT_ADD, PRODUCT_UPDATE, PRODUCT_DELETE, PRODUCT_IMAGE, DONE};
 
         boolean finished = false;
 
@@ -152,6 +199,9 @@ public class SSGeekAdminController {
                     case PRODUCT_DELETE:
                         deleteProduct();
                         break;
+                    case PRODUCT_IMAGE:
+                        setProductImage();
+                        break;
                     case DONE:
                         // Set finished to true so the loop exits.
                         finished = true;
@@ -161,6 +211,9 @@ public class SSGeekAdminController {
             catch (DaoException e) {
                 view.printErrorMessage("DAO error - " + e.getMessage());
             }
+            catch (ImageException e) {
+                view.printErrorMessage("Image error - " + e.getMessage());
+            }
         }
     }
 
@@ -172,9 +225,10 @@ public class SSGeekAdminController {
         final String SALES_LIST_CUSTOMER = "List sales orders for a customer";
         final String SALES_LIST_PRODUCT = "List sales orders for a product";
         final String SALES_SHIP = "Ship a sales order";
+        final String SALES_SHIP_BULK = "Ship sales orders in bulk";
         final String SALES_DELETE = "Delete a sales order";
         final String DONE = "Main menu";
-        final String[] MENU_OPTIONS = {SALES_LIST_CUSTOMER, SALES_LIST_PRODUCT, /* SALES_DETAILS, */SALES_SHIP, SALES_DELETE, DONE};
+        final String[] MENU_OPTIONS = {SALES_LIST_CUSTOMER, SALES_LIST_PRODUCT, /* SALES_DETAILS, */SALES_SHIP, SALES_SHIP_BULK, SALES_DELETE, DONE};
 
         boolean finished = false;
 
@@ -192,6 +246,9 @@ public class SSGeekAdminController {
                     case SALES_SHIP:
                         updateSaleShipDate();
                         break;
+                    case SALES_SHIP_BULK:
+                        shipSalesInBulk();
+                        break;
                     case SALES_DELETE:
                         deleteSale();
                         break;
@@ -207,6 +264,62 @@ public class SSGeekAdminController {
         }
     }
 
+    /**
+     * A loop which displays the reports sub-menu, and responds to the user's selection
+     */
+    private void displayReportsMenu() {
+        // Menu options
+        final String REPORT_SUMMARY = "Sales summary report";
+        final String REPORT_PRODUCT = "Revenue by product";
+        final String REPORT_MONTH = "Revenue by month";
+        final String REPORT_STATE = "Revenue by customer state";
+        final String REPORT_TOP_CUSTOMERS = "Top customers";
+        final String REPORT_PRODUCT_RANGE = "Revenue by product for a date range";
+        final String REPORT_STATE_RANGE = "Revenue by customer state for a date range";
+        final String DONE = "Main menu";
+        final String[] MENU_OPTIONS = {REPORT_SUMMARY, REPORT_PRODUCT, REPORT_MONTH, REPORT_STATE, REPORT_TOP_CUSTOMERS,
+                REPORT_PRODUCT_RANGE, REPORT_STATE_RANGE, DONE};
+
+        boolean finished = false;
+
+        // The menu loop
+        while (!finished) {
+            String selection = view.getMenuSelection("Sales reports menu", MENU_OPTIONS);
+            try {
+                switch (selection) {
+                    case REPORT_SUMMARY:
+                        displaySalesReport();
+                        break;
+                    case REPORT_PRODUCT:
+                        displayRevenueByProduct();
+                        break;
+                    case REPORT_MONTH:
+                        displayRevenueByMonth();
+                        break;
+                    case REPORT_STATE:
+                        displayRevenueByState();
+                        break;
+                    case REPORT_TOP_CUSTOMERS:
+                        displayTopCustomers();
+                        break;
+                    case REPORT_PRODUCT_RANGE:
+                        displayProductRevenueForRange();
+                        break;
+                    case REPORT_STATE_RANGE:
+                        displayStateRevenueForRange();
+                        break;
+                    case DONE:
+                        // Set finished to true so the loop exits.
+                        finished = true;
+                        break;
+                }
+            }
+            catch (DaoException e) {
+                view.printErrorMessage("DAO error - " + e.getMessage());
+            }
+        }
+    }
+
     //*******************************************************
     //region Customer menu actions
     //*******************************************************
@@ -230,11 +343,8 @@ public class SSGeekAdminController {
             view.printErrorMessage("You must implement CustomerDao and pass it into the controller for this option to work.");
             return;
         }
-        // Get the list of customers so the user can choose one
-        List<Customer> customers = customerDao.getCustomers();
-
-        // Display the list of customers and ask for selection
-        Customer customer = view.selectCustomer(customers);
+        // Let the user search for the customer and choose one of the matches
+        Customer customer = view.selectCustomer(this::findCustomers);
         if (customer == null) {
             // User cancelled
             return;
@@ -259,6 +369,7 @@ public class SSGeekAdminController {
         }
         // Call the DAO to add the new customer
         newCustomer = customerDao.createCustomer(newCustomer);
+        audit(AuditAction.CREATE, AuditEntity.CUSTOMER, newCustomer.getCustomerId(), newCustomer.getName());
         // Inform the user
         view.printMessage("Customer " + newCustomer.getCustomerId() + " has been created.");
     }
@@ -270,11 +381,8 @@ public class SSGeekAdminController {
             return;
         }
 
-        // Get the list of customers so the user can choose one
-        List<Customer> customers = customerDao.getCustomers();
-
-        // Display the list of customers and ask for selection
-        Customer customer = view.selectCustomer(customers);
+        // Let the user search for the customer and choose one of the matches
+        Customer customer = view.selectCustomer(this::findCustomers);
         if (customer == null) {
             // User cancelled
             return;
@@ -284,9 +392,18 @@ public class SSGeekAdminController {
 
         // Call the DAO to update the customer
         customerDao.updateCustomer(customer);
+        audit(AuditAction.UPDATE, AuditEntity.CUSTOMER, customer.getCustomerId(), customer.getName());
         // Inform the user
         view.printMessage("Customer has been updated.");
     }
+
+    // Blank search text lists every customer, anything else runs a fuzzy search
+    private List<Customer> findCustomers(String searchText) {
+        if (searchText.isBlank()) {
+            return customerDao.getCustomers();
+        }
+        return customerDao.searchCustomers(searchText, CUSTOMER_SEARCH_LIMIT);
+    }
     //*******************************************************
     //endregion Customer menu actions
     //*******************************************************
@@ -314,15 +431,14 @@ public class SSGeekAdminController {
             view.printErrorMessage("You must implement ProductDao and pass it into the controller for this option to work.");
             return;
         }
-        // Get the list of products so the user can choose one
-        List<Product> products = productDao.getProducts();
-
-        // Display the list of products and ask for selection
-        Product product = view.selectProduct(products);
+        // Let the user search for the product and choose one of the matches
+        Product product = view.selectProduct(productFinder());
         if (product == null) {
             // User cancelled
             return;
         }
+        // Name index matches only carry the id, name and price
+        product = productDao.getProductById(product.getProductId());
         // Show details to the user
         view.printProductDetail(product);
     }
@@ -343,6 +459,7 @@ public class SSGeekAdminController {
         }
         // Call the DAO to add the new product
         newProduct = productDao.createProduct(newProduct);
+        audit(AuditAction.CREATE, AuditEntity.PRODUCT, newProduct.getProductId(), newProduct.getName());
         // Inform the user
         view.printMessage("Product " + newProduct.getProductId() + " has been created.");
     }
@@ -354,20 +471,20 @@ public class SSGeekAdminController {
             return;
         }
 
-        // Get the list of products so the user can choose one
-        List<Product> products = productDao.getProducts();
-
-        // Display the list of products and ask for selection
-        Product product = view.selectProduct(products);
+        // Let the user search for the product and choose one of the matches
+        Product product = view.selectProduct(productFinder());
         if (product == null) {
             // User cancelled
             return;
         }
+        // Name index matches only carry the id, name and price
+        product = productDao.getProductById(product.getProductId());
         // Prompt the user for product information
         product = view.promptForProductInformation(product);
 
         // Call the DAO to update the product
         productDao.updateProduct(product);
+        audit(AuditAction.UPDATE, AuditEntity.PRODUCT, product.getProductId(), product.getName());
         // Inform the user
         view.printMessage("Product has been updated.");
     }
@@ -401,9 +518,58 @@ public class SSGeekAdminController {
 
         // Call the DAO to delete the product
         productDao.deleteProductById(product.getProductId());
+        audit(AuditAction.DELETE, AuditEntity.PRODUCT, product.getProductId(), product.getName());
         // Inform the user
         view.printMessage("Product has been deleted.");
     }
+
+    private void setProductImage() {
+        // Make sure we have the appropriate DAOs
+        if (productDao == null || productImageDao == null || imageStore == null) {
+            view.printErrorMessage("You must implement ProductDao and ProductImageDao, and pass them and an ImageStore into the controller for this option to work.");
+            return;
+        }
+
+        // Let the user search for the product and choose one of the matches
+        Product product = view.selectProduct(productFinder());
+        if (product == null) {
+            // User cancelled
+            return;
+        }
+        Path file = view.promptForImageFile();
+        if (file == null) {
+            // User cancelled
+            return;
+        }
+
+        // Store the file (a copy already in the store is reused), record it, and point the product at it
+        ProductImage image = productImageDao.saveImage(imageStore.store(file));
+        product = productDao.getProductById(product.getProductId());
+        product.setImageName(image.getImageName());
+        productDao.updateProduct(product);
+        audit(AuditAction.UPDATE, AuditEntity.PRODUCT, product.getProductId(), "image " + image.getImageName());
+        // Inform the user
+        view.printMessage("Product image has been set.");
+        view.printProductImage(image);
+    }
+
+    // Blank search text lists the whole catalog. Anything else matches product names in memory when
+    // there is a name index, falling back to a full-text search when no name matches.
+    private Function<String, List<Product>> productFinder() {
+        TypeAhead typeAhead = productNameIndex == null ? null : productNameIndex.typeAhead(PRODUCT_SEARCH_LIMIT);
+        return searchText -> {
+            if (searchText.isBlank()) {
+                return productDao.getProducts();
+            }
+            if (typeAhead != null) {
+                List<Product> matches = typeAhead.update(searchText);
+                if (!matches.isEmpty()) {
+                    return matches;
+                }
+            }
+            return productDao.searchProducts(searchText, PRODUCT_SEARCH_LIMIT);
+        };
+    }
     //*******************************************************
     //endregion Product menu actions
     //*******************************************************
@@ -428,11 +594,8 @@ public class SSGeekAdminController {
     }
 
     private void listSalesForCustomer() {
-        // Get a list of customers so the user can choose
-        List<Customer> customers = customerDao.getCustomers();
-
-        // Prompt the user to select a customer
-        Customer customer = view.selectCustomer(customers);
+        // Let the user search for the customer and choose one of the matches
+        Customer customer = view.selectCustomer(this::findCustomers);
         if (customer == null) {
             // user cancelled
             return;
@@ -469,11 +632,8 @@ public class SSGeekAdminController {
             return;
         }
 
-        // Get a list of products so the user can choose
-        List<Product> products = productDao.getProducts();
-
-        // Prompt the user to select a product
-        Product product = view.selectProduct(products);
+        // Let the user search for the product and choose one of the matches
+        Product product = view.selectProduct(productFinder());
         if (product == null) {
             // user cancelled
             return;
@@ -521,14 +681,51 @@ public class SSGeekAdminController {
             return;
         }
 
-        // Sell the ship date to today
-        sale.setShipDate(LocalDate.now());
-
-        // Update the sale in the database
-        saleDao.updateSale(sale);
+        // Ship it today, unless it was shipped since the list was read
+        List<Integer> shipped = saleDao.shipSales(List.of(sale.getSaleId()), LocalDate.now());
 
         // Inform the user
-        view.printMessage(String.format("Sales order %d has been shipped", sale.getSaleId()));
+        if (shipped.isEmpty()) {
+            view.printErrorMessage(String.format("Sales order %d has already been shipped", sale.getSaleId()));
+        } else {
+            audit(AuditAction.SHIP, AuditEntity.SALE, sale.getSaleId(), "shipped " + LocalDate.now());
+            view.printMessage(String.format("Sales order %d has been shipped", sale.getSaleId()));
+        }
+    }
+
+    private void shipSalesInBulk() {
+        // Make sure we have the appropriate DAOs
+        if (saleDao == null) {
+            view.printErrorMessage("You must implement SaleDao and pass it into the controller for this option to work.");
+            return;
+        }
+        final String SHIP_THROUGH_DATE = "Ship all unshipped orders placed on or before a date";
+        final String SHIP_BY_ID = "Ship a list of sales orders";
+        final String CANCEL = "Cancel";
+        final String[] MENU_OPTIONS = {SHIP_THROUGH_DATE, SHIP_BY_ID, CANCEL};
+
+        List<Integer> shipped;
+        String selection = view.getMenuSelection("Ship sales orders in bulk", MENU_OPTIONS);
+        if (selection.equals(SHIP_THROUGH_DATE)) {
+            LocalDate saleDateThrough = view.promptForLatestSaleDate();
+            if (saleDateThrough == null ||
+                    !view.promptForYesNo("Ship every unshipped order placed on or before " + saleDateThrough + "?")) {
+                return;
+            }
+            shipped = saleDao.shipUnshippedSalesThrough(saleDateThrough, LocalDate.now());
+        } else if (selection.equals(SHIP_BY_ID)) {
+            List<Integer> saleIds = view.promptForSaleIds();
+            if (saleIds == null) {
+                return;
+            }
+            shipped = saleDao.shipSales(saleIds, LocalDate.now());
+        } else {
+            return;
+        }
+
+        auditShipped(shipped);
+        // Ids that were asked for but are missing here were already shipped or don't exist
+        view.printShippedSales(shipped);
     }
 
     private void deleteSale() {
@@ -565,6 +762,7 @@ public class SSGeekAdminController {
 
         // Call the DAO to delete the sale
         saleDao.deleteSaleById(sale.getSaleId());
+        audit(AuditAction.DELETE, AuditEntity.SALE, sale.getSaleId(), sale.getCustomerName());
 
         // Inform the user
         view.printMessage("Sale has been deleted.");
@@ -573,5 +771,139 @@ public class SSGeekAdminController {
     //endregion Sales menu actions
     //*******************************************************
 
+    //*******************************************************
+    //region Audit journal
+    //*******************************************************
+
+    // The change has already been made, so a journal failure is reported but doesn't undo it
+    private void audit(AuditAction action, AuditEntity entity, int entityId, String detail) {
+        if (auditJournal == null) {
+            return;
+        }
+        try {
+            auditJournal.append(new AuditRecord(System.currentTimeMillis(), action, entity, entityId, auditActor, detail));
+        } catch (AuditException e) {
+            view.printErrorMessage("Audit error - " + e.getMessage());
+        }
+    }
+
+    // One record per sale shipped, appended together so they share a write
+    private void auditShipped(List<Integer> saleIds) {
+        if (auditJournal == null || saleIds.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String detail = "shipped " + LocalDate.now();
+        List<AuditRecord> records = new ArrayList<>(saleIds.size());
+        for (int saleId : saleIds) {
+            records.add(new AuditRecord(now, AuditAction.SHIP, AuditEntity.SALE, saleId, auditActor, detail));
+        }
+        try {
+            auditJournal.append(records);
+        } catch (AuditException e) {
+            view.printErrorMessage("Audit error - " + e.getMessage());
+        }
+    }
+    //*******************************************************
+    //endregion Audit journal
+    //*******************************************************
+
+    //*******************************************************
+    // region Reports menu actions
+    //*******************************************************
+
+    private void displaySalesReport() {
+        // Make sure we have the appropriate DAOs
+        if (reportDao == null) {
+            view.printErrorMessage("You must implement ReportDao and pass it into the controller for this option to work.");
+            return;
+        }
+
+        // All sections come from one snapshot so they agree with each other
+        SalesReport report = reportDao.getSalesReport(TOP_CUSTOMER_COUNT);
+        view.printSalesReport(report);
+    }
+
+    private void displayRevenueByProduct() {
+        // Make sure we have the appropriate DAOs
+        if (reportDao == null) {
+            view.printErrorMessage("You must implement ReportDao and pass it into the controller for this option to work.");
+            return;
+        }
+
+        view.printReport("Revenue by Product", "Product", reportDao.getRevenueByProduct());
+    }
+
+    private void displayRevenueByMonth() {
+        // Make sure we have the appropriate DAOs
+        if (reportDao == null) {
+            view.printErrorMessage("You must implement ReportDao and pass it into the controller for this option to work.");
+            return;
+        }
+
+        view.printReport("Revenue by Month", "Month", reportDao.getRevenueByMonth());
+    }
+
+    private void displayRevenueByState() {
+        // Make sure we have the appropriate DAOs
+        if (reportDao == null) {
+            view.printErrorMessage("You must implement ReportDao and pass it into the controller for this option to work.");
+            return;
+        }
+
+        view.printReport("Revenue by Customer State", "State", reportDao.getRevenueByState());
+    }
+
+    private void displayTopCustomers() {
+        // Make sure we have the appropriate DAOs
+        if (reportDao == null) {
+            view.printErrorMessage("You must implement ReportDao and pass it into the controller for this option to work.");
+            return;
+        }
+
+        view.printReport("Top Customers", "Customer", reportDao.getTopCustomers(TOP_CUSTOMER_COUNT));
+    }
+
+    private void displayProductRevenueForRange() {
+        // Make sure we have the appropriate DAOs
+        if (rollupDao == null) {
+            view.printErrorMessage("You must implement RollupDao and pass it into the controller for this option to work.");
+            return;
+        }
+
+        // Prompt the user for the date range
+        LocalDate[] range = view.promptForDateRange();
+        if (range == null) {
+            // User cancelled
+            return;
+        }
+
+        // Closed periods come from the rollups, the rest from live data
+        view.printReport(String.format("Revenue by Product %s to %s", range[0], range[1]), "Product",
+                rollupDao.getProductRevenue(range[0], range[1].plusDays(1)));
+    }
+
+    private void displayStateRevenueForRange() {
+        // Make sure we have the appropriate DAOs
+        if (rollupDao == null) {
+            view.printErrorMessage("You must implement RollupDao and pass it into the controller for this option to work.");
+            return;
+        }
+
+        // Prompt the user for the date range
+        LocalDate[] range = view.promptForDateRange();
+        if (range == null) {
+            // User cancelled
+            return;
+        }
+
+        // Closed periods come from the rollups, the rest from live data
+        view.printReport(String.format("Revenue by Customer State %s to %s", range[0], range[1]), "State",
+                rollupDao.getStateRevenue(range[0], range[1].plusDays(1)));
+    }
+    //*******************************************************
+    //endregion Reports menu actions
+    //*******************************************************
+
 
 }
@@ -1,13 +1,20 @@
 package com.techelevator.ssgeek;
 
 import com.techelevator.util.BasicConsole;
+import com.techelevator.util.ConsoleTable;
 import com.techelevator.ssgeek.model.*;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.NumberFormat;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * SSGeekAdminView is a class that the SSGeekAdminController uses for gathering information
@@ -46,8 +53,37 @@ public class SSGeekAdminView {
     // endregion Printing to console in color
     // **************************************************************
 
+    // Rows of a list shown before asking whether to go on
+    private static final int ROWS_PER_SCREEN = 40;
+
     private final BasicConsole console;
 
+    // Column layouts of the lists, worked out once and reused for every list printed
+    private final NumberFormat moneyFormat = NumberFormat.getCurrencyInstance();
+    private final DateTimeFormatter shortDateFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT);
+    private final ConsoleTable<Product> productTable = new ConsoleTable<Product>()
+            .column("Id", 4, ConsoleTable.Align.RIGHT, (product, cell) -> cell.append(product.getProductId()))
+            .column("Price", 12, ConsoleTable.Align.RIGHT, (product, cell) -> cell.append(moneyFormat, product.getPrice()))
+            .textColumn("Name", 40, (product, cell) -> cell.append(product.getName()));
+    private final ConsoleTable<Customer> customerTable = new ConsoleTable<Customer>()
+            .column("Id", 4, ConsoleTable.Align.RIGHT, (customer, cell) -> cell.append(customer.getCustomerId()))
+            .textColumn("Name", 24, (customer, cell) -> cell.append(customer.getName()))
+            .textColumn("City", 24, (customer, cell) -> cell.append(customer.getCity()))
+            .column("ST", 2, ConsoleTable.Align.LEFT, (customer, cell) -> cell.append(customer.getState()));
+    private final ConsoleTable<Sale> saleTable = new ConsoleTable<Sale>()
+            .column("Id", 4, ConsoleTable.Align.RIGHT, (sale, cell) -> cell.append(sale.getSaleId()))
+            .textColumn("Customer", 30, (sale, cell) -> cell.append(sale.getCustomerName()))
+            .column("Sale Date", 12, ConsoleTable.Align.LEFT, (sale, cell) -> cell.append(shortDateFormat, sale.getSaleDate()))
+            .column("Ship Date", 12, ConsoleTable.Align.LEFT, (sale, cell) -> cell.append(shortDateFormat, sale.getShipDate()))
+            .column("Items", 5, ConsoleTable.Align.RIGHT, (sale, cell) -> cell.append(sale.getItemCount()))
+            .column("Total", 12, ConsoleTable.Align.RIGHT, (sale, cell) -> cell.append(moneyFormat, sale.getTotalAmount()));
+    private final ConsoleTable<LineItem> lineItemTable = new ConsoleTable<LineItem>()
+            .column("Product", 7, ConsoleTable.Align.RIGHT, (lineItem, cell) -> cell.append(lineItem.getProductId()))
+            .textColumn("Name", 50, (lineItem, cell) -> cell.append(lineItem.getProductName()))
+            .column("Qty", 5, ConsoleTable.Align.RIGHT, (lineItem, cell) -> cell.append(lineItem.getQuantity()))
+            .column("Price", 12, ConsoleTable.Align.RIGHT, (lineItem, cell) -> cell.appendCents(lineItem.getPriceCents()))
+            .column("Amount", 12, ConsoleTable.Align.RIGHT, (lineItem, cell) -> cell.appendCents(lineItem.getExtendedPriceCents()));
+
     // Constructor expect a console object to print to.
     public SSGeekAdminView(BasicConsole console) {
         this.console = console;
@@ -104,69 +140,68 @@ public class SSGeekAdminView {
     }
 
     private void printProductList(List<Product> products) {
-        String heading1 = "  Id         Price  Name                                    ";
-        String heading2 = "====  ============  ========================================";
-        String formatString = "%4d  %12s  %-40s";
-        NumberFormat moneyFormat = NumberFormat.getCurrencyInstance();
-        printMessage(heading1);
-        printMessage(heading2);
-        for (Product product : products) {
-            String s = String.format(formatString, product.getProductId(), moneyFormat.format(product.getPrice()), product.getName());
-            printMessage(s);
-        }
+        printTable(productTable, products);
     }
 
     public void printCustomerList(List<Customer> customers) {
-        String heading1 = "  Id  Name                      City                      ST";
-        String heading2 = "====  ========================  ========================  ==";
-        String formatString = "%4d  %-24s  %-24s  %2s";
-        printMessage(heading1);
-        printMessage(heading2);
-        for (Customer customer : customers) {
-            String s = String.format(formatString,
-                    customer.getCustomerId(),
-                    customer.getName(),
-                    customer.getCity(),
-                    customer.getState()
-            );
-            printMessage(s);
-        }
+        printTable(customerTable, customers);
     }
 
     public void printSaleList(List<Sale> sales) {
-        String heading1 = "  Id  Customer                        Sale Date     Ship Date   ";
-        String heading2 = "====  ==============================  ============  ============";
-        String formatString = "%4d  %-30s  %-12s  %-12s";
-        DateTimeFormatter dtFormat = DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT);
-        printMessage(heading1);
-        printMessage(heading2);
-        for (Sale sale : sales) {
-            String s = String.format(formatString,
-                    sale.getSaleId(),
-                    sale.getCustomerName(),
-                    dtFormat.format(sale.getSaleDate()),
-                    sale.getShipDate() == null ? "" : dtFormat.format(sale.getShipDate()));
-            printMessage(s);
-        }
+        printTable(saleTable, sales);
     }
 
     private void printLineItemList(List<LineItem> lineItems) {
-        String heading1 = "Product  Name                                                  Qty         Price        Amount";
-        String heading2 = "=======  ==================================================  =====  ============  ============";
-        String formatString = "%7d  %-50s  %5d %12.2f  %12.2f";
+        printTable(lineItemTable, lineItems);
+    }
+
+    // Print a table a screen at a time; the user can stop after any screen
+    private <T> void printTable(ConsoleTable<T> table, List<T> rows) {
+        table.print(rows, console.getOutput(), ROWS_PER_SCREEN, (shown, total) -> console.promptForString(
+                String.format("(%d of %d shown. Press return for more, or enter Q to stop...)", shown, total)).isBlank());
+    }
+
+    public void printReport(String title, String groupHeading, List<ReportLine> lines) {
+        printBanner(title);
+        printReportLines(groupHeading, lines);
+        console.pauseOutput();
+    }
+
+    public void printSalesReport(SalesReport report) {
+        NumberFormat moneyFormat = NumberFormat.getCurrencyInstance();
+        printBanner("Sales Report");
+        printMessage(String.format("Orders: %d  Units: %d  Revenue: %s",
+                report.getTotalOrders(), report.getTotalUnits(), moneyFormat.format(report.getTotalRevenue())));
+        printMessage("Revenue by product:");
+        printReportLines("Product", report.getRevenueByProduct());
+        printMessage("Revenue by month:");
+        printReportLines("Month", report.getRevenueByMonth());
+        printMessage("Revenue by state:");
+        printReportLines("State", report.getRevenueByState());
+        printMessage("Top customers:");
+        printReportLines("Customer", report.getTopCustomers());
+        console.pauseOutput();
+    }
+
+    private void printReportLines(String groupHeading, List<ReportLine> lines) {
+        String heading1 = String.format("Rank  %-40s  Orders   Units         Revenue       %%", groupHeading);
+        String heading2 = "====  ========================================  ======  ======  ==============  ======";
+        String formatString = "%4d  %-40s  %6d  %6d  %14s  %6.2f";
+        NumberFormat moneyFormat = NumberFormat.getCurrencyInstance();
         printMessage(heading1);
         printMessage(heading2);
-        for (LineItem lineItem : lineItems) {
-            String productName = lineItem.getProductName();
-            if (productName.length() > 50) {
-                productName = productName.substring(0, 47) + "...";
+        for (ReportLine line : lines) {
+            String label = line.getLabel();
+            if (label.length() > 40) {
+                label = label.substring(0, 37) + "...";
             }
             String s = String.format(formatString,
-                    lineItem.getProductId(),
-                    productName,
-                    lineItem.getQuantity(),
-                    lineItem.getPrice(),
-                    lineItem.getExtendedPrice());
+                    line.getRank(),
+                    label,
+                    line.getOrderCount(),
+                    line.getUnits(),
+                    moneyFormat.format(line.getRevenue()),
+                    line.getPercentOfTotal());
             printMessage(s);
         }
     }
@@ -193,6 +228,38 @@ public class SSGeekAdminView {
         }
     }
 
+    // Ask for search text and let the user choose from the products the search function returns
+    public Product selectProduct(Function<String, List<Product>> productSearch) {
+        while (true) {
+            String searchText = console.promptForString("Search products [blank for all]: ");
+            List<Product> products = productSearch.apply(searchText.trim());
+            if (!products.isEmpty()) {
+                return selectProduct(products);
+            }
+            if (searchText.isBlank()) {
+                printErrorMessage("There are no products!");
+                return null;
+            }
+            printErrorMessage("No products match '" + searchText + "', please try again.");
+        }
+    }
+
+    // Ask for search text and let the user choose from the customers the search function returns
+    public Customer selectCustomer(Function<String, List<Customer>> customerSearch) {
+        while (true) {
+            String searchText = console.promptForString("Search customers by name, address, zip or state [blank for all]: ");
+            List<Customer> customers = customerSearch.apply(searchText.trim());
+            if (!customers.isEmpty()) {
+                return selectCustomer(customers);
+            }
+            if (searchText.isBlank()) {
+                printErrorMessage("There are no customers!");
+                return null;
+            }
+            printErrorMessage("No customers match '" + searchText + "', please try again.");
+        }
+    }
+
     public Customer selectCustomer(List<Customer> customers) {
         while (true) {
             printCustomerList(customers);
@@ -284,6 +351,12 @@ public class SSGeekAdminView {
         console.pauseOutput();
     }
 
+    public void printProductImage(ProductImage image) {
+        printMessage(String.format("Image name: %s", image.getImageName()));
+        printMessage(String.format("Type: %s, %d x %d pixels, %,d bytes", image.getContentType(),
+                image.getWidth(), image.getHeight(), image.getSizeBytes()));
+    }
+
     public void printSaleDetail(Sale sale, List<LineItem> lineItems, Customer customer) {
         printBanner(String.format("Details for Sale %s", sale.getSaleId()));
 
@@ -303,6 +376,8 @@ public class SSGeekAdminView {
         // Line items
         printMessage("Line Items:");
         printLineItemList(lineItems);
+        NumberFormat moneyFormat = NumberFormat.getCurrencyInstance();
+        printMessage(String.format("Order Total: %s", moneyFormat.format(Money.toBigDecimal(Money.extendedTotalCents(lineItems)))));
     }
 
     // **************************************************************
@@ -397,6 +472,80 @@ public class SSGeekAdminView {
         return promptForString("Image name", false, defaultValue);
     }
 
+    // Returns the first and last date of the range (both inclusive), or null if the user cancelled
+    public LocalDate[] promptForDateRange() {
+        LocalDate fromDate = console.promptForLocalDate("From date ");
+        if (fromDate == null) {
+            return null;
+        }
+        while (true) {
+            LocalDate toDate = console.promptForLocalDate("To date ");
+            if (toDate == null) {
+                return null;
+            }
+            if (!toDate.isBefore(fromDate)) {
+                return new LocalDate[] {fromDate, toDate};
+            }
+            printErrorMessage("The to date can't be before the from date, please try again.");
+        }
+    }
+
+    // Returns null if the user cancelled
+    public LocalDate promptForLatestSaleDate() {
+        return console.promptForLocalDate("Latest sale date ");
+    }
+
+    // Returns the sale ids entered, separated by commas or spaces, or null if the user cancelled
+    public List<Integer> promptForSaleIds() {
+        while (true) {
+            String entry = console.promptForString("Sales order ids, separated by commas [blank to cancel]: ").trim();
+            if (entry.isEmpty()) {
+                return null;
+            }
+            List<Integer> saleIds = new ArrayList<>();
+            try {
+                for (String id : entry.split("[,\\s]+")) {
+                    if (!id.isEmpty()) {
+                        saleIds.add(Integer.parseInt(id));
+                    }
+                }
+                return saleIds;
+            } catch (NumberFormatException e) {
+                printErrorMessage("Sales order ids must be whole numbers, please try again.");
+            }
+        }
+    }
+
+    public void printShippedSales(List<Integer> shippedIds) {
+        if (shippedIds.isEmpty()) {
+            printMessage("No sales orders were shipped.");
+            return;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (Integer id : shippedIds) {
+            if (ids.length() > 0) {
+                ids.append(", ");
+            }
+            ids.append(id);
+        }
+        printMessage(String.format("%d sales order(s) shipped: %s", shippedIds.size(), ids));
+    }
+
+    // Returns the path of an existing file, or null if the user cancelled
+    public Path promptForImageFile() {
+        while (true) {
+            String fileName = console.promptForString("Image file [blank to cancel]: ").trim();
+            if (fileName.isEmpty()) {
+                return null;
+            }
+            Path file = Paths.get(fileName);
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+            printErrorMessage("There is no file '" + fileName + "', please try again.");
+        }
+    }
+
     private String promptWithDefault(String prompt, Object defaultValue) {
         if (defaultValue != null) {
             return prompt + "[" + defaultValue.toString() + "]: ";
@@ -0,0 +1,54 @@
+package com.techelevator.ssgeek.analytics;
+
+import com.techelevator.ssgeek.dao.JdbcSalesColumnDao;
+import com.techelevator.ssgeek.dao.SalesColumnDao;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+/**
+ * ColumnarComparison loads the SSGeek line items into SalesColumns, runs each kind of group-by both in
+ * memory and as the equivalent SQL, checks that the results match, and prints the timings.
+ *
+ * Usage: ColumnarComparison [jdbcUrl] [repetitions]
+ */
+
+public class ColumnarComparison {
+
+    public static void main(String[] args) {
+        String url = args.length > 0 ? args[0] : "jdbc:postgresql://localhost:5432/SSGeek";
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUsername("postgres");
+        dataSource.setPassword("postgres1");
+
+        SalesColumnDao salesColumnDao = new JdbcSalesColumnDao(dataSource);
+        SalesColumns columns = new SalesColumns();
+
+        long start = System.nanoTime();
+        int loaded = salesColumnDao.appendNewSales(columns);
+        System.out.format("Loaded %d line items in %.1f ms%n", loaded, (System.nanoTime() - start) / 1e6);
+
+        for (GroupBy groupBy : GroupBy.values()) {
+            SalesQuery query = new SalesQuery(groupBy);
+
+            GroupedTotals inMemory = null;
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                inMemory = columns.aggregate(query);
+            }
+            double memoryMillis = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            GroupedTotals inSql = null;
+            start = System.nanoTime();
+            for (int i = 0; i < repetitions; i++) {
+                inSql = salesColumnDao.aggregate(query, columns.getLoadedBeforeTxid());
+            }
+            double sqlMillis = (System.nanoTime() - start) / 1e6 / repetitions;
+
+            System.out.format("%-8s  groups %6d  columnar %9.3f ms  sql %9.3f ms  speedup %7.1fx  %s%n",
+                    groupBy, inMemory.size(), memoryMillis, sqlMillis, sqlMillis / memoryMillis,
+                    inMemory.matches(inSql) ? "results match" : "RESULTS DIFFER");
+        }
+    }
+}
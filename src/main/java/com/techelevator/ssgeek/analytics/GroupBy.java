@@ -0,0 +1,14 @@
+package com.techelevator.ssgeek.analytics;
+
+/**
+ * The column a SalesQuery groups line items by.
+ */
+
+public enum GroupBy {
+    PRODUCT,
+    CUSTOMER,
+    // Sale date as days since 1970-01-01
+    DAY,
+    // Sale date as year * 12 + (month - 1)
+    MONTH
+}
@@ -0,0 +1,51 @@
+package com.techelevator.ssgeek.analytics;
+
+import java.util.Arrays;
+
+/**
+ * GroupedTotals is the result of a SalesQuery: one entry per group key, in ascending key order, with
+ * the number of line items, units sold and revenue in cents. Only groups with at least one line item
+ * are included.
+ */
+
+public class GroupedTotals {
+    private final int[] keys;
+    private final int[] lineCounts;
+    private final long[] units;
+    private final long[] revenueCents;
+
+    public GroupedTotals(int[] keys, int[] lineCounts, long[] units, long[] revenueCents) {
+        this.keys = keys;
+        this.lineCounts = lineCounts;
+        this.units = units;
+        this.revenueCents = revenueCents;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public int getKey(int index) {
+        return keys[index];
+    }
+
+    public int getLineCount(int index) {
+        return lineCounts[index];
+    }
+
+    public long getUnits(int index) {
+        return units[index];
+    }
+
+    public long getRevenueCents(int index) {
+        return revenueCents[index];
+    }
+
+    // True when both results have exactly the same groups and totals
+    public boolean matches(GroupedTotals other) {
+        return Arrays.equals(keys, other.keys)
+                && Arrays.equals(lineCounts, other.lineCounts)
+                && Arrays.equals(units, other.units)
+                && Arrays.equals(revenueCents, other.revenueCents);
+    }
+}
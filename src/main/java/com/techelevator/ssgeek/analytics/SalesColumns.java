@@ -0,0 +1,346 @@
+package com.techelevator.ssgeek.analytics;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * SalesColumns holds every line item, joined with its sale, as primitive column arrays so that
+ * group-by aggregations can run in memory as tight loops over arrays instead of queries.
+ *
+ * Rows are only ever appended. A single loader appends rows and then publishes them; queries work on
+ * the snapshot that was published when they started, so they never need a lock and never see a
+ * half-loaded batch.
+ */
+
+public class SalesColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Smallest slice of rows worth handing to another fork/join worker
+    private static final int MIN_ROWS_PER_TASK = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    // The rows queries can see
+    private volatile Snapshot published = new Snapshot(INITIAL_CAPACITY);
+
+    // Rows appended since the last publish (only touched by the loader, under the object lock)
+    private Snapshot pending;
+
+    public SalesColumns() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public SalesColumns(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Append one line item. It is not visible to queries until publish() is called.
+     */
+    public synchronized void append(int saleId, int productId, int customerId, int quantity, long priceCents, LocalDate saleDate) {
+        if (pending == null) {
+            pending = published.copyForAppend();
+        }
+        pending.add(saleId, productId, customerId, quantity, priceCents, saleDate);
+    }
+
+    /**
+     * Make every row appended so far visible to new queries.
+     *
+     * @return The number of rows published.
+     */
+    public synchronized int publish() {
+        if (pending == null) {
+            return 0;
+        }
+        int added = pending.size - published.size;
+        published = pending;
+        pending = null;
+        return added;
+    }
+
+    /**
+     * Make every row appended so far visible to new queries, and record that the columns now hold every
+     * line item added by a transaction below loadedBeforeTxid, the high-water mark for the next load.
+     *
+     * @return The number of rows published.
+     */
+    public synchronized int publish(long loadedBeforeTxid) {
+        if (pending == null) {
+            pending = published.copyForAppend();
+        }
+        pending.loadedBeforeTxid = loadedBeforeTxid;
+        return publish();
+    }
+
+    /**
+     * Throw away rows appended since the last publish, for example when a load failed part way.
+     */
+    public synchronized void discardPending() {
+        pending = null;
+    }
+
+    // Number of published rows
+    public int size() {
+        return published.size;
+    }
+
+    // Transaction id below which every line item is in the published rows, the high-water mark for
+    // incremental loads; 0 before the first load
+    public long getLoadedBeforeTxid() {
+        return published.loadedBeforeTxid;
+    }
+
+    /**
+     * Run a filtered group-by over the published rows, split across the fork/join pool.
+     */
+    public GroupedTotals aggregate(SalesQuery query) {
+        Snapshot rows = published;
+        int[] keyColumn = rows.column(query.getGroupBy());
+        int keyMin = rows.min(query.getGroupBy());
+        int keyMax = rows.max(query.getGroupBy());
+        if (rows.size == 0) {
+            return new GroupedTotals(new int[0], new int[0], new long[0], new long[0]);
+        }
+
+        // Keys are serial ids or day/month numbers, so a dense array indexed by (key - min) is both the
+        // smallest and the fastest accumulator
+        int rowsPerTask = Math.max(MIN_ROWS_PER_TASK, rows.size / (pool.getParallelism() * 4) + 1);
+        Accumulator totals = pool.invoke(new AggregateTask(rows, query, keyColumn, keyMin,
+                keyMax - keyMin + 1, 0, rows.size, rowsPerTask));
+        return totals.toGroupedTotals(keyMin);
+    }
+
+    private static class AggregateTask extends RecursiveTask<Accumulator> {
+        private final Snapshot rows;
+        private final SalesQuery query;
+        private final int[] keyColumn;
+        private final int keyMin;
+        private final int keyRange;
+        private final int from;
+        private final int to;
+        private final int rowsPerTask;
+
+        AggregateTask(Snapshot rows, SalesQuery query, int[] keyColumn, int keyMin, int keyRange, int from, int to, int rowsPerTask) {
+            this.rows = rows;
+            this.query = query;
+            this.keyColumn = keyColumn;
+            this.keyMin = keyMin;
+            this.keyRange = keyRange;
+            this.from = from;
+            this.to = to;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= rowsPerTask) {
+                return scan();
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(rows, query, keyColumn, keyMin, keyRange, from, middle, rowsPerTask);
+            AggregateTask right = new AggregateTask(rows, query, keyColumn, keyMin, keyRange, middle, to, rowsPerTask);
+            left.fork();
+            Accumulator result = right.compute();
+            result.add(left.join());
+            return result;
+        }
+
+        private Accumulator scan() {
+            // Copy everything the loop needs into locals so the JIT keeps them in registers
+            final int[] keys = keyColumn;
+            final int[] days = rows.saleDays;
+            final int[] products = rows.productIds;
+            final int[] customers = rows.customerIds;
+            final int[] quantities = rows.quantities;
+            final long[] prices = rows.priceCents;
+            final int fromDay = query.getFromDay();
+            final int toDay = query.getToDay();
+            final int productId = query.getProductId();
+            final int customerId = query.getCustomerId();
+            final int min = keyMin;
+
+            Accumulator acc = new Accumulator(keyRange);
+            final int[] lineCounts = acc.lineCounts;
+            final long[] units = acc.units;
+            final long[] revenue = acc.revenueCents;
+            for (int i = from; i < to; i++) {
+                int day = days[i];
+                if (day < fromDay || day >= toDay) {
+                    continue;
+                }
+                if (productId != SalesQuery.ANY && products[i] != productId) {
+                    continue;
+                }
+                if (customerId != SalesQuery.ANY && customers[i] != customerId) {
+                    continue;
+                }
+                int k = keys[i] - min;
+                long quantity = quantities[i];
+                lineCounts[k]++;
+                units[k] += quantity;
+                revenue[k] += quantity * prices[i];
+            }
+            return acc;
+        }
+    }
+
+    private static class Accumulator {
+        final int[] lineCounts;
+        final long[] units;
+        final long[] revenueCents;
+
+        Accumulator(int keyRange) {
+            lineCounts = new int[keyRange];
+            units = new long[keyRange];
+            revenueCents = new long[keyRange];
+        }
+
+        void add(Accumulator other) {
+            for (int k = 0; k < lineCounts.length; k++) {
+                lineCounts[k] += other.lineCounts[k];
+                units[k] += other.units[k];
+                revenueCents[k] += other.revenueCents[k];
+            }
+        }
+
+        GroupedTotals toGroupedTotals(int keyMin) {
+            int groups = 0;
+            for (int count : lineCounts) {
+                if (count > 0) {
+                    groups++;
+                }
+            }
+            int[] keys = new int[groups];
+            int[] counts = new int[groups];
+            long[] unitTotals = new long[groups];
+            long[] revenueTotals = new long[groups];
+            int g = 0;
+            for (int k = 0; k < lineCounts.length; k++) {
+                if (lineCounts[k] > 0) {
+                    keys[g] = k + keyMin;
+                    counts[g] = lineCounts[k];
+                    unitTotals[g] = units[k];
+                    revenueTotals[g] = revenueCents[k];
+                    g++;
+                }
+            }
+            return new GroupedTotals(keys, counts, unitTotals, revenueTotals);
+        }
+    }
+
+    /**
+     * The column arrays and the number of rows in use. Arrays are shared with the snapshot they were
+     * copied from while there is room, because rows past an older snapshot's size are never read by it.
+     */
+    private static class Snapshot {
+        int size;
+        long loadedBeforeTxid;
+        int[] saleIds;
+        int[] productIds;
+        int[] customerIds;
+        int[] quantities;
+        long[] priceCents;
+        int[] saleDays;
+        int[] saleMonths;
+        // Smallest and largest value in each groupable column, indexed by GroupBy.ordinal()
+        int[] mins = new int[GroupBy.values().length];
+        int[] maxes = new int[GroupBy.values().length];
+
+        Snapshot(int capacity) {
+            saleIds = new int[capacity];
+            productIds = new int[capacity];
+            customerIds = new int[capacity];
+            quantities = new int[capacity];
+            priceCents = new long[capacity];
+            saleDays = new int[capacity];
+            saleMonths = new int[capacity];
+            Arrays.fill(mins, Integer.MAX_VALUE);
+            Arrays.fill(maxes, Integer.MIN_VALUE);
+        }
+
+        private Snapshot() {}
+
+        Snapshot copyForAppend() {
+            Snapshot copy = new Snapshot();
+            copy.size = size;
+            copy.loadedBeforeTxid = loadedBeforeTxid;
+            copy.saleIds = saleIds;
+            copy.productIds = productIds;
+            copy.customerIds = customerIds;
+            copy.quantities = quantities;
+            copy.priceCents = priceCents;
+            copy.saleDays = saleDays;
+            copy.saleMonths = saleMonths;
+            copy.mins = mins.clone();
+            copy.maxes = maxes.clone();
+            return copy;
+        }
+
+        void add(int saleId, int productId, int customerId, int quantity, long price, LocalDate saleDate) {
+            if (size == saleIds.length) {
+                grow();
+            }
+            int day = (int) saleDate.toEpochDay();
+            int month = saleDate.getYear() * 12 + saleDate.getMonthValue() - 1;
+            saleIds[size] = saleId;
+            productIds[size] = productId;
+            customerIds[size] = customerId;
+            quantities[size] = quantity;
+            priceCents[size] = price;
+            saleDays[size] = day;
+            saleMonths[size] = month;
+            track(GroupBy.PRODUCT, productId);
+            track(GroupBy.CUSTOMER, customerId);
+            track(GroupBy.DAY, day);
+            track(GroupBy.MONTH, month);
+            size++;
+        }
+
+        int[] column(GroupBy groupBy) {
+            switch (groupBy) {
+                case PRODUCT:
+                    return productIds;
+                case CUSTOMER:
+                    return customerIds;
+                case DAY:
+                    return saleDays;
+                default:
+                    return saleMonths;
+            }
+        }
+
+        int min(GroupBy groupBy) {
+            return mins[groupBy.ordinal()];
+        }
+
+        int max(GroupBy groupBy) {
+            return maxes[groupBy.ordinal()];
+        }
+
+        private void track(GroupBy groupBy, int value) {
+            int i = groupBy.ordinal();
+            if (value < mins[i]) {
+                mins[i] = value;
+            }
+            if (value > maxes[i]) {
+                maxes[i] = value;
+            }
+        }
+
+        // Growing always copies into new arrays, so published snapshots keep their own
+        private void grow() {
+            int capacity = saleIds.length * 2;
+            saleIds = Arrays.copyOf(saleIds, capacity);
+            productIds = Arrays.copyOf(productIds, capacity);
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            saleDays = Arrays.copyOf(saleDays, capacity);
+            saleMonths = Arrays.copyOf(saleMonths, capacity);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.techelevator.ssgeek.analytics;
+
+import java.time.LocalDate;
+
+/**
+ * SalesQuery describes a filtered group-by over the line items in SalesColumns: which column to
+ * group by, an optional sale date range, and optional product and customer filters.
+ */
+
+public class SalesQuery {
+    // Filter value meaning "any product" or "any customer"
+    public static final int ANY = -1;
+
+    private GroupBy groupBy;
+    private int fromDay = Integer.MIN_VALUE;
+    private int toDay = Integer.MAX_VALUE;
+    private int productId = ANY;
+    private int customerId = ANY;
+
+    public SalesQuery(GroupBy groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public GroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(GroupBy groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public int getFromDay() {
+        return fromDay;
+    }
+
+    public int getToDay() {
+        return toDay;
+    }
+
+    // Only include sales dated from fromDate (inclusive) to toDate (exclusive)
+    public void setDateRange(LocalDate fromDate, LocalDate toDate) {
+        this.fromDay = (int) fromDate.toEpochDay();
+        this.toDay = (int) toDate.toEpochDay();
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+}
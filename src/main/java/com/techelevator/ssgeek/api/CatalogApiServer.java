@@ -0,0 +1,441 @@
+package com.techelevator.ssgeek.api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.techelevator.ssgeek.dao.CustomerDao;
+import com.techelevator.ssgeek.dao.LineItemDao;
+import com.techelevator.ssgeek.dao.ProductDao;
+import com.techelevator.ssgeek.dao.SaleDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.Customer;
+import com.techelevator.ssgeek.model.LineItem;
+import com.techelevator.ssgeek.model.Product;
+import com.techelevator.ssgeek.model.Sale;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * CatalogApiServer answers read-only JSON requests for customers, products and sales, so storefront
+ * services can read them concurrently while the console program runs.
+ *
+ *   GET /api/customers[?after=id][&limit=n]      GET /api/customers?search=text[&limit=n]
+ *   GET /api/customers/{id}                      GET /api/customers/{id}/sales
+ *   GET /api/products[?after=id][&limit=n]       GET /api/products?search=text[&limit=n]
+ *   GET /api/products/{id}                       GET /api/products/{id}/sales
+ *   GET /api/sales[?after=id][&limit=n]          GET /api/sales?unshipped=true
+ *   GET /api/sales/{id}                          (with its line items)
+ *
+ * Lists come back as {"items":[...],"next":"..."}, where next is the link to the following page, or
+ * null on the last page. Pages are found by id rather than by offset (see CustomerDao.getCustomerPage).
+ * A single customer, product or sale comes with an ETag; the row version serves for customers and
+ * products. A request whose If-None-Match holds the current ETag is answered with 304 and no body.
+ *
+ * Each request runs on a thread from a pool, and no more requests than the database connection pool
+ * has connections may be inside a DAO at once. A request that cannot get into a DAO within a couple of
+ * seconds is answered with 503 rather than waiting on the connection pool indefinitely.
+ */
+
+public class CatalogApiServer {
+
+    public static final String CONTEXT_PATH = "/api/";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final long DATABASE_WAIT_MILLIS = 2000;
+
+    private final CustomerDao customerDao;
+    private final ProductDao productDao;
+    private final SaleDao saleDao;
+    private final LineItemDao lineItemDao;
+    private final Semaphore databasePermits;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong busyCount = new AtomicLong();
+
+    /**
+     * @param maxDatabaseRequests How many requests may use the DAOs at once, normally the number of
+     *                            connections in the database connection pool.
+     */
+    public CatalogApiServer(CustomerDao customerDao, ProductDao productDao, SaleDao saleDao, LineItemDao lineItemDao,
+                            int maxDatabaseRequests) {
+        this.customerDao = customerDao;
+        this.productDao = productDao;
+        this.saleDao = saleDao;
+        this.lineItemDao = lineItemDao;
+        this.databasePermits = new Semaphore(maxDatabaseRequests, true);
+    }
+
+    /**
+     * Start serving on the address, with a pool of request threads.
+     *
+     * @return The address actually bound, useful when port 0 was asked for.
+     */
+    public synchronized InetSocketAddress start(InetSocketAddress address, int threads) {
+        if (server != null) {
+            return server.getAddress();
+        }
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to start API server on " + address, e);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Requests past the pool size wait in the queue for a thread
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "catalog-api-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        server.setExecutor(executor);
+        server.createContext(CONTEXT_PATH, this::handle);
+        server.start();
+        return server.getAddress();
+    }
+
+    /**
+     * Stop serving, giving requests in progress up to a second to finish.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Only GET is supported");
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length()).split("/");
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            if (!databasePermits.tryAcquire(DATABASE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                busyCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Server busy");
+                return;
+            }
+            Resource resource;
+            try {
+                resource = route(path, query);
+            } finally {
+                databasePermits.release();
+            }
+            if (resource == null) {
+                sendError(exchange, 404, "Not found");
+                return;
+            }
+            if (resource.etag != null) {
+                // Clients may keep the response but must check it is still current before using it
+                exchange.getResponseHeaders().set("ETag", resource.etag);
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), resource.etag)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+            }
+            send(exchange, 200, resource.json);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (DaoException e) {
+            sendError(exchange, 503, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server stopping");
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // The response for a request, or null if there is no such resource
+    private Resource route(String[] path, Map<String, String> query) {
+        String collection = path[0];
+        Integer id = path.length > 1 ? parseId(path[1]) : null;
+        String related = path.length > 2 ? path[2] : null;
+        if (path.length > 3 || (path.length > 1 && id == null)) {
+            return null;
+        }
+
+        if ("customers".equals(collection)) {
+            if (id == null) {
+                int limit = limit(query);
+                if (query.containsKey("search")) {
+                    return list(customerDao.searchCustomers(query.get("search"), limit), null, limit, null, this::appendCustomer);
+                }
+                return list(customerDao.getCustomerPage(after(query), limit), "customers", limit, Customer::getCustomerId,
+                        this::appendCustomer);
+            }
+            if (related == null) {
+                Customer customer = customerDao.getCustomerById(id);
+                return customer == null ? null : object(customer, this::appendCustomer, customer.getVersion());
+            }
+            if ("sales".equals(related)) {
+                return page(saleDao.getSalesByCustomerId(id), "customers/" + id + "/sales", query, Sale::getSaleId,
+                        this::appendSale);
+            }
+        } else if ("products".equals(collection)) {
+            if (id == null) {
+                int limit = limit(query);
+                if (query.containsKey("search")) {
+                    return list(productDao.searchProducts(query.get("search"), limit), null, limit, null, this::appendProduct);
+                }
+                return list(productDao.getProductPage(after(query), limit), "products", limit, Product::getProductId,
+                        this::appendProduct);
+            }
+            if (related == null) {
+                Product product = productDao.getProductById(id);
+                return product == null ? null : object(product, this::appendProduct, product.getVersion());
+            }
+            if ("sales".equals(related)) {
+                return page(saleDao.getSalesByProductId(id), "products/" + id + "/sales", query, Sale::getSaleId,
+                        this::appendSale);
+            }
+        } else if ("sales".equals(collection)) {
+            if (id == null) {
+                if ("true".equals(query.get("unshipped"))) {
+                    return page(saleDao.getUnshippedSales(), "sales?unshipped=true", query, Sale::getSaleId, this::appendSale);
+                }
+                int limit = limit(query);
+                return list(saleDao.getSalePage(after(query), limit), "sales", limit, Sale::getSaleId, this::appendSale);
+            }
+            if (related == null) {
+                Sale sale = saleDao.getSaleById(id);
+                if (sale == null) {
+                    return null;
+                }
+                JsonBuilder json = new JsonBuilder();
+                appendSale(json, sale, lineItemDao.getLineItemsBySaleId(id));
+                // The line items show product names and prices, which can change without the sale's
+                // version changing, so the ETag is a hash of the whole response instead
+                String body = json.toString();
+                CRC32 crc = new CRC32();
+                crc.update(body.getBytes(StandardCharsets.UTF_8));
+                return new Resource(body, "\"s" + sale.getVersion() + "-" + Long.toHexString(crc.getValue()) + "\"");
+            }
+        }
+        return null;
+    }
+
+    // A page of a list the DAO returns whole, for lists that are short by nature
+    private <T> Resource page(List<T> all, String path, Map<String, String> query, ToIntFunction<T> id, Appender<T> appender) {
+        int after = after(query);
+        int limit = limit(query);
+        List<T> items = new ArrayList<>(Math.min(limit, all.size()));
+        for (T item : all) {
+            if (id.applyAsInt(item) > after) {
+                items.add(item);
+                if (items.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return list(items, path, limit, id, appender);
+    }
+
+    private <T> Resource list(List<T> items, String path, int limit, ToIntFunction<T> id, Appender<T> appender) {
+        JsonBuilder json = new JsonBuilder().beginObject().name("items").beginArray();
+        for (T item : items) {
+            appender.append(json, item);
+        }
+        json.endArray();
+        String next = null;
+        if (path != null && items.size() == limit && limit > 0) {
+            next = CONTEXT_PATH + path + (path.contains("?") ? "&" : "?") + "after="
+                    + id.applyAsInt(items.get(items.size() - 1)) + "&limit=" + limit;
+        }
+        return new Resource(json.field("next", next).endObject().toString(), null);
+    }
+
+    // A single row, whose version is its ETag
+    private static <T> Resource object(T item, Appender<T> appender, int version) {
+        JsonBuilder json = new JsonBuilder();
+        appender.append(json, item);
+        return new Resource(json.toString(), "\"" + version + "\"");
+    }
+
+    private static class Resource {
+        private final String json;
+        // Null for lists, which are not cached
+        private final String etag;
+
+        Resource(String json, String etag) {
+            this.json = json;
+            this.etag = etag;
+        }
+    }
+
+    private interface Appender<T> {
+        void append(JsonBuilder json, T item);
+    }
+
+    private void appendCustomer(JsonBuilder json, Customer customer) {
+        json.beginObject()
+                .field("customerId", customer.getCustomerId())
+                .field("name", customer.getName())
+                .field("streetAddress1", customer.getStreetAddress1())
+                .field("streetAddress2", customer.getStreetAddress2())
+                .field("city", customer.getCity())
+                .field("state", customer.getState())
+                .field("zipCode", customer.getZipCode())
+                .field("version", customer.getVersion())
+                .endObject();
+    }
+
+    private void appendProduct(JsonBuilder json, Product product) {
+        json.beginObject()
+                .field("productId", product.getProductId())
+                .field("name", product.getName())
+                .field("description", product.getDescription())
+                .field("price", product.getPrice())
+                .field("imageName", product.getImageName())
+                .field("version", product.getVersion())
+                .endObject();
+    }
+
+    private void appendSale(JsonBuilder json, Sale sale) {
+        appendSale(json, sale, null);
+    }
+
+    private void appendSale(JsonBuilder json, Sale sale, List<LineItem> lineItems) {
+        json.beginObject()
+                .field("saleId", sale.getSaleId())
+                .field("customerId", sale.getCustomerId())
+                .field("customerName", sale.getCustomerName())
+                .field("saleDate", sale.getSaleDate())
+                .field("shipDate", sale.getShipDate())
+                .field("itemCount", sale.getItemCount())
+                .field("totalAmount", sale.getTotalAmount())
+                .field("version", sale.getVersion());
+        if (lineItems != null) {
+            json.name("lineItems").beginArray();
+            for (LineItem lineItem : lineItems) {
+                appendLineItem(json, lineItem);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private void appendLineItem(JsonBuilder json, LineItem lineItem) {
+        json.beginObject()
+                .field("lineItemId", lineItem.getLineItemId())
+                .field("productId", lineItem.getProductId())
+                .field("productName", lineItem.getProductName())
+                .field("quantity", lineItem.getQuantity())
+                .field("price", lineItem.getPrice())
+                .field("extendedPrice", lineItem.getExtendedPrice())
+                .endObject();
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Integer parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int after(Map<String, String> query) {
+        String after = query.get("after");
+        if (after == null) {
+            return 0;
+        }
+        Integer id = parseId(after);
+        if (id == null) {
+            throw new IllegalArgumentException("after must be an id");
+        }
+        return id;
+    }
+
+    private static int limit(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        Integer value = parseId(limit);
+        if (value == null || value < 1 || value > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be from 1 to " + MAX_PAGE_SIZE);
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, new JsonBuilder().beginObject().field("error", message).endObject().toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    // Requests answered 503 because the DAOs were busy for too long
+    public long getBusyCount() {
+        return busyCount.get();
+    }
+}
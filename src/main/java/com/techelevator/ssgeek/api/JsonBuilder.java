@@ -0,0 +1,147 @@
+package com.techelevator.ssgeek.api;
+
+import java.math.BigDecimal;
+
+/**
+ * JsonBuilder appends JSON to a StringBuilder as objects, arrays and values are opened and closed,
+ * adding the commas between them. It does not check that what is built is well formed.
+ */
+
+public class JsonBuilder {
+
+    private final StringBuilder json = new StringBuilder(256);
+    // True when the next value or name is the first in its object or array
+    private boolean first = true;
+
+    public JsonBuilder beginObject() {
+        separate();
+        json.append('{');
+        first = true;
+        return this;
+    }
+
+    public JsonBuilder endObject() {
+        json.append('}');
+        first = false;
+        return this;
+    }
+
+    public JsonBuilder beginArray() {
+        separate();
+        json.append('[');
+        first = true;
+        return this;
+    }
+
+    public JsonBuilder endArray() {
+        json.append(']');
+        first = false;
+        return this;
+    }
+
+    /**
+     * Start a member of the current object; the next call adds its value.
+     */
+    public JsonBuilder name(String name) {
+        separate();
+        appendString(name);
+        json.append(':');
+        // The value that follows needs no comma
+        first = true;
+        return this;
+    }
+
+    public JsonBuilder value(String value) {
+        separate();
+        if (value == null) {
+            json.append("null");
+        } else {
+            appendString(value);
+        }
+        return this;
+    }
+
+    public JsonBuilder value(long value) {
+        separate();
+        json.append(value);
+        return this;
+    }
+
+    public JsonBuilder value(BigDecimal value) {
+        separate();
+        json.append(value == null ? "null" : value.toPlainString());
+        return this;
+    }
+
+    public JsonBuilder value(Object value) {
+        return value(value == null ? null : value.toString());
+    }
+
+    /**
+     * Add a value that is already JSON, as it is.
+     */
+    public JsonBuilder rawValue(String value) {
+        separate();
+        json.append(value == null ? "null" : value);
+        return this;
+    }
+
+    public JsonBuilder field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    public JsonBuilder field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    public JsonBuilder field(String name, BigDecimal value) {
+        return name(name).value(value);
+    }
+
+    public JsonBuilder field(String name, Object value) {
+        return name(name).value(value);
+    }
+
+    private void separate() {
+        if (!first) {
+            json.append(',');
+        }
+        first = false;
+    }
+
+    private void appendString(String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return json.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.techelevator.ssgeek.audit;
+
+public enum AuditAction {
+    CREATE(1),
+    UPDATE(2),
+    DELETE(3),
+    SHIP(4);
+
+    // Written to the journal; never reuse or renumber a code
+    private final int code;
+
+    AuditAction(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return The action with the given code, or null if there is none.
+     */
+    public static AuditAction fromCode(int code) {
+        for (AuditAction action : values()) {
+            if (action.code == code) {
+                return action;
+            }
+        }
+        return null;
+    }
+}
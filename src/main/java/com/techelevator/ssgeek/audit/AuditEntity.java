@@ -0,0 +1,30 @@
+package com.techelevator.ssgeek.audit;
+
+public enum AuditEntity {
+    CUSTOMER(1),
+    PRODUCT(2),
+    SALE(3);
+
+    // Written to the journal; never reuse or renumber a code
+    private final int code;
+
+    AuditEntity(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return The entity with the given code, or null if there is none.
+     */
+    public static AuditEntity fromCode(int code) {
+        for (AuditEntity entity : values()) {
+            if (entity.code == code) {
+                return entity;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,358 @@
+package com.techelevator.ssgeek.audit;
+
+import com.techelevator.ssgeek.exception.AuditException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * AuditJournal appends AuditRecords to a local, append-only file. Callers only encode their records and
+ * queue them; a single writer thread takes whatever has queued up since its last write, writes it as one
+ * group and forces it to disk once for the whole group, so records arriving together share one fsync.
+ * The DurabilityMode decides whether append() waits for that.
+ *
+ * The file is a 16 byte header (magic, format version) followed by records. Each record is its body
+ * length, a CRC-32C of the body, then the body: timestamp, action and entity codes, entity id, actor and
+ * detail. A crash can leave part of a record at the end of the file; opening the journal finds the last
+ * whole record with a good CRC and cuts the file off there. AuditJournalReader reads the file.
+ *
+ * Once a group fails to write, its records are lost, which in ASYNC and NONE modes no caller has seen.
+ * Every append() after that throws, so the failure is reported rather than leaving a silent gap; the
+ * journal has to be opened again to carry on.
+ */
+
+public class AuditJournal implements AutoCloseable {
+
+    // "SSGAUDIT"
+    static final long MAGIC = 0x5353_4741_5544_4954L;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_HEADER_BYTES = 8;
+    // Timestamp, action, entity, entity id and actor length, with an empty actor and detail
+    static final int MIN_BODY_BYTES = 16;
+    static final int MAX_BODY_BYTES = 64 * 1024;
+
+    // Longer actors and details are cut short, which keeps every body under MAX_BODY_BYTES
+    private static final int MAX_ACTOR_CHARS = 64;
+    private static final int MAX_DETAIL_CHARS = 4096;
+    // Most appends written as one group, and appends that may wait for the writer before append() blocks
+    private static final int MAX_GROUP_APPENDS = 4096;
+    private static final int QUEUE_CAPACITY = 65536;
+
+    // Queued by close() after every other record
+    private static final Pending CLOSE = new Pending(null, 0, null);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final DurabilityMode durability;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    // Guards closed, so nothing is queued behind CLOSE
+    private final Object queueLock = new Object();
+    private boolean closed;
+
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong groupsWritten = new AtomicLong();
+    private volatile IOException lastError;
+
+    private AuditJournal(Path file, FileChannel channel, DurabilityMode durability) {
+        this.file = file;
+        this.channel = channel;
+        this.durability = durability;
+        this.writer = new Thread(this::writeGroups, "audit-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Open a journal for appending, creating the file if there isn't one.
+     *
+     * @throws AuditException If the file can't be opened, or isn't an audit journal.
+     */
+    public static AuditJournal open(Path file, DurabilityMode durability) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long end;
+            if (channel.size() < HEADER_BYTES) {
+                // New, or the program stopped before the header was written
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).putInt(FORMAT_VERSION).putInt(0);
+                header.flip();
+                channel.truncate(0);
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+                end = HEADER_BYTES;
+            } else {
+                end = AuditJournalReader.scan(channel, null).getValidLength();
+                if (end < channel.size()) {
+                    channel.truncate(end);
+                }
+            }
+            channel.position(end);
+            return new AuditJournal(file, channel, durability);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+            if (e instanceof AuditException) {
+                throw (AuditException) e;
+            }
+            throw new AuditException("Unable to open audit journal " + file, e);
+        }
+    }
+
+    public void append(AuditRecord record) {
+        append(List.of(record));
+    }
+
+    /**
+     * Append records in order, all in the same group. With DurabilityMode.SYNC, returns once they are on disk.
+     *
+     * @throws AuditException If the journal is closed, if an earlier group failed to write, or in SYNC mode
+     * if the records couldn't be written.
+     */
+    public void append(List<AuditRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        // The records are queued as one entry, so they are always written in the same group
+        ByteBuffer bytes;
+        if (records.size() == 1) {
+            bytes = encode(records.get(0));
+        } else {
+            List<ByteBuffer> encoded = new ArrayList<>(records.size());
+            int length = 0;
+            for (AuditRecord record : records) {
+                ByteBuffer one = encode(record);
+                encoded.add(one);
+                length += one.remaining();
+            }
+            bytes = ByteBuffer.allocate(length);
+            for (ByteBuffer one : encoded) {
+                bytes.put(one);
+            }
+            bytes.flip();
+        }
+        CompletableFuture<Void> written = durability == DurabilityMode.SYNC ? new CompletableFuture<>() : null;
+        synchronized (queueLock) {
+            if (closed) {
+                throw new AuditException("Audit journal " + file + " is closed");
+            }
+            if (lastError != null) {
+                throw new AuditException("Audit journal " + file + " failed to write earlier records", lastError);
+            }
+            try {
+                queue.put(new Pending(bytes, records.size(), written));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AuditException("Interrupted while queueing audit records", e);
+            }
+        }
+        if (written != null) {
+            try {
+                written.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AuditException("Interrupted while waiting for the audit journal", e);
+            } catch (ExecutionException e) {
+                throw new AuditException("Unable to write audit journal " + file, (Exception) e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Write every record already appended, force the file to disk and close it.
+     */
+    @Override
+    public void close() {
+        synchronized (queueLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    queue.put(CLOSE);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            writer.join();
+            channel.force(true);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new AuditException("Unable to close audit journal " + file, e);
+        }
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    /**
+     * @return The number of groups written, each forced to disk once unless the mode is NONE.
+     */
+    public long getGroupsWritten() {
+        return groupsWritten.get();
+    }
+
+    /**
+     * @return The most recent write failure, or null if there hasn't been one.
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // The writer thread: take everything queued, write it as one group, repeat until CLOSE
+    private void writeGroups() {
+        List<Pending> group = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                // Nothing interrupts the writer but the JVM shutting down
+                return;
+            }
+            queue.drainTo(group, MAX_GROUP_APPENDS - 1);
+            if (group.get(group.size() - 1) == CLOSE) {
+                group.remove(group.size() - 1);
+                closing = true;
+            }
+            if (!group.isEmpty()) {
+                writeGroup(group, buffer);
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<Pending> group, ByteBuffer buffer) {
+        IOException failure = null;
+        long groupStart = -1;
+        try {
+            groupStart = channel.position();
+            int records = 0;
+            for (Pending pending : group) {
+                if (buffer.remaining() < pending.bytes.remaining()) {
+                    flush(buffer);
+                }
+                if (pending.bytes.remaining() > buffer.capacity()) {
+                    // A large list append goes straight to the file
+                    while (pending.bytes.hasRemaining()) {
+                        channel.write(pending.bytes);
+                    }
+                } else {
+                    buffer.put(pending.bytes);
+                }
+                records += pending.records;
+            }
+            flush(buffer);
+            if (durability != DurabilityMode.NONE) {
+                channel.force(false);
+            }
+            recordsWritten.addAndGet(records);
+            groupsWritten.incrementAndGet();
+        } catch (IOException e) {
+            failure = e;
+            lastError = e;
+            buffer.clear();
+            // Don't leave part of the group for later groups to be written after
+            try {
+                if (groupStart >= 0) {
+                    channel.truncate(groupStart);
+                    channel.position(groupStart);
+                }
+            } catch (IOException ignored) {
+                // Opening the journal again cuts off whatever is left
+            }
+        }
+        for (Pending pending : group) {
+            if (pending.written != null) {
+                if (failure == null) {
+                    pending.written.complete(null);
+                } else {
+                    pending.written.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    static ByteBuffer encode(AuditRecord record) {
+        byte[] actor = truncate(record.getActor(), MAX_ACTOR_CHARS).getBytes(StandardCharsets.UTF_8);
+        byte[] detail = truncate(record.getDetail(), MAX_DETAIL_CHARS).getBytes(StandardCharsets.UTF_8);
+        int bodyLength = MIN_BODY_BYTES + actor.length + detail.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + bodyLength);
+        buffer.putInt(bodyLength).putInt(0)
+                .putLong(record.getTimestampMillis())
+                .put((byte) record.getAction().getCode())
+                .put((byte) record.getEntity().getCode())
+                .putInt(record.getEntityId())
+                .putShort((short) actor.length)
+                .put(actor)
+                .put(detail);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), RECORD_HEADER_BYTES, bodyLength);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String truncate(String value, int maxChars) {
+        return value.length() <= maxChars ? value : value.substring(0, maxChars);
+    }
+
+    private static class Pending {
+        private final ByteBuffer bytes;
+        private final int records;
+        // Completed once the records are on disk; only set in SYNC mode
+        private final CompletableFuture<Void> written;
+
+        private Pending(ByteBuffer bytes, int records, CompletableFuture<Void> written) {
+            this.bytes = bytes;
+            this.records = records;
+            this.written = written;
+        }
+    }
+}
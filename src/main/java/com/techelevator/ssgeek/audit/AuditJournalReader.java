@@ -0,0 +1,214 @@
+package com.techelevator.ssgeek.audit;
+
+import com.techelevator.ssgeek.exception.AuditException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * AuditJournalReader reads the records of an AuditJournal file in the order they were written. Reading
+ * stops at the first record that is incomplete or fails its CRC check; the result says how much of the
+ * file was read, so a torn or damaged tail can be reported.
+ *
+ * Usage: AuditJournalReader journalFile [entity=sale] [action=ship] [id=12] [actor=name] [from=2022-01-01] [to=2022-01-31]
+ * Prints the records matching every filter given; from and to are inclusive dates in the local time zone.
+ */
+
+public class AuditJournalReader {
+
+    public static class ScanResult {
+        private final long recordCount;
+        private final long validLength;
+        private final long fileLength;
+
+        public ScanResult(long recordCount, long validLength, long fileLength) {
+            this.recordCount = recordCount;
+            this.validLength = validLength;
+            this.fileLength = fileLength;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * @return The length of the file up to the end of the last good record.
+         */
+        public long getValidLength() {
+            return validLength;
+        }
+
+        public long getFileLength() {
+            return fileLength;
+        }
+
+        public boolean hasTornTail() {
+            return validLength < fileLength;
+        }
+    }
+
+    /**
+     * Read every good record of a journal file.
+     *
+     * @param consumer Given each record in order; may be null to only count them.
+     * @throws AuditException If the file can't be read or isn't an audit journal.
+     */
+    public static ScanResult scan(Path file, Consumer<AuditRecord> consumer) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return scan(channel, consumer);
+        } catch (IOException e) {
+            throw new AuditException("Unable to read audit journal " + file, e);
+        }
+    }
+
+    // Leaves the channel's position somewhere past the last good record
+    static ScanResult scan(FileChannel channel, Consumer<AuditRecord> consumer) throws IOException {
+        long fileLength = channel.size();
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        try {
+            if (in.readLong() != AuditJournal.MAGIC) {
+                throw new AuditException("Not an audit journal");
+            }
+            int version = in.readInt();
+            if (version != AuditJournal.FORMAT_VERSION) {
+                throw new AuditException("Unsupported audit journal version " + version);
+            }
+            in.readInt();
+        } catch (EOFException e) {
+            throw new AuditException("Not an audit journal", e);
+        }
+
+        long offset = AuditJournal.HEADER_BYTES;
+        long count = 0;
+        CRC32C crc = new CRC32C();
+        byte[] body = new byte[AuditJournal.MAX_BODY_BYTES];
+        while (true) {
+            int bodyLength;
+            int expectedCrc;
+            try {
+                bodyLength = in.readInt();
+                expectedCrc = in.readInt();
+                if (bodyLength < AuditJournal.MIN_BODY_BYTES || bodyLength > AuditJournal.MAX_BODY_BYTES) {
+                    break;
+                }
+                in.readFully(body, 0, bodyLength);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(body, 0, bodyLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                break;
+            }
+            AuditRecord record = decode(body, bodyLength);
+            if (record == null) {
+                break;
+            }
+            if (consumer != null) {
+                consumer.accept(record);
+            }
+            offset += AuditJournal.RECORD_HEADER_BYTES + bodyLength;
+            count++;
+        }
+        return new ScanResult(count, offset, fileLength);
+    }
+
+    // Null if the body doesn't hold a record this version understands
+    private static AuditRecord decode(byte[] body, int bodyLength) {
+        ByteBuffer buffer = ByteBuffer.wrap(body, 0, bodyLength);
+        long timestampMillis = buffer.getLong();
+        AuditAction action = AuditAction.fromCode(buffer.get());
+        AuditEntity entity = AuditEntity.fromCode(buffer.get());
+        int entityId = buffer.getInt();
+        int actorLength = buffer.getShort();
+        if (action == null || entity == null || actorLength < 0 || actorLength > buffer.remaining()) {
+            return null;
+        }
+        String actor = new String(body, buffer.position(), actorLength, StandardCharsets.UTF_8);
+        int detailStart = buffer.position() + actorLength;
+        String detail = new String(body, detailStart, bodyLength - detailStart, StandardCharsets.UTF_8);
+        return new AuditRecord(timestampMillis, action, entity, entityId, actor, detail);
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: AuditJournalReader journalFile [entity=sale] [action=ship] [id=12] [actor=name] "
+                    + "[from=2022-01-01] [to=2022-01-31]");
+            return;
+        }
+        Predicate<AuditRecord> filter = record -> true;
+        ZoneId zone = ZoneId.systemDefault();
+        for (int i = 1; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) {
+                System.out.println("Filters are name=value: " + args[i]);
+                return;
+            }
+            String name = args[i].substring(0, equals);
+            String value = args[i].substring(equals + 1);
+            try {
+                switch (name) {
+                    case "entity":
+                        AuditEntity entity = AuditEntity.valueOf(value.toUpperCase());
+                        filter = filter.and(record -> record.getEntity() == entity);
+                        break;
+                    case "action":
+                        AuditAction action = AuditAction.valueOf(value.toUpperCase());
+                        filter = filter.and(record -> record.getAction() == action);
+                        break;
+                    case "id":
+                        int entityId = Integer.parseInt(value);
+                        filter = filter.and(record -> record.getEntityId() == entityId);
+                        break;
+                    case "actor":
+                        filter = filter.and(record -> record.getActor().equals(value));
+                        break;
+                    case "from":
+                        long fromMillis = LocalDate.parse(value).atStartOfDay(zone).toInstant().toEpochMilli();
+                        filter = filter.and(record -> record.getTimestampMillis() >= fromMillis);
+                        break;
+                    case "to":
+                        long toMillis = LocalDate.parse(value).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                        filter = filter.and(record -> record.getTimestampMillis() < toMillis);
+                        break;
+                    default:
+                        System.out.println("Unknown filter: " + name);
+                        return;
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Invalid filter " + args[i] + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        Predicate<AuditRecord> matches = filter;
+        long[] matched = new long[1];
+        ScanResult result = scan(Paths.get(args[0]), record -> {
+            if (matches.test(record)) {
+                System.out.println(record);
+                matched[0]++;
+            }
+        });
+        System.out.format("%d of %d records matched%n", matched[0], result.getRecordCount());
+        if (result.hasTornTail()) {
+            // Expected after a crash; the journal cuts these bytes off the next time it is opened
+            System.out.format("The journal ends with %d bytes that are not a whole, valid record%n",
+                    result.getFileLength() - result.getValidLength());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.techelevator.ssgeek.audit;
+
+import java.time.Instant;
+
+/**
+ * AuditRecord is one change made by an administrator: what was done, to which row, by whom and when,
+ * with a short free-text detail.
+ */
+
+public class AuditRecord {
+
+    private final long timestampMillis;
+    private final AuditAction action;
+    private final AuditEntity entity;
+    private final int entityId;
+    private final String actor;
+    private final String detail;
+
+    public AuditRecord(long timestampMillis, AuditAction action, AuditEntity entity, int entityId,
+                       String actor, String detail) {
+        this.timestampMillis = timestampMillis;
+        this.action = action;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.actor = actor == null ? "" : actor;
+        this.detail = detail == null ? "" : detail;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public AuditAction getAction() {
+        return action;
+    }
+
+    public AuditEntity getEntity() {
+        return entity;
+    }
+
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public String getActor() {
+        return actor;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %-6s %-8s %8d %-12s %s", Instant.ofEpochMilli(timestampMillis), action, entity,
+                entityId, actor, detail);
+    }
+}
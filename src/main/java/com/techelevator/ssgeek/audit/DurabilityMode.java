@@ -0,0 +1,16 @@
+package com.techelevator.ssgeek.audit;
+
+/**
+ * How far an AuditJournal goes to make sure a record survives a crash before the writer moves on.
+ */
+
+public enum DurabilityMode {
+    // append() returns once the group holding the record has been forced to disk
+    SYNC,
+    // append() returns at once; each group is still forced to disk as it is written, so a crash loses
+    // at most the records not yet written
+    ASYNC,
+    // Records are written but left to the operating system to flush, and only forced to disk on close;
+    // a crash of the machine can lose anything written since the journal was opened
+    NONE
+}
@@ -0,0 +1,60 @@
+package com.techelevator.ssgeek.buffer;
+
+import com.techelevator.ssgeek.model.Sale;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * BufferedOrder is an order accepted into the SaleOrderLog and not yet known to be in the database. The
+ * sequence orders it in the log; the order key identifies it to the database, so writing it twice creates
+ * one sale.
+ */
+
+public class BufferedOrder {
+
+    private final long sequence;
+    private final UUID orderKey;
+    private final int customerId;
+    private final LocalDate saleDate;
+    private final LocalDate shipDate;
+
+    public BufferedOrder(long sequence, UUID orderKey, int customerId, LocalDate saleDate, LocalDate shipDate) {
+        this.sequence = sequence;
+        this.orderKey = orderKey;
+        this.customerId = customerId;
+        this.saleDate = saleDate;
+        this.shipDate = shipDate;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public UUID getOrderKey() {
+        return orderKey;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public LocalDate getSaleDate() {
+        return saleDate;
+    }
+
+    public LocalDate getShipDate() {
+        return shipDate;
+    }
+
+    /**
+     * @return A new Sale with this order's fields, and no id.
+     */
+    public Sale toSale() {
+        Sale sale = new Sale();
+        sale.setCustomerId(customerId);
+        sale.setSaleDate(saleDate);
+        sale.setShipDate(shipDate);
+        return sale;
+    }
+}
@@ -0,0 +1,224 @@
+package com.techelevator.ssgeek.buffer;
+
+import com.techelevator.ssgeek.dao.SaleDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.exception.OrderBufferException;
+import com.techelevator.ssgeek.model.Sale;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SaleOrderBuffer accepts new sales orders while the database is slow or unavailable. submit() writes
+ * orders to a local SaleOrderLog and returns once they are on disk, without touching the database;
+ * drain() later writes them to the database in batches, through SaleDao.createSales(). Each order carries
+ * an order key, so an order written again after a failure or a crash (between the database commit and
+ * the log recording it) is not created twice.
+ *
+ * An order the database refuses outright, such as one for a customer that doesn't exist, is set aside
+ * as rejected rather than holding up the orders behind it, and written to the log's reject file before
+ * the log lets go of it. Any other failure leaves the backlog as it was, to be drained again later.
+ *
+ * The admin program itself takes no new orders, so it only drains. Code that takes orders should call
+ * submit() instead of SaleDao.createSale() to keep accepting them while the database is down.
+ */
+
+public class SaleOrderBuffer {
+
+    private final SaleOrderLog log;
+    private final SaleDao saleDao;
+    private final int capacity;
+
+    // Orders written to the log and not yet to the database, in sequence order. Guarded by itself
+    private final Deque<BufferedOrder> backlog = new ArrayDeque<>();
+    // Only one drain at a time, so a batch is never written twice at once
+    private final Object drainLock = new Object();
+
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong drainedCount = new AtomicLong();
+    private final List<BufferedOrder> rejectedOrders = new ArrayList<>();
+    private volatile double lastDrainRate;
+
+    /**
+     * @param capacity The most orders waiting to drain; submit() fails while the backlog is this long.
+     */
+    public SaleOrderBuffer(SaleOrderLog log, SaleDao saleDao, int capacity) {
+        this.log = log;
+        this.saleDao = saleDao;
+        this.capacity = capacity;
+        backlog.addAll(log.getRecoveredOrders());
+    }
+
+    /**
+     * Accept an order. Once this returns the order is on local disk and will reach the database.
+     *
+     * @return The order key the sale will be created under.
+     * @throws OrderBufferException If the buffer is full, or the order can't be written to the log.
+     */
+    public String submit(Sale newSale) {
+        return submit(List.of(newSale)).get(0);
+    }
+
+    /**
+     * Accept orders, forcing them to disk together.
+     *
+     * @return The order key of each sale, in the same order.
+     * @throws OrderBufferException If the buffer hasn't room for them all, or they can't be written to the log.
+     */
+    public List<String> submit(List<Sale> newSales) {
+        List<String> orderKeys = new ArrayList<>(newSales.size());
+        if (newSales.isEmpty()) {
+            return orderKeys;
+        }
+        // Held while writing the log, so the backlog stays in sequence order
+        synchronized (backlog) {
+            if (backlog.size() + newSales.size() > capacity) {
+                throw new OrderBufferException(String.format("Order buffer is full, %d orders are waiting", backlog.size()));
+            }
+            List<BufferedOrder> orders = log.append(newSales);
+            backlog.addAll(orders);
+            for (BufferedOrder order : orders) {
+                orderKeys.add(order.getOrderKey().toString());
+            }
+        }
+        submittedCount.addAndGet(newSales.size());
+        return orderKeys;
+    }
+
+    /**
+     * Write the oldest waiting orders, up to batchSize of them, to the database in one statement.
+     *
+     * @return The number of orders taken off the backlog, including any rejected.
+     * @throws DaoException If the database can't be reached; the orders are left waiting.
+     * @throws OrderBufferException If refused orders can't be written to the reject file; the orders are
+     *                              left waiting.
+     */
+    public int drain(int batchSize) {
+        synchronized (drainLock) {
+            List<BufferedOrder> batch = new ArrayList<>(batchSize);
+            synchronized (backlog) {
+                Iterator<BufferedOrder> iterator = backlog.iterator();
+                while (batch.size() < batchSize && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            Map<BufferedOrder, String> rejected = new LinkedHashMap<>();
+            try {
+                saleDao.createSales(toSales(batch));
+            } catch (DaoException e) {
+                if (!(e.getCause() instanceof DataIntegrityViolationException)) {
+                    throw e;
+                }
+                // One bad order fails the whole statement; write them one at a time to find it
+                for (BufferedOrder order : batch) {
+                    try {
+                        saleDao.createSales(toSales(List.of(order)));
+                    } catch (DaoException oneFailed) {
+                        if (!(oneFailed.getCause() instanceof DataIntegrityViolationException)) {
+                            throw oneFailed;
+                        }
+                        rejected.put(order, ((DataIntegrityViolationException) oneFailed.getCause())
+                                .getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+
+            if (!rejected.isEmpty()) {
+                log.appendRejected(rejected);
+            }
+            synchronized (backlog) {
+                for (int i = 0; i < batch.size(); i++) {
+                    backlog.removeFirst();
+                }
+            }
+            log.markDrained(batch.get(batch.size() - 1).getSequence());
+            synchronized (rejectedOrders) {
+                rejectedOrders.addAll(rejected.keySet());
+            }
+            drainedCount.addAndGet(batch.size());
+            return batch.size();
+        }
+    }
+
+    /**
+     * Drain batches until the backlog is empty, recording the rate the orders were written at.
+     *
+     * @return The number of orders taken off the backlog.
+     * @throws DaoException If the database can't be reached; the orders drained before it are kept.
+     */
+    public int drainAll(int batchSize) {
+        long start = System.nanoTime();
+        int drained = 0;
+        try {
+            int batch;
+            while ((batch = drain(batchSize)) > 0) {
+                drained += batch;
+            }
+        } finally {
+            if (drained > 0) {
+                lastDrainRate = drained / ((System.nanoTime() - start) / 1e9);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * @return The number of orders accepted and not yet written to the database.
+     */
+    public int getBacklog() {
+        synchronized (backlog) {
+            return backlog.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * @return The number of orders taken off the backlog since the buffer was created, including rejected.
+     */
+    public long getDrainedCount() {
+        return drainedCount.get();
+    }
+
+    /**
+     * @return Orders per second written by the most recent drainAll() that wrote any.
+     */
+    public double getLastDrainRate() {
+        return lastDrainRate;
+    }
+
+    /**
+     * @return The orders the database refused since the buffer was created. Every refused order, including
+     *         those from before, is also in the log's reject file.
+     */
+    public List<BufferedOrder> getRejectedOrders() {
+        synchronized (rejectedOrders) {
+            return new ArrayList<>(rejectedOrders);
+        }
+    }
+
+    private Map<String, Sale> toSales(List<BufferedOrder> orders) {
+        Map<String, Sale> salesByOrderKey = new LinkedHashMap<>();
+        for (BufferedOrder order : orders) {
+            salesByOrderKey.put(order.getOrderKey().toString(), order.toSale());
+        }
+        return salesByOrderKey;
+    }
+}
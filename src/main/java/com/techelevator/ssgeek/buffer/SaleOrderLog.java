@@ -0,0 +1,344 @@
+package com.techelevator.ssgeek.buffer;
+
+import com.techelevator.ssgeek.api.JsonBuilder;
+import com.techelevator.ssgeek.exception.OrderBufferException;
+import com.techelevator.ssgeek.model.Sale;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * SaleOrderLog is the local write-ahead log behind SaleOrderBuffer. Orders are appended and forced to disk
+ * before they are acknowledged; once they are in the database, the sequence number they were drained
+ * through is written to the header. Opening the log finds the orders after that point, so nothing
+ * accepted is lost when the program stops before the database has them.
+ *
+ * The file is a 24 byte header (magic, format version, drained-through sequence) followed by fixed size
+ * records: a CRC-32C of the body, then the body (sequence, order key, customer id, sale and ship dates as
+ * epoch days). Opening the log cuts off a torn record at the end. When every order has drained and the
+ * file has grown past COMPACT_BYTES, it is cut back to its header.
+ *
+ * Orders the database refuses are appended to a reject file beside the log (the log's name plus
+ * ".rejected"), one JSON object per line, before they are marked drained.
+ */
+
+public class SaleOrderLog implements AutoCloseable {
+
+    // "SSGORDER"
+    private static final long MAGIC = 0x5353_474F_5244_4552L;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int DRAINED_THROUGH_OFFSET = 16;
+    private static final int BODY_BYTES = 44;
+    private static final int RECORD_BYTES = 4 + BODY_BYTES;
+    // Stands for a null ship date
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final long COMPACT_BYTES = 4L * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Path rejectFile;
+    private FileChannel rejectChannel;
+    private final List<BufferedOrder> recovered;
+    private long nextSequence;
+    private long drainedThrough;
+
+    private SaleOrderLog(Path file, FileChannel channel, List<BufferedOrder> recovered, long drainedThrough,
+                         long nextSequence) {
+        this.file = file;
+        this.channel = channel;
+        this.rejectFile = file.resolveSibling(file.getFileName() + ".rejected");
+        this.recovered = recovered;
+        this.drainedThrough = drainedThrough;
+        this.nextSequence = nextSequence;
+    }
+
+    /**
+     * Open a log, creating the file if there isn't one, and read the orders not yet drained.
+     *
+     * @throws OrderBufferException If the file can't be opened, or isn't an order log.
+     */
+    public static SaleOrderLog open(Path file) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long drainedThrough = 0;
+            long lastSequence = 0;
+            List<BufferedOrder> recovered = new ArrayList<>();
+            if (channel.size() < HEADER_BYTES) {
+                // New, or the program stopped before the header was written
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putLong(MAGIC).putInt(FORMAT_VERSION).putInt(0).putLong(0);
+                header.flip();
+                channel.truncate(0);
+                writeFully(channel, header, 0);
+                channel.force(true);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                readFully(channel, header, 0);
+                header.flip();
+                if (header.getLong() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                    throw new OrderBufferException(file + " is not a sale order log");
+                }
+                drainedThrough = header.getLong(DRAINED_THROUGH_OFFSET);
+                lastSequence = drainedThrough;
+
+                long end = scan(channel, drainedThrough, recovered);
+                if (!recovered.isEmpty()) {
+                    lastSequence = recovered.get(recovered.size() - 1).getSequence();
+                } else if (end > HEADER_BYTES) {
+                    lastSequence = Math.max(lastSequence, lastSequenceBefore(channel, end));
+                }
+                if (end < channel.size()) {
+                    channel.truncate(end);
+                }
+            }
+            channel.position(channel.size());
+            return new SaleOrderLog(file, channel, recovered, drainedThrough, lastSequence + 1);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+            if (e instanceof OrderBufferException) {
+                throw (OrderBufferException) e;
+            }
+            throw new OrderBufferException("Unable to open sale order log " + file, e);
+        }
+    }
+
+    /**
+     * @return The orders found in the log when it was opened that had not been drained, in order.
+     */
+    public List<BufferedOrder> getRecoveredOrders() {
+        return Collections.unmodifiableList(recovered);
+    }
+
+    /**
+     * Give each sale a sequence number and order key, write them to the log and force it to disk.
+     *
+     * @throws OrderBufferException If a sale has no sale date, or the log can't be written.
+     */
+    public synchronized List<BufferedOrder> append(List<Sale> sales) {
+        List<BufferedOrder> orders = new ArrayList<>(sales.size());
+        ByteBuffer records = ByteBuffer.allocate(RECORD_BYTES * sales.size());
+        long sequence = nextSequence;
+        for (Sale sale : sales) {
+            if (sale.getSaleDate() == null) {
+                throw new OrderBufferException("An order needs a sale date");
+            }
+            BufferedOrder order = new BufferedOrder(sequence++, UUID.randomUUID(), sale.getCustomerId(),
+                    sale.getSaleDate(), sale.getShipDate());
+            encode(order, records);
+            orders.add(order);
+        }
+        records.flip();
+
+        long end = -1;
+        try {
+            end = channel.position();
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // Don't leave part of these orders for the next append to be written after
+            try {
+                if (end >= 0) {
+                    channel.truncate(end);
+                    channel.position(end);
+                }
+            } catch (IOException ignored) {
+                // Opening the log again cuts off whatever is left
+            }
+            throw new OrderBufferException("Unable to write sale order log " + file, e);
+        }
+        nextSequence = sequence;
+        return orders;
+    }
+
+    /**
+     * Append orders the database refused to the reject file, with the reason for each, and force it to
+     * disk. Called before markDrained() takes them out of the log, so a refused order is always in one
+     * file or the other; one refused again after a crash in between is written to the reject file twice.
+     *
+     * @param reasons The refused orders, each with the reason it was refused.
+     * @throws OrderBufferException If the reject file can't be written.
+     */
+    public synchronized void appendRejected(Map<BufferedOrder, String> reasons) {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<BufferedOrder, String> entry : reasons.entrySet()) {
+            BufferedOrder order = entry.getKey();
+            lines.append(new JsonBuilder().beginObject()
+                    .field("sequence", order.getSequence())
+                    .field("orderKey", order.getOrderKey().toString())
+                    .field("customerId", order.getCustomerId())
+                    .field("saleDate", order.getSaleDate().toString())
+                    .field("shipDate", order.getShipDate() == null ? null : order.getShipDate().toString())
+                    .field("reason", entry.getValue())
+                    .endObject().toString()).append('\n');
+        }
+        try {
+            if (rejectChannel == null) {
+                rejectChannel = FileChannel.open(rejectFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                rejectChannel.write(bytes);
+            }
+            rejectChannel.force(false);
+        } catch (IOException e) {
+            throw new OrderBufferException("Unable to write sale order reject file " + rejectFile, e);
+        }
+    }
+
+    /**
+     * Record that every order up to and including the given sequence number is in the database, and cut
+     * the file back to its header if that was every order and the file has grown large.
+     */
+    public synchronized void markDrained(long sequence) {
+        if (sequence <= drainedThrough) {
+            return;
+        }
+        try {
+            ByteBuffer value = ByteBuffer.allocate(8).putLong(sequence);
+            value.flip();
+            writeFully(channel, value, DRAINED_THROUGH_OFFSET);
+            channel.force(false);
+            drainedThrough = sequence;
+
+            if (sequence == nextSequence - 1 && channel.size() > COMPACT_BYTES) {
+                channel.truncate(HEADER_BYTES);
+                channel.position(HEADER_BYTES);
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new OrderBufferException("Unable to write sale order log " + file, e);
+        }
+    }
+
+    public synchronized long getDrainedThrough() {
+        return drainedThrough;
+    }
+
+    public synchronized long getSizeBytes() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new OrderBufferException("Unable to read sale order log " + file, e);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public Path getRejectFile() {
+        return rejectFile;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+            if (rejectChannel != null) {
+                rejectChannel.close();
+            }
+        } catch (IOException e) {
+            throw new OrderBufferException("Unable to close sale order log " + file, e);
+        }
+    }
+
+    // Reads records from the end of the header, adding those after drainedThrough to orders. Returns the
+    // end of the last good record
+    private static long scan(FileChannel channel, long drainedThrough, List<BufferedOrder> orders)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES * 1024);
+        CRC32C crc = new CRC32C();
+        long position = HEADER_BYTES;
+        long size = channel.size();
+        while (position + RECORD_BYTES <= size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), (size - position) / RECORD_BYTES * RECORD_BYTES));
+            readFully(channel, buffer, position);
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_BYTES) {
+                int expectedCrc = buffer.getInt();
+                crc.reset();
+                crc.update(buffer.array(), buffer.position(), BODY_BYTES);
+                if ((int) crc.getValue() != expectedCrc) {
+                    return position;
+                }
+                BufferedOrder order = decode(buffer);
+                if (order.getSequence() > drainedThrough) {
+                    orders.add(order);
+                }
+                position += RECORD_BYTES;
+            }
+        }
+        return position;
+    }
+
+    // The sequence of the record ending at end, when every record has drained
+    private static long lastSequenceBefore(FileChannel channel, long end) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        readFully(channel, record, end - RECORD_BYTES);
+        return record.getLong(4);
+    }
+
+    private static void encode(BufferedOrder order, ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putInt(0)
+                .putLong(order.getSequence())
+                .putLong(order.getOrderKey().getMostSignificantBits())
+                .putLong(order.getOrderKey().getLeastSignificantBits())
+                .putInt(order.getCustomerId())
+                .putLong(order.getSaleDate().toEpochDay())
+                .putLong(order.getShipDate() == null ? NO_DATE : order.getShipDate().toEpochDay());
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), start + 4, BODY_BYTES);
+        buffer.putInt(start, (int) crc.getValue());
+    }
+
+    private static BufferedOrder decode(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        UUID orderKey = new UUID(buffer.getLong(), buffer.getLong());
+        int customerId = buffer.getInt();
+        LocalDate saleDate = LocalDate.ofEpochDay(buffer.getLong());
+        long shipDay = buffer.getLong();
+        return new BufferedOrder(sequence, orderKey, customerId, saleDate,
+                shipDay == NO_DATE ? null : LocalDate.ofEpochDay(shipDay));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
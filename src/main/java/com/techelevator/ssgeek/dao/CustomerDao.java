@@ -1,5 +1,6 @@
 package com.techelevator.ssgeek.dao;
 
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import com.techelevator.ssgeek.model.Customer;
 
 import java.util.List;
@@ -21,6 +22,27 @@ public interface CustomerDao {
      */
     List<Customer> getCustomers();
 
+    /**
+     * Get one page of customers, ordered by customer_id. Pages are found by key rather than by offset,
+     * so every page costs the same however far into the table it is.
+     *
+     * @param afterCustomerId The last customer_id of the previous page, or 0 for the first page.
+     * @param limit The maximum number of customers to return.
+     * @return Up to limit customers with a customer_id greater than afterCustomerId.
+     */
+    List<Customer> getCustomerPage(int afterCustomerId, int limit);
+
+    /**
+     * Find customers whose name, street address or city is similar to the search text, even when it
+     * is misspelled or only part of a word. Search text of digits also matches the start of the zip
+     * code, and two letters also match the state. Best matches first.
+     *
+     * @param searchText The text to search for.
+     * @param limit The maximum number of customers to return.
+     * @return The matching customers as Customer objects in a List.
+     */
+    List<Customer> searchCustomers(String searchText, int limit);
+
     /**
      * Add a new customer into the datastore.
      *
@@ -31,10 +53,12 @@ public interface CustomerDao {
 
     /**
      * Update a customer to the datastore. Only called on customers that
-     * are already in the datastore.
+     * are already in the datastore. The update is only made if the customer's version
+     * is still the one it was read with, and the version moves on by one.
      *
      * @param updatedCustomer The Customer object to update.
      * @return The updated Customer object.
+     * @throws VersionConflictException If the customer was changed since it was read.
      */
     Customer updateCustomer(Customer updatedCustomer);
 
@@ -0,0 +1,25 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.export.ExportTable;
+import com.techelevator.ssgeek.export.RowWriter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public interface ExportDao {
+
+    /**
+     * Stream whole tables to row writers straight from a database cursor, so memory use does not grow
+     * with the size of the tables. Rows are written in primary key order. The sale table includes
+     * archived sales.
+     *
+     * @param tables The tables to export, in order.
+     * @param writers Supplies the row writer for each table, which is started, given every row, and finished.
+     * @param snapshot True to read every table from one consistent snapshot of the database, false to read
+     *                 each table as it is when its export starts.
+     * @return The number of rows written for each table, in export order.
+     */
+    Map<ExportTable, Long> exportTables(List<ExportTable> tables, Function<ExportTable, RowWriter> writers, boolean snapshot);
+
+}
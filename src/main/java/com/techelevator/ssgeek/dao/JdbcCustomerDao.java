@@ -1,6 +1,7 @@
 package com.techelevator.ssgeek.dao;
 
 import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import com.techelevator.ssgeek.model.Customer;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
@@ -24,7 +25,7 @@ public class JdbcCustomerDao implements CustomerDao{
         Customer customer = null;
 
         String sql = "SELECT customer_id, name, street_address1, street_address2, " +
-                "city, state, zip_code " +
+                "city, state, zip_code, version " +
                 "FROM customer " +
                 "WHERE customer_id = ?;";
         try {
@@ -44,7 +45,7 @@ public class JdbcCustomerDao implements CustomerDao{
         List<Customer> customers = new ArrayList<>();
 
         String sql = "SELECT customer_id, name, street_address1, street_address2, " +
-                "city, state, zip_code " +
+                "city, state, zip_code, version " +
                 "FROM customer " +
                 "ORDER BY customer_id;";
         try {
@@ -61,6 +62,60 @@ public class JdbcCustomerDao implements CustomerDao{
         return customers;
     }
 
+    @Override
+    public List<Customer> getCustomerPage(int afterCustomerId, int limit) {
+        List<Customer> customers = new ArrayList<>();
+
+        String sql = "SELECT customer_id, name, street_address1, street_address2, " +
+                "city, state, zip_code, version " +
+                "FROM customer " +
+                "WHERE customer_id > ? " +
+                "ORDER BY customer_id " +
+                "LIMIT ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, afterCustomerId, limit);
+            while (results.next()) {
+                customers.add(mapRowToCustomer(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return customers;
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String searchText, int limit) {
+        List<Customer> customers = new ArrayList<>();
+        String text = searchText.trim();
+        // Zip codes and states are only compared when the text could be one; null never matches
+        String zipPrefix = text.matches("[0-9]{1,5}") ? text + "%" : null;
+        String state = text.length() == 2 ? text.toUpperCase() : null;
+
+        // <% is pg_trgm's word similarity operator, which the trigram indexes serve
+        String sql = "SELECT customer_id, name, street_address1, street_address2, " +
+                "city, state, zip_code, version, " +
+                "GREATEST(word_similarity(?, name), word_similarity(?, street_address1), " +
+                "word_similarity(?, city), " +
+                "CASE WHEN zip_code LIKE ? OR state = ? THEN 1 ELSE 0 END) AS score " +
+                "FROM customer " +
+                "WHERE ? <% name OR ? <% street_address1 OR ? <% city " +
+                "OR zip_code LIKE ? OR state = ? " +
+                "ORDER BY score DESC, customer_id " +
+                "LIMIT ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, text, text, text, zipPrefix, state,
+                    text, text, text, zipPrefix, state, limit);
+            while (results.next()) {
+                customers.add(mapRowToCustomer(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return customers;
+    }
+
     @Override
     public Customer createCustomer(Customer newCustomer) {
         Customer customer = null;
@@ -88,16 +143,18 @@ public class JdbcCustomerDao implements CustomerDao{
         Customer customer = null;
 
         String sql = "UPDATE customer SET name = ?, street_address1 = ?, street_address2 = ?, " +
-                "city = ?, state = ?, zip_code = ? " +
-                "WHERE customer_id = ?;";
+                "city = ?, state = ?, zip_code = ?, version = version + 1 " +
+                "WHERE customer_id = ? AND version = ? " +
+                "RETURNING version;";
 
         try {
-            int numberOfRows = dao.update(sql, updatedCustomer.getName(), updatedCustomer.getStreetAddress1(),
-                    updatedCustomer.getStreetAddress2(), updatedCustomer.getCity(),
-                    updatedCustomer.getState(), updatedCustomer.getZipCode(), updatedCustomer.getCustomerId());
+            List<Integer> newVersions = dao.queryForList(sql, Integer.class, updatedCustomer.getName(),
+                    updatedCustomer.getStreetAddress1(), updatedCustomer.getStreetAddress2(), updatedCustomer.getCity(),
+                    updatedCustomer.getState(), updatedCustomer.getZipCode(), updatedCustomer.getCustomerId(),
+                    updatedCustomer.getVersion());
 
-            if (numberOfRows == 0) {
-                throw new DaoException("Zero rows affected, expected at least one");
+            if (newVersions.isEmpty()) {
+                throw updateFailure(updatedCustomer.getCustomerId(), updatedCustomer.getVersion());
             } else {
                 customer = getCustomerById(updatedCustomer.getCustomerId());
             }
@@ -110,6 +167,15 @@ public class JdbcCustomerDao implements CustomerDao{
         return customer;
     }
 
+    // Why an update matched no row: the row is gone, or its version has moved on since it was read
+    private DaoException updateFailure(int customerId, int expectedVersion) {
+        List<Integer> versions = dao.queryForList("SELECT version FROM customer WHERE customer_id = ?;", Integer.class, customerId);
+        if (versions.isEmpty()) {
+            return new DaoException("Zero rows affected, expected at least one");
+        }
+        return new VersionConflictException("Customer " + customerId, expectedVersion, versions.get(0));
+    }
+
     public Customer mapRowToCustomer(SqlRowSet results) {
         Customer customer = new Customer();
         customer.setCustomerId(results.getInt("customer_id"));
@@ -121,6 +187,7 @@ public class JdbcCustomerDao implements CustomerDao{
         customer.setCity(results.getString("city"));
         customer.setState(results.getString("state"));
         customer.setZipCode(results.getString("zip_code"));
+        customer.setVersion(results.getInt("version"));
         return customer;
     }
 }
@@ -0,0 +1,113 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.export.ExportTable;
+import com.techelevator.ssgeek.export.RowWriter;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSetMetaData;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class JdbcExportDao implements ExportDao {
+
+    // Rows fetched per round trip while streaming a table
+    private final int FETCH_SIZE = 10000;
+
+    private final JdbcTemplate dao;
+    private final TransactionTemplate readOnly;
+    private final TransactionTemplate snapshot;
+
+    public JdbcExportDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+        this.dao.setFetchSize(FETCH_SIZE);
+        // The PostgreSQL driver only streams with a cursor inside a transaction
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        // Every statement in a REPEATABLE READ transaction sees the snapshot taken by its first statement
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public Map<ExportTable, Long> exportTables(List<ExportTable> tables, Function<ExportTable, RowWriter> writers, boolean snapshot) {
+        Map<ExportTable, Long> rowCounts = new LinkedHashMap<>();
+        try {
+            if (snapshot) {
+                this.snapshot.execute(status -> {
+                    for (ExportTable table : tables) {
+                        rowCounts.put(table, exportTable(table, writers.apply(table)));
+                    }
+                    return null;
+                });
+            } else {
+                for (ExportTable table : tables) {
+                    rowCounts.put(table, readOnly.execute(status -> exportTable(table, writers.apply(table))));
+                }
+            }
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return rowCounts;
+    }
+
+    // One reused value array per table, so memory use is the same for ten rows or ten million
+    private long exportTable(ExportTable table, RowWriter writer) {
+        return dao.query(selectSql(table), (ResultSetExtractor<Long>) rs -> {
+            try {
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] columnNames = new String[metaData.getColumnCount()];
+                for (int i = 0; i < columnNames.length; i++) {
+                    columnNames[i] = metaData.getColumnLabel(i + 1);
+                }
+                writer.start(columnNames);
+                Object[] values = new Object[columnNames.length];
+                long rows = 0;
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    writer.write(values);
+                    rows++;
+                }
+                writer.finish();
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write " + table.getFileName() + " export", e);
+            }
+        });
+    }
+
+    private String selectSql(ExportTable table) {
+        switch (table) {
+            case PRODUCT:
+                return "SELECT product_id, name, description, price, image_name " +
+                        "FROM product " +
+                        "ORDER BY product_id;";
+            case CUSTOMER:
+                return "SELECT customer_id, name, street_address1, street_address2, city, state, zip_code " +
+                        "FROM customer " +
+                        "ORDER BY customer_id;";
+            default:
+                return "SELECT s.sale_id, s.customer_id, s.sale_date, s.ship_date, s.item_count, s.total_amount, " +
+                        "li.line_item_id, li.product_id, li.quantity " +
+                        "FROM sale_all AS s " +
+                        "LEFT JOIN line_item_all AS li ON s.sale_id = li.sale_id " +
+                        "ORDER BY s.sale_id, li.line_item_id;";
+        }
+    }
+}
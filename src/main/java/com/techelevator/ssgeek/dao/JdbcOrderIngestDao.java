@@ -0,0 +1,124 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.IncomingOrder;
+import com.techelevator.ssgeek.model.LineItem;
+import com.techelevator.ssgeek.model.SaleEvent;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class JdbcOrderIngestDao implements OrderIngestDao {
+
+    // Each order key is claimed in sale_order_key with a sale id taken from the sequence up front, and only
+    // the orders whose key was claimed become sales, so an order loaded before (or a second time in the same
+    // batch) is skipped. A concurrent load of the same key waits on it, then skips it once that commits.
+    // The sales are written to the outbox like any other new sale. Returns a sale id, or null, per order
+    private final String INSERT_SALES = "WITH batch AS (" +
+            "SELECT * FROM unnest(?::uuid[], ?::int[], ?::date[], ?::date[]) WITH ORDINALITY " +
+            "AS o (order_key, customer_id, sale_date, ship_date, ord)), " +
+            "keyed AS (INSERT INTO sale_order_key (order_key, sale_id) " +
+            "SELECT DISTINCT ON (order_key) order_key, nextval(pg_get_serial_sequence('sale', 'sale_id'))::int " +
+            "FROM batch ORDER BY order_key, ord " +
+            "ON CONFLICT (order_key) DO NOTHING " +
+            "RETURNING order_key, sale_id), " +
+            "incoming AS (SELECT DISTINCT ON (b.order_key) b.ord, k.sale_id, b.customer_id, b.sale_date, b.ship_date " +
+            "FROM batch AS b JOIN keyed AS k ON b.order_key = k.order_key ORDER BY b.order_key, b.ord), " +
+            "changed AS (INSERT INTO sale AS s (sale_id, customer_id, sale_date, ship_date) " +
+            "SELECT sale_id, customer_id, sale_date, ship_date FROM incoming" +
+            JdbcSaleDao.OUTBOX_RETURNING + "'" + SaleEvent.CREATED + "' AS event_type), " +
+            JdbcSaleDao.OUTBOX_INSERT +
+            "SELECT i.sale_id FROM batch AS b LEFT JOIN incoming AS i ON b.ord = i.ord ORDER BY b.ord;";
+    // One statement for every line item of the batch, so the sale totals trigger runs once
+    private final String INSERT_LINE_ITEMS = "INSERT INTO line_item (sale_id, sale_date, product_id, quantity) " +
+            "SELECT * FROM unnest(?::int[], ?::date[], ?::int[], ?::int[]);";
+
+    private final JdbcTemplate dao;
+    private final TransactionTemplate transaction;
+
+    public JdbcOrderIngestDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+        this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Override
+    public int[] getCustomerIds() {
+        return getIds("SELECT customer_id FROM customer;");
+    }
+
+    @Override
+    public int[] getProductIds() {
+        return getIds("SELECT product_id FROM product;");
+    }
+
+    @Override
+    public List<Integer> insertOrders(List<IncomingOrder> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        String[] orderKeys = new String[orders.size()];
+        int[] customerIds = new int[orders.size()];
+        String[] saleDates = new String[orders.size()];
+        String[] shipDates = new String[orders.size()];
+        int lineItemTotal = 0;
+        for (int i = 0; i < orders.size(); i++) {
+            IncomingOrder order = orders.get(i);
+            orderKeys[i] = order.getOrderKey() == null ? UUID.randomUUID().toString() : order.getOrderKey();
+            customerIds[i] = order.getCustomerId();
+            saleDates[i] = order.getSaleDate().toString();
+            shipDates[i] = order.getShipDate() == null ? null : order.getShipDate().toString();
+            lineItemTotal += order.getLineItems().size();
+        }
+        int lineItemCount = lineItemTotal;
+
+        try {
+            return transaction.execute(status -> {
+                List<Integer> saleIds = dao.queryForList(INSERT_SALES, Integer.class, orderKeys, customerIds, saleDates,
+                        shipDates);
+
+                int[] lineSaleIds = new int[lineItemCount];
+                String[] lineSaleDates = new String[lineItemCount];
+                int[] productIds = new int[lineItemCount];
+                int[] quantities = new int[lineItemCount];
+                int line = 0;
+                for (int i = 0; i < orders.size(); i++) {
+                    if (saleIds.get(i) == null) {
+                        continue;
+                    }
+                    for (LineItem lineItem : orders.get(i).getLineItems()) {
+                        lineSaleIds[line] = saleIds.get(i);
+                        lineSaleDates[line] = saleDates[i];
+                        productIds[line] = lineItem.getProductId();
+                        quantities[line] = lineItem.getQuantity();
+                        line++;
+                    }
+                }
+                if (line > 0) {
+                    dao.update(INSERT_LINE_ITEMS, Arrays.copyOf(lineSaleIds, line), Arrays.copyOf(lineSaleDates, line),
+                            Arrays.copyOf(productIds, line), Arrays.copyOf(quantities, line));
+                }
+                return saleIds;
+            });
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+    }
+
+    private int[] getIds(String sql) {
+        try {
+            return dao.queryForList(sql, Integer.class).stream().mapToInt(Integer::intValue).toArray();
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.techelevator.ssgeek.dao;
 
 import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import com.techelevator.ssgeek.model.Product;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
@@ -24,7 +25,7 @@ public class JdbcProductDao implements ProductDao {
         Product product = null;
 
         String sql = "SELECT product_id, name, description, " +
-                "price, image_name " +
+                "(price * 100)::bigint AS price_cents, image_name, version " +
                 "FROM product " +
                 "WHERE product_id = ?;";
         try {
@@ -44,7 +45,7 @@ public class JdbcProductDao implements ProductDao {
         List<Product> products = new ArrayList<>();
 
         String sql = "SELECT product_id, name, description, " +
-                "price, image_name " +
+                "(price * 100)::bigint AS price_cents, image_name, version " +
                 "FROM product " +
                 "ORDER BY product_id;";
         try {
@@ -61,12 +62,34 @@ public class JdbcProductDao implements ProductDao {
         return products;
     }
 
+    @Override
+    public List<Product> getProductPage(int afterProductId, int limit) {
+        List<Product> products = new ArrayList<>();
+
+        String sql = "SELECT product_id, name, description, " +
+                "(price * 100)::bigint AS price_cents, image_name, version " +
+                "FROM product " +
+                "WHERE product_id > ? " +
+                "ORDER BY product_id " +
+                "LIMIT ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, afterProductId, limit);
+            while (results.next()) {
+                products.add(mapRowToProduct(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return products;
+    }
+
     @Override
     public List<Product> getProductsWithNoSales() {
         List<Product> products = new ArrayList<>();
 
         String sql = "SELECT p.product_id, p.name, p.description, " +
-                "p.price, p.image_name " +
+                "(p.price * 100)::bigint AS price_cents, p.image_name, p.version " +
                 "FROM product AS p " +
                 "LEFT JOIN line_item AS li ON p.product_id = li.product_id " +
                 "WHERE li.product_id IS NULL " +
@@ -85,6 +108,35 @@ public class JdbcProductDao implements ProductDao {
         return products;
     }
 
+    @Override
+    public List<Product> searchProducts(String searchText, int limit) {
+        return searchProducts(searchText, limit, 0);
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit, int offset) {
+        List<Product> products = new ArrayList<>();
+
+        // The match operator lets PostgreSQL use the GIN index on search_vector; ranking only
+        // runs on the rows that matched
+        String sql = "SELECT product_id, name, description, " +
+                "(price * 100)::bigint AS price_cents, image_name, version " +
+                "FROM product, websearch_to_tsquery('english', ?) AS query " +
+                "WHERE search_vector @@ query " +
+                "ORDER BY ts_rank_cd(search_vector, query) DESC, product_id " +
+                "LIMIT ? OFFSET ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, searchText, limit, offset);
+            while (results.next()) {
+                products.add(mapRowToProduct(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return products;
+    }
+
     @Override
     public Product createProduct(Product newProduct) {
         Product product = null;
@@ -112,15 +164,17 @@ public class JdbcProductDao implements ProductDao {
         Product product = null;
 
         String sql = "UPDATE product SET name = ?, description = ?, price = ?, " +
-                "image_name = ? " +
-                "WHERE product_id = ?;";
+                "image_name = ?, version = version + 1 " +
+                "WHERE product_id = ? AND version = ? " +
+                "RETURNING version;";
 
         try {
-            int numberOfRows = dao.update(sql, updatedProduct.getName(), updatedProduct.getDescription(),
-                    updatedProduct.getPrice(), updatedProduct.getImageName(), updatedProduct.getProductId());
+            List<Integer> newVersions = dao.queryForList(sql, Integer.class, updatedProduct.getName(),
+                    updatedProduct.getDescription(), updatedProduct.getPrice(), updatedProduct.getImageName(),
+                    updatedProduct.getProductId(), updatedProduct.getVersion());
 
-            if (numberOfRows == 0) {
-                throw new DaoException("Zero rows affected, expected at least one");
+            if (newVersions.isEmpty()) {
+                throw updateFailure(updatedProduct.getProductId(), updatedProduct.getVersion());
             } else {
                 product = getProductById(updatedProduct.getProductId());
             }
@@ -153,12 +207,22 @@ public class JdbcProductDao implements ProductDao {
         return numberOfRows;
     }
 
+    // Why an update matched no row: the row is gone, or its version has moved on since it was read
+    private DaoException updateFailure(int productId, int expectedVersion) {
+        List<Integer> versions = dao.queryForList("SELECT version FROM product WHERE product_id = ?;", Integer.class, productId);
+        if (versions.isEmpty()) {
+            return new DaoException("Zero rows affected, expected at least one");
+        }
+        return new VersionConflictException("Product " + productId, expectedVersion, versions.get(0));
+    }
+
     public Product mapRowToProduct(SqlRowSet results) {
         Product product = new Product();
         product.setProductId(results.getInt("product_id"));
         product.setName(results.getString("name"));
         product.setDescription(results.getString("description"));
-        product.setPrice(results.getBigDecimal("price"));
+        product.setPriceCents(results.getLong("price_cents"));
+        product.setVersion(results.getInt("version"));
         if (results.getString("image_name") != null) {
             product.setImageName(results.getString("image_name"));
         }
@@ -0,0 +1,88 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.ProductImage;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import javax.sql.DataSource;
+
+public class JdbcProductImageDao implements ProductImageDao {
+
+    private final JdbcTemplate dao;
+
+    public JdbcProductImageDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public ProductImage getImageByName(String imageName) {
+        ProductImage image = null;
+
+        String sql = "SELECT image_name, sha256, content_type, size_bytes, width, height, created_at " +
+                "FROM product_image " +
+                "WHERE image_name = ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, imageName);
+            if (results.next()) {
+                image = mapRowToProductImage(results);
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return image;
+    }
+
+    @Override
+    public ProductImage getImageByProductId(int productId) {
+        ProductImage image = null;
+
+        String sql = "SELECT pi.image_name, pi.sha256, pi.content_type, pi.size_bytes, pi.width, pi.height, pi.created_at " +
+                "FROM product AS p " +
+                "JOIN product_image AS pi ON p.image_name = pi.image_name " +
+                "WHERE p.product_id = ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, productId);
+            if (results.next()) {
+                image = mapRowToProductImage(results);
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return image;
+    }
+
+    @Override
+    public ProductImage saveImage(ProductImage image) {
+        String sql = "INSERT INTO product_image " +
+                "(image_name, sha256, content_type, size_bytes, width, height) " +
+                "VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON CONFLICT (image_name) DO NOTHING;";
+        try {
+            dao.update(sql, image.getImageName(), image.getSha256(), image.getContentType(),
+                    image.getSizeBytes(), image.getWidth(), image.getHeight());
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+
+        return getImageByName(image.getImageName());
+    }
+
+    private ProductImage mapRowToProductImage(SqlRowSet results) {
+        ProductImage image = new ProductImage();
+        image.setImageName(results.getString("image_name"));
+        image.setSha256(results.getString("sha256"));
+        image.setContentType(results.getString("content_type"));
+        image.setSizeBytes(results.getLong("size_bytes"));
+        image.setWidth(results.getInt("width"));
+        image.setHeight(results.getInt("height"));
+        image.setCreatedAt(results.getTimestamp("created_at").toLocalDateTime());
+        return image;
+    }
+}
@@ -0,0 +1,76 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.Product;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+
+public class JdbcProductSnapshotDao implements ProductSnapshotDao {
+
+    // Rows fetched per round trip while streaming the table
+    private final int FETCH_SIZE = 10000;
+
+    // Hashing each row before joining keeps the aggregated text small; the md5 of the joined hashes
+    // changes if any column of any row does
+    private static final String FINGERPRINT_SQL = "SELECT md5(COALESCE(string_agg(" +
+            "product_id || ':' || version || ':' || md5(name) || ':' || md5(description) || ':' || price || ':' || " +
+            "COALESCE(image_name, ''), " +
+            "',' ORDER BY product_id), '')) AS fingerprint " +
+            "FROM product;";
+
+    private final JdbcTemplate dao;
+    private final TransactionTemplate snapshot;
+
+    public JdbcProductSnapshotDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+        this.dao.setFetchSize(FETCH_SIZE);
+        // The fingerprint and the streamed rows must come from the same snapshot of the table, and the
+        // PostgreSQL driver only streams with a cursor inside a transaction
+        this.snapshot = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public String getProductFingerprint() {
+        try {
+            return dao.queryForObject(FINGERPRINT_SQL, String.class);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
+    @Override
+    public String streamProducts(Consumer<Product> consumer) {
+        String sql = "SELECT product_id, name, description, " +
+                "(price * 100)::bigint AS price_cents, image_name, version " +
+                "FROM product " +
+                "ORDER BY product_id;";
+        try {
+            return snapshot.execute(status -> {
+                String fingerprint = dao.queryForObject(FINGERPRINT_SQL, String.class);
+                dao.query(sql, (RowCallbackHandler) rs -> {
+                    Product product = new Product();
+                    product.setProductId(rs.getInt("product_id"));
+                    product.setName(rs.getString("name"));
+                    product.setDescription(rs.getString("description"));
+                    product.setPriceCents(rs.getLong("price_cents"));
+                    product.setImageName(rs.getString("image_name"));
+                    product.setVersion(rs.getInt("version"));
+                    consumer.accept(product);
+                });
+                return fingerprint;
+            });
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+}
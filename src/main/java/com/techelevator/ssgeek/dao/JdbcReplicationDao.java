@@ -0,0 +1,39 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+public class JdbcReplicationDao implements ReplicationDao {
+
+    private final JdbcTemplate dao;
+
+    public JdbcReplicationDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public long getCurrentWalPosition() {
+        String sql = "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')::bigint;";
+        try {
+            Long position = dao.queryForObject(sql, Long.class);
+            return position == null ? -1 : position;
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
+    @Override
+    public long getReplayedWalPosition() {
+        // pg_last_wal_replay_lsn() is null on a database that is not in recovery
+        String sql = "SELECT pg_wal_lsn_diff(pg_last_wal_replay_lsn(), '0/0')::bigint;";
+        try {
+            Long position = dao.queryForObject(sql, Long.class);
+            return position == null ? -1 : position;
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.ReportLine;
+import com.techelevator.ssgeek.model.SalesReport;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcReportDao implements ReportDao {
+
+    // The groupings a revenue report can break the line items down by
+    private enum Dimension {
+        PRODUCT("p.product_id, p.name", "p.product_id", "p.name"),
+        MONTH("date_trunc('month', s.sale_date)",
+                "(EXTRACT(YEAR FROM date_trunc('month', s.sale_date)) * 100 + " +
+                "EXTRACT(MONTH FROM date_trunc('month', s.sale_date)))::int",
+                "to_char(date_trunc('month', s.sale_date), 'YYYY-MM')"),
+        STATE("c.state", null, "c.state");
+
+        final String columns;
+        // Key and label of the dimension's rows; a null key reports as 0
+        final String key;
+        final String label;
+
+        Dimension(String columns, String key, String label) {
+            this.columns = columns;
+            this.key = key;
+            this.label = label;
+        }
+    }
+
+    private final String TOP_CUSTOMERS_SELECT = "SELECT customer_id, name, order_count, units, revenue, revenue_rank, percent_of_total " +
+            "FROM (" +
+            "SELECT c.customer_id, c.name, COUNT(DISTINCT s.sale_id) AS order_count, SUM(li.quantity) AS units, " +
+            "SUM(li.quantity * li.price) AS revenue, " +
+            "RANK() OVER (ORDER BY SUM(li.quantity * li.price) DESC) AS revenue_rank, " +
+            "ROUND(SUM(li.quantity * li.price) * 100 / NULLIF(SUM(SUM(li.quantity * li.price)) OVER (), 0), 2) AS percent_of_total " +
+            "FROM line_item_all AS li " +
+            "JOIN sale_all AS s ON li.sale_id = s.sale_id " +
+            "JOIN product AS p ON li.product_id = p.product_id " +
+            "JOIN customer AS c ON s.customer_id = c.customer_id " +
+            "GROUP BY c.customer_id, c.name" +
+            ") AS ranked " +
+            "WHERE revenue_rank <= ? " +
+            "ORDER BY revenue_rank, customer_id;";
+
+    private final JdbcTemplate dao;
+    private final TransactionTemplate snapshot;
+
+    public JdbcReportDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+        // Reports never write, and REPEATABLE READ gives every query in the transaction the same snapshot
+        this.snapshot = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public SalesReport getSalesReport(int topCustomerLimit) {
+        return inSnapshot(status -> {
+            SalesReport report = new SalesReport();
+            loadGroupedRevenue(report, Dimension.values());
+            report.setTopCustomers(loadTopCustomers(topCustomerLimit));
+            return report;
+        });
+    }
+
+    @Override
+    public List<ReportLine> getRevenueByProduct() {
+        return inSnapshot(status -> loadGroupedRevenue(new SalesReport(), Dimension.PRODUCT).getRevenueByProduct());
+    }
+
+    @Override
+    public List<ReportLine> getRevenueByMonth() {
+        return inSnapshot(status -> loadGroupedRevenue(new SalesReport(), Dimension.MONTH).getRevenueByMonth());
+    }
+
+    @Override
+    public List<ReportLine> getRevenueByState() {
+        return inSnapshot(status -> loadGroupedRevenue(new SalesReport(), Dimension.STATE).getRevenueByState());
+    }
+
+    @Override
+    public List<ReportLine> getTopCustomers(int limit) {
+        return inSnapshot(status -> loadTopCustomers(limit));
+    }
+
+    private <T> T inSnapshot(TransactionCallback<T> action) {
+        try {
+            return snapshot.execute(action);
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
+    private SalesReport loadGroupedRevenue(SalesReport report, Dimension... dimensions) {
+        String sql = groupedRevenueSelect(dimensions) +
+                "ORDER BY dimension, CASE WHEN dimension = 'month' THEN label END, revenue_rank, label;";
+
+        SqlRowSet results = dao.queryForRowSet(sql);
+        while (results.next()) {
+            ReportLine line = mapRowToReportLine(results, "group_key", "label");
+            switch (results.getString("dimension")) {
+                case "product":
+                    report.getRevenueByProduct().add(line);
+                    break;
+                case "month":
+                    report.getRevenueByMonth().add(line);
+                    break;
+                case "state":
+                    report.getRevenueByState().add(line);
+                    break;
+                case "total":
+                    report.setTotalOrders(line.getOrderCount());
+                    report.setTotalUnits(line.getUnits());
+                    report.setTotalRevenue(line.getRevenue());
+                    break;
+            }
+        }
+        return report;
+    }
+
+    // One pass over the line items computes the requested groupings and the grand total (the row with no
+    // grouping) at once. The outer query ranks each group within its dimension and works out its share of
+    // the grand total.
+    private static String groupedRevenueSelect(Dimension... dimensions) {
+        StringBuilder dimension = new StringBuilder("CASE ");
+        StringBuilder key = new StringBuilder("COALESCE(");
+        StringBuilder label = new StringBuilder("COALESCE(");
+        StringBuilder groupingSets = new StringBuilder();
+        for (Dimension d : dimensions) {
+            dimension.append("WHEN GROUPING(").append(d.columns).append(") = 0 THEN '")
+                    .append(d.name().toLowerCase()).append("' ");
+            if (d.key != null) {
+                key.append(d.key).append(", ");
+            }
+            label.append(d.label).append(", ");
+            groupingSets.append("(").append(d.columns).append("), ");
+        }
+        return "SELECT dimension, group_key, label, order_count, units, revenue, " +
+                "RANK() OVER (PARTITION BY dimension ORDER BY revenue DESC) AS revenue_rank, " +
+                "ROUND(revenue * 100 / NULLIF(MAX(revenue) FILTER (WHERE dimension = 'total') OVER (), 0), 2) AS percent_of_total " +
+                "FROM (" +
+                "SELECT " + dimension + "ELSE 'total' END AS dimension, " +
+                key + "0) AS group_key, " +
+                label + "'Total') AS label, " +
+                "COUNT(DISTINCT s.sale_id) AS order_count, COALESCE(SUM(li.quantity), 0) AS units, " +
+                "COALESCE(SUM(li.quantity * li.price), 0) AS revenue " +
+                "FROM line_item_all AS li " +
+                "JOIN sale_all AS s ON li.sale_id = s.sale_id " +
+                "JOIN product AS p ON li.product_id = p.product_id " +
+                "JOIN customer AS c ON s.customer_id = c.customer_id " +
+                "GROUP BY GROUPING SETS (" + groupingSets + "())" +
+                ") AS grouped ";
+    }
+
+    private List<ReportLine> loadTopCustomers(int limit) {
+        List<ReportLine> lines = new ArrayList<>();
+
+        SqlRowSet results = dao.queryForRowSet(TOP_CUSTOMERS_SELECT, limit);
+        while (results.next()) {
+            lines.add(mapRowToReportLine(results, "customer_id", "name"));
+        }
+        return lines;
+    }
+
+    public ReportLine mapRowToReportLine(SqlRowSet results, String keyColumn, String labelColumn) {
+        ReportLine line = new ReportLine();
+        line.setKey(results.getInt(keyColumn));
+        line.setLabel(results.getString(labelColumn));
+        line.setOrderCount(results.getInt("order_count"));
+        line.setUnits(results.getInt("units"));
+        line.setRevenue(results.getBigDecimal("revenue"));
+        line.setPercentOfTotal(results.getBigDecimal("percent_of_total"));
+        line.setRank(results.getInt("revenue_rank"));
+        return line;
+    }
+}
@@ -0,0 +1,217 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.ReportLine;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcRollupDao implements RollupDao {
+
+    private final String ROLLUP_NAME = "sales";
+
+    // The sales that a refresh adds: those dated between the old and new watermark dates, and those
+    // written or changed since the last refresh but dated before the old watermark date (backdated orders,
+    // and sales taken back out of the rollups when they changed). Sales written by a transaction that
+    // was still running when the refresh started are left for the next refresh, as they may not be
+    // committed yet. Parameters: oldest running transaction id, cutoff date.
+    private final String DELTA_FROM = "FROM sale AS s " +
+            "JOIN line_item AS li ON s.sale_id = li.sale_id " +
+            "JOIN customer AS c ON s.customer_id = c.customer_id " +
+            "CROSS JOIN rollup_watermark AS w " +
+            "WHERE w.rollup_name = '" + ROLLUP_NAME + "' AND s.rollup_txid < ? " +
+            "AND ((s.sale_date >= w.rolled_through AND s.sale_date < ?) " +
+            "OR (s.rollup_txid >= w.last_txid AND s.sale_date < w.rolled_through)) ";
+
+    // Every archived sale. They were all in the rollups before they were archived, so are only read
+    // again when the rollups are rebuilt.
+    private final String ARCHIVE_FROM = "FROM sale_archive AS s " +
+            "JOIN line_item_archive AS li ON s.sale_id = li.sale_id " +
+            "JOIN customer AS c ON s.customer_id = c.customer_id ";
+
+    // %1$s rollup table, %2$s period column, %3$s period expression, %4$s group column, %5$s group expression,
+    // %6$s the sales to add (DELTA_FROM or ARCHIVE_FROM)
+    private final String UPSERT_ROLLUP = "INSERT INTO %1$s (%2$s, %4$s, order_count, units, revenue) " +
+            "SELECT %3$s, %5$s, COUNT(DISTINCT s.sale_id), SUM(li.quantity), SUM(li.quantity * li.price) " +
+            "%6$s" +
+            "GROUP BY %3$s, %5$s " +
+            "ON CONFLICT (%2$s, %4$s) DO UPDATE SET " +
+            "order_count = %1$s.order_count + EXCLUDED.order_count, " +
+            "units = %1$s.units + EXCLUDED.units, " +
+            "revenue = %1$s.revenue + EXCLUDED.revenue;";
+
+    // Whole months inside the range come from the monthly rollup, other rolled up days from the daily
+    // rollup, and sales the rollups don't have yet from the live tables. The three parts never overlap.
+    // %1$s daily table, %2$s monthly table, %3$s group column, %4$s live group expression
+    // Parameters: from date, to date.
+    private final String RANGE_SOURCE = "WITH params AS (SELECT ?::date AS from_date, ?::date AS to_date), " +
+            "wm AS (SELECT rolled_through, last_txid FROM rollup_watermark WHERE rollup_name = '" + ROLLUP_NAME + "'), " +
+            "src AS (" +
+            "SELECT r.%3$s AS group_key, r.order_count, r.units, r.revenue " +
+            "FROM %2$s AS r, params, wm " +
+            "WHERE r.sale_month >= params.from_date " +
+            "AND r.sale_month + interval '1 month' <= params.to_date " +
+            "AND r.sale_month + interval '1 month' <= wm.rolled_through " +
+            "UNION ALL " +
+            "SELECT r.%3$s, r.order_count, r.units, r.revenue " +
+            "FROM %1$s AS r, params, wm " +
+            "WHERE r.sale_date >= params.from_date AND r.sale_date < params.to_date " +
+            "AND r.sale_date < wm.rolled_through " +
+            "AND NOT (date_trunc('month', r.sale_date) >= params.from_date " +
+            "AND date_trunc('month', r.sale_date) + interval '1 month' <= params.to_date " +
+            "AND date_trunc('month', r.sale_date) + interval '1 month' <= wm.rolled_through) " +
+            "UNION ALL " +
+            "SELECT %4$s, COUNT(DISTINCT s.sale_id), SUM(li.quantity), SUM(li.quantity * li.price) " +
+            "FROM sale AS s " +
+            "JOIN line_item AS li ON s.sale_id = li.sale_id " +
+            "JOIN customer AS c ON s.customer_id = c.customer_id " +
+            "CROSS JOIN params CROSS JOIN wm " +
+            "WHERE s.sale_date >= params.from_date AND s.sale_date < params.to_date " +
+            "AND (s.sale_date >= wm.rolled_through OR s.rollup_txid >= wm.last_txid) " +
+            "GROUP BY %4$s" +
+            ") ";
+
+    private final String RANGE_TOTALS = "SUM(src.order_count) AS order_count, SUM(src.units) AS units, " +
+            "SUM(src.revenue) AS revenue, " +
+            "RANK() OVER (ORDER BY SUM(src.revenue) DESC) AS revenue_rank, " +
+            "ROUND(SUM(src.revenue) * 100 / NULLIF(SUM(SUM(src.revenue)) OVER (), 0), 2) AS percent_of_total ";
+
+    private final JdbcTemplate dao;
+    private final TransactionTemplate transaction;
+
+    public JdbcRollupDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+        // The watermark and the rollups must move together, and every statement of a refresh must see
+        // the same set of sales
+        this.transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public int refreshRollups(LocalDate cutoff) {
+        try {
+            return transaction.execute(status -> {
+                lockWatermark();
+                return refresh(cutoff);
+            });
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+    }
+
+    @Override
+    public int rebuildRollups(LocalDate cutoff) {
+        try {
+            return transaction.execute(status -> {
+                lockWatermark();
+                dao.update("DELETE FROM product_sales_daily;");
+                dao.update("DELETE FROM product_sales_monthly;");
+                dao.update("DELETE FROM state_sales_daily;");
+                dao.update("DELETE FROM state_sales_monthly;");
+                dao.update("UPDATE rollup_watermark SET rolled_through = '-infinity', last_txid = 0 " +
+                        "WHERE rollup_name = ?;", ROLLUP_NAME);
+                upsertRollups(ARCHIVE_FROM);
+                return refresh(cutoff);
+            });
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+    }
+
+    @Override
+    public List<ReportLine> getProductRevenue(LocalDate fromDate, LocalDate toDate) {
+        String sql = String.format(RANGE_SOURCE, "product_sales_daily", "product_sales_monthly",
+                "product_id", "li.product_id") +
+                "SELECT src.group_key, pr.name AS label, " + RANGE_TOTALS +
+                "FROM src " +
+                "JOIN product AS pr ON src.group_key = pr.product_id " +
+                "GROUP BY src.group_key, pr.name " +
+                "ORDER BY revenue_rank, src.group_key;";
+        return queryForReportLines(sql, fromDate, toDate);
+    }
+
+    @Override
+    public List<ReportLine> getStateRevenue(LocalDate fromDate, LocalDate toDate) {
+        String sql = String.format(RANGE_SOURCE, "state_sales_daily", "state_sales_monthly",
+                "state", "c.state") +
+                "SELECT 0 AS group_key, src.group_key AS label, " + RANGE_TOTALS +
+                "FROM src " +
+                "GROUP BY src.group_key " +
+                "ORDER BY revenue_rank, src.group_key;";
+        return queryForReportLines(sql, fromDate, toDate);
+    }
+
+    // Must be the first statement of the transaction, so the snapshot every later statement reads is only
+    // taken once the lock is held. Changes to sales already in the rollups take a share lock on the watermark
+    // (see unroll_sale), so this waits for them to commit, and they wait for the refresh. Plain reads go on.
+    private void lockWatermark() {
+        dao.execute("LOCK TABLE rollup_watermark IN EXCLUSIVE MODE;");
+    }
+
+    private int refresh(LocalDate cutoff) {
+        // Every transaction below this one has ended, and those that committed are in the snapshot
+        long oldestRunningTxid = dao.queryForObject("SELECT txid_snapshot_xmin(txid_current_snapshot());", long.class);
+
+        int salesAdded = dao.queryForObject("SELECT COUNT(DISTINCT s.sale_id) " + DELTA_FROM + ";",
+                int.class, oldestRunningTxid, cutoff);
+
+        upsertRollups(DELTA_FROM, oldestRunningTxid, cutoff);
+
+        dao.update("UPDATE rollup_watermark SET rolled_through = GREATEST(rolled_through, ?), " +
+                "last_txid = GREATEST(last_txid, ?), refreshed_at = now() " +
+                "WHERE rollup_name = ?;", cutoff, oldestRunningTxid, ROLLUP_NAME);
+        return salesAdded;
+    }
+
+    private void upsertRollups(String from, Object... params) {
+        dao.update(String.format(UPSERT_ROLLUP, "product_sales_daily", "sale_date", "s.sale_date",
+                "product_id", "li.product_id", from), params);
+        dao.update(String.format(UPSERT_ROLLUP, "product_sales_monthly", "sale_month", "date_trunc('month', s.sale_date)::date",
+                "product_id", "li.product_id", from), params);
+        dao.update(String.format(UPSERT_ROLLUP, "state_sales_daily", "sale_date", "s.sale_date",
+                "state", "c.state", from), params);
+        dao.update(String.format(UPSERT_ROLLUP, "state_sales_monthly", "sale_month", "date_trunc('month', s.sale_date)::date",
+                "state", "c.state", from), params);
+    }
+
+    private List<ReportLine> queryForReportLines(String sql, LocalDate fromDate, LocalDate toDate) {
+        List<ReportLine> lines = new ArrayList<>();
+
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, fromDate, toDate);
+            while (results.next()) {
+                lines.add(mapRowToReportLine(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return lines;
+    }
+
+    public ReportLine mapRowToReportLine(SqlRowSet results) {
+        ReportLine line = new ReportLine();
+        line.setKey(results.getInt("group_key"));
+        line.setLabel(results.getString("label"));
+        line.setOrderCount(results.getInt("order_count"));
+        line.setUnits(results.getInt("units"));
+        line.setRevenue(results.getBigDecimal("revenue"));
+        line.setPercentOfTotal(results.getBigDecimal("percent_of_total"));
+        line.setRank(results.getInt("revenue_rank"));
+        return line;
+    }
+}
@@ -0,0 +1,43 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+
+public class JdbcSaleArchiveDao implements SaleArchiveDao {
+
+    private final JdbcTemplate dao;
+
+    public JdbcSaleArchiveDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public int createSalePartitions(LocalDate fromDate, LocalDate throughDate) {
+        String sql = "SELECT create_sale_partitions(?, ?);";
+        try {
+            return dao.queryForObject(sql, int.class, fromDate, throughDate);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+    }
+
+    @Override
+    public int archiveShippedSales(LocalDate saleDateBefore, int batchSize) {
+        // The function moves the sales and their line items in one statement, so one transaction
+        String sql = "SELECT archive_shipped_sales(?, ?);";
+        try {
+            return dao.queryForObject(sql, int.class, saleDateBefore, batchSize);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+    }
+}
@@ -1,24 +1,45 @@
 package com.techelevator.ssgeek.dao;
 
 import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import com.techelevator.ssgeek.model.LineItem;
 import com.techelevator.ssgeek.model.Sale;
+import com.techelevator.ssgeek.model.SaleEvent;
+import com.techelevator.ssgeek.model.SaleTotal;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
 import javax.sql.DataSource;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class JdbcSaleDao implements SaleDao, LineItemDao{
 
-    private final String SALE_SELECT = "SELECT s.sale_id, s.customer_id, s.sale_date, s.ship_date, " +
-            "c.name FROM sale AS s " +
+    private final String SALE_COLUMNS = "SELECT s.sale_id, s.customer_id, s.sale_date, s.ship_date, " +
+            "s.item_count, s.total_amount, s.version, c.name ";
+    // Archived sales included
+    private final String SALE_SELECT = SALE_COLUMNS + "FROM sale_all AS s " +
             "JOIN customer AS c ON s.customer_id = c.customer_id ";
+    // Live sales only, for queues the archive never holds a sale for
+    private final String LIVE_SALE_SELECT = SALE_COLUMNS + "FROM sale AS s " +
+            "JOIN customer AS c ON s.customer_id = c.customer_id ";
+    // Appended to a statement that creates, changes or deletes sales: the changed rows become "changed",
+    // and an event for each is written to sale_outbox by the same statement
+    static final String OUTBOX_RETURNING = " RETURNING s.sale_id, s.customer_id, s.sale_date, s.ship_date, s.version, ";
+    static final String OUTBOX_INSERT = "outbox AS (" +
+            "INSERT INTO sale_outbox (sale_id, event_type, payload) " +
+            "SELECT c.sale_id, c.event_type, json_build_object('saleId', c.sale_id, 'customerId', c.customer_id, " +
+            "'saleDate', c.sale_date, 'shipDate', c.ship_date, 'version', c.version) " +
+            "FROM changed AS c) ";
     private final JdbcTemplate dao;
 
     public JdbcSaleDao(DataSource dataSource) {
@@ -46,7 +67,7 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
     public List<Sale> getUnshippedSales() {
         List<Sale> sales = new ArrayList<>();
 
-        String sql = SALE_SELECT + " WHERE s.ship_date IS NULL " +
+        String sql = LIVE_SALE_SELECT + " WHERE s.ship_date IS NULL " +
                 "ORDER BY s.sale_id;";
         try {
             SqlRowSet results = dao.queryForRowSet(sql);
@@ -62,6 +83,25 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
         return sales;
     }
 
+    @Override
+    public List<Sale> getSalePage(int afterSaleId, int limit) {
+        List<Sale> sales = new ArrayList<>();
+
+        String sql = SALE_SELECT + " WHERE s.sale_id > ? " +
+                "ORDER BY s.sale_id " +
+                "LIMIT ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, afterSaleId, limit);
+            while (results.next()) {
+                sales.add(mapRowToSale(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return sales;
+    }
+
     @Override
     public List<Sale> getSalesByCustomerId(int customerId) {
         List<Sale> sales = new ArrayList<>();
@@ -87,7 +127,7 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
         List<Sale> sales = new ArrayList<>();
 
         String sql = SALE_SELECT +
-                "JOIN line_item AS li ON s.sale_id = li.sale_id " +
+                "JOIN line_item_all AS li ON s.sale_id = li.sale_id " +
                 " WHERE li.product_id = ? " +
                 "ORDER BY sale_id;";
         try {
@@ -104,12 +144,129 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
         return sales;
     }
 
+    @Override
+    public List<SaleTotal> getSaleTotals(List<Integer> saleIds) {
+        List<SaleTotal> saleTotals = new ArrayList<>();
+
+        String sql = "SELECT sale_id, item_count, total_amount " +
+                "FROM sale_all " +
+                "WHERE sale_id = ANY(?) " +
+                "ORDER BY sale_id;";
+        try {
+            int[] ids = saleIds.stream().mapToInt(Integer::intValue).toArray();
+            SqlRowSet results = dao.queryForRowSet(sql, ids);
+            while (results.next()) {
+                saleTotals.add(new SaleTotal(results.getInt("sale_id"), results.getInt("item_count"),
+                        results.getBigDecimal("total_amount")));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return saleTotals;
+    }
+
+    @Override
+    public List<Integer> shipSales(Collection<Integer> saleIds, LocalDate shipDate) {
+        String sql = withOutboxEvents("UPDATE sale AS s SET ship_date = ?, version = s.version + 1, " +
+                "leased_by = NULL, lease_expires_at = NULL " +
+                "WHERE s.sale_id = ANY(?) AND s.ship_date IS NULL", SaleEvent.SHIPPED) +
+                "SELECT sale_id FROM changed;";
+        int[] ids = saleIds.stream().mapToInt(Integer::intValue).toArray();
+        return shipSales(sql, shipDate, ids);
+    }
+
+    @Override
+    public List<Integer> shipUnshippedSalesThrough(LocalDate saleDateThrough, LocalDate shipDate) {
+        String sql = withOutboxEvents("UPDATE sale AS s SET ship_date = ?, version = s.version + 1, " +
+                "leased_by = NULL, lease_expires_at = NULL " +
+                "WHERE s.sale_date <= ? AND s.ship_date IS NULL", SaleEvent.SHIPPED) +
+                "SELECT sale_id FROM changed;";
+        return shipSales(sql, shipDate, saleDateThrough);
+    }
+
+    @Override
+    public List<Sale> claimUnshippedSales(String workerId, int count, Duration leaseTime) {
+        List<Sale> sales = new ArrayList<>();
+
+        // SKIP LOCKED passes over sales another worker is claiming right now, and the lease keeps
+        // them from being claimed again once that worker commits
+        String sql = "WITH claimed AS (" +
+                "UPDATE sale SET leased_by = ?, lease_expires_at = now() + make_interval(secs => ?) " +
+                "WHERE sale_id IN (" +
+                "SELECT sale_id FROM sale " +
+                "WHERE ship_date IS NULL AND (lease_expires_at IS NULL OR lease_expires_at <= now()) " +
+                "ORDER BY sale_date, sale_id " +
+                "LIMIT ? " +
+                "FOR UPDATE SKIP LOCKED) " +
+                "RETURNING *) " +
+                "SELECT s.sale_id, s.customer_id, s.sale_date, s.ship_date, s.item_count, s.total_amount, " +
+                "s.version, c.name FROM claimed AS s " +
+                "JOIN customer AS c ON s.customer_id = c.customer_id " +
+                "ORDER BY s.sale_date, s.sale_id;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, workerId, leaseTime.toMillis() / 1000.0, count);
+            while (results.next()) {
+                sales.add(mapRowToSale(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+
+        return sales;
+    }
+
+    @Override
+    public List<Integer> completeClaimedSales(String workerId, Collection<Integer> saleIds, LocalDate shipDate) {
+        String sql = withOutboxEvents("UPDATE sale AS s SET ship_date = ?, version = s.version + 1, " +
+                "leased_by = NULL, lease_expires_at = NULL " +
+                "WHERE s.sale_id = ANY(?) AND s.leased_by = ? AND s.ship_date IS NULL", SaleEvent.SHIPPED) +
+                "SELECT sale_id FROM changed;";
+        List<Integer> shippedIds;
+        try {
+            int[] ids = saleIds.stream().mapToInt(Integer::intValue).toArray();
+            shippedIds = new ArrayList<>(dao.queryForList(sql, Integer.class, shipDate, ids, workerId));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+        Collections.sort(shippedIds);
+        return shippedIds;
+    }
+
+    @Override
+    public int releaseClaimedSales(String workerId, Collection<Integer> saleIds) {
+        String sql = "UPDATE sale SET leased_by = NULL, lease_expires_at = NULL " +
+                "WHERE sale_id = ANY(?) AND leased_by = ?;";
+        try {
+            int[] ids = saleIds.stream().mapToInt(Integer::intValue).toArray();
+            return dao.update(sql, ids, workerId);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
+    @Override
+    public int releaseExpiredLeases() {
+        String sql = "UPDATE sale SET leased_by = NULL, lease_expires_at = NULL " +
+                "WHERE lease_expires_at <= now();";
+        try {
+            return dao.update(sql);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
     @Override
     public Sale createSale(Sale newSale) {
         Sale sale = null;
 
-        String sql = "INSERT INTO sale (customer_id, sale_date, ship_date) " +
-                "VALUES (?, ?, ?) RETURNING sale_id;";
+        String sql = withOutboxEvents("INSERT INTO sale AS s (customer_id, sale_date, ship_date) " +
+                "VALUES (?, ?, ?)", SaleEvent.CREATED) +
+                "SELECT sale_id FROM changed;";
         try {
             int newSaleId = dao.queryForObject(sql, int.class, newSale.getCustomerId(),
                     newSale.getSaleDate(), newSale.getShipDate());
@@ -124,18 +281,76 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
         return sale;
     }
 
+    @Override
+    public Map<String, Integer> createSales(Map<String, Sale> salesByOrderKey) {
+        Map<String, Integer> saleIds = new HashMap<>();
+        if (salesByOrderKey.isEmpty()) {
+            return saleIds;
+        }
+        String[] orderKeys = new String[salesByOrderKey.size()];
+        int[] customerIds = new int[orderKeys.length];
+        String[] saleDates = new String[orderKeys.length];
+        String[] shipDates = new String[orderKeys.length];
+        int i = 0;
+        for (Map.Entry<String, Sale> entry : salesByOrderKey.entrySet()) {
+            Sale sale = entry.getValue();
+            orderKeys[i] = entry.getKey();
+            customerIds[i] = sale.getCustomerId();
+            saleDates[i] = sale.getSaleDate().toString();
+            shipDates[i] = sale.getShipDate() == null ? null : sale.getShipDate().toString();
+            i++;
+        }
+
+        // Ids are taken from the sequence up front, so each order key can be stored with its new sale's id.
+        // The last SELECT reads sale_order_key as it was before the statement, finding keys used earlier
+        String sql = "WITH incoming AS (" +
+                "SELECT nextval(pg_get_serial_sequence('sale', 'sale_id'))::int AS sale_id, o.order_key, " +
+                "o.customer_id, o.sale_date, o.ship_date " +
+                "FROM unnest(?::uuid[], ?::int[], ?::date[], ?::date[]) AS o (order_key, customer_id, sale_date, ship_date) " +
+                "WHERE NOT EXISTS (SELECT 1 FROM sale_order_key AS k WHERE k.order_key = o.order_key)), " +
+                "changed AS (INSERT INTO sale AS s (sale_id, customer_id, sale_date, ship_date) " +
+                "SELECT sale_id, customer_id, sale_date, ship_date FROM incoming" +
+                OUTBOX_RETURNING + "'" + SaleEvent.CREATED + "' AS event_type), " +
+                OUTBOX_INSERT + ", " +
+                "keyed AS (INSERT INTO sale_order_key (order_key, sale_id) SELECT order_key, sale_id FROM incoming) " +
+                "SELECT order_key::text, sale_id FROM incoming " +
+                "UNION ALL " +
+                "SELECT order_key::text, sale_id FROM sale_order_key WHERE order_key = ANY(?::uuid[]);";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, orderKeys, customerIds, saleDates, shipDates, orderKeys);
+            while (results.next()) {
+                saleIds.put(results.getString("order_key"), results.getInt("sale_id"));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+
+        return saleIds;
+    }
+
     @Override
     public Sale updateSale(Sale updatedSale) {
         Sale sale = null;
 
-        String sql = "UPDATE sale SET customer_id = ?, sale_date = ?, ship_date = ? " +
-                "WHERE sale_id = ?;";
+        // Joined to the row as it was before the update, to tell shipping a sale from other changes
+        String sql = "WITH changed AS (" +
+                "UPDATE sale AS s SET customer_id = ?, sale_date = ?, ship_date = ?, version = s.version + 1 " +
+                "FROM sale AS old " +
+                "WHERE s.sale_id = ? AND s.version = ? AND old.sale_id = s.sale_id" +
+                OUTBOX_RETURNING +
+                "CASE WHEN old.ship_date IS NULL AND s.ship_date IS NOT NULL " +
+                "THEN '" + SaleEvent.SHIPPED + "' ELSE '" + SaleEvent.UPDATED + "' END AS event_type), " +
+                OUTBOX_INSERT +
+                "SELECT version FROM changed;";
         try {
-            int numberOfRows = dao.update(sql, updatedSale.getCustomerId(),
-                    updatedSale.getSaleDate(), updatedSale.getShipDate(), updatedSale.getSaleId());
+            List<Integer> newVersions = dao.queryForList(sql, Integer.class, updatedSale.getCustomerId(),
+                    updatedSale.getSaleDate(), updatedSale.getShipDate(), updatedSale.getSaleId(),
+                    updatedSale.getVersion());
 
-            if (numberOfRows == 0) {
-                throw new DaoException("Zero rows affected, expected at least one");
+            if (newVersions.isEmpty()) {
+                throw updateFailure(updatedSale.getSaleId(), updatedSale.getVersion());
             } else {
                 sale = getSaleById(updatedSale.getSaleId());
             }
@@ -153,12 +368,13 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
         int numberOfRows = 0;
 
         String deleteLineItemSql = "DELETE FROM line_item WHERE sale_id = ?;";
-        String deleteSaleSql = "DELETE FROM sale WHERE sale_id = ?;";
+        String deleteSaleSql = withOutboxEvents("DELETE FROM sale AS s WHERE s.sale_id = ?", SaleEvent.DELETED) +
+                "SELECT COUNT(*) FROM changed;";
 
         try {
             dao.update(deleteLineItemSql, saleId);
 
-            numberOfRows = dao.update(deleteSaleSql, saleId);
+            numberOfRows = dao.queryForObject(deleteSaleSql, int.class, saleId);
         } catch (CannotGetJdbcConnectionException e) {
             throw new DaoException("Unable to connect to server or database", e);
         } catch (DataIntegrityViolationException e) {
@@ -172,8 +388,9 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
     public List<LineItem> getLineItemsBySaleId(int saleId) {
         List<LineItem> lineItems = new ArrayList<>();
 
-        String sql = "SELECT li.line_item_id, li.sale_id, li.product_id, li.quantity, p.name, p.price " +
-                "FROM line_item AS li " +
+        String sql = "SELECT li.line_item_id, li.sale_id, li.product_id, li.quantity, p.name, " +
+                "(li.price * 100)::bigint AS price_cents " +
+                "FROM line_item_all AS li " +
                 "JOIN product AS p ON li.product_id = p.product_id " +
                 "WHERE li.sale_id = ? " +
                 "ORDER BY li.line_item_id;";
@@ -186,7 +403,7 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
                 lineItem.setProductId(results.getInt("product_id"));
                 lineItem.setQuantity(results.getInt("quantity"));
                 lineItem.setProductName(results.getString("name"));
-                lineItem.setPrice(results.getBigDecimal("price"));
+                lineItem.setPriceCents(results.getLong("price_cents"));
                 lineItems.add(lineItem);
             }
         } catch (CannotGetJdbcConnectionException e) {
@@ -196,6 +413,40 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
         return lineItems;
     }
 
+    // The start of a statement that makes the given change to sale and writes an event of the given type
+    // for each row it changes; the caller adds a SELECT from "changed"
+    private String withOutboxEvents(String change, String eventType) {
+        return "WITH changed AS (" + change + OUTBOX_RETURNING + "'" + eventType + "' AS event_type), " +
+                OUTBOX_INSERT;
+    }
+
+    // Runs one of the ship statements above, whose second parameter picks the sales to ship
+    private List<Integer> shipSales(String sql, LocalDate shipDate, Object which) {
+        List<Integer> shippedIds;
+        try {
+            shippedIds = new ArrayList<>(dao.queryForList(sql, Integer.class, shipDate, which));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+        // RETURNING gives no particular order
+        Collections.sort(shippedIds);
+        return shippedIds;
+    }
+
+    // Why an update matched no row: the row is gone or archived, or its version has moved on since it was read
+    private DaoException updateFailure(int saleId, int expectedVersion) {
+        List<Integer> versions = dao.queryForList("SELECT version FROM sale WHERE sale_id = ?;", Integer.class, saleId);
+        if (versions.isEmpty()) {
+            if (dao.queryForObject("SELECT EXISTS (SELECT 1 FROM sale_archive WHERE sale_id = ?);", boolean.class, saleId)) {
+                return new DaoException("Sale " + saleId + " is archived and can no longer be changed");
+            }
+            return new DaoException("Zero rows affected, expected at least one");
+        }
+        return new VersionConflictException("Sale " + saleId, expectedVersion, versions.get(0));
+    }
+
     public Sale mapRowToSale(SqlRowSet results) {
         Sale sale = new Sale();
         sale.setSaleId(results.getInt("sale_id"));
@@ -205,6 +456,9 @@ public class JdbcSaleDao implements SaleDao, LineItemDao{
             sale.setShipDate(results.getDate("ship_date").toLocalDate());
         }
         sale.setCustomerName(results.getString("name"));
+        sale.setItemCount(results.getInt("item_count"));
+        sale.setTotalAmount(results.getBigDecimal("total_amount"));
+        sale.setVersion(results.getInt("version"));
         return sale;
     }
 
@@ -0,0 +1,87 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.SaleEvent;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcSaleOutboxDao implements SaleOutboxDao {
+
+    private final JdbcTemplate dao;
+
+    public JdbcSaleOutboxDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public List<SaleEvent> getUndeliveredEvents(String relayName, int limit) {
+        List<SaleEvent> events = new ArrayList<>();
+
+        // Event ids are handed out before the writing transaction commits, so ids alone can commit out of
+        // order. Every transaction older than the snapshot's xmin has ended, and later ones get higher
+        // txids, so nothing can appear behind a position taken from these rows.
+        String sql = "SELECT o.event_id, o.txid, o.sale_id, o.event_type, o.payload::text AS payload, o.created_at " +
+                "FROM sale_outbox AS o " +
+                "LEFT JOIN outbox_relay AS r ON r.relay_name = ? " +
+                "WHERE (o.txid, o.event_id) > (COALESCE(r.last_txid, 0), COALESCE(r.last_event_id, 0)) " +
+                "AND o.txid < txid_snapshot_xmin(txid_current_snapshot()) " +
+                "ORDER BY o.txid, o.event_id " +
+                "LIMIT ?;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, relayName, limit);
+            while (results.next()) {
+                events.add(mapRowToSaleEvent(results));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return events;
+    }
+
+    @Override
+    public void markDelivered(String relayName, SaleEvent lastEvent) {
+        String sql = "INSERT INTO outbox_relay (relay_name, last_txid, last_event_id, relayed_at) " +
+                "VALUES (?, ?, ?, now()) " +
+                "ON CONFLICT (relay_name) DO UPDATE SET last_txid = EXCLUDED.last_txid, " +
+                "last_event_id = EXCLUDED.last_event_id, relayed_at = EXCLUDED.relayed_at;";
+        try {
+            dao.update(sql, relayName, lastEvent.getTransactionId(), lastEvent.getEventId());
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
+    @Override
+    public int deleteDeliveredEvents(List<String> relayNames) {
+        if (relayNames.isEmpty()) {
+            return 0;
+        }
+        // A relay without an outbox_relay row is at position 0, as in getUndeliveredEvents
+        String sql = "DELETE FROM sale_outbox AS o " +
+                "WHERE NOT EXISTS (SELECT 1 FROM unnest(?::varchar[]) AS n (relay_name) " +
+                "LEFT JOIN outbox_relay AS r ON r.relay_name = n.relay_name " +
+                "WHERE (o.txid, o.event_id) > (COALESCE(r.last_txid, 0), COALESCE(r.last_event_id, 0)));";
+        try {
+            return dao.update(sql, (Object) relayNames.toArray(new String[0]));
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+
+    public SaleEvent mapRowToSaleEvent(SqlRowSet results) {
+        SaleEvent event = new SaleEvent();
+        event.setEventId(results.getLong("event_id"));
+        event.setTransactionId(results.getLong("txid"));
+        event.setSaleId(results.getInt("sale_id"));
+        event.setEventType(results.getString("event_type"));
+        event.setPayload(results.getString("payload"));
+        event.setCreatedAt(results.getTimestamp("created_at").toLocalDateTime());
+        return event;
+    }
+}
@@ -0,0 +1,117 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.analytics.GroupedTotals;
+import com.techelevator.ssgeek.analytics.SalesColumns;
+import com.techelevator.ssgeek.analytics.SalesQuery;
+import com.techelevator.ssgeek.exception.DaoException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcSalesColumnDao implements SalesColumnDao {
+
+    // Rows fetched per round trip while streaming line items into the columns
+    private final int FETCH_SIZE = 10000;
+
+    private final JdbcTemplate dao;
+    private final TransactionTemplate readOnly;
+
+    public JdbcSalesColumnDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+        this.dao.setFetchSize(FETCH_SIZE);
+        // The PostgreSQL driver only streams with a cursor inside a transaction; otherwise it reads the
+        // whole result into memory before returning the first row
+        this.readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.readOnly.setReadOnly(true);
+    }
+
+    @Override
+    public int appendNewSales(SalesColumns columns) {
+        // Sale ids are taken before the sale commits, so they can commit out of order and an id watermark
+        // would pass over some. Every transaction below the snapshot's xmin has ended, and the statement
+        // after it sees all of those that committed, so each line item is loaded exactly once.
+        String sql = "SELECT li.sale_id, li.product_id, s.customer_id, li.quantity, " +
+                "(li.price * 100)::bigint AS price_cents, s.sale_date " +
+                "FROM line_item_all AS li " +
+                "JOIN sale_all AS s ON li.sale_id = s.sale_id " +
+                "WHERE li.txid >= ? AND li.txid < ? " +
+                "ORDER BY li.sale_id, li.line_item_id;";
+        long loadedBeforeTxid;
+        try {
+            loadedBeforeTxid = readOnly.execute(status -> {
+                long oldestRunningTxid = dao.queryForObject("SELECT txid_snapshot_xmin(txid_current_snapshot());",
+                        long.class);
+                dao.query(sql, (RowCallbackHandler) rs -> {
+                    columns.append(rs.getInt("sale_id"), rs.getInt("product_id"), rs.getInt("customer_id"),
+                            rs.getInt("quantity"), rs.getLong("price_cents"), rs.getDate("sale_date").toLocalDate());
+                }, columns.getLoadedBeforeTxid(), oldestRunningTxid);
+                return oldestRunningTxid;
+            });
+        } catch (CannotGetJdbcConnectionException | CannotCreateTransactionException e) {
+            columns.discardPending();
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (RuntimeException e) {
+            columns.discardPending();
+            throw e;
+        }
+
+        return columns.publish(loadedBeforeTxid);
+    }
+
+    @Override
+    public GroupedTotals aggregate(SalesQuery query, long loadedBeforeTxid) {
+        List<Integer> keys = new ArrayList<>();
+        List<Integer> lineCounts = new ArrayList<>();
+        List<Long> units = new ArrayList<>();
+        List<Long> revenueCents = new ArrayList<>();
+
+        String sql = "SELECT " + groupKeyExpression(query) + " AS group_key, COUNT(*) AS line_count, " +
+                "SUM(li.quantity) AS units, SUM(li.quantity * (li.price * 100)::bigint) AS revenue_cents " +
+                "FROM line_item_all AS li " +
+                "JOIN sale_all AS s ON li.sale_id = s.sale_id " +
+                "WHERE li.txid < ? " +
+                "AND s.sale_date - DATE '1970-01-01' >= ? AND s.sale_date - DATE '1970-01-01' < ? " +
+                "AND (? = " + SalesQuery.ANY + " OR li.product_id = ?) " +
+                "AND (? = " + SalesQuery.ANY + " OR s.customer_id = ?) " +
+                "GROUP BY group_key " +
+                "ORDER BY group_key;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql, loadedBeforeTxid, query.getFromDay(), query.getToDay(),
+                    query.getProductId(), query.getProductId(), query.getCustomerId(), query.getCustomerId());
+            while (results.next()) {
+                keys.add(results.getInt("group_key"));
+                lineCounts.add(results.getInt("line_count"));
+                units.add(results.getLong("units"));
+                revenueCents.add(results.getLong("revenue_cents"));
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return new GroupedTotals(keys.stream().mapToInt(Integer::intValue).toArray(),
+                lineCounts.stream().mapToInt(Integer::intValue).toArray(),
+                units.stream().mapToLong(Long::longValue).toArray(),
+                revenueCents.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private String groupKeyExpression(SalesQuery query) {
+        switch (query.getGroupBy()) {
+            case PRODUCT:
+                return "li.product_id";
+            case CUSTOMER:
+                return "s.customer_id";
+            case DAY:
+                return "(s.sale_date - DATE '1970-01-01')";
+            default:
+                return "(EXTRACT(YEAR FROM s.sale_date) * 12 + EXTRACT(MONTH FROM s.sale_date) - 1)::int";
+        }
+    }
+}
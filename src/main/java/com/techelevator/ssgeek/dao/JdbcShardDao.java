@@ -0,0 +1,59 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import javax.sql.DataSource;
+
+public class JdbcShardDao implements ShardDao {
+
+    private final JdbcTemplate dao;
+
+    public JdbcShardDao(DataSource dataSource) {
+        this.dao = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void configureShard(int shardIndex, int shardCount) {
+        String sql = "SELECT configure_shard(?, ?);";
+        try {
+            dao.queryForRowSet(sql, shardIndex, shardCount);
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        } catch (DataIntegrityViolationException e) {
+            throw new DaoException("Data integrity violation", e);
+        }
+    }
+
+    @Override
+    public int[] getShardConfiguration() {
+        int[] configuration = null;
+
+        String sql = "SELECT shard_index, shard_count FROM shard_config;";
+        try {
+            SqlRowSet results = dao.queryForRowSet(sql);
+            if (results.next()) {
+                configuration = new int[]{results.getInt("shard_index"), results.getInt("shard_count")};
+            }
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+
+        return configuration;
+    }
+
+    @Override
+    public int countMisplacedRows(int shardIndex, int shardCount) {
+        String sql = "SELECT (SELECT COUNT(*) FROM customer WHERE (customer_id - 1) % ? <> ?) + " +
+                "(SELECT COUNT(*) FROM sale_all WHERE (sale_id - 1) % ? <> ?);";
+        try {
+            Integer count = dao.queryForObject(sql, Integer.class, shardCount, shardIndex, shardCount, shardIndex);
+            return count == null ? 0 : count;
+        } catch (CannotGetJdbcConnectionException e) {
+            throw new DaoException("Unable to connect to server or database", e);
+        }
+    }
+}
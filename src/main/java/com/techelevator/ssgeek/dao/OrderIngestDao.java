@@ -0,0 +1,31 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.IncomingOrder;
+
+import java.util.List;
+
+public interface OrderIngestDao {
+    /**
+     * Get the id of every customer, for checking incoming orders without a query per order.
+     *
+     * @return The customer ids, in no particular order.
+     */
+    int[] getCustomerIds();
+
+    /**
+     * Get the id of every product, for checking incoming orders without a query per order.
+     *
+     * @return The product ids, in no particular order.
+     */
+    int[] getProductIds();
+
+    /**
+     * Add new sales and their line items in one transaction; if any of them can't be added, none are.
+     * An order whose order key was already added, by an earlier call or earlier in this one, is skipped.
+     * An order without a key is always added.
+     *
+     * @param orders The orders to add.
+     * @return The new sale ids, in the same order as the orders; null for each order skipped.
+     */
+    List<Integer> insertOrders(List<IncomingOrder> orders);
+}
@@ -1,5 +1,6 @@
 package com.techelevator.ssgeek.dao;
 
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import com.techelevator.ssgeek.model.Product;
 
 import java.util.List;
@@ -22,6 +23,16 @@ public interface ProductDao {
      */
     List<Product> getProducts();
 
+    /**
+     * Get one page of products, ordered by product_id. Pages are found by key rather than by offset,
+     * so every page costs the same however far into the table it is.
+     *
+     * @param afterProductId The last product_id of the previous page, or 0 for the first page.
+     * @param limit The maximum number of products to return.
+     * @return Up to limit products with a product_id greater than afterProductId.
+     */
+    List<Product> getProductPage(int afterProductId, int limit);
+
     /**
      * Get a list of product for which there are no sales yet, ordered by product_id. Only these products may
      * be deleted form the datastore.
@@ -30,6 +41,27 @@ public interface ProductDao {
      */
     List<Product> getProductsWithNoSales();
 
+    /**
+     * Find products whose name or description match the search text, best matches first.
+     * The search text is read like a web search: words are all required, "quoted phrases" must
+     * match in order, and -word excludes a word.
+     *
+     * @param searchText The words to search for.
+     * @param limit The maximum number of products to return.
+     * @return The first page of matching products as Product objects in a List.
+     */
+    List<Product> searchProducts(String searchText, int limit);
+
+    /**
+     * Find products whose name or description match the search text, best matches first, one page at a time.
+     *
+     * @param searchText The words to search for.
+     * @param limit The maximum number of products to return.
+     * @param offset The number of matching products to skip.
+     * @return The requested page of matching products as Product objects in a List.
+     */
+    List<Product> searchProducts(String searchText, int limit, int offset);
+
     /**
      * Add a new product into the datastore.
      *
@@ -40,10 +72,12 @@ public interface ProductDao {
 
     /**
      * Update a product in the datastore. Only called on products that
-     * are already in the datastore.
+     * are already in the datastore. The update is only made if the product's version
+     * is still the one it was read with, and the version moves on by one.
      *
      * @param updatedProduct The Product object to update.
      * @return The updated Product object with its new id filled in.
+     * @throws VersionConflictException If the product was changed since it was read.
      */
     Product updateProduct(Product updatedProduct);
 
@@ -0,0 +1,34 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.ProductImage;
+
+public interface ProductImageDao {
+
+    /**
+     * Get the metadata of the image with the given name.
+     * If there is no such image, return null.
+     *
+     * @param imageName The image name, as kept in product.image_name.
+     * @return A filled out ProductImage object, or null if the name is not found.
+     */
+    ProductImage getImageByName(String imageName);
+
+    /**
+     * Get the metadata of a product's image.
+     * If the product has no image, or its image has no metadata, return null.
+     *
+     * @param productId The id of the product.
+     * @return A filled out ProductImage object, or null.
+     */
+    ProductImage getImageByProductId(int productId);
+
+    /**
+     * Record a stored image. Saving an image name that is already recorded changes nothing,
+     * since stored files never change.
+     *
+     * @param image The ProductImage object to record.
+     * @return The recorded ProductImage object.
+     */
+    ProductImage saveImage(ProductImage image);
+
+}
@@ -0,0 +1,26 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.Product;
+
+import java.util.function.Consumer;
+
+public interface ProductSnapshotDao {
+
+    /**
+     * Get a fingerprint of the whole product table: a hash over every column of every product, in
+     * product id order. Two fingerprints are equal only if the table held the same rows both times.
+     *
+     * @return The fingerprint, 32 hex digits.
+     */
+    String getProductFingerprint();
+
+    /**
+     * Stream every product, ordered by id, straight from a database cursor, along with the fingerprint
+     * of exactly the rows streamed. Both come from one consistent snapshot of the table.
+     *
+     * @param consumer Given each product in turn.
+     * @return The fingerprint of the products streamed.
+     */
+    String streamProducts(Consumer<Product> consumer);
+
+}
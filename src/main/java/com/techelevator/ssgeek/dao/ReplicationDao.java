@@ -0,0 +1,19 @@
+package com.techelevator.ssgeek.dao;
+
+public interface ReplicationDao {
+    /**
+     * Get how far the database has written its write-ahead log. Called on the primary; every change
+     * committed so far is at or before this position.
+     *
+     * @return The current WAL position (LSN) as a byte offset.
+     */
+    long getCurrentWalPosition();
+
+    /**
+     * Get how far a streaming replica has replayed the primary's write-ahead log. Changes committed on
+     * the primary at or before this position can be read from the replica.
+     *
+     * @return The replayed WAL position (LSN) as a byte offset, or -1 if the database is not a replica.
+     */
+    long getReplayedWalPosition();
+}
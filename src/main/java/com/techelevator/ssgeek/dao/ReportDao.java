@@ -0,0 +1,48 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.ReportLine;
+import com.techelevator.ssgeek.model.SalesReport;
+
+import java.util.List;
+
+public interface ReportDao {
+    /**
+     * Get the complete sales report: revenue by product, by month, by customer state, the top customers
+     * and the overall totals, over live and archived sales. All sections are read from a single read-only
+     * snapshot of the datastore.
+     *
+     * @param topCustomerLimit The number of top customers to include (ties may add more).
+     * @return A filled out SalesReport object.
+     */
+    SalesReport getSalesReport(int topCustomerLimit);
+
+    /**
+     * Get units sold and revenue per product, ordered by revenue rank.
+     *
+     * @return One ReportLine per product that has sales, keyed by product_id.
+     */
+    List<ReportLine> getRevenueByProduct();
+
+    /**
+     * Get units sold and revenue per calendar month of the sale date, ordered by month.
+     *
+     * @return One ReportLine per month that has sales, keyed by year * 100 + month.
+     */
+    List<ReportLine> getRevenueByMonth();
+
+    /**
+     * Get units sold and revenue per customer state, ordered by revenue rank.
+     *
+     * @return One ReportLine per state that has sales.
+     */
+    List<ReportLine> getRevenueByState();
+
+    /**
+     * Get the customers with the highest revenue, ordered by revenue rank.
+     *
+     * @param limit The number of customers to return. Customers tied at the last rank are all included.
+     * @return One ReportLine per customer, keyed by customer_id.
+     */
+    List<ReportLine> getTopCustomers(int limit);
+
+}
@@ -0,0 +1,49 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.ReportLine;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RollupDao {
+    /**
+     * Add every sale dated before the cutoff that is not yet in the rollup tables, plus any backdated
+     * sale written since the last refresh, then advance the high-water mark. Runs in one transaction.
+     * A sale that changes or is deleted after it was rolled up is taken back out of the rollups by the
+     * database as it changes, and added again by the next refresh.
+     *
+     * @param cutoff Sales dated on or after this date stay live. Usually today, so the current day is never rolled up.
+     * @return The number of sales added to the rollups.
+     */
+    int refreshRollups(LocalDate cutoff);
+
+    /**
+     * Empty the rollup tables and build them again from scratch up to the cutoff, for when the rollup
+     * tables were changed by other means. Archived sales are rolled up again whatever their date.
+     *
+     * @param cutoff Sales dated on or after this date stay live.
+     * @return The number of sales added to the rollups.
+     */
+    int rebuildRollups(LocalDate cutoff);
+
+    /**
+     * Get units sold and revenue per product for sales in a date range, ordered by revenue rank. Whole months
+     * and days that are rolled up are read from the rollups, everything newer is read from the live tables.
+     *
+     * @param fromDate The first sale date to include.
+     * @param toDate The first sale date to exclude.
+     * @return One ReportLine per product that has sales in the range, keyed by product_id.
+     */
+    List<ReportLine> getProductRevenue(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Get units sold and revenue per customer state for sales in a date range, ordered by revenue rank.
+     * Reads rollups and live data the same way as getProductRevenue.
+     *
+     * @param fromDate The first sale date to include.
+     * @param toDate The first sale date to exclude.
+     * @return One ReportLine per state that has sales in the range.
+     */
+    List<ReportLine> getStateRevenue(LocalDate fromDate, LocalDate toDate);
+
+}
@@ -0,0 +1,27 @@
+package com.techelevator.ssgeek.dao;
+
+import java.time.LocalDate;
+
+public interface SaleArchiveDao {
+    /**
+     * Create the yearly partitions of sale and line_item for every year from the first date through the
+     * last that doesn't have them yet. Sales dated in a year without partitions go to the default
+     * partitions, which must not hold any rows for the years being created.
+     *
+     * @param fromDate A date in the first year to create.
+     * @param throughDate A date in the last year to create.
+     * @return The number of years whose partitions were created.
+     */
+    int createSalePartitions(LocalDate fromDate, LocalDate throughDate);
+
+    /**
+     * Move up to batchSize shipped sales dated before the given date, with their line items, from sale and
+     * line_item to sale_archive and line_item_archive, in one transaction. Sales not yet in the revenue
+     * rollups are left where they are, so reports over past periods don't change.
+     *
+     * @param saleDateBefore Sales dated on or after this date are kept.
+     * @param batchSize The most sales to move.
+     * @return The number of sales moved. Less than batchSize once there are none left to move.
+     */
+    int archiveShippedSales(LocalDate saleDateBefore, int batchSize);
+}
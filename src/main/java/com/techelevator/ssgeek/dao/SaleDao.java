@@ -1,12 +1,18 @@
 package com.techelevator.ssgeek.dao;
 
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import com.techelevator.ssgeek.model.Sale;
+import com.techelevator.ssgeek.model.SaleTotal;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface SaleDao {
     /**
-     * Get a sale from the datastore that has the given id.
+     * Get a sale from the datastore that has the given id, live or archived.
      * If the id is not found, return null.
      *
      * @param saleId The id of the sale.
@@ -23,7 +29,17 @@ public interface SaleDao {
     List<Sale> getUnshippedSales();
 
     /**
-     * Get all sales from the datastore for a given customer, ordered by sale_id.
+     * Get one page of all sales, archived ones included, ordered by sale_id. Pages are found by key rather than by offset,
+     * so every page costs the same however far into the table it is.
+     *
+     * @param afterSaleId The last sale_id of the previous page, or 0 for the first page.
+     * @param limit The maximum number of sales to return.
+     * @return Up to limit sales with a sale_id greater than afterSaleId.
+     */
+    List<Sale> getSalePage(int afterSaleId, int limit);
+
+    /**
+     * Get all sales from the datastore for a given customer, archived ones included, ordered by sale_id.
      *
      * @param customerId The id of the customer.
      * @return All sales as Sale objects in a List.
@@ -31,13 +47,22 @@ public interface SaleDao {
     List<Sale> getSalesByCustomerId(int customerId);
 
     /**
-     * Get all sales from the datastore for a given product, ordered by sale_id.
+     * Get all sales from the datastore for a given product, archived ones included, ordered by sale_id.
      *
      * @param productId The id of the product.
      * @return All sales as Sale objects in a List.
      */
     List<Sale> getSalesByProductId(int productId);
 
+    /**
+     * Get the stored item count and order total for several sales in one query, ordered by sale_id.
+     * Ids that aren't in the datastore are skipped.
+     *
+     * @param saleIds The ids of the sales.
+     * @return The totals as SaleTotal objects in a List.
+     */
+    List<SaleTotal> getSaleTotals(List<Integer> saleIds);
+
     /**
      * Add a new sale into the datastore.
      *
@@ -46,17 +71,90 @@ public interface SaleDao {
      */
     Sale createSale(Sale newSale);
 
+    /**
+     * Add new sales into the datastore in one statement, each identified by an order key. A key that has
+     * already created a sale creates nothing, so orders replayed after a failure are not added twice.
+     *
+     * @param salesByOrderKey The sales to add, each under its own order key (a UUID).
+     * @return The id of the sale each order key created, whether by this call or an earlier one.
+     */
+    Map<String, Integer> createSales(Map<String, Sale> salesByOrderKey);
+
     /**
      * Update a sale to the datastore. Only called on sales that
-     * are already in the datastore.
+     * are already in the datastore. The update is only made if the sale's version
+     * is still the one it was read with, and the version moves on by one. Archived sales
+     * can no longer be updated.
      *
      * @param updatedSale The Sale object to update.
      * @return The updated Sale object.
+     * @throws VersionConflictException If the sale was changed since it was read.
      */
     Sale updateSale(Sale updatedSale);
 
     /**
-     * Remove a sale from the datastore.
+     * Ship several sales in one statement. Sales that are already shipped, or that aren't in the
+     * datastore, are left alone. The version of each shipped sale moves on by one.
+     *
+     * @param saleIds The ids of the sales to ship.
+     * @param shipDate The ship date to set.
+     * @return The ids of the sales that were shipped, in order.
+     */
+    List<Integer> shipSales(Collection<Integer> saleIds, LocalDate shipDate);
+
+    /**
+     * Ship every unshipped sale with a sale date on or before the given date, in one statement.
+     * The version of each shipped sale moves on by one.
+     *
+     * @param saleDateThrough The latest sale date to ship.
+     * @param shipDate The ship date to set.
+     * @return The ids of the sales that were shipped, in order.
+     */
+    List<Integer> shipUnshippedSalesThrough(LocalDate saleDateThrough, LocalDate shipDate);
+
+    /**
+     * Claim up to count unshipped sales for a fulfillment worker, oldest first, and lease them to the
+     * worker for the given time. Sales leased to another worker are skipped, not waited on, so workers
+     * claiming at the same time each get different sales. A lease that runs out before its sales are
+     * completed puts them back in the queue.
+     *
+     * @param workerId Identifies the worker, up to 50 characters.
+     * @param count The most sales to claim.
+     * @param leaseTime How long the worker has to complete the sales.
+     * @return The claimed sales as Sale objects in a List, empty if the queue is empty.
+     */
+    List<Sale> claimUnshippedSales(String workerId, int count, Duration leaseTime);
+
+    /**
+     * Ship sales that a worker claimed. Sales the worker no longer holds, because their lease ran out
+     * and another worker claimed them, are left alone.
+     *
+     * @param workerId The worker that claimed the sales.
+     * @param saleIds The ids of the sales to ship.
+     * @param shipDate The ship date to set.
+     * @return The ids of the sales that were shipped, in order.
+     */
+    List<Integer> completeClaimedSales(String workerId, Collection<Integer> saleIds, LocalDate shipDate);
+
+    /**
+     * Put sales that a worker claimed but won't ship back in the queue.
+     *
+     * @param workerId The worker that claimed the sales.
+     * @param saleIds The ids of the sales to release.
+     * @return The number of sales released.
+     */
+    int releaseClaimedSales(String workerId, Collection<Integer> saleIds);
+
+    /**
+     * Clear leases that have run out. Claiming already treats these sales as unclaimed; this only
+     * tidies up after workers that stopped without completing or releasing their sales.
+     *
+     * @return The number of leases cleared.
+     */
+    int releaseExpiredLeases();
+
+    /**
+     * Remove a sale from the datastore. Archived sales are not removed.
      *
      * @param saleId The id of the sale to remove. If the id doesn't exist, no error will occur.
      * @return The number of sales deleted.
@@ -0,0 +1,37 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.SaleEvent;
+
+import java.util.List;
+
+public interface SaleOutboxDao {
+    /**
+     * Get the next events a relay hasn't delivered yet, in the order they are to be delivered. Events
+     * written by transactions that might still be running, or that started after one that might, are
+     * held back until those have ended, so an event is never passed over by the relay's position.
+     *
+     * @param relayName The relay reading the events.
+     * @param limit The most events to return.
+     * @return The events as SaleEvent objects in a List, empty if the relay is up to date.
+     */
+    List<SaleEvent> getUndeliveredEvents(String relayName, int limit);
+
+    /**
+     * Move a relay's position past the given event, recording that it and every event before it
+     * have been delivered.
+     *
+     * @param relayName The relay that delivered the events.
+     * @param lastEvent The last event delivered.
+     */
+    void markDelivered(String relayName, SaleEvent lastEvent);
+
+    /**
+     * Delete the events that every given relay has delivered. A relay that hasn't marked any events
+     * delivered yet still needs them all, so nothing is deleted until each relay has. Does nothing if
+     * no relays are given.
+     *
+     * @param relayNames Every relay reading the outbox.
+     * @return The number of events deleted.
+     */
+    int deleteDeliveredEvents(List<String> relayNames);
+}
@@ -0,0 +1,30 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.analytics.GroupedTotals;
+import com.techelevator.ssgeek.analytics.SalesColumns;
+import com.techelevator.ssgeek.analytics.SalesQuery;
+
+public interface SalesColumnDao {
+    /**
+     * Append every line item, live or archived, added since the columns were last loaded, then publish
+     * them. The first call loads everything. Line items are found by the transaction that added them, so
+     * one added to a sale already loaded, or by a transaction that commits after a later one, is still
+     * picked up; those added by transactions still running are left for the next call. Changes to line
+     * items already loaded are not picked up.
+     *
+     * @param columns The in-memory columns to append to.
+     * @return The number of line items appended.
+     */
+    int appendNewSales(SalesColumns columns);
+
+    /**
+     * Run the same aggregation as SalesColumns.aggregate in the datastore, for comparing results and timings.
+     *
+     * @param query The grouping and filters to apply.
+     * @param loadedBeforeTxid Only include line items added by transactions below this id, so the result
+     *                         matches what has been loaded into memory (see SalesColumns.getLoadedBeforeTxid).
+     * @return The totals per group, in ascending key order.
+     */
+    GroupedTotals aggregate(SalesQuery query, long loadedBeforeTxid);
+
+}
@@ -0,0 +1,29 @@
+package com.techelevator.ssgeek.dao;
+
+public interface ShardDao {
+    /**
+     * Make this database one shard of several, so the customer and sale ids it allocates from now on
+     * identify it: (id - 1) % shardCount is always shardIndex. Refused if customers or sales already in the
+     * database don't follow that rule.
+     *
+     * @param shardIndex This database's shard, from 0 to shardCount - 1.
+     * @param shardCount The number of shards.
+     */
+    void configureShard(int shardIndex, int shardCount);
+
+    /**
+     * Get the shard this database was configured as by configureShard().
+     *
+     * @return The shard index and shard count, in that order, or null if the database is not a shard.
+     */
+    int[] getShardConfiguration();
+
+    /**
+     * Count the customers and sales, live or archived, whose ids don't belong on the given shard.
+     *
+     * @param shardIndex The shard the database should be, from 0 to shardCount - 1.
+     * @param shardCount The number of shards.
+     * @return The number of rows with (id - 1) % shardCount other than shardIndex.
+     */
+    int countMisplacedRows(int shardIndex, int shardCount);
+}
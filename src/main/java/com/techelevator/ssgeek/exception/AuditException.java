@@ -0,0 +1,13 @@
+package com.techelevator.ssgeek.exception;
+
+public class AuditException extends RuntimeException {
+    public AuditException() {
+        super();
+    }
+    public AuditException(String message) {
+        super(message);
+    }
+    public AuditException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
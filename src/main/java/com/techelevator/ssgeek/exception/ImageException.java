@@ -0,0 +1,13 @@
+package com.techelevator.ssgeek.exception;
+
+public class ImageException extends RuntimeException {
+    public ImageException() {
+        super();
+    }
+    public ImageException(String message) {
+        super(message);
+    }
+    public ImageException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.techelevator.ssgeek.exception;
+
+public class OrderBufferException extends RuntimeException {
+    public OrderBufferException() {
+        super();
+    }
+    public OrderBufferException(String message) {
+        super(message);
+    }
+    public OrderBufferException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.techelevator.ssgeek.exception;
+
+public class SnapshotException extends RuntimeException {
+    public SnapshotException() {
+        super();
+    }
+    public SnapshotException(String message) {
+        super(message);
+    }
+    public SnapshotException(String message, Exception cause) {
+        super(message, cause);
+    }
+}
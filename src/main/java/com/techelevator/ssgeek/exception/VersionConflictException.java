@@ -0,0 +1,28 @@
+package com.techelevator.ssgeek.exception;
+
+/**
+ * VersionConflictException is thrown when an update is made from a copy of a row that someone else
+ * has changed since it was read. Nothing is written; read the row again and reapply the change.
+ */
+public class VersionConflictException extends DaoException {
+
+    private final int expectedVersion;
+    private final int currentVersion;
+
+    public VersionConflictException(String rowDescription, int expectedVersion, int currentVersion) {
+        super(rowDescription + " was changed by someone else (version " + currentVersion + ", yours is version "
+                + expectedVersion + "). Nothing was saved; reload it and try again.");
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    // The version the update was made from
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    // The version in the database now
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+}
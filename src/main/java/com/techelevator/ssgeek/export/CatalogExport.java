@@ -0,0 +1,157 @@
+package com.techelevator.ssgeek.export;
+
+import com.techelevator.ssgeek.dao.ExportDao;
+import com.techelevator.ssgeek.dao.JdbcExportDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CatalogExport streams the product, customer and sale/line item tables to CSV or JSON Lines files,
+ * or to standard output. Progress and rows per second go to standard error.
+ *
+ * Usage: CatalogExport [--format csv|jsonl] [--gzip] [--snapshot] [--out directory|-] [--url jdbcUrl] [table ...]
+ * Tables are product, customer and sale_line_item; all three are exported when none are named.
+ * --snapshot reads every table from one point in time.
+ */
+
+public class CatalogExport {
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] args) {
+        ExportFormat format = ExportFormat.CSV;
+        boolean gzip = false;
+        boolean snapshot = false;
+        String out = "export";
+        String url = "jdbc:postgresql://localhost:5432/SSGeek";
+        List<ExportTable> tables = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format":
+                    format = ExportFormat.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "--gzip":
+                    gzip = true;
+                    break;
+                case "--snapshot":
+                    snapshot = true;
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--url":
+                    url = args[++i];
+                    break;
+                default:
+                    tables.add(ExportTable.valueOf(args[i].toUpperCase(Locale.ROOT)));
+            }
+        }
+        if (tables.isEmpty()) {
+            tables = List.of(ExportTable.values());
+        }
+
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUsername("postgres");
+        dataSource.setPassword("postgres1");
+        ExportDao exportDao = new JdbcExportDao(dataSource);
+
+        ExportFormat exportFormat = format;
+        boolean compress = gzip;
+        Path directory = "-".equals(out) ? null : Paths.get(out);
+        long start = System.nanoTime();
+        try {
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            Map<ExportTable, Long> rowCounts = exportDao.exportTables(tables,
+                    table -> new TimedRowWriter(table, exportFormat.open(openOutput(directory, table, exportFormat, compress))),
+                    snapshot);
+            long totalRows = rowCounts.values().stream().mapToLong(Long::longValue).sum();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.format("Exported %d rows in %.2f s (%.0f rows/sec)%s%n", totalRows, seconds,
+                    totalRows / seconds, snapshot ? " from one snapshot" : "");
+        } catch (IOException | UncheckedIOException | DaoException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static BufferedWriter openOutput(Path directory, ExportTable table, ExportFormat format, boolean gzip) {
+        try {
+            OutputStream stream;
+            if (directory == null) {
+                // Each table finishing must not close standard output
+                stream = new FilterOutputStream(System.out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                    }
+                };
+            } else {
+                String fileName = table.getFileName() + "." + format.getExtension() + (gzip ? ".gz" : "");
+                stream = Files.newOutputStream(directory.resolve(fileName));
+            }
+            if (gzip) {
+                stream = new GZIPOutputStream(stream, OUTPUT_BUFFER_SIZE);
+            }
+            return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open output for " + table.getFileName(), e);
+        }
+    }
+
+    // Reports each table's row count and rate when it finishes
+    private static class TimedRowWriter implements RowWriter {
+        private final ExportTable table;
+        private final RowWriter writer;
+        private long startNanos;
+        private long rows;
+
+        TimedRowWriter(ExportTable table, RowWriter writer) {
+            this.table = table;
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(String[] columnNames) throws IOException {
+            startNanos = System.nanoTime();
+            writer.start(columnNames);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            writer.write(values);
+            rows++;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.finish();
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            System.err.format("%-16s %10d rows  %8.2f s  %10.0f rows/sec%n", table.getFileName(), rows, seconds,
+                    rows / Math.max(seconds, 1e-9));
+        }
+    }
+}
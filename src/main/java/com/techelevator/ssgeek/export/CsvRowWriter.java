@@ -0,0 +1,63 @@
+package com.techelevator.ssgeek.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * CsvRowWriter writes RFC 4180 CSV: a header line of column names, CRLF line ends, and fields quoted
+ * only when they contain a comma, quote or line break. Null is written as an empty field.
+ */
+public class CsvRowWriter implements RowWriter {
+
+    private final Writer out;
+
+    public CsvRowWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start(String[] columnNames) throws IOException {
+        write(columnNames);
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object value = values[i];
+            if (value != null) {
+                writeField(value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.close();
+    }
+
+    private void writeField(String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            out.write(field);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
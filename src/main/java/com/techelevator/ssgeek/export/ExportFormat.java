@@ -0,0 +1,25 @@
+package com.techelevator.ssgeek.export;
+
+import java.io.Writer;
+
+public enum ExportFormat {
+    CSV("csv"),
+    JSONL("jsonl");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Create a row writer for this format. The row writer closes the Writer when it finishes.
+     */
+    public RowWriter open(Writer out) {
+        return this == CSV ? new CsvRowWriter(out) : new JsonLinesRowWriter(out);
+    }
+}
@@ -0,0 +1,22 @@
+package com.techelevator.ssgeek.export;
+
+/**
+ * The data sets that can be exported. SALE_LINE_ITEM has one row per line item, with the sale's
+ * columns repeated, plus one row for each sale that has no line items.
+ */
+public enum ExportTable {
+    PRODUCT("product"),
+    CUSTOMER("customer"),
+    SALE_LINE_ITEM("sale_line_item");
+
+    private final String fileName;
+
+    ExportTable(String fileName) {
+        this.fileName = fileName;
+    }
+
+    // File name without extension
+    public String getFileName() {
+        return fileName;
+    }
+}
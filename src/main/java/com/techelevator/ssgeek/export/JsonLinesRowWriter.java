@@ -0,0 +1,90 @@
+package com.techelevator.ssgeek.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * JsonLinesRowWriter writes one JSON object per line, keyed by column name. Numbers and booleans are
+ * written as JSON numbers and booleans, dates and everything else as strings.
+ */
+public class JsonLinesRowWriter implements RowWriter {
+
+    private final Writer out;
+    // Each column's "name": prefix, escaped once up front
+    private String[] keys;
+
+    public JsonLinesRowWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void start(String[] columnNames) throws IOException {
+        keys = new String[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            StringBuilder key = new StringBuilder();
+            appendString(key, columnNames[i]);
+            keys[i] = key.append(':').toString();
+        }
+    }
+
+    @Override
+    public void write(Object[] values) throws IOException {
+        out.write('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(keys[i]);
+            Object value = values[i];
+            if (value == null) {
+                out.write("null");
+            } else if (value instanceof BigDecimal) {
+                out.write(((BigDecimal) value).toPlainString());
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.write(value.toString());
+            } else {
+                StringBuilder string = new StringBuilder();
+                appendString(string, value.toString());
+                out.append(string);
+            }
+        }
+        out.write("}\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.close();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,29 @@
+package com.techelevator.ssgeek.export;
+
+import java.io.IOException;
+
+/**
+ * A RowWriter turns exported rows into text, one row at a time, so an export never holds more than
+ * the current row in memory.
+ */
+public interface RowWriter {
+
+    /**
+     * Called once before the first row, even when there are no rows.
+     *
+     * @param columnNames The column names, in row order.
+     */
+    void start(String[] columnNames) throws IOException;
+
+    /**
+     * Write one row. The array is reused for the next row, so it must not be kept.
+     *
+     * @param values Column values: null, String, Number, Boolean, or a date/time whose toString is ISO formatted.
+     */
+    void write(Object[] values) throws IOException;
+
+    /**
+     * Called once after the last row. Flushes and closes the output.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,128 @@
+package com.techelevator.ssgeek.image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HotImageCache keeps the bytes of the most requested image files in direct (off-heap) buffers, up to
+ * a fixed number of bytes, so popular images are served without touching the file system.
+ *
+ * A file is only cached once it has been asked for a few times, so a scan over many images that are
+ * each requested once cannot push the popular ones out. When the cache is full the least recently
+ * used files are dropped. Files are never re-read: image files are named by their content and never
+ * change.
+ */
+
+public class HotImageCache {
+
+    // Request counts are forgotten once this many files are being counted, so rarely requested files age out
+    private static final int MAX_COUNTED_FILES = 10_000;
+
+    private final long capacityBytes;
+    private final long maxEntryBytes;
+    private final int admitAfterRequests;
+
+    // Access-ordered, so iteration starts at the least recently used file
+    private final LinkedHashMap<Path, ByteBuffer> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    private final ConcurrentHashMap<Path, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacityBytes The most bytes of image data to keep.
+     * @param admitAfterRequests How many requests a file needs before it is cached.
+     */
+    public HotImageCache(long capacityBytes, int admitAfterRequests) {
+        this.capacityBytes = capacityBytes;
+        // One image may not take more than an eighth of the cache
+        this.maxEntryBytes = capacityBytes / 8;
+        this.admitAfterRequests = admitAfterRequests;
+    }
+
+    /**
+     * Count a request for a file and return its cached bytes, loading them if the file has now been
+     * requested often enough.
+     *
+     * @return A read-only buffer over the whole file, or null if the file is not cached.
+     */
+    public ByteBuffer get(Path file, long fileSize) {
+        synchronized (this) {
+            ByteBuffer cached = entries.get(file);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.duplicate();
+            }
+        }
+        misses.incrementAndGet();
+        if (fileSize > maxEntryBytes || countRequest(file) < admitAfterRequests) {
+            return null;
+        }
+        ByteBuffer loaded = load(file, fileSize);
+        if (loaded == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (!entries.containsKey(file)) {
+                Iterator<Map.Entry<Path, ByteBuffer>> eldest = entries.entrySet().iterator();
+                while (usedBytes + fileSize > capacityBytes && eldest.hasNext()) {
+                    usedBytes -= eldest.next().getValue().capacity();
+                    eldest.remove();
+                }
+                entries.put(file, loaded);
+                usedBytes += fileSize;
+            }
+            requestCounts.remove(file);
+            return entries.get(file).duplicate();
+        }
+    }
+
+    private int countRequest(Path file) {
+        if (requestCounts.size() >= MAX_COUNTED_FILES) {
+            requestCounts.clear();
+        }
+        return requestCounts.computeIfAbsent(file, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private static ByteBuffer load(Path file, long fileSize) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) fileSize);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    // The file is shorter than its size said; don't cache it
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+}
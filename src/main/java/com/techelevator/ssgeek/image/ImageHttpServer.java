@@ -0,0 +1,267 @@
+package com.techelevator.ssgeek.image;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.techelevator.ssgeek.exception.ImageException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ImageHttpServer serves stored product images over HTTP at /images/{imageName}, the name kept in
+ * product.image_name. Adding ?size=256 serves that thumbnail instead when it has been made.
+ *
+ * Images are named by their content hash and never change, so the ETag is the hash, clients may
+ * cache for a year, and If-None-Match is answered with 304. A single byte range (Range: bytes=...)
+ * is answered with 206. Bodies are sent from the HotImageCache when the image is hot, and otherwise
+ * with FileChannel.transferTo.
+ */
+
+public class ImageHttpServer {
+
+    public static final String CONTEXT_PATH = "/images/";
+
+    private static final Pattern SIZE_QUERY = Pattern.compile("(?:^|&)size=([0-9]{1,5})(?:&|$)");
+    private static final Pattern RANGE = Pattern.compile("bytes=([0-9]*)-([0-9]*)");
+
+    private final ImageStore store;
+    private final HotImageCache cache;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public ImageHttpServer(ImageStore store, HotImageCache cache) {
+        this.store = store;
+        this.cache = cache;
+    }
+
+    /**
+     * Start serving on the address, with a pool of request threads.
+     *
+     * @return The address actually bound, useful when port 0 was asked for.
+     */
+    public synchronized InetSocketAddress start(InetSocketAddress address, int threads) {
+        if (server != null) {
+            return server.getAddress();
+        }
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new ImageException("Unable to start image server on " + address, e);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-http-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(CONTEXT_PATH, this::handle);
+        server.start();
+        return server.getAddress();
+    }
+
+    /**
+     * Stop serving, giving requests in progress up to a second to finish.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            executor.shutdown();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String imageName = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length());
+            if (!ImageStore.isStoredName(imageName)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            Path file = store.pathOf(imageName);
+            // Until the requested thumbnail is made the original stands in for it, and must not be cached in its place
+            boolean standIn = false;
+            int size = requestedSize(exchange);
+            if (size >= 0) {
+                Path variant = store.variantPathOf(imageName, size);
+                if (Files.isRegularFile(variant)) {
+                    file = variant;
+                } else {
+                    standIn = true;
+                }
+            }
+            if (!Files.isRegularFile(file)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String fileName = file.getFileName().toString();
+            String etag = "\"" + fileName.substring(0, fileName.lastIndexOf('.')) + "\"";
+
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", standIn ? "no-cache" : "public, max-age=31536000, immutable");
+            headers.set("Accept-Ranges", "bytes");
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            long length = Files.size(file);
+            long start = 0;
+            long end = length - 1;
+            int status = 200;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                long[] bounds = parseRange(range, length);
+                if (bounds == null) {
+                    headers.set("Content-Range", "bytes */" + length);
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+                if (bounds.length == 2) {
+                    start = bounds[0];
+                    end = bounds[1];
+                    status = 206;
+                    headers.set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+                }
+            }
+            headers.set("Content-Type", contentType(fileName));
+            long count = end - start + 1;
+            if (head) {
+                headers.set("Content-Length", Long.toString(count));
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+
+            // A zero length means "chunked" to HttpServer, so an empty body is -1
+            exchange.sendResponseHeaders(status, count == 0 ? -1 : count);
+            WritableByteChannel body = Channels.newChannel(exchange.getResponseBody());
+            ByteBuffer cached = cache == null ? null : cache.get(file, length);
+            if (cached != null) {
+                cached.position((int) start).limit((int) (end + 1));
+                while (cached.hasRemaining()) {
+                    body.write(cached);
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long sent = 0;
+                    while (sent < count) {
+                        long n = channel.transferTo(start + sent, count - sent, body);
+                        if (n <= 0) {
+                            break;
+                        }
+                        sent += n;
+                    }
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // The thumbnail size in the query, or -1 for the original image
+    private static int requestedSize(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            Matcher size = SIZE_QUERY.matcher(query);
+            if (size.find()) {
+                return Integer.parseInt(size.group(1));
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read a Range header against a file length.
+     *
+     * @return {start, end} (inclusive) for one satisfiable range, an empty array to ignore the header
+     * (several ranges, or a unit other than bytes), or null if the range cannot be satisfied.
+     */
+    static long[] parseRange(String range, long length) {
+        Matcher matcher = RANGE.matcher(range.trim());
+        if (!matcher.matches()) {
+            return new long[0];
+        }
+        String first = matcher.group(1);
+        String last = matcher.group(2);
+        long start;
+        long end;
+        try {
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return new long[0];
+                }
+                // Suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix == 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+        if (start >= length || start > end) {
+            return null;
+        }
+        return new long[] {start, end};
+    }
+
+    private static String contentType(String fileName) {
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        switch (extension) {
+            case "png":
+                return "image/png";
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "gif":
+                return "image/gif";
+            case "bmp":
+                return "image/bmp";
+            default:
+                return "application/octet-stream";
+        }
+    }
+}
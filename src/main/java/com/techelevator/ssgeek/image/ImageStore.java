@@ -0,0 +1,290 @@
+package com.techelevator.ssgeek.image;
+
+import com.techelevator.ssgeek.exception.ImageException;
+import com.techelevator.ssgeek.model.ProductImage;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * ImageStore keeps image files on local disk, named by the SHA-256 hash of their content. Storing the
+ * same content twice keeps one file. Files live two directory levels down, by the first two pairs of
+ * hash digits (ab/cd/abcd...png), so no directory ever holds more than a small share of the images.
+ *
+ * A new image is written to a temp file under the store, flushed to disk, and then renamed into place,
+ * so readers only ever see complete files. Stored files are never modified.
+ *
+ * Reads go through FileChannel, either mapped into memory or transferred straight to another channel,
+ * so serving an image does not copy it through the Java heap.
+ */
+
+public class ImageStore {
+
+    private static final Pattern STORED_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path tempDirectory;
+
+    public ImageStore(Path root) {
+        this.root = root;
+        this.tempDirectory = root.resolve("tmp");
+        try {
+            Files.createDirectories(tempDirectory);
+        } catch (IOException e) {
+            throw new ImageException("Unable to create image directory " + root, e);
+        }
+    }
+
+    /**
+     * Store an image read from the stream. The stream is read to the end but not closed.
+     *
+     * @param content The image bytes.
+     * @return The stored image's metadata. Its imageName is the hash plus the format's extension.
+     */
+    public ProductImage store(InputStream content) {
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(tempDirectory, "upload-", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 OutputStream out = new DigestOutputStream(Channels.newOutputStream(channel), digest)) {
+                size = copy(content, out);
+                out.flush();
+                channel.force(true);
+            }
+
+            ProductImage image = describe(temp);
+            String sha256 = toHex(digest.digest());
+            image.setSha256(sha256);
+            image.setSizeBytes(size);
+            image.setImageName(sha256 + "." + image.getImageName());
+
+            Path target = pathOf(image.getImageName());
+            if (Files.exists(target)) {
+                // Same content is already stored
+                Files.delete(temp);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory(target.getParent());
+            }
+            temp = null;
+            return image;
+        } catch (IOException e) {
+            throw new ImageException("Unable to store image", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new ImageException("SHA-256 is not available", e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Leave it; it is only a temp file
+                }
+            }
+        }
+    }
+
+    /**
+     * Store an image file, for example one picked by the user.
+     */
+    public ProductImage store(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            return store(in);
+        } catch (NoSuchFileException e) {
+            throw new ImageException("No such file: " + file, e);
+        } catch (IOException e) {
+            throw new ImageException("Unable to read " + file, e);
+        }
+    }
+
+    // True if the name is one the store gave out and the file is present
+    public boolean contains(String imageName) {
+        return isStoredName(imageName) && Files.isRegularFile(pathOf(imageName));
+    }
+
+    public static boolean isStoredName(String imageName) {
+        return imageName != null && STORED_NAME.matcher(imageName).matches();
+    }
+
+    /**
+     * Get the file an image name is stored in: root/ab/cd/abcd...ext.
+     */
+    public Path pathOf(String imageName) {
+        if (!isStoredName(imageName)) {
+            throw new ImageException("Not a stored image name: " + imageName);
+        }
+        return root.resolve(imageName.substring(0, 2)).resolve(imageName.substring(2, 4)).resolve(imageName);
+    }
+
+    /**
+     * Get the file a resized variant of a stored image is kept in: root/variants/ab/cd/abcd...-256.png.
+     * Variants of JPEG images are JPEGs, every other variant is a PNG.
+     *
+     * @param maxEdge The variant's longest edge, in pixels.
+     */
+    public Path variantPathOf(String imageName, int maxEdge) {
+        pathOf(imageName);
+        int dot = imageName.lastIndexOf('.');
+        String extension = imageName.endsWith(".jpg") || imageName.endsWith(".jpeg") ? "jpg" : "png";
+        return root.resolve("variants").resolve(imageName.substring(0, 2)).resolve(imageName.substring(2, 4))
+                .resolve(imageName.substring(0, dot) + "-" + maxEdge + "." + extension);
+    }
+
+    /**
+     * Write a resized variant of a stored image, atomically like a stored image.
+     *
+     * @return The variant's file.
+     */
+    public Path storeVariant(String imageName, int maxEdge, RenderedImage variant) {
+        Path target = variantPathOf(imageName, maxEdge);
+        String format = target.toString().endsWith(".jpg") ? "jpg" : "png";
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(tempDirectory, "variant-", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                if (!ImageIO.write(variant, format, out)) {
+                    throw new ImageException("No image writer for " + format);
+                }
+                out.flush();
+                channel.force(true);
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            return target;
+        } catch (IOException e) {
+            throw new ImageException("Unable to store variant of " + imageName, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Leave it; it is only a temp file
+                }
+            }
+        }
+    }
+
+    /**
+     * Open a stored image for reading. The caller closes the channel.
+     */
+    public FileChannel open(String imageName) {
+        try {
+            return FileChannel.open(pathOf(imageName), StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new ImageException("Unable to open image " + imageName, e);
+        }
+    }
+
+    /**
+     * Map a stored image into memory read-only. The mapping stays valid after the file is closed.
+     */
+    public MappedByteBuffer map(String imageName) {
+        try (FileChannel channel = open(imageName)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ImageException("Unable to map image " + imageName, e);
+        }
+    }
+
+    /**
+     * Send part of a stored image to another channel, letting the operating system copy the bytes
+     * where it can (for example straight from the page cache to a socket).
+     *
+     * @return The number of bytes sent.
+     */
+    public long transferTo(String imageName, long position, long count, WritableByteChannel target) {
+        try (FileChannel channel = open(imageName)) {
+            long end = Math.min(channel.size(), position + count);
+            long sent = 0;
+            while (position + sent < end) {
+                long n = channel.transferTo(position + sent, end - position - sent, target);
+                if (n <= 0) {
+                    break;
+                }
+                sent += n;
+            }
+            return sent;
+        } catch (IOException e) {
+            throw new ImageException("Unable to send image " + imageName, e);
+        }
+    }
+
+    // Reads only the image header, so checking a large upload does not decode it.
+    // Returns the format's extension in imageName, to be completed by the caller.
+    private static ProductImage describe(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new ImageException("Not a supported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ProductImage image = new ProductImage();
+                String[] suffixes = reader.getOriginatingProvider().getFileSuffixes();
+                String[] mimeTypes = reader.getOriginatingProvider().getMIMETypes();
+                image.setImageName(suffixes != null && suffixes.length > 0 ? suffixes[0].toLowerCase(Locale.ROOT)
+                        : reader.getFormatName().toLowerCase(Locale.ROOT));
+                image.setContentType(mimeTypes != null && mimeTypes.length > 0 ? mimeTypes[0] : "application/octet-stream");
+                image.setWidth(reader.getWidth(0));
+                image.setHeight(reader.getHeight(0));
+                return image;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            total += n;
+        }
+        return total;
+    }
+
+    // Make the rename itself durable. Not every platform can open a directory, so this is best effort.
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // The file itself was already forced to disk
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,264 @@
+package com.techelevator.ssgeek.image;
+
+import com.techelevator.ssgeek.exception.ImageException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ThumbnailPipeline makes resized variants of stored images in the background, so whoever saves a
+ * product never waits for an image to be resized.
+ *
+ * Work waits in a bounded queue for a pool with one thread per core. When the queue is full new work
+ * is turned away instead of blocking the caller; since variants are only ever made from immutable
+ * stored images, submitting the same image again later is always safe. An image whose variants are
+ * all on disk already is skipped, and an image already waiting in the queue is not queued twice.
+ *
+ * Resizing uses only javax.imageio and java.awt. Large images are subsampled while they are decoded,
+ * then halved step by step, and each smaller variant is made from the next larger one.
+ */
+
+public class ThumbnailPipeline {
+
+    private final ImageStore store;
+    // Longest edge of each variant, largest first
+    private final int[] sizes;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private volatile long lastNanos;
+    private volatile RuntimeException lastError;
+
+    /**
+     * @param store Where the images are read from and the variants are written to.
+     * @param queueCapacity How many images may wait for a worker.
+     * @param sizes The longest edge of each variant, in pixels.
+     */
+    public ThumbnailPipeline(ImageStore store, int queueCapacity, int... sizes) {
+        this.store = store;
+        this.sizes = Arrays.stream(sizes).boxed().sorted((a, b) -> b - a).mapToInt(Integer::intValue).toArray();
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queue an image for its variants to be made.
+     *
+     * @param imageName A stored image's name. Names of images not in the store are ignored.
+     * @return False if the image is not in the store or the queue is full.
+     */
+    public boolean submit(String imageName) {
+        if (!store.contains(imageName)) {
+            return false;
+        }
+        if (!queued.add(imageName)) {
+            // Already waiting
+            return true;
+        }
+        try {
+            executor.execute(() -> process(imageName));
+            return true;
+        } catch (RejectedExecutionException e) {
+            queued.remove(imageName);
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Make any variants of the image that are not on disk yet, on the calling thread.
+     *
+     * @return The variant files, largest first.
+     */
+    public List<Path> generateVariants(String imageName) {
+        List<Path> variants = new ArrayList<>(sizes.length);
+        boolean complete = true;
+        for (int size : sizes) {
+            Path variant = store.variantPathOf(imageName, size);
+            variants.add(variant);
+            complete &= Files.exists(variant);
+        }
+        if (complete) {
+            return variants;
+        }
+
+        boolean opaque = variants.get(0).toString().endsWith(".jpg");
+        BufferedImage current = read(imageName, sizes[0]);
+        for (int i = 0; i < sizes.length; i++) {
+            current = scale(current, sizes[i], opaque);
+            if (!Files.exists(variants.get(i))) {
+                store.storeVariant(imageName, sizes[i], current);
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * Stop taking work and wait for the queued work to finish.
+     *
+     * @return False if the timeout passed first.
+     */
+    public boolean shutdown(Duration timeout) {
+        executor.shutdown();
+        try {
+            return executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void process(String imageName) {
+        long start = System.nanoTime();
+        try {
+            boolean existed = Files.exists(store.variantPathOf(imageName, sizes[sizes.length - 1]));
+            generateVariants(imageName);
+            (existed ? skippedCount : processedCount).incrementAndGet();
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+            lastError = e;
+        } finally {
+            queued.remove(imageName);
+            long nanos = System.nanoTime() - start;
+            lastNanos = nanos;
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    // Decode the image, skipping pixels while reading when it is far bigger than the largest variant
+    private BufferedImage read(String imageName, int largestSize) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(store.pathOf(imageName).toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new ImageException("Not a supported image format: " + imageName);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longestEdge = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longestEdge / (largestSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new ImageException("Unable to read image " + imageName, e);
+        }
+    }
+
+    // Halving with bilinear filtering until the last step keeps thumbnails smooth without the cost of bicubic
+    private static BufferedImage scale(BufferedImage source, int maxEdge, boolean opaque) {
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        int longestEdge = Math.max(source.getWidth(), source.getHeight());
+        double ratio = Math.min(1.0, (double) maxEdge / longestEdge);
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        do {
+            int width = Math.max(targetWidth, current.getWidth() / 2);
+            int height = Math.max(targetHeight, current.getHeight() / 2);
+            if (current != source && width == current.getWidth() && height == current.getHeight()) {
+                break;
+            }
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() > targetWidth || current.getHeight() > targetHeight);
+        return current;
+    }
+
+    // Images waiting for a worker
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    // Images being resized right now
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    // Images whose variants were already on disk
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    // Images turned away because the queue was full
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public double getLastMillis() {
+        return lastNanos / 1e6;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    public double getAverageMillis() {
+        long runs = processedCount.get() + skippedCount.get() + failedCount.get();
+        return runs == 0 ? 0 : totalNanos.get() / 1e6 / runs;
+    }
+
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queue %d, active %d, processed %d, skipped %d, failed %d, rejected %d, "
+                        + "per image avg %.1f ms, max %.1f ms", getQueueDepth(), getActiveCount(), getProcessedCount(),
+                getSkippedCount(), getFailedCount(), getRejectedCount(), getAverageMillis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,78 @@
+package com.techelevator.ssgeek.image;
+
+import com.techelevator.ssgeek.dao.ProductDao;
+import com.techelevator.ssgeek.model.Product;
+
+import java.util.List;
+
+/**
+ * ThumbnailingProductDao wraps another ProductDao and hands the image of every product it creates or
+ * updates to a ThumbnailPipeline. The save returns as soon as the datastore call does; the variants are
+ * made in the background. Products whose image is not in the ImageStore are left alone.
+ */
+
+public class ThumbnailingProductDao implements ProductDao {
+
+    private final ProductDao productDao;
+    private final ThumbnailPipeline thumbnailPipeline;
+
+    public ThumbnailingProductDao(ProductDao productDao, ThumbnailPipeline thumbnailPipeline) {
+        this.productDao = productDao;
+        this.thumbnailPipeline = thumbnailPipeline;
+    }
+
+    @Override
+    public Product getProductById(int productId) {
+        return productDao.getProductById(productId);
+    }
+
+    @Override
+    public List<Product> getProducts() {
+        return productDao.getProducts();
+    }
+
+    @Override
+    public List<Product> getProductPage(int afterProductId, int limit) {
+        return productDao.getProductPage(afterProductId, limit);
+    }
+
+    @Override
+    public List<Product> getProductsWithNoSales() {
+        return productDao.getProductsWithNoSales();
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit) {
+        return productDao.searchProducts(searchText, limit);
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit, int offset) {
+        return productDao.searchProducts(searchText, limit, offset);
+    }
+
+    @Override
+    public Product createProduct(Product newProduct) {
+        Product product = productDao.createProduct(newProduct);
+        submitImage(product);
+        return product;
+    }
+
+    @Override
+    public Product updateProduct(Product updatedProduct) {
+        Product product = productDao.updateProduct(updatedProduct);
+        submitImage(product);
+        return product;
+    }
+
+    @Override
+    public int deleteProductById(int productId) {
+        return productDao.deleteProductById(productId);
+    }
+
+    private void submitImage(Product product) {
+        if (product != null && ImageStore.isStoredName(product.getImageName())) {
+            thumbnailPipeline.submit(product.getImageName());
+        }
+    }
+}
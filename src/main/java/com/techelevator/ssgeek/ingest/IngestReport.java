@@ -0,0 +1,76 @@
+package com.techelevator.ssgeek.ingest;
+
+/**
+ * IngestReport is the outcome of one OrderIngestPipeline run.
+ */
+
+public class IngestReport {
+
+    private final long bytesRead;
+    private final long linesRead;
+    private final long ordersInserted;
+    private final long lineItemsInserted;
+    private final long alreadyLoaded;
+    private final long rejected;
+    private final long elapsedNanos;
+
+    public IngestReport(long bytesRead, long linesRead, long ordersInserted, long lineItemsInserted,
+                        long alreadyLoaded, long rejected, long elapsedNanos) {
+        this.bytesRead = bytesRead;
+        this.linesRead = linesRead;
+        this.ordersInserted = ordersInserted;
+        this.lineItemsInserted = lineItemsInserted;
+        this.alreadyLoaded = alreadyLoaded;
+        this.rejected = rejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The number of non-blank lines read, each one order.
+     */
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getOrdersInserted() {
+        return ordersInserted;
+    }
+
+    public long getLineItemsInserted() {
+        return lineItemsInserted;
+    }
+
+    /**
+     * @return The number of orders skipped because their order key was loaded before.
+     */
+    public long getAlreadyLoaded() {
+        return alreadyLoaded;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return Orders inserted per second, from the start of reading to the last insert.
+     */
+    public double getOrdersPerSecond() {
+        return elapsedNanos == 0 ? 0 : ordersInserted / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines, %d orders and %d line items inserted, %d already loaded, %d rejected " +
+                        "in %.2f s (%.0f orders/sec, %.1f MB/sec)", linesRead, ordersInserted, lineItemsInserted,
+                alreadyLoaded, rejected,
+                elapsedNanos / 1e9, getOrdersPerSecond(), elapsedNanos == 0 ? 0 : bytesRead / 1e6 / (elapsedNanos / 1e9));
+    }
+}
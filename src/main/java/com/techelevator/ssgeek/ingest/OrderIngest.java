@@ -0,0 +1,74 @@
+package com.techelevator.ssgeek.ingest;
+
+import com.techelevator.ssgeek.dao.JdbcOrderIngestDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * OrderIngest loads a JSON Lines file of orders into the sale and line_item tables with an
+ * OrderIngestPipeline. Progress goes to standard error every few seconds, then the totals and throughput.
+ *
+ * Usage: OrderIngest [--parsers n] [--writers n] [--batch n] [--rejects file] [--url jdbcUrl] ordersFile
+ * Rejected lines go to ordersFile.rejects.jsonl unless --rejects names another file.
+ */
+
+public class OrderIngest {
+
+    public static void main(String[] args) {
+        int parsers = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+        int writers = 4;
+        int batchSize = 1000;
+        String rejects = null;
+        String url = "jdbc:postgresql://localhost:5432/SSGeek";
+        String ordersFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--parsers":
+                    parsers = Integer.parseInt(args[++i]);
+                    break;
+                case "--writers":
+                    writers = Integer.parseInt(args[++i]);
+                    break;
+                case "--batch":
+                    batchSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--rejects":
+                    rejects = args[++i];
+                    break;
+                case "--url":
+                    url = args[++i];
+                    break;
+                default:
+                    ordersFile = args[i];
+            }
+        }
+        if (ordersFile == null) {
+            System.out.println("Usage: OrderIngest [--parsers n] [--writers n] [--batch n] [--rejects file] [--url jdbcUrl] ordersFile");
+            return;
+        }
+        Path rejectFile = Paths.get(rejects != null ? rejects : ordersFile + ".rejects.jsonl");
+
+        // One connection per writer, and one for reading the id sets
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUsername("postgres");
+        dataSource.setPassword("postgres1");
+        dataSource.setMaxTotal(writers + 1);
+
+        OrderIngestPipeline pipeline = new OrderIngestPipeline(new JdbcOrderIngestDao(dataSource), parsers, writers, batchSize);
+        try {
+            IngestReport report = pipeline.run(Paths.get(ordersFile), rejectFile, System.err);
+            System.err.println("Ingested " + report);
+            if (report.getRejected() > 0) {
+                System.err.println("Rejected lines are in " + rejectFile);
+            }
+        } catch (UncheckedIOException | DaoException e) {
+            System.err.println("Ingest failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,580 @@
+package com.techelevator.ssgeek.ingest;
+
+import com.techelevator.ssgeek.api.JsonBuilder;
+import com.techelevator.ssgeek.api.JsonParser;
+import com.techelevator.ssgeek.dao.OrderIngestDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.IncomingOrder;
+import com.techelevator.ssgeek.model.LineItem;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * OrderIngestPipeline loads a JSON Lines file of orders, one sale with its line items per line:
+ * {"orderId": "A-1001", "customerId": 1, "saleDate": "2022-06-01", "shipDate": null,
+ *  "lineItems": [{"productId": 2, "quantity": 3}]}
+ *
+ * Loading is idempotent: each order gets a key from its marketplace orderId (a string or number) or, when it
+ * has none, from the SHA-256 of the file and the line's byte offset. An order whose key was loaded before,
+ * by this run or an earlier one, is skipped and counted as already loaded, so a file can be run again after
+ * a failure. A file with no orderIds only matches itself byte for byte.
+ *
+ * The work is done in three stages joined by bounded queues, so a slow stage holds back the ones before
+ * it and memory stays bounded however large the file is:
+ * - parser threads each take a chunk of the file (split at line ends) and parse its lines into batches;
+ * - one validator checks customer and product ids against id sets read once at the start, and rebatches
+ *   the good orders;
+ * - writer threads, each on its own connection, insert each batch of sales and line items in one
+ *   transaction.
+ *
+ * Lines that can't be parsed or fail validation, and orders the database refuses, are written to the
+ * reject file as JSON Lines with their byte offset and the reason, and the rest of the file carries on.
+ * Any other database failure stops the run; batches already inserted stay inserted.
+ */
+
+public class OrderIngestPipeline {
+
+    private static final int DEFAULT_CHUNK_BYTES = 8 * 1024 * 1024;
+    // How often run() reports progress
+    private static final long PROGRESS_MILLIS = 5000;
+
+    private final OrderIngestDao ingestDao;
+    private final int parserThreads;
+    private final int writerThreads;
+    private final int batchSize;
+    private final int chunkBytes;
+
+    /**
+     * @param parserThreads Threads parsing the file; each holds one chunk of it in memory.
+     * @param writerThreads Threads inserting batches, each needing its own database connection.
+     * @param batchSize Orders inserted per transaction.
+     */
+    public OrderIngestPipeline(OrderIngestDao ingestDao, int parserThreads, int writerThreads, int batchSize) {
+        this(ingestDao, parserThreads, writerThreads, batchSize, DEFAULT_CHUNK_BYTES);
+    }
+
+    OrderIngestPipeline(OrderIngestDao ingestDao, int parserThreads, int writerThreads, int batchSize, int chunkBytes) {
+        this.ingestDao = ingestDao;
+        this.parserThreads = parserThreads;
+        this.writerThreads = writerThreads;
+        this.batchSize = batchSize;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Load every order in a file.
+     *
+     * @param rejectFile Where rejected lines are written, replacing the file; null to only count them.
+     * @param progress Where progress is printed every few seconds; may be null.
+     * @throws DaoException If the database fails other than by refusing an order.
+     * @throws UncheckedIOException If the file can't be read or the reject file written.
+     */
+    public IngestReport run(Path ordersFile, Path rejectFile, PrintStream progress) {
+        try (FileChannel channel = FileChannel.open(ordersFile, StandardOpenOption.READ);
+             RejectWriter rejects = new RejectWriter(rejectFile)) {
+            return new Run(channel, rejects).execute(progress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to ingest " + ordersFile, e);
+        }
+    }
+
+    /**
+     * Read one line of an orders file.
+     *
+     * @throws IllegalArgumentException If the line isn't an order, with the reason.
+     */
+    static IncomingOrder parseOrder(String line) {
+        Object parsed = JsonParser.parse(line);
+        if (!(parsed instanceof Map)) {
+            throw new IllegalArgumentException("Not a JSON object");
+        }
+        Map<?, ?> object = (Map<?, ?>) parsed;
+        IncomingOrder order = new IncomingOrder();
+        order.setOrderKey(getOrderKey(object));
+        order.setCustomerId(getInt(object, "customerId"));
+        order.setSaleDate(getDate(object, "saleDate", true));
+        order.setShipDate(getDate(object, "shipDate", false));
+        Object lineItems = object.get("lineItems");
+        if (!(lineItems instanceof List)) {
+            throw new IllegalArgumentException("lineItems must be an array");
+        }
+        for (Object item : (List<?>) lineItems) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("Each line item must be an object");
+            }
+            LineItem lineItem = new LineItem();
+            lineItem.setProductId(getInt((Map<?, ?>) item, "productId"));
+            lineItem.setQuantity(getInt((Map<?, ?>) item, "quantity"));
+            order.getLineItems().add(lineItem);
+        }
+        return order;
+    }
+
+    // Null when the order has no orderId; parseChunk then keys it by its place in the file
+    private static String getOrderKey(Map<?, ?> object) {
+        Object value = object.get("orderId");
+        if (value == null) {
+            return null;
+        }
+        String orderId;
+        if (value instanceof BigDecimal) {
+            orderId = ((BigDecimal) value).toPlainString();
+        } else if (value instanceof String && !((String) value).isBlank()) {
+            orderId = (String) value;
+        } else {
+            throw new IllegalArgumentException("orderId must be a string or number");
+        }
+        return UUID.nameUUIDFromBytes(("order-id:" + orderId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static int getInt(Map<?, ?> object, String name) {
+        Object value = object.get(name);
+        if (!(value instanceof BigDecimal)) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        try {
+            return ((BigDecimal) value).intValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(name + " must be a whole number");
+        }
+    }
+
+    private static LocalDate getDate(Map<?, ?> object, String name, boolean required) {
+        Object value = object.get(name);
+        if (value == null && !required) {
+            return null;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a date (YYYY-MM-DD)");
+        }
+        try {
+            return LocalDate.parse((String) value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be a date (YYYY-MM-DD)");
+        }
+    }
+
+    // A line read from the file: its byte offset and text, for the reject file, and the order on it
+    private static class ParsedOrder {
+        private final long offset;
+        private final String line;
+        private final IncomingOrder order;
+
+        private ParsedOrder(long offset, String line, IncomingOrder order) {
+            this.offset = offset;
+            this.line = line;
+            this.order = order;
+        }
+    }
+
+    // The state of one run of the pipeline
+    private class Run {
+        // Put on a queue after the last batch, once for each thread taking from it
+        private final List<ParsedOrder> end = new ArrayList<>(0);
+
+        private final FileChannel channel;
+        private final RejectWriter rejects;
+        private final BlockingQueue<List<ParsedOrder>> parsed = new ArrayBlockingQueue<>(parserThreads * 2);
+        private final BlockingQueue<List<ParsedOrder>> valid = new ArrayBlockingQueue<>(writerThreads * 2);
+
+        private final List<long[]> chunks = new ArrayList<>();
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final AtomicInteger parsersRunning = new AtomicInteger(parserThreads);
+
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong linesRead = new AtomicLong();
+        private final AtomicLong ordersInserted = new AtomicLong();
+        private final AtomicLong lineItemsInserted = new AtomicLong();
+        private final AtomicLong alreadyLoaded = new AtomicLong();
+        // SHA-256 of the whole file, keying orders without an orderId
+        private byte[] fileHash;
+        // The first failure that stops the run. Later stages keep taking batches, so none block
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        private Run(FileChannel channel, RejectWriter rejects) {
+            this.channel = channel;
+            this.rejects = rejects;
+        }
+
+        private IngestReport execute(PrintStream progress) throws IOException {
+            long start = System.nanoTime();
+            splitIntoChunks();
+            fileHash = hashFile();
+            BitSet customerIds = toBitSet(ingestDao.getCustomerIds());
+            BitSet productIds = toBitSet(ingestDao.getProductIds());
+
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < parserThreads; i++) {
+                threads.add(new Thread(this::parse, "ingest-parser-" + (i + 1)));
+            }
+            threads.add(new Thread(() -> validate(customerIds, productIds), "ingest-validator"));
+            List<Thread> writers = new ArrayList<>();
+            for (int i = 0; i < writerThreads; i++) {
+                writers.add(new Thread(this::write, "ingest-writer-" + (i + 1)));
+            }
+            threads.addAll(writers);
+            for (Thread thread : threads) {
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            try {
+                for (Thread thread : threads) {
+                    while (thread.isAlive()) {
+                        thread.join(PROGRESS_MILLIS);
+                        if (progress != null && thread.isAlive()) {
+                            progress.format("%d lines read, %d orders inserted, %d already loaded, %d rejected " +
+                                            "(%.0f orders/sec)%n",
+                                    linesRead.get(), ordersInserted.get(), alreadyLoaded.get(), rejects.getCount(),
+                                    ordersInserted.get() / ((System.nanoTime() - start) / 1e9));
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new IllegalStateException("Interrupted while ingesting orders"));
+            }
+
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return new IngestReport(bytesRead.get(), linesRead.get(), ordersInserted.get(), lineItemsInserted.get(),
+                    alreadyLoaded.get(), rejects.getCount(), System.nanoTime() - start);
+        }
+
+        private byte[] hashFile() throws IOException {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * 1024);
+            long position = 0;
+            int read;
+            while ((read = channel.read(buffer, position)) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+                position += read;
+            }
+            return digest.digest();
+        }
+
+        // The same line of the same file always gets the same key
+        private String offsetKey(long offset) {
+            ByteBuffer key = ByteBuffer.allocate(fileHash.length + Long.BYTES);
+            key.put(fileHash).putLong(offset);
+            return UUID.nameUUIDFromBytes(key.array()).toString();
+        }
+
+        // Chunks end just after a newline, so no line is split between two parsers
+        private void splitIntoChunks() throws IOException {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(start + chunkBytes, size);
+                boolean found = end == size;
+                while (!found) {
+                    buffer.clear();
+                    int read = channel.read(buffer, end);
+                    if (read <= 0) {
+                        end = size;
+                        break;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        if (buffer.get(i) == '\n') {
+                            end += i + 1;
+                            found = true;
+                            break;
+                        }
+                    }
+                    if (!found) {
+                        end += read;
+                    }
+                }
+                chunks.add(new long[]{start, end});
+                start = end;
+            }
+        }
+
+        // Parser stage
+        private void parse() {
+            try {
+                int index;
+                while (failure.get() == null && (index = nextChunk.getAndIncrement()) < chunks.size()) {
+                    parseChunk(chunks.get(index)[0], chunks.get(index)[1]);
+                }
+            } catch (IOException e) {
+                fail(new UncheckedIOException("Unable to read orders file", e));
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                if (parsersRunning.decrementAndGet() == 0) {
+                    put(parsed, end);
+                }
+            }
+        }
+
+        private void parseChunk(long start, long end) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            byte[] bytes = buffer.array();
+            int length = buffer.position();
+            bytesRead.addAndGet(length);
+
+            List<ParsedOrder> batch = new ArrayList<>(batchSize);
+            int lineStart = 0;
+            for (int i = 0; i <= length; i++) {
+                if (i < length && bytes[i] != '\n') {
+                    continue;
+                }
+                int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+                String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+                long offset = start + lineStart;
+                lineStart = i + 1;
+                if (line.isBlank()) {
+                    continue;
+                }
+                linesRead.incrementAndGet();
+                try {
+                    IncomingOrder order = parseOrder(line);
+                    if (order.getOrderKey() == null) {
+                        order.setOrderKey(offsetKey(offset));
+                    }
+                    batch.add(new ParsedOrder(offset, line, order));
+                } catch (IllegalArgumentException e) {
+                    rejects.write(offset, e.getMessage(), line);
+                    continue;
+                }
+                if (batch.size() == batchSize) {
+                    put(parsed, batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                put(parsed, batch);
+            }
+        }
+
+        // Validator stage
+        private void validate(BitSet customerIds, BitSet productIds) {
+            List<ParsedOrder> good = new ArrayList<>(batchSize);
+            List<ParsedOrder> batch;
+            while ((batch = take(parsed)) != end) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    for (ParsedOrder parsedOrder : batch) {
+                        String problem = check(parsedOrder.order, customerIds, productIds);
+                        if (problem != null) {
+                            rejects.write(parsedOrder.offset, problem, parsedOrder.line);
+                            continue;
+                        }
+                        good.add(parsedOrder);
+                        if (good.size() == batchSize) {
+                            put(valid, good);
+                            good = new ArrayList<>(batchSize);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            }
+            if (!good.isEmpty() && failure.get() == null) {
+                put(valid, good);
+            }
+            for (int i = 0; i < writerThreads; i++) {
+                put(valid, end);
+            }
+        }
+
+        // Null if the order may be inserted
+        private String check(IncomingOrder order, BitSet customerIds, BitSet productIds) {
+            if (order.getCustomerId() < 0 || !customerIds.get(order.getCustomerId())) {
+                return "Unknown customer " + order.getCustomerId();
+            }
+            if (order.getShipDate() != null && order.getShipDate().isBefore(order.getSaleDate())) {
+                return "Ship date is before the sale date";
+            }
+            if (order.getLineItems().isEmpty()) {
+                return "No line items";
+            }
+            for (LineItem lineItem : order.getLineItems()) {
+                if (lineItem.getProductId() < 0 || !productIds.get(lineItem.getProductId())) {
+                    return "Unknown product " + lineItem.getProductId();
+                }
+                if (lineItem.getQuantity() <= 0) {
+                    return "Quantity must be at least 1";
+                }
+            }
+            return null;
+        }
+
+        // Writer stage
+        private void write() {
+            List<ParsedOrder> batch;
+            while ((batch = take(valid)) != end) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    insert(batch);
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            }
+        }
+
+        private void insert(List<ParsedOrder> batch) {
+            try {
+                counted(batch, ingestDao.insertOrders(toOrders(batch)));
+            } catch (DaoException e) {
+                if (!(e.getCause() instanceof DataIntegrityViolationException)) {
+                    throw e;
+                }
+                // The batch was rolled back; insert its orders one at a time to find those refused
+                for (ParsedOrder parsedOrder : batch) {
+                    try {
+                        counted(List.of(parsedOrder), ingestDao.insertOrders(List.of(parsedOrder.order)));
+                    } catch (DaoException oneFailed) {
+                        if (!(oneFailed.getCause() instanceof DataIntegrityViolationException)) {
+                            throw oneFailed;
+                        }
+                        String reason = ((DataIntegrityViolationException) oneFailed.getCause())
+                                .getMostSpecificCause().getMessage();
+                        rejects.write(parsedOrder.offset, "Refused by the database: " + reason, parsedOrder.line);
+                    }
+                }
+            }
+        }
+
+        // A null sale id is an order loaded before
+        private void counted(List<ParsedOrder> batch, List<Integer> saleIds) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (saleIds.get(i) == null) {
+                    alreadyLoaded.incrementAndGet();
+                } else {
+                    ordersInserted.incrementAndGet();
+                    lineItemsInserted.addAndGet(batch.get(i).order.getLineItems().size());
+                }
+            }
+        }
+
+        private List<IncomingOrder> toOrders(List<ParsedOrder> batch) {
+            List<IncomingOrder> orders = new ArrayList<>(batch.size());
+            for (ParsedOrder parsedOrder : batch) {
+                orders.add(parsedOrder.order);
+            }
+            return orders;
+        }
+
+        private void fail(RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+
+        // The stages' threads are never interrupted; waiting is how back-pressure reaches the earlier stages
+        private void put(BlockingQueue<List<ParsedOrder>> queue, List<ParsedOrder> batch) {
+            while (true) {
+                try {
+                    queue.put(batch);
+                    return;
+                } catch (InterruptedException e) {
+                    fail(new IllegalStateException("Interrupted while ingesting orders"));
+                }
+            }
+        }
+
+        private List<ParsedOrder> take(BlockingQueue<List<ParsedOrder>> queue) {
+            while (true) {
+                try {
+                    return queue.take();
+                } catch (InterruptedException e) {
+                    fail(new IllegalStateException("Interrupted while ingesting orders"));
+                }
+            }
+        }
+    }
+
+    private static BitSet toBitSet(int[] ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) {
+            if (id >= 0) {
+                set.set(id);
+            }
+        }
+        return set;
+    }
+
+    // Writes rejected lines as JSON Lines, from any stage's threads
+    private static class RejectWriter implements AutoCloseable {
+        private final BufferedWriter writer;
+        private final AtomicLong count = new AtomicLong();
+
+        private RejectWriter(Path file) throws IOException {
+            this.writer = file == null ? null : Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        private void write(long offset, String reason, String line) {
+            count.incrementAndGet();
+            if (writer == null) {
+                return;
+            }
+            String json = new JsonBuilder().beginObject()
+                    .field("offset", offset)
+                    .field("reason", reason)
+                    .field("line", line)
+                    .endObject().toString();
+            synchronized (this) {
+                try {
+                    writer.write(json);
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to write reject file", e);
+                }
+            }
+        }
+
+        private long getCount() {
+            return count.get();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -9,6 +9,8 @@ public class Customer {
     private String city;
     private String state;
     private String zipCode;
+    // Row version read with the rest of the row; an update only succeeds if it still matches the database
+    private int version;
 
     public int getCustomerId() {
         return customerId;
@@ -66,6 +68,14 @@ public class Customer {
         this.zipCode = zipCode;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public Customer() {}
 
     public Customer(int customerId, String name, String streetAddress1, String streetAddress2, String city, String state, String zipCode) {
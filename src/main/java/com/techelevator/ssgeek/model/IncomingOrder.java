@@ -0,0 +1,59 @@
+package com.techelevator.ssgeek.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IncomingOrder is a new sale together with its line items, as received from outside the admin program.
+ * Only the product id and quantity of each line item are used. The order key (a UUID) identifies the order
+ * wherever it came from, so an order loaded a second time is recognised and not added again.
+ */
+
+public class IncomingOrder {
+    private String orderKey;
+    private int customerId;
+    private LocalDate saleDate;
+    private LocalDate shipDate;
+    private List<LineItem> lineItems = new ArrayList<>();
+
+    public String getOrderKey() {
+        return orderKey;
+    }
+
+    public void setOrderKey(String orderKey) {
+        this.orderKey = orderKey;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+
+    public LocalDate getSaleDate() {
+        return saleDate;
+    }
+
+    public void setSaleDate(LocalDate saleDate) {
+        this.saleDate = saleDate;
+    }
+
+    public LocalDate getShipDate() {
+        return shipDate;
+    }
+
+    public void setShipDate(LocalDate shipDate) {
+        this.shipDate = shipDate;
+    }
+
+    public List<LineItem> getLineItems() {
+        return lineItems;
+    }
+
+    public void setLineItems(List<LineItem> lineItems) {
+        this.lineItems = lineItems;
+    }
+}
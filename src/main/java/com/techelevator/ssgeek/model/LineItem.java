@@ -13,6 +13,8 @@ public class LineItem {
     // You can use this technique for any related field, but product name and price should be enough for now.
     private String productName;
     private BigDecimal price;
+    // The same price as a whole number of cents, for totalling without BigDecimal (see Money)
+    private long priceCents;
 
     public int getLineItemId() {
         return lineItemId;
@@ -61,12 +63,27 @@ public class LineItem {
     public void setPrice(BigDecimal price) {
         this.price = price;
         this.price.setScale(2);
+        this.priceCents = Money.toCents(price);
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
+        this.price = Money.toBigDecimal(priceCents);
     }
 
     public BigDecimal getExtendedPrice() {
         return price.multiply(BigDecimal.valueOf(quantity, 0));
     }
 
+    // Price times quantity in cents. Creates no objects, so prefer it when adding up many line items.
+    public long getExtendedPriceCents() {
+        return Money.times(priceCents, quantity);
+    }
+
     public LineItem() {}
 
     public LineItem(int lineItemId, int saleId, int productId, int quantity, String productName, BigDecimal price) {
@@ -75,7 +92,6 @@ public class LineItem {
         this.productId = productId;
         this.quantity = quantity;
         this.productName = productName;
-        this.price = price;
-        this.price.setScale(2);
+        setPrice(price);
     }
 }
@@ -0,0 +1,121 @@
+package com.techelevator.ssgeek.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Money is an amount in dollars and cents stored as a long number of cents. Arithmetic is exact and
+ * throws ArithmeticException on overflow instead of wrapping around.
+ *
+ * The static methods work on plain long cents, so totalling loops can add up prices without creating
+ * any objects. Use the instance methods where a value object is more convenient.
+ */
+
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofCents(toCents(amount));
+    }
+
+    // **************************************************************
+    // region Allocation-free arithmetic on long cents
+    // **************************************************************
+
+    /**
+     * Convert a dollar amount to cents, rounding the same way a decimal(10,2) column does.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    public static long subtract(long cents, long otherCents) {
+        return Math.subtractExact(cents, otherCents);
+    }
+
+    public static long times(long cents, long quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    /**
+     * Add up price times quantity for every line item.
+     */
+    public static long extendedTotalCents(List<LineItem> lineItems) {
+        long total = 0;
+        for (int i = 0; i < lineItems.size(); i++) {
+            total = Math.addExact(total, lineItems.get(i).getExtendedPriceCents());
+        }
+        return total;
+    }
+
+    public static String format(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long dollars = Math.abs(cents / 100);
+        long remainder = Math.abs(cents % 100);
+        return sign + dollars + (remainder < 10 ? ".0" : ".") + remainder;
+    }
+
+    // **************************************************************
+    // endregion Allocation-free arithmetic on long cents
+    // **************************************************************
+
+    public long getCents() {
+        return cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(cents);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(add(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(subtract(cents, other.cents));
+    }
+
+    public Money times(long quantity) {
+        return ofCents(times(cents, quantity));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money && ((Money) other).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return format(cents);
+    }
+}
@@ -7,7 +7,11 @@ public class Product {
     private String name;
     private String description;
     private BigDecimal price;
+    // The same price as a whole number of cents, for totalling without BigDecimal (see Money)
+    private long priceCents;
     private String imageName;
+    // Row version read with the rest of the row; an update only succeeds if it still matches the database
+    private int version;
 
     public int getProductId() {
         return productId;
@@ -39,6 +43,16 @@ public class Product {
 
     public void setPrice(BigDecimal price) {
         this.price = price;
+        this.priceCents = price == null ? 0 : Money.toCents(price);
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    public void setPriceCents(long priceCents) {
+        this.priceCents = priceCents;
+        this.price = Money.toBigDecimal(priceCents);
     }
 
     public String getImageName() {
@@ -49,6 +63,14 @@ public class Product {
         this.imageName = imageName;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
 
     public Product() {}
 
@@ -56,7 +78,7 @@ public class Product {
         this.productId = productId;
         this.name = name;
         this.description = description;
-        this.price = price;
+        setPrice(price);
         this.imageName = imageName;
     }
 }
@@ -0,0 +1,84 @@
+package com.techelevator.ssgeek.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * ProductImage describes one stored image file. The imageName is the value products keep in
+ * their imageName, and for uploaded images it is the SHA-256 of the content plus an extension.
+ */
+public class ProductImage {
+    private String imageName;
+    private String sha256;
+    private String contentType;
+    private long sizeBytes;
+    private int width;
+    private int height;
+    private LocalDateTime createdAt;
+
+    public ProductImage() {}
+
+    public ProductImage(String imageName, String sha256, String contentType, long sizeBytes, int width, int height) {
+        this.imageName = imageName;
+        this.sha256 = sha256;
+        this.contentType = contentType;
+        this.sizeBytes = sizeBytes;
+        this.width = width;
+        this.height = height;
+    }
+
+    public String getImageName() {
+        return imageName;
+    }
+
+    public void setImageName(String imageName) {
+        this.imageName = imageName;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
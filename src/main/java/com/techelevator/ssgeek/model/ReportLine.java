@@ -0,0 +1,84 @@
+package com.techelevator.ssgeek.model;
+
+import java.math.BigDecimal;
+
+public class ReportLine {
+    // NOTE: A report line is one group of a revenue report (a product, a month, a state or a customer).
+    // The key is the id of the group when it has one (product_id, customer_id), and the label is what
+    // you would display to the user.
+    private int key;
+    private String label;
+    private int orderCount;
+    private int units;
+    private BigDecimal revenue;
+    private BigDecimal percentOfTotal;
+    private int rank;
+
+    public ReportLine() {}
+
+    public ReportLine(int key, String label, int orderCount, int units, BigDecimal revenue, BigDecimal percentOfTotal, int rank) {
+        this.key = key;
+        this.label = label;
+        this.orderCount = orderCount;
+        this.units = units;
+        this.revenue = revenue;
+        this.percentOfTotal = percentOfTotal;
+        this.rank = rank;
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public void setKey(int key) {
+        this.key = key;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(int orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public int getUnits() {
+        return units;
+    }
+
+    public void setUnits(int units) {
+        this.units = units;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public BigDecimal getPercentOfTotal() {
+        return percentOfTotal;
+    }
+
+    public void setPercentOfTotal(BigDecimal percentOfTotal) {
+        this.percentOfTotal = percentOfTotal;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+}
@@ -1,5 +1,6 @@
 package com.techelevator.ssgeek.model;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 
 public class Sale {
@@ -12,6 +13,12 @@ public class Sale {
     // customer name.
     // You can use this technique for any related field, but customer name should be enough.
     private String customerName;
+    // NOTE: The datastore keeps the number of items and the order total on the sale row itself, updated
+    // whenever its line items change, so a list of sales can show them without reading any line items.
+    private int itemCount;
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+    // Row version read with the rest of the row; an update only succeeds if it still matches the database
+    private int version;
 
     public Sale() {}
 
@@ -62,4 +69,28 @@ public class Sale {
     public void setCustomerName(String customerName) {
         this.customerName = customerName;
     }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,68 @@
+package com.techelevator.ssgeek.model;
+
+import java.time.LocalDateTime;
+
+public class SaleEvent {
+    // Event types written to the sale outbox
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String SHIPPED = "SHIPPED";
+    public static final String DELETED = "DELETED";
+
+    private long eventId;
+    // The transaction that wrote the event; events are relayed in (transactionId, eventId) order
+    private long transactionId;
+    private int saleId;
+    private String eventType;
+    // The sale row as JSON, as it was after the change (before it, for a delete)
+    private String payload;
+    private LocalDateTime createdAt;
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public int getSaleId() {
+        return saleId;
+    }
+
+    public void setSaleId(int saleId) {
+        this.saleId = saleId;
+    }
+
+    public String getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(String eventType) {
+        this.eventType = eventType;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
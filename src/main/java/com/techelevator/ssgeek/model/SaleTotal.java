@@ -0,0 +1,41 @@
+package com.techelevator.ssgeek.model;
+
+import java.math.BigDecimal;
+
+public class SaleTotal {
+    private int saleId;
+    private int itemCount;
+    private BigDecimal totalAmount;
+
+    public SaleTotal() {}
+
+    public SaleTotal(int saleId, int itemCount, BigDecimal totalAmount) {
+        this.saleId = saleId;
+        this.itemCount = itemCount;
+        this.totalAmount = totalAmount;
+    }
+
+    public int getSaleId() {
+        return saleId;
+    }
+
+    public void setSaleId(int saleId) {
+        this.saleId = saleId;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+}
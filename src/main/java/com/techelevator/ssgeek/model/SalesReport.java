@@ -0,0 +1,73 @@
+package com.techelevator.ssgeek.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SalesReport {
+    // NOTE: Every list in a SalesReport is read from the same database snapshot, so the groups always
+    // add up to the totals even while new orders are being written.
+    private List<ReportLine> revenueByProduct = new ArrayList<>();
+    private List<ReportLine> revenueByMonth = new ArrayList<>();
+    private List<ReportLine> revenueByState = new ArrayList<>();
+    private List<ReportLine> topCustomers = new ArrayList<>();
+    private int totalOrders;
+    private int totalUnits;
+    private BigDecimal totalRevenue = BigDecimal.ZERO;
+
+    public List<ReportLine> getRevenueByProduct() {
+        return revenueByProduct;
+    }
+
+    public void setRevenueByProduct(List<ReportLine> revenueByProduct) {
+        this.revenueByProduct = revenueByProduct;
+    }
+
+    public List<ReportLine> getRevenueByMonth() {
+        return revenueByMonth;
+    }
+
+    public void setRevenueByMonth(List<ReportLine> revenueByMonth) {
+        this.revenueByMonth = revenueByMonth;
+    }
+
+    public List<ReportLine> getRevenueByState() {
+        return revenueByState;
+    }
+
+    public void setRevenueByState(List<ReportLine> revenueByState) {
+        this.revenueByState = revenueByState;
+    }
+
+    public List<ReportLine> getTopCustomers() {
+        return topCustomers;
+    }
+
+    public void setTopCustomers(List<ReportLine> topCustomers) {
+        this.topCustomers = topCustomers;
+    }
+
+    public int getTotalOrders() {
+        return totalOrders;
+    }
+
+    public void setTotalOrders(int totalOrders) {
+        this.totalOrders = totalOrders;
+    }
+
+    public int getTotalUnits() {
+        return totalUnits;
+    }
+
+    public void setTotalUnits(int totalUnits) {
+        this.totalUnits = totalUnits;
+    }
+
+    public BigDecimal getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    public void setTotalRevenue(BigDecimal totalRevenue) {
+        this.totalRevenue = totalRevenue;
+    }
+}
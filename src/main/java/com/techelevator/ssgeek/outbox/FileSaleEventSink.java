@@ -0,0 +1,52 @@
+package com.techelevator.ssgeek.outbox;
+
+import com.techelevator.ssgeek.api.JsonBuilder;
+import com.techelevator.ssgeek.model.SaleEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * FileSaleEventSink appends sale events to a file as JSON Lines, one object per event with the sale
+ * row under "sale". Each batch is forced to disk before deliver() returns.
+ */
+
+public class FileSaleEventSink implements SaleEventSink {
+
+    private final Path file;
+
+    public FileSaleEventSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void deliver(List<SaleEvent> events) {
+        StringBuilder lines = new StringBuilder(events.size() * 160);
+        for (SaleEvent event : events) {
+            lines.append(new JsonBuilder().beginObject()
+                    .field("eventId", event.getEventId())
+                    .field("type", event.getEventType())
+                    .field("saleId", event.getSaleId())
+                    .field("createdAt", event.getCreatedAt())
+                    .name("sale").rawValue(event.getPayload())
+                    .endObject())
+                    .append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write sale events to " + file, e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.techelevator.ssgeek.outbox;
+
+import com.techelevator.ssgeek.model.SaleEvent;
+
+import java.util.List;
+
+/**
+ * SaleEventSink is where a SaleOutboxRelay delivers sale events: a file, a message queue, or a listener
+ * in this program. A sink that throws has not taken the batch, and is given it again on the relay's
+ * next run, so a sink can see the same event more than once and should ignore repeated event ids.
+ */
+
+public interface SaleEventSink {
+
+    /**
+     * Take a batch of events, in delivery order, returning only once they are safely delivered.
+     */
+    void deliver(List<SaleEvent> events);
+}
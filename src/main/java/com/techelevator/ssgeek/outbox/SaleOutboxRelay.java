@@ -0,0 +1,52 @@
+package com.techelevator.ssgeek.outbox;
+
+import com.techelevator.ssgeek.dao.SaleOutboxDao;
+import com.techelevator.ssgeek.model.SaleEvent;
+
+import java.util.List;
+
+/**
+ * SaleOutboxRelay delivers the sale events written to the outbox to one sink, a batch at a time, in the
+ * order they were written. The relay's position is kept in the database under its name and only moves
+ * once the sink has taken a batch, so every event reaches the sink at least once, across restarts too.
+ * A program with several sinks runs one relay for each, under different names.
+ */
+
+public class SaleOutboxRelay {
+
+    private final String name;
+    private final SaleOutboxDao outboxDao;
+    private final SaleEventSink sink;
+    private final int batchSize;
+
+    public SaleOutboxRelay(String name, SaleOutboxDao outboxDao, SaleEventSink sink, int batchSize) {
+        this.name = name;
+        this.outboxDao = outboxDao;
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Deliver every event the sink hasn't had yet.
+     *
+     * @return The number of events delivered.
+     */
+    public int relay() {
+        int delivered = 0;
+        List<SaleEvent> events;
+        do {
+            events = outboxDao.getUndeliveredEvents(name, batchSize);
+            if (events.isEmpty()) {
+                break;
+            }
+            sink.deliver(events);
+            outboxDao.markDelivered(name, events.get(events.size() - 1));
+            delivered += events.size();
+        } while (events.size() == batchSize);
+        return delivered;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,52 @@
+package com.techelevator.ssgeek.replica;
+
+import com.techelevator.ssgeek.dao.CustomerDao;
+import com.techelevator.ssgeek.model.Customer;
+
+import java.util.List;
+
+/**
+ * ReplicaReadingCustomerDao marks the reads of a CustomerDao built on a ReplicaRoutingDataSource, so
+ * they may be answered by a replica, and its writes, so the writing thread reads them back.
+ */
+
+public class ReplicaReadingCustomerDao implements CustomerDao {
+
+    private final CustomerDao customerDao;
+    private final ReplicaRoutingDataSource router;
+
+    public ReplicaReadingCustomerDao(CustomerDao customerDao, ReplicaRoutingDataSource router) {
+        this.customerDao = customerDao;
+        this.router = router;
+    }
+
+    @Override
+    public Customer getCustomerById(int customerId) {
+        return router.read(() -> customerDao.getCustomerById(customerId));
+    }
+
+    @Override
+    public List<Customer> getCustomers() {
+        return router.read(customerDao::getCustomers);
+    }
+
+    @Override
+    public List<Customer> getCustomerPage(int afterCustomerId, int limit) {
+        return router.read(() -> customerDao.getCustomerPage(afterCustomerId, limit));
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String searchText, int limit) {
+        return router.read(() -> customerDao.searchCustomers(searchText, limit));
+    }
+
+    @Override
+    public Customer createCustomer(Customer newCustomer) {
+        return router.write(() -> customerDao.createCustomer(newCustomer));
+    }
+
+    @Override
+    public Customer updateCustomer(Customer updatedCustomer) {
+        return router.write(() -> customerDao.updateCustomer(updatedCustomer));
+    }
+}
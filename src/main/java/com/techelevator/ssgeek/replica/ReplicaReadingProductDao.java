@@ -0,0 +1,67 @@
+package com.techelevator.ssgeek.replica;
+
+import com.techelevator.ssgeek.dao.ProductDao;
+import com.techelevator.ssgeek.model.Product;
+
+import java.util.List;
+
+/**
+ * ReplicaReadingProductDao marks the reads of a ProductDao built on a ReplicaRoutingDataSource, so
+ * they may be answered by a replica, and its writes, so the writing thread reads them back.
+ */
+
+public class ReplicaReadingProductDao implements ProductDao {
+
+    private final ProductDao productDao;
+    private final ReplicaRoutingDataSource router;
+
+    public ReplicaReadingProductDao(ProductDao productDao, ReplicaRoutingDataSource router) {
+        this.productDao = productDao;
+        this.router = router;
+    }
+
+    @Override
+    public Product getProductById(int productId) {
+        return router.read(() -> productDao.getProductById(productId));
+    }
+
+    @Override
+    public List<Product> getProducts() {
+        return router.read(productDao::getProducts);
+    }
+
+    @Override
+    public List<Product> getProductPage(int afterProductId, int limit) {
+        return router.read(() -> productDao.getProductPage(afterProductId, limit));
+    }
+
+    @Override
+    public List<Product> getProductsWithNoSales() {
+        return router.read(productDao::getProductsWithNoSales);
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit) {
+        return router.read(() -> productDao.searchProducts(searchText, limit));
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit, int offset) {
+        return router.read(() -> productDao.searchProducts(searchText, limit, offset));
+    }
+
+    @Override
+    public Product createProduct(Product newProduct) {
+        return router.write(() -> productDao.createProduct(newProduct));
+    }
+
+    @Override
+    public Product updateProduct(Product updatedProduct) {
+        return router.write(() -> productDao.updateProduct(updatedProduct));
+    }
+
+    @Override
+    public int deleteProductById(int productId) {
+        return router.write(() -> productDao.deleteProductById(productId));
+    }
+}
@@ -0,0 +1,117 @@
+package com.techelevator.ssgeek.replica;
+
+import com.techelevator.ssgeek.dao.LineItemDao;
+import com.techelevator.ssgeek.dao.SaleDao;
+import com.techelevator.ssgeek.model.LineItem;
+import com.techelevator.ssgeek.model.Sale;
+import com.techelevator.ssgeek.model.SaleTotal;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReplicaReadingSaleDao marks the reads of a SaleDao and LineItemDao built on a ReplicaRoutingDataSource,
+ * so they may be answered by a replica, and their writes, so the writing thread reads them back.
+ * Claiming sales locks and updates them, so it is a write.
+ */
+
+public class ReplicaReadingSaleDao implements SaleDao, LineItemDao {
+
+    private final SaleDao saleDao;
+    private final LineItemDao lineItemDao;
+    private final ReplicaRoutingDataSource router;
+
+    public ReplicaReadingSaleDao(SaleDao saleDao, LineItemDao lineItemDao, ReplicaRoutingDataSource router) {
+        this.saleDao = saleDao;
+        this.lineItemDao = lineItemDao;
+        this.router = router;
+    }
+
+    @Override
+    public Sale getSaleById(int saleId) {
+        return router.read(() -> saleDao.getSaleById(saleId));
+    }
+
+    @Override
+    public List<Sale> getUnshippedSales() {
+        return router.read(saleDao::getUnshippedSales);
+    }
+
+    @Override
+    public List<Sale> getSalePage(int afterSaleId, int limit) {
+        return router.read(() -> saleDao.getSalePage(afterSaleId, limit));
+    }
+
+    @Override
+    public List<Sale> getSalesByCustomerId(int customerId) {
+        return router.read(() -> saleDao.getSalesByCustomerId(customerId));
+    }
+
+    @Override
+    public List<Sale> getSalesByProductId(int productId) {
+        return router.read(() -> saleDao.getSalesByProductId(productId));
+    }
+
+    @Override
+    public List<SaleTotal> getSaleTotals(List<Integer> saleIds) {
+        return router.read(() -> saleDao.getSaleTotals(saleIds));
+    }
+
+    @Override
+    public Sale createSale(Sale newSale) {
+        return router.write(() -> saleDao.createSale(newSale));
+    }
+
+    @Override
+    public Map<String, Integer> createSales(Map<String, Sale> salesByOrderKey) {
+        return router.write(() -> saleDao.createSales(salesByOrderKey));
+    }
+
+    @Override
+    public Sale updateSale(Sale updatedSale) {
+        return router.write(() -> saleDao.updateSale(updatedSale));
+    }
+
+    @Override
+    public List<Integer> shipSales(Collection<Integer> saleIds, LocalDate shipDate) {
+        return router.write(() -> saleDao.shipSales(saleIds, shipDate));
+    }
+
+    @Override
+    public List<Integer> shipUnshippedSalesThrough(LocalDate saleDateThrough, LocalDate shipDate) {
+        return router.write(() -> saleDao.shipUnshippedSalesThrough(saleDateThrough, shipDate));
+    }
+
+    @Override
+    public List<Sale> claimUnshippedSales(String workerId, int count, Duration leaseTime) {
+        return router.write(() -> saleDao.claimUnshippedSales(workerId, count, leaseTime));
+    }
+
+    @Override
+    public List<Integer> completeClaimedSales(String workerId, Collection<Integer> saleIds, LocalDate shipDate) {
+        return router.write(() -> saleDao.completeClaimedSales(workerId, saleIds, shipDate));
+    }
+
+    @Override
+    public int releaseClaimedSales(String workerId, Collection<Integer> saleIds) {
+        return router.write(() -> saleDao.releaseClaimedSales(workerId, saleIds));
+    }
+
+    @Override
+    public int releaseExpiredLeases() {
+        return router.write(saleDao::releaseExpiredLeases);
+    }
+
+    @Override
+    public int deleteSaleById(int saleId) {
+        return router.write(() -> saleDao.deleteSaleById(saleId));
+    }
+
+    @Override
+    public List<LineItem> getLineItemsBySaleId(int saleId) {
+        return router.read(() -> lineItemDao.getLineItemsBySaleId(saleId));
+    }
+}
@@ -0,0 +1,298 @@
+package com.techelevator.ssgeek.replica;
+
+import com.techelevator.ssgeek.dao.JdbcReplicationDao;
+import com.techelevator.ssgeek.dao.ReplicationDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ReplicaRoutingDataSource hands out connections to the primary database, except inside read(), where
+ * it hands out connections to a streaming replica when one is close enough behind the primary. Anything
+ * not marked as a read, including every write and every transaction, uses the primary.
+ *
+ * checkReplicas() measures how far each replica has replayed the primary's write-ahead log, and is
+ * meant to be called every second or so (see ReplicaLagTask). A replica is skipped if it is more than
+ * maxLagBytes behind, if it has not been checked within maxCheckAge, or if it cannot be reached.
+ *
+ * Writes made through write() give read-your-writes to the thread that made them: the primary's WAL
+ * position after the write is remembered for the thread, and its reads only go to a replica that has
+ * been seen to replay past it. Until the next check shows that, they go to the primary. If the position
+ * can't be read after the write, the write has still happened, so it isn't failed; the thread's reads are
+ * kept on the primary until a check started after the write succeeds, and then wait for the primary
+ * position that check read.
+ *
+ * getConnection(username, password) always uses the primary, since the credentials are the primary's.
+ */
+
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReplicationDao primaryReplication;
+    private final List<Replica> replicas;
+    private final long maxLagBytes;
+    private final long maxCheckAgeNanos;
+
+    // Greater than zero while the thread is inside read()
+    private final ThreadLocal<int[]> readDepth = ThreadLocal.withInitial(() -> new int[1]);
+    // The primary's WAL position after the thread's last write; replicas must have replayed this far.
+    // Long.MAX_VALUE pins the thread to the primary until a check later than the generation in [1]
+    private final ThreadLocal<long[]> writtenThrough = ThreadLocal.withInitial(() -> new long[2]);
+    // Counts checks started; the last successful one is published with its primary position
+    private final AtomicLong checkGeneration = new AtomicLong();
+    private volatile PrimaryCheck lastCheck;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong primaryReads = new AtomicLong();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagBytes, Duration maxCheckAge) {
+        this(primary, new JdbcReplicationDao(primary), replicas, replicationDaos(replicas), maxLagBytes, maxCheckAge);
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, ReplicationDao primaryReplication, List<DataSource> replicas,
+                             List<ReplicationDao> replicaReplication, long maxLagBytes, Duration maxCheckAge) {
+        this.primary = primary;
+        this.primaryReplication = primaryReplication;
+        List<Replica> list = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            list.add(new Replica(i, replicas.get(i), replicaReplication.get(i)));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.maxLagBytes = maxLagBytes;
+        this.maxCheckAgeNanos = maxCheckAge.toNanos();
+    }
+
+    /**
+     * Run a query that only reads, on a replica if one is fresh enough for this thread.
+     */
+    public <T> T read(Supplier<T> query) {
+        int[] depth = readDepth.get();
+        depth[0]++;
+        try {
+            return query.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * Run a change on the primary, and keep this thread's later reads off replicas that have not
+     * replayed it yet.
+     */
+    public <T> T write(Supplier<T> update) {
+        int[] depth = readDepth.get();
+        int outerDepth = depth[0];
+        // A write inside a read still goes to the primary
+        depth[0] = 0;
+        T result;
+        try {
+            result = update.get();
+        } finally {
+            depth[0] = outerDepth;
+        }
+        if (!replicas.isEmpty()) {
+            long[] position = writtenThrough.get();
+            try {
+                position[0] = Math.max(position[0], primaryReplication.getCurrentWalPosition());
+            } catch (RuntimeException e) {
+                // The write is committed; reading from the primary until a later check is still correct
+                position[0] = Long.MAX_VALUE;
+            }
+            if (position[0] == Long.MAX_VALUE) {
+                // Only a check begun after this write, not just after the one that pinned the thread, has
+                // read a primary position past it
+                position[1] = checkGeneration.get();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Measure how far behind the primary each replica is.
+     *
+     * @throws DaoException If the primary cannot be reached; the replicas are then all skipped.
+     */
+    public void checkReplicas() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        long generation = checkGeneration.incrementAndGet();
+        long primaryPosition;
+        try {
+            primaryPosition = primaryReplication.getCurrentWalPosition();
+        } catch (RuntimeException e) {
+            for (Replica replica : replicas) {
+                replica.available = false;
+            }
+            throw e;
+        }
+        for (Replica replica : replicas) {
+            replica.check(primaryPosition, maxLagBytes);
+        }
+        lastCheck = new PrimaryCheck(generation, primaryPosition);
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * @return The number of connections handed out inside read() that went to the primary, because no
+     * replica was fresh enough.
+     */
+    public long getPrimaryReads() {
+        return primaryReads.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readDepth.get()[0] > 0) {
+            Connection connection = replicaConnection();
+            if (connection != null) {
+                return connection;
+            }
+            primaryReads.incrementAndGet();
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (readDepth.get()[0] > 0) {
+            primaryReads.incrementAndGet();
+        }
+        return primary.getConnection(username, password);
+    }
+
+    // Try each usable replica in turn, starting at the next in rotation, and return null if none will do
+    private Connection replicaConnection() {
+        if (replicas.isEmpty()) {
+            return null;
+        }
+        long[] position = writtenThrough.get();
+        if (position[0] == Long.MAX_VALUE) {
+            PrimaryCheck check = lastCheck;
+            if (check == null || check.generation <= position[1]) {
+                return null;
+            }
+            // That check began after the write, so the primary was already past it
+            position[0] = check.primaryPosition;
+        }
+        long required = position[0];
+        long checkedSince = System.nanoTime() - maxCheckAgeNanos;
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.available || replica.checkedAtNanos - checkedSince < 0 || replica.replayedPosition < required) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.reads.incrementAndGet();
+                return connection;
+            } catch (SQLException e) {
+                // Not used again until a check finds it back
+                replica.available = false;
+                replica.lastError = new DaoException("Unable to connect to replica " + replica.index, e);
+            }
+        }
+        return null;
+    }
+
+    // A successful check: the primary's WAL position, read after the check's generation was taken
+    private static class PrimaryCheck {
+        private final long generation;
+        private final long primaryPosition;
+
+        private PrimaryCheck(long generation, long primaryPosition) {
+            this.generation = generation;
+            this.primaryPosition = primaryPosition;
+        }
+    }
+
+    private static List<ReplicationDao> replicationDaos(List<DataSource> replicas) {
+        List<ReplicationDao> daos = new ArrayList<>(replicas.size());
+        for (DataSource replica : replicas) {
+            daos.add(new JdbcReplicationDao(replica));
+        }
+        return daos;
+    }
+
+    /**
+     * One replica and what the last check found.
+     */
+    public static class Replica {
+        private final int index;
+        private final DataSource dataSource;
+        private final ReplicationDao replication;
+
+        private volatile boolean available;
+        private volatile long replayedPosition = -1;
+        private volatile long lagBytes = -1;
+        private volatile long checkedAtNanos;
+        private volatile RuntimeException lastError;
+        private final AtomicLong reads = new AtomicLong();
+
+        private Replica(int index, DataSource dataSource, ReplicationDao replication) {
+            this.index = index;
+            this.dataSource = dataSource;
+            this.replication = replication;
+        }
+
+        private void check(long primaryPosition, long maxLagBytes) {
+            try {
+                long position = replication.getReplayedWalPosition();
+                if (position < 0) {
+                    throw new DaoException("Replica " + index + " is not replaying a primary");
+                }
+                replayedPosition = position;
+                // The replica is read after the primary, so it may already be past that position
+                lagBytes = Math.max(0, primaryPosition - position);
+                available = lagBytes <= maxLagBytes;
+                lastError = null;
+            } catch (RuntimeException e) {
+                available = false;
+                lastError = e;
+            }
+            checkedAtNanos = System.nanoTime();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public boolean isAvailable() {
+            return available;
+        }
+
+        /**
+         * @return Bytes of WAL the replica was behind the primary at the last check, or -1 if unknown.
+         */
+        public long getLagBytes() {
+            return lagBytes;
+        }
+
+        public long getReads() {
+            return reads.get();
+        }
+
+        public RuntimeException getLastError() {
+            return lastError;
+        }
+
+        @Override
+        public String toString() {
+            return "replica " + index + (available ? " available" : " unavailable") + ", " + lagBytes +
+                    " bytes behind, " + reads.get() + " reads";
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.techelevator.ssgeek.search;
+
+import com.techelevator.ssgeek.dao.ProductDao;
+import com.techelevator.ssgeek.model.Product;
+
+import java.util.List;
+
+/**
+ * IndexedProductDao wraps another ProductDao and keeps a ProductNameIndex in step with it. The index
+ * is built from the datastore when the DAO is created, and every product created, updated or deleted
+ * through this DAO is applied to the index as soon as the datastore call returns.
+ *
+ * Changes made to the product table by anything else are not seen until rebuildIndex() is called.
+ */
+
+public class IndexedProductDao implements ProductDao {
+
+    private final ProductDao productDao;
+    private final ProductNameIndex nameIndex;
+
+    public IndexedProductDao(ProductDao productDao) {
+        this.productDao = productDao;
+        this.nameIndex = ProductNameIndex.build(productDao.getProducts());
+    }
+
+    public ProductNameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Rebuild the index from the current datastore contents.
+     */
+    public void rebuildIndex() {
+        nameIndex.replaceAll(productDao.getProducts());
+    }
+
+    @Override
+    public Product getProductById(int productId) {
+        return productDao.getProductById(productId);
+    }
+
+    @Override
+    public List<Product> getProducts() {
+        return productDao.getProducts();
+    }
+
+    @Override
+    public List<Product> getProductPage(int afterProductId, int limit) {
+        return productDao.getProductPage(afterProductId, limit);
+    }
+
+    @Override
+    public List<Product> getProductsWithNoSales() {
+        return productDao.getProductsWithNoSales();
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit) {
+        return productDao.searchProducts(searchText, limit);
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit, int offset) {
+        return productDao.searchProducts(searchText, limit, offset);
+    }
+
+    @Override
+    public Product createProduct(Product newProduct) {
+        Product product = productDao.createProduct(newProduct);
+        nameIndex.put(product);
+        return product;
+    }
+
+    @Override
+    public Product updateProduct(Product updatedProduct) {
+        Product product = productDao.updateProduct(updatedProduct);
+        nameIndex.put(product);
+        return product;
+    }
+
+    @Override
+    public int deleteProductById(int productId) {
+        int rowsDeleted = productDao.deleteProductById(productId);
+        if (rowsDeleted > 0) {
+            nameIndex.remove(productId);
+        }
+        return rowsDeleted;
+    }
+}
@@ -0,0 +1,531 @@
+package com.techelevator.ssgeek.search;
+
+import com.techelevator.ssgeek.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * ProductNameIndex answers prefix and infix ("contains") searches over product names in memory, so
+ * a product picker can filter on every keystroke without a trip to the database.
+ *
+ * The bulk of the index is built once and never changed: all names in one char array, the ordinals
+ * sorted by name for prefix searches, and a trigram table (every three-letter sequence of every name,
+ * hashed into buckets) for infix searches. Products created, renamed or deleted afterwards go into a
+ * small overlay that is scanned on every search; once the overlay grows past a threshold the index is
+ * rebuilt from memory. Searches never lock: they read whichever state was published when they started.
+ *
+ * Matching ignores case. Prefix matches come first in name order, then other matches in id order.
+ * Search text shorter than three characters only matches the start of names, because below that length
+ * the trigram table cannot narrow an infix search and it would have to check every name.
+ */
+
+public class ProductNameIndex {
+
+    // Rebuild once the overlay holds this many products, or 1/64th of the index if that is larger
+    private static final int MIN_OVERLAY_BEFORE_REBUILD = 1024;
+
+    // Shortest search text that also matches inside names
+    static final int MIN_INFIX_LENGTH = 3;
+
+    private volatile State state;
+
+    private ProductNameIndex(State state) {
+        this.state = state;
+    }
+
+    /**
+     * Build an index over the given products.
+     */
+    public static ProductNameIndex build(List<Product> products) {
+        List<Entry> entries = new ArrayList<>(products.size());
+        for (Product product : products) {
+            entries.add(new Entry(product));
+        }
+        return new ProductNameIndex(new State(Base.build(entries), null, new Entry[0]));
+    }
+
+    /**
+     * Find up to limit products whose names contain the search text, prefix matches first.
+     * Search text shorter than three characters only matches the start of names, and blank search
+     * text returns the first products in name order.
+     *
+     * The returned products only have their id, name and price filled in.
+     */
+    public List<Product> search(String searchText, int limit) {
+        return state.search(normalize(searchText), limit);
+    }
+
+    /**
+     * Start a type-ahead session that narrows its previous matches as the search text gets longer.
+     */
+    public TypeAhead typeAhead(int limit) {
+        return new TypeAhead(this, limit);
+    }
+
+    /**
+     * Add a new product or replace the name and price of an existing one.
+     */
+    public synchronized void put(Product product) {
+        State current = state;
+        BitSet replaced = current.replacedCopy();
+        int ordinal = current.base.ordinalOf(product.getProductId());
+        if (ordinal >= 0) {
+            replaced.set(ordinal);
+        }
+        List<Entry> overlay = current.overlayWithout(product.getProductId());
+        overlay.add(new Entry(product));
+        publish(current.base, replaced, overlay);
+    }
+
+    /**
+     * Replace the whole contents of the index. Products must be in ascending id order.
+     */
+    public synchronized void replaceAll(List<Product> products) {
+        state = build(products).state;
+    }
+
+    /**
+     * Remove a product. Unknown ids are ignored.
+     */
+    public synchronized void remove(int productId) {
+        State current = state;
+        BitSet replaced = current.replacedCopy();
+        int ordinal = current.base.ordinalOf(productId);
+        if (ordinal >= 0) {
+            replaced.set(ordinal);
+        }
+        publish(current.base, replaced, current.overlayWithout(productId));
+    }
+
+    // Number of products in the index
+    public int size() {
+        State current = state;
+        return current.base.count - current.replacedCount() + current.overlay.length;
+    }
+
+    // Approximate heap used by the index arrays, for sizing and monitoring
+    public long estimatedMemoryBytes() {
+        State current = state;
+        return current.base.estimatedMemoryBytes() + current.base.count / 8 + current.overlay.length * 96L;
+    }
+
+    State currentState() {
+        return state;
+    }
+
+    private void publish(Base base, BitSet replaced, List<Entry> overlay) {
+        if (overlay.size() > Math.max(MIN_OVERLAY_BEFORE_REBUILD, base.count / 64)) {
+            // Fold the overlay into a fresh base
+            List<Entry> entries = new ArrayList<>(base.count + overlay.size());
+            for (int ordinal = 0; ordinal < base.count; ordinal++) {
+                if (!replaced.get(ordinal)) {
+                    entries.add(base.entry(ordinal));
+                }
+            }
+            entries.addAll(overlay);
+            entries.sort((a, b) -> Integer.compare(a.id, b.id));
+            state = new State(Base.build(entries), null, new Entry[0]);
+        } else {
+            state = new State(base, replaced, overlay.toArray(new Entry[0]));
+        }
+    }
+
+    // Lower-case one char at a time, the same way names are compared inside the index
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        char[] chars = text.trim().toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * One product in the overlay, or on its way into a new base.
+     */
+    static class Entry {
+        final int id;
+        final String name;
+        final String lowerName;
+        final long priceCents;
+
+        Entry(int id, String name, long priceCents) {
+            this.id = id;
+            this.name = name;
+            this.lowerName = normalize(name);
+            this.priceCents = priceCents;
+        }
+
+        Entry(Product product) {
+            this(product.getProductId(), product.getName() == null ? "" : product.getName(), product.getPriceCents());
+        }
+
+        // Name order, as in the base: names ignoring case, then ids
+        int compareNames(Entry other) {
+            int order = lowerName.compareTo(other.lowerName);
+            return order != 0 ? order : Integer.compare(id, other.id);
+        }
+
+        Product toProduct() {
+            Product product = new Product();
+            product.setProductId(id);
+            product.setName(name);
+            product.setPriceCents(priceCents);
+            return product;
+        }
+    }
+
+    /**
+     * A published, never modified view of the index: the base, the base ordinals that were removed or
+     * replaced since it was built, and the products in the overlay.
+     */
+    static class State {
+        final Base base;
+        final BitSet replaced;
+        final Entry[] overlay;
+
+        State(Base base, BitSet replaced, Entry[] overlay) {
+            this.base = base;
+            this.replaced = replaced;
+            this.overlay = overlay;
+        }
+
+        List<Product> search(String query, int limit) {
+            List<Product> results = new ArrayList<>(Math.min(limit, 64));
+            char[] q = query.toCharArray();
+            boolean infix = q.length >= MIN_INFIX_LENGTH;
+            List<Entry> overlayPrefixes = new ArrayList<>();
+            List<Entry> overlayInfixes = new ArrayList<>();
+            for (Entry entry : overlay) {
+                if (entry.lowerName.startsWith(query)) {
+                    overlayPrefixes.add(entry);
+                } else if (infix && entry.lowerName.contains(query)) {
+                    overlayInfixes.add(entry);
+                }
+            }
+
+            // Prefix matches: the base's are already in name order, the overlay's are merged in
+            overlayPrefixes.sort(Entry::compareNames);
+            int sortedIndex = nextPrefix(base.lowerBound(q), q);
+            int o = 0;
+            while (results.size() < limit && (sortedIndex < base.count || o < overlayPrefixes.size())) {
+                if (o == overlayPrefixes.size() || sortedIndex < base.count
+                        && base.compareToEntry(base.sortedByName[sortedIndex], overlayPrefixes.get(o)) < 0) {
+                    results.add(base.toProduct(base.sortedByName[sortedIndex]));
+                    sortedIndex = nextPrefix(sortedIndex + 1, q);
+                } else {
+                    results.add(overlayPrefixes.get(o++).toProduct());
+                }
+            }
+            if (!infix || results.size() >= limit) {
+                return results;
+            }
+
+            // Infix matches: check each candidate that has the query's rarest trigram. Postings are in
+            // ordinal order, which is id order, and the overlay's are merged in
+            overlayInfixes.sort((a, b) -> Integer.compare(a.id, b.id));
+            int bucket = base.rarestBucket(q);
+            int end = base.bucketStart[bucket + 1];
+            int p = nextInfix(base.bucketStart[bucket], end, q);
+            o = 0;
+            while (results.size() < limit && (p < end || o < overlayInfixes.size())) {
+                if (o == overlayInfixes.size() || p < end && base.ids[base.postings[p]] < overlayInfixes.get(o).id) {
+                    results.add(base.toProduct(base.postings[p]));
+                    p = nextInfix(p + 1, end, q);
+                } else {
+                    results.add(overlayInfixes.get(o++).toProduct());
+                }
+            }
+            return results;
+        }
+
+        // The first position in sortedByName from sortedIndex on holding a live prefix match, or count
+        private int nextPrefix(int sortedIndex, char[] q) {
+            for (; sortedIndex < base.count; sortedIndex++) {
+                int ordinal = base.sortedByName[sortedIndex];
+                if (!base.startsWith(ordinal, q)) {
+                    return base.count;
+                }
+                if (isLive(ordinal)) {
+                    return sortedIndex;
+                }
+            }
+            return base.count;
+        }
+
+        // The first position in postings from p on holding a live infix match that is not a prefix match, or end
+        private int nextInfix(int p, int end, char[] q) {
+            for (; p < end; p++) {
+                int ordinal = base.postings[p];
+                if (isLive(ordinal) && !base.startsWith(ordinal, q) && base.contains(ordinal, q)) {
+                    return p;
+                }
+            }
+            return end;
+        }
+
+        private boolean isLive(int ordinal) {
+            return replaced == null || !replaced.get(ordinal);
+        }
+
+        int replacedCount() {
+            return replaced == null ? 0 : replaced.cardinality();
+        }
+
+        BitSet replacedCopy() {
+            return replaced == null ? new BitSet(base.count) : (BitSet) replaced.clone();
+        }
+
+        List<Entry> overlayWithout(int productId) {
+            List<Entry> entries = new ArrayList<>(overlay.length + 1);
+            for (Entry entry : overlay) {
+                if (entry.id != productId) {
+                    entries.add(entry);
+                }
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * The immutable part of the index. Products are numbered 0..count-1 (their ordinal) in id order.
+     */
+    static class Base {
+        final int count;
+        final int[] ids;
+        final long[] priceCents;
+        // All names back to back, original case; name i is heap[nameStart[i]] to heap[nameStart[i + 1]]
+        final char[] heap;
+        final int[] nameStart;
+        final int[] sortedByName;
+        // Trigram table: the ordinals whose names contain a trigram hashing to bucket b are
+        // postings[bucketStart[b]] to postings[bucketStart[b + 1]], in ascending order
+        final int bucketMask;
+        final int[] bucketStart;
+        final int[] postings;
+
+        private Base(int count, int[] ids, long[] priceCents, char[] heap, int[] nameStart,
+                     int[] sortedByName, int bucketMask, int[] bucketStart, int[] postings) {
+            this.count = count;
+            this.ids = ids;
+            this.priceCents = priceCents;
+            this.heap = heap;
+            this.nameStart = nameStart;
+            this.sortedByName = sortedByName;
+            this.bucketMask = bucketMask;
+            this.bucketStart = bucketStart;
+            this.postings = postings;
+        }
+
+        // Entries must be in ascending id order
+        static Base build(List<Entry> entries) {
+            int count = entries.size();
+            int[] ids = new int[count];
+            long[] priceCents = new long[count];
+            int[] nameStart = new int[count + 1];
+            int heapSize = 0;
+            int longestName = 0;
+            for (int i = 0; i < count; i++) {
+                Entry entry = entries.get(i);
+                ids[i] = entry.id;
+                priceCents[i] = entry.priceCents;
+                nameStart[i] = heapSize;
+                heapSize += entry.name.length();
+                longestName = Math.max(longestName, entry.name.length());
+            }
+            nameStart[count] = heapSize;
+            char[] heap = new char[heapSize];
+            for (int i = 0; i < count; i++) {
+                entries.get(i).name.getChars(0, entries.get(i).name.length(), heap, nameStart[i]);
+            }
+
+            int buckets = Integer.highestOneBit(Math.max(1 << 10, Math.min(1 << 22, count * 2)));
+            int bucketMask = buckets - 1;
+            int[] bucketStart = new int[buckets + 1];
+            int[] scratch = new int[Math.max(1, longestName)];
+
+            // Count each name once per distinct bucket, then lay the postings out back to back
+            for (int i = 0; i < count; i++) {
+                int distinct = distinctBuckets(heap, nameStart[i], nameStart[i + 1], bucketMask, scratch);
+                for (int d = 0; d < distinct; d++) {
+                    bucketStart[scratch[d] + 1]++;
+                }
+            }
+            for (int b = 0; b < buckets; b++) {
+                bucketStart[b + 1] += bucketStart[b];
+            }
+            int[] postings = new int[bucketStart[buckets]];
+            int[] fill = Arrays.copyOf(bucketStart, buckets);
+            for (int i = 0; i < count; i++) {
+                int distinct = distinctBuckets(heap, nameStart[i], nameStart[i + 1], bucketMask, scratch);
+                for (int d = 0; d < distinct; d++) {
+                    postings[fill[scratch[d]]++] = i;
+                }
+            }
+
+            Base base = new Base(count, ids, priceCents, heap, nameStart, null, bucketMask, bucketStart, postings);
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.parallelSort(order, base::compareNames);
+            int[] sortedByName = new int[count];
+            for (int i = 0; i < count; i++) {
+                sortedByName[i] = order[i];
+            }
+            return new Base(count, ids, priceCents, heap, nameStart, sortedByName, bucketMask, bucketStart, postings);
+        }
+
+        // Fills scratch with the distinct trigram buckets of one name and returns how many there are
+        private static int distinctBuckets(char[] heap, int start, int end, int bucketMask, int[] scratch) {
+            int n = 0;
+            for (int i = start; i + 2 < end; i++) {
+                scratch[n++] = bucket(Character.toLowerCase(heap[i]), Character.toLowerCase(heap[i + 1]),
+                        Character.toLowerCase(heap[i + 2]), bucketMask);
+            }
+            Arrays.sort(scratch, 0, n);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || scratch[i] != scratch[i - 1]) {
+                    scratch[distinct++] = scratch[i];
+                }
+            }
+            return distinct;
+        }
+
+        private static int bucket(char c0, char c1, char c2, int bucketMask) {
+            long key = ((long) c0 << 32) | ((long) c1 << 16) | c2;
+            key *= 0x9E3779B97F4A7C15L;
+            return (int) (key >>> 40) & bucketMask;
+        }
+
+        int rarestBucket(char[] q) {
+            int rarest = bucket(q[0], q[1], q[2], bucketMask);
+            for (int i = 1; i + 2 < q.length; i++) {
+                int b = bucket(q[i], q[i + 1], q[i + 2], bucketMask);
+                if (bucketStart[b + 1] - bucketStart[b] < bucketStart[rarest + 1] - bucketStart[rarest]) {
+                    rarest = b;
+                }
+            }
+            return rarest;
+        }
+
+        int ordinalOf(int productId) {
+            return Arrays.binarySearch(ids, productId);
+        }
+
+        // First position in sortedByName whose name is not less than q
+        int lowerBound(char[] q) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareToQuery(sortedByName[middle], q) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        boolean startsWith(int ordinal, char[] q) {
+            int start = nameStart[ordinal];
+            if (nameStart[ordinal + 1] - start < q.length) {
+                return false;
+            }
+            for (int i = 0; i < q.length; i++) {
+                if (Character.toLowerCase(heap[start + i]) != q[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean contains(int ordinal, char[] q) {
+            int start = nameStart[ordinal];
+            int last = nameStart[ordinal + 1] - q.length;
+            outer:
+            for (int s = start; s <= last; s++) {
+                for (int i = 0; i < q.length; i++) {
+                    if (Character.toLowerCase(heap[s + i]) != q[i]) {
+                        continue outer;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private int compareToQuery(int ordinal, char[] q) {
+            int start = nameStart[ordinal];
+            int length = nameStart[ordinal + 1] - start;
+            int shared = Math.min(length, q.length);
+            for (int i = 0; i < shared; i++) {
+                char c = Character.toLowerCase(heap[start + i]);
+                if (c != q[i]) {
+                    return c - q[i];
+                }
+            }
+            return length - q.length;
+        }
+
+        private int compareNames(int a, int b) {
+            int startA = nameStart[a];
+            int startB = nameStart[b];
+            int lengthA = nameStart[a + 1] - startA;
+            int lengthB = nameStart[b + 1] - startB;
+            int shared = Math.min(lengthA, lengthB);
+            for (int i = 0; i < shared; i++) {
+                char ca = Character.toLowerCase(heap[startA + i]);
+                char cb = Character.toLowerCase(heap[startB + i]);
+                if (ca != cb) {
+                    return ca - cb;
+                }
+            }
+            return lengthA != lengthB ? lengthA - lengthB : Integer.compare(ids[a], ids[b]);
+        }
+
+        // Name order between a base name and an overlay entry, as in compareNames
+        int compareToEntry(int ordinal, Entry entry) {
+            int start = nameStart[ordinal];
+            int length = nameStart[ordinal + 1] - start;
+            int entryLength = entry.lowerName.length();
+            int shared = Math.min(length, entryLength);
+            for (int i = 0; i < shared; i++) {
+                char c = Character.toLowerCase(heap[start + i]);
+                char e = entry.lowerName.charAt(i);
+                if (c != e) {
+                    return c - e;
+                }
+            }
+            return length != entryLength ? length - entryLength : Integer.compare(ids[ordinal], entry.id);
+        }
+
+        String name(int ordinal) {
+            return new String(heap, nameStart[ordinal], nameStart[ordinal + 1] - nameStart[ordinal]);
+        }
+
+        Entry entry(int ordinal) {
+            return new Entry(ids[ordinal], name(ordinal), priceCents[ordinal]);
+        }
+
+        Product toProduct(int ordinal) {
+            Product product = new Product();
+            product.setProductId(ids[ordinal]);
+            product.setName(name(ordinal));
+            product.setPriceCents(priceCents[ordinal]);
+            return product;
+        }
+
+        long estimatedMemoryBytes() {
+            return 4L * ids.length + 8L * priceCents.length + 2L * heap.length + 4L * nameStart.length
+                    + 4L * sortedByName.length + 4L * bucketStart.length + 4L * postings.length;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.techelevator.ssgeek.search;
+
+import com.techelevator.ssgeek.model.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * TypeAhead is one user's search box over a ProductNameIndex. While the user keeps typing, each new
+ * search text contains the previous one, so the new matches are a subset of the previous matches and
+ * can be found by filtering that short list instead of searching the whole index again.
+ *
+ * A TypeAhead is not thread safe; create one per search box.
+ */
+
+public class TypeAhead {
+
+    // Match lists longer than this are not kept, because filtering them would cost about as much as a search
+    private static final int MAX_KEPT_MATCHES = 2_000;
+
+    private final ProductNameIndex index;
+    private final int limit;
+
+    private String lastQuery;
+    private List<Product> lastMatches;
+    private ProductNameIndex.State lastState;
+
+    TypeAhead(ProductNameIndex index, int limit) {
+        this.index = index;
+        this.limit = limit;
+    }
+
+    /**
+     * Get up to limit products matching the current search text, prefix matches first.
+     */
+    public List<Product> update(String searchText) {
+        String query = ProductNameIndex.normalize(searchText);
+        ProductNameIndex.State state = index.currentState();
+
+        List<Product> matches;
+        if (lastMatches != null && state == lastState && canNarrow(lastQuery, query)) {
+            matches = narrow(lastMatches, query);
+        } else {
+            matches = state.search(query, MAX_KEPT_MATCHES + 1);
+        }
+
+        if (matches.size() <= MAX_KEPT_MATCHES && !query.isEmpty()) {
+            lastQuery = query;
+            lastMatches = matches;
+            lastState = state;
+        } else {
+            reset();
+        }
+        return matches.size() <= limit ? matches : new ArrayList<>(matches.subList(0, limit));
+    }
+
+    /**
+     * Forget the previous matches, so the next update searches the whole index.
+     */
+    public void reset() {
+        lastQuery = null;
+        lastMatches = null;
+        lastState = null;
+    }
+
+    // Every match for the new query must have matched the old one. Short queries only match prefixes,
+    // so their match lists cannot be narrowed to an infix query.
+    private static boolean canNarrow(String lastQuery, String query) {
+        if (lastQuery.length() < ProductNameIndex.MIN_INFIX_LENGTH) {
+            return query.length() < ProductNameIndex.MIN_INFIX_LENGTH && query.startsWith(lastQuery);
+        }
+        return query.contains(lastQuery);
+    }
+
+    // A match for the old query can become a prefix match for the new one, so re-split the list
+    private static List<Product> narrow(List<Product> previous, String query) {
+        boolean prefixOnly = query.length() < ProductNameIndex.MIN_INFIX_LENGTH;
+        List<Product> prefixMatches = new ArrayList<>();
+        List<Product> otherMatches = new ArrayList<>();
+        for (Product product : previous) {
+            String name = ProductNameIndex.normalize(product.getName());
+            if (name.startsWith(query)) {
+                prefixMatches.add(product);
+            } else if (!prefixOnly && name.contains(query)) {
+                otherMatches.add(product);
+            }
+        }
+        prefixMatches.sort(Comparator.comparing((Product product) -> ProductNameIndex.normalize(product.getName()))
+                .thenComparingInt(Product::getProductId));
+        prefixMatches.addAll(otherMatches);
+        return prefixMatches;
+    }
+}
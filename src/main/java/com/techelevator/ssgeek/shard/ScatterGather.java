@@ -0,0 +1,99 @@
+package com.techelevator.ssgeek.shard;
+
+import com.techelevator.ssgeek.exception.DaoException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * ScatterGather runs one query on several shards at once and waits for them all, so a read across
+ * shards takes about as long as the slowest shard rather than the sum of them.
+ */
+
+public class ScatterGather implements AutoCloseable {
+
+    private final ExecutorService executor;
+
+    /**
+     * @param threads The most shard queries running at once, across all callers.
+     */
+    public ScatterGather(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "shard-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a query on every shard in parallel.
+     *
+     * @return Each shard's result, in the same order as the shards.
+     * @throws RuntimeException The first shard's failure, in shard order, once every query has finished.
+     */
+    public <S, R> List<R> each(List<S> shards, Function<S, R> query) {
+        if (shards.size() == 1) {
+            return List.of(query.apply(shards.get(0)));
+        }
+        List<Future<R>> futures = new ArrayList<>(shards.size());
+        for (S shard : shards) {
+            futures.add(executor.submit(() -> query.apply(shard)));
+        }
+
+        List<R> results = new ArrayList<>(shards.size());
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (Future<R> future : futures) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (InterruptedException e) {
+                    // Every query is waited for, so none is still using a connection when this returns
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                                : new DaoException("Shard query failed", (Exception) e.getCause());
+                    }
+                    results.add(null);
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Run a query returning a list on every shard in parallel, and merge the lists.
+     *
+     * @param order The order of the merged list.
+     */
+    public <S, T> List<T> gather(List<S> shards, Function<S, List<T>> query, Comparator<? super T> order) {
+        List<T> merged = new ArrayList<>();
+        for (List<T> result : each(shards, query)) {
+            merged.addAll(result);
+        }
+        merged.sort(order);
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,61 @@
+package com.techelevator.ssgeek.shard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * ShardRouter says which of N shards a customer or sale is on. Each shard's database allocates customer
+ * and sale ids with (id - 1) % N equal to its own shard index (see configure_shard() in the schema), so
+ * an id is routed with no lookup. A customer's sales are created on the customer's shard, which their
+ * sale ids then also name.
+ */
+
+public class ShardRouter {
+
+    private final int shardCount;
+    // New customers are spread over the shards in turn
+    private final AtomicInteger nextCustomerShard = new AtomicInteger();
+
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("There must be at least one shard");
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @return The shard a customer or sale id was allocated by.
+     */
+    public int shardForId(int id) {
+        return Math.floorMod(id - 1, shardCount);
+    }
+
+    /**
+     * @return The shard the next new customer goes to.
+     */
+    public int shardForNewCustomer() {
+        return Math.floorMod(nextCustomerShard.getAndIncrement(), shardCount);
+    }
+
+    /**
+     * Split items by the shard of an id each carries.
+     *
+     * @return The items for each shard that has any, keyed by shard index in ascending order.
+     */
+    public <T> Map<Integer, List<T>> groupByShard(Collection<T> items, ToIntFunction<T> id) {
+        Map<Integer, List<T>> byShard = new TreeMap<>();
+        for (T item : items) {
+            byShard.computeIfAbsent(shardForId(id.applyAsInt(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+}
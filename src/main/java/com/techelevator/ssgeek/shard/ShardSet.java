@@ -0,0 +1,88 @@
+package com.techelevator.ssgeek.shard;
+
+import com.techelevator.ssgeek.dao.CustomerDao;
+import com.techelevator.ssgeek.dao.JdbcCustomerDao;
+import com.techelevator.ssgeek.dao.JdbcSaleDao;
+import com.techelevator.ssgeek.dao.JdbcShardDao;
+import com.techelevator.ssgeek.dao.LineItemDao;
+import com.techelevator.ssgeek.dao.SaleDao;
+import com.techelevator.ssgeek.exception.DaoException;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ShardSet connects to every shard's database and puts a ShardedCustomerDao and ShardedSaleDao in front
+ * of them. Each database must already have been made shard i of n by configure_shard(), in the same
+ * order as the DataSources are given, and must hold the same products. Every customer and sale on a
+ * shard must have an id that routes to it.
+ */
+
+public class ShardSet implements AutoCloseable {
+
+    private final ScatterGather scatterGather;
+    private final ShardedCustomerDao customerDao;
+    private final ShardedSaleDao saleDao;
+
+    private ShardSet(ScatterGather scatterGather, ShardedCustomerDao customerDao, ShardedSaleDao saleDao) {
+        this.scatterGather = scatterGather;
+        this.customerDao = customerDao;
+        this.saleDao = saleDao;
+    }
+
+    /**
+     * @param dataSources Each shard's database, shard 0 first.
+     * @throws DaoException If a database is not configured as the shard it is given as, or holds customers
+     * or sales whose ids route to another shard.
+     */
+    public static ShardSet connect(List<DataSource> dataSources) {
+        int shardCount = dataSources.size();
+        List<CustomerDao> customerDaos = new ArrayList<>(shardCount);
+        List<SaleDao> saleDaos = new ArrayList<>(shardCount);
+        List<LineItemDao> lineItemDaos = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            DataSource dataSource = dataSources.get(i);
+            JdbcShardDao shardDao = new JdbcShardDao(dataSource);
+            int[] configuration = shardDao.getShardConfiguration();
+            if (configuration == null || configuration[0] != i || configuration[1] != shardCount) {
+                throw new DaoException("Database " + i + " is configured as shard " +
+                        (configuration == null ? "none" : Arrays.toString(configuration)) +
+                        ", expected [" + i + ", " + shardCount + "]");
+            }
+            int misplaced = shardDao.countMisplacedRows(i, shardCount);
+            if (misplaced > 0) {
+                throw new DaoException("Shard " + i + " holds " + misplaced +
+                        " customers or sales whose ids belong on another shard");
+            }
+            JdbcSaleDao jdbcSaleDao = new JdbcSaleDao(dataSource);
+            customerDaos.add(new JdbcCustomerDao(dataSource));
+            saleDaos.add(jdbcSaleDao);
+            lineItemDaos.add(jdbcSaleDao);
+        }
+
+        ShardRouter router = new ShardRouter(shardCount);
+        ScatterGather scatterGather = new ScatterGather(Math.max(2, shardCount * 2));
+        return new ShardSet(scatterGather,
+                new ShardedCustomerDao(customerDaos, router, scatterGather),
+                new ShardedSaleDao(saleDaos, lineItemDaos, router, scatterGather));
+    }
+
+    public CustomerDao getCustomerDao() {
+        return customerDao;
+    }
+
+    public SaleDao getSaleDao() {
+        return saleDao;
+    }
+
+    public LineItemDao getLineItemDao() {
+        return saleDao;
+    }
+
+    @Override
+    public void close() {
+        scatterGather.close();
+    }
+}
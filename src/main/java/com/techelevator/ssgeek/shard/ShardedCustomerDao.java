@@ -0,0 +1,94 @@
+package com.techelevator.ssgeek.shard;
+
+import com.techelevator.ssgeek.dao.CustomerDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.Customer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ShardedCustomerDao spreads customers over several databases, one CustomerDao for each shard. A
+ * customer's id names its shard, so reads and updates of one customer go to one database; lists of
+ * customers are read from every shard at once and merged.
+ */
+
+public class ShardedCustomerDao implements CustomerDao {
+
+    private static final Comparator<Customer> BY_ID = Comparator.comparingInt(Customer::getCustomerId);
+
+    private final List<CustomerDao> shards;
+    private final ShardRouter router;
+    private final ScatterGather scatterGather;
+
+    public ShardedCustomerDao(List<CustomerDao> shards, ShardRouter router, ScatterGather scatterGather) {
+        if (shards.size() != router.getShardCount()) {
+            throw new IllegalArgumentException("Expected " + router.getShardCount() + " shards, got " + shards.size());
+        }
+        this.shards = List.copyOf(shards);
+        this.router = router;
+        this.scatterGather = scatterGather;
+    }
+
+    @Override
+    public Customer getCustomerById(int customerId) {
+        return shardFor(customerId).getCustomerById(customerId);
+    }
+
+    @Override
+    public List<Customer> getCustomers() {
+        return scatterGather.gather(shards, CustomerDao::getCustomers, BY_ID);
+    }
+
+    @Override
+    public List<Customer> getCustomerPage(int afterCustomerId, int limit) {
+        // Any shard may hold the whole page, so each is asked for all of it
+        List<Customer> merged = scatterGather.gather(shards, shard -> shard.getCustomerPage(afterCustomerId, limit), BY_ID);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Each shard ranks its own matches, and the shards' results are taken in turn, best first. Matches
+     * are not ranked against those from other shards.
+     */
+    @Override
+    public List<Customer> searchCustomers(String searchText, int limit) {
+        List<List<Customer>> results = scatterGather.each(shards, shard -> shard.searchCustomers(searchText, limit));
+        List<Customer> interleaved = new ArrayList<>(limit);
+        for (int rank = 0; interleaved.size() < limit; rank++) {
+            boolean found = false;
+            for (List<Customer> result : results) {
+                if (rank < result.size() && interleaved.size() < limit) {
+                    interleaved.add(result.get(rank));
+                    found = true;
+                }
+            }
+            if (!found) {
+                break;
+            }
+        }
+        return interleaved;
+    }
+
+    @Override
+    public Customer createCustomer(Customer newCustomer) {
+        int shard = router.shardForNewCustomer();
+        Customer created = shards.get(shard).createCustomer(newCustomer);
+        if (router.shardForId(created.getCustomerId()) != shard) {
+            throw new DaoException("Customer " + created.getCustomerId() + " was created on shard " + shard +
+                    " but its id belongs to shard " + router.shardForId(created.getCustomerId()) +
+                    "; check the shard configuration");
+        }
+        return created;
+    }
+
+    @Override
+    public Customer updateCustomer(Customer updatedCustomer) {
+        return shardFor(updatedCustomer.getCustomerId()).updateCustomer(updatedCustomer);
+    }
+
+    private CustomerDao shardFor(int customerId) {
+        return shards.get(router.shardForId(customerId));
+    }
+}
@@ -0,0 +1,217 @@
+package com.techelevator.ssgeek.shard;
+
+import com.techelevator.ssgeek.dao.LineItemDao;
+import com.techelevator.ssgeek.dao.SaleDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.LineItem;
+import com.techelevator.ssgeek.model.Sale;
+import com.techelevator.ssgeek.model.SaleTotal;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * ShardedSaleDao keeps each sale, with its line items, on the same shard as its customer. Sales are
+ * created on the customer's shard and take an id from it, so a sale id names its shard just as a
+ * customer id does, and work on known sales goes only to the shards that hold them. Reads that could
+ * match sales anywhere, such as getUnshippedSales() and getSalesByProductId(), are run on every shard
+ * at once and merged in sale_id order.
+ */
+
+public class ShardedSaleDao implements SaleDao, LineItemDao {
+
+    private static final Comparator<Sale> BY_ID = Comparator.comparingInt(Sale::getSaleId);
+
+    private final List<SaleDao> saleShards;
+    private final List<LineItemDao> lineItemShards;
+    private final ShardRouter router;
+    private final ScatterGather scatterGather;
+    // The shard claiming starts at, moved on each time so no shard's queue is always served last
+    private final AtomicInteger nextClaimShard = new AtomicInteger();
+
+    public ShardedSaleDao(List<SaleDao> saleShards, List<LineItemDao> lineItemShards, ShardRouter router,
+                          ScatterGather scatterGather) {
+        if (saleShards.size() != router.getShardCount() || lineItemShards.size() != router.getShardCount()) {
+            throw new IllegalArgumentException("Expected " + router.getShardCount() + " shards");
+        }
+        this.saleShards = List.copyOf(saleShards);
+        this.lineItemShards = List.copyOf(lineItemShards);
+        this.router = router;
+        this.scatterGather = scatterGather;
+    }
+
+    // region SaleDao
+
+    @Override
+    public Sale getSaleById(int saleId) {
+        return shardFor(saleId).getSaleById(saleId);
+    }
+
+    @Override
+    public List<Sale> getUnshippedSales() {
+        return scatterGather.gather(saleShards, SaleDao::getUnshippedSales, BY_ID);
+    }
+
+    @Override
+    public List<Sale> getSalePage(int afterSaleId, int limit) {
+        List<Sale> merged = scatterGather.gather(saleShards, shard -> shard.getSalePage(afterSaleId, limit), BY_ID);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    @Override
+    public List<Sale> getSalesByCustomerId(int customerId) {
+        return shardFor(customerId).getSalesByCustomerId(customerId);
+    }
+
+    @Override
+    public List<Sale> getSalesByProductId(int productId) {
+        return scatterGather.gather(saleShards, shard -> shard.getSalesByProductId(productId), BY_ID);
+    }
+
+    @Override
+    public List<SaleTotal> getSaleTotals(List<Integer> saleIds) {
+        return byShard(saleIds, (shard, ids) -> shard.getSaleTotals(ids),
+                Comparator.comparingInt(SaleTotal::getSaleId));
+    }
+
+    @Override
+    public Sale createSale(Sale newSale) {
+        int shard = router.shardForId(newSale.getCustomerId());
+        Sale created = saleShards.get(shard).createSale(newSale);
+        checkCreatedOn(shard, created.getSaleId());
+        return created;
+    }
+
+    @Override
+    public Map<String, Integer> createSales(Map<String, Sale> salesByOrderKey) {
+        // An order key is always sent to the same shard, since its customer never moves, so a replayed
+        // order finds the key where it was first recorded
+        List<Map<String, Sale>> ordersByShard = new ArrayList<>(router.getShardCount());
+        for (int i = 0; i < router.getShardCount(); i++) {
+            ordersByShard.add(new HashMap<>());
+        }
+        for (Map.Entry<String, Sale> order : salesByOrderKey.entrySet()) {
+            ordersByShard.get(router.shardForId(order.getValue().getCustomerId())).put(order.getKey(), order.getValue());
+        }
+
+        List<Integer> shards = new ArrayList<>();
+        for (int i = 0; i < ordersByShard.size(); i++) {
+            if (!ordersByShard.get(i).isEmpty()) {
+                shards.add(i);
+            }
+        }
+        Map<String, Integer> saleIds = new HashMap<>();
+        for (Map<String, Integer> created : scatterGather.each(shards,
+                shard -> saleShards.get(shard).createSales(ordersByShard.get(shard)))) {
+            saleIds.putAll(created);
+        }
+        return saleIds;
+    }
+
+    @Override
+    public Sale updateSale(Sale updatedSale) {
+        int shard = router.shardForId(updatedSale.getSaleId());
+        if (router.shardForId(updatedSale.getCustomerId()) != shard) {
+            throw new DaoException("Sale " + updatedSale.getSaleId() + " cannot be moved to customer " +
+                    updatedSale.getCustomerId() + ", who is on another shard");
+        }
+        return saleShards.get(shard).updateSale(updatedSale);
+    }
+
+    @Override
+    public List<Integer> shipSales(Collection<Integer> saleIds, LocalDate shipDate) {
+        return byShard(saleIds, (shard, ids) -> shard.shipSales(ids, shipDate), Comparator.naturalOrder());
+    }
+
+    @Override
+    public List<Integer> shipUnshippedSalesThrough(LocalDate saleDateThrough, LocalDate shipDate) {
+        return scatterGather.gather(saleShards, shard -> shard.shipUnshippedSalesThrough(saleDateThrough, shipDate),
+                Comparator.naturalOrder());
+    }
+
+    /**
+     * Each shard keeps its own queue, so the claim is taken from one shard after another, starting at
+     * a different shard each time, until count sales are claimed. Sales are oldest first within each
+     * shard, not across all of them.
+     */
+    @Override
+    public List<Sale> claimUnshippedSales(String workerId, int count, Duration leaseTime) {
+        List<Sale> claimed = new ArrayList<>(count);
+        int start = Math.floorMod(nextClaimShard.getAndIncrement(), saleShards.size());
+        for (int i = 0; i < saleShards.size() && claimed.size() < count; i++) {
+            SaleDao shard = saleShards.get((start + i) % saleShards.size());
+            claimed.addAll(shard.claimUnshippedSales(workerId, count - claimed.size(), leaseTime));
+        }
+        return claimed;
+    }
+
+    @Override
+    public List<Integer> completeClaimedSales(String workerId, Collection<Integer> saleIds, LocalDate shipDate) {
+        return byShard(saleIds, (shard, ids) -> shard.completeClaimedSales(workerId, ids, shipDate),
+                Comparator.naturalOrder());
+    }
+
+    @Override
+    public int releaseClaimedSales(String workerId, Collection<Integer> saleIds) {
+        int released = 0;
+        for (Map.Entry<Integer, List<Integer>> shardIds : router.groupByShard(saleIds, Integer::intValue).entrySet()) {
+            released += saleShards.get(shardIds.getKey()).releaseClaimedSales(workerId, shardIds.getValue());
+        }
+        return released;
+    }
+
+    @Override
+    public int releaseExpiredLeases() {
+        int released = 0;
+        for (int count : scatterGather.each(saleShards, SaleDao::releaseExpiredLeases)) {
+            released += count;
+        }
+        return released;
+    }
+
+    @Override
+    public int deleteSaleById(int saleId) {
+        return shardFor(saleId).deleteSaleById(saleId);
+    }
+
+    // endregion
+
+    // region LineItemDao
+
+    @Override
+    public List<LineItem> getLineItemsBySaleId(int saleId) {
+        return lineItemShards.get(router.shardForId(saleId)).getLineItemsBySaleId(saleId);
+    }
+
+    // endregion
+
+    private SaleDao shardFor(int id) {
+        return saleShards.get(router.shardForId(id));
+    }
+
+    private void checkCreatedOn(int shard, int saleId) {
+        if (router.shardForId(saleId) != shard) {
+            throw new DaoException("Sale " + saleId + " was created on shard " + shard +
+                    " but its id belongs to shard " + router.shardForId(saleId) + "; check the shard configuration");
+        }
+    }
+
+    private interface ShardCall<R> {
+        List<R> call(SaleDao shard, List<Integer> saleIds);
+    }
+
+    // Send each shard only the sale ids it holds, the shards in parallel, and merge the results
+    private <R> List<R> byShard(Collection<Integer> saleIds, ShardCall<R> call, Comparator<? super R> order) {
+        Map<Integer, List<Integer>> idsByShard = router.groupByShard(saleIds, Integer::intValue);
+        Function<Integer, List<R>> query = shard -> call.call(saleShards.get(shard), idsByShard.get(shard));
+        return scatterGather.gather(new ArrayList<>(idsByShard.keySet()), query, order);
+    }
+}
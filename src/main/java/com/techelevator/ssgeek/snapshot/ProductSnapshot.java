@@ -0,0 +1,331 @@
+package com.techelevator.ssgeek.snapshot;
+
+import com.techelevator.ssgeek.dao.ProductSnapshotDao;
+import com.techelevator.ssgeek.exception.SnapshotException;
+import com.techelevator.ssgeek.model.Product;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * ProductSnapshot is a copy of the product table in one compact binary file, memory-mapped so products
+ * can be read without the database and without loading the file onto the heap.
+ *
+ * The file is a fixed-size header, then one fixed-width index entry per product in product id order,
+ * then a heap holding the UTF-8 bytes of every name, description and image name. A product is found
+ * by binary search over the index, and its strings are read from the heap by offset and length.
+ *
+ * The header holds a format version, a CRC-32C of the whole file and the product table fingerprint
+ * the snapshot was written from (see ProductSnapshotDao), so a snapshot can be checked against the
+ * live table. Files are replaced atomically, so a reader never sees a partly written snapshot.
+ */
+
+public class ProductSnapshot {
+
+    // Version 2 added the product row version to each index entry
+    public static final int FORMAT_VERSION = 2;
+
+    // "SSGPSNAP"
+    private static final long MAGIC = 0x5353_4750_534E_4150L;
+    private static final int HEADER_BYTES = 96;
+    private static final int ENTRY_BYTES = 40;
+
+    // Header layout
+    private static final int MAGIC_AT = 0;
+    private static final int VERSION_AT = 8;
+    private static final int COUNT_AT = 12;
+    private static final int ENTRY_BYTES_AT = 16;
+    private static final int HEAP_LENGTH_AT = 24;
+    private static final int CREATED_AT = 32;
+    private static final int CHECKSUM_AT = 40;
+    private static final int FINGERPRINT_AT = 48;
+    private static final int FINGERPRINT_BYTES = 32;
+
+    // Index entry layout
+    private static final int ID_AT = 0;
+    private static final int ROW_VERSION_AT = 4;
+    private static final int PRICE_AT = 8;
+    private static final int NAME_AT = 16;
+    private static final int DESCRIPTION_AT = 24;
+    private static final int IMAGE_NAME_AT = 32;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int productCount;
+    private final int heapStart;
+    private final long createdAtMillis;
+    private final String fingerprint;
+
+    private ProductSnapshot(Path file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        this.productCount = buffer.getInt(COUNT_AT);
+        this.heapStart = HEADER_BYTES + productCount * ENTRY_BYTES;
+        this.createdAtMillis = buffer.getLong(CREATED_AT);
+        byte[] fingerprintBytes = new byte[FINGERPRINT_BYTES];
+        buffer.duplicate().position(FINGERPRINT_AT).get(fingerprintBytes);
+        this.fingerprint = new String(fingerprintBytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Write a snapshot of the product table to a file, replacing any snapshot already there.
+     *
+     * @param file The snapshot file.
+     * @param snapshotDao Streams the product table.
+     * @return The new snapshot, opened.
+     */
+    public static ProductSnapshot write(Path file, ProductSnapshotDao snapshotDao) {
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES);
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+        int[] count = new int[1];
+        int[] lastId = {Integer.MIN_VALUE};
+        String fingerprint = snapshotDao.streamProducts(product -> {
+            if (product.getProductId() <= lastId[0]) {
+                throw new SnapshotException("Products must arrive in increasing id order");
+            }
+            lastId[0] = product.getProductId();
+            entry.clear();
+            entry.putInt(ID_AT, product.getProductId());
+            entry.putInt(ROW_VERSION_AT, product.getVersion());
+            entry.putLong(PRICE_AT, product.getPriceCents());
+            putString(entry, NAME_AT, product.getName(), heap);
+            putString(entry, DESCRIPTION_AT, product.getDescription(), heap);
+            putString(entry, IMAGE_NAME_AT, product.getImageName(), heap);
+            index.write(entry.array(), 0, ENTRY_BYTES);
+            count[0]++;
+        });
+        if (fingerprint == null || fingerprint.length() != FINGERPRINT_BYTES) {
+            throw new SnapshotException("Unexpected product table fingerprint: " + fingerprint);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putLong(MAGIC_AT, MAGIC);
+        header.putInt(VERSION_AT, FORMAT_VERSION);
+        header.putInt(COUNT_AT, count[0]);
+        header.putInt(ENTRY_BYTES_AT, ENTRY_BYTES);
+        header.putLong(HEAP_LENGTH_AT, heap.size());
+        header.putLong(CREATED_AT, System.currentTimeMillis());
+        header.position(FINGERPRINT_AT);
+        header.put(fingerprint.getBytes(StandardCharsets.US_ASCII));
+        byte[] indexBytes = index.toByteArray();
+        byte[] heapBytes = heap.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(header.array());
+        crc.update(indexBytes);
+        crc.update(heapBytes);
+        header.putLong(CHECKSUM_AT, crc.getValue());
+        header.clear();
+
+        Path temp = null;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer[] parts = {header, ByteBuffer.wrap(indexBytes), ByteBuffer.wrap(heapBytes)};
+                long length = HEADER_BYTES + (long) indexBytes.length + heapBytes.length;
+                long written = 0;
+                while (written < length) {
+                    written += channel.write(parts);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+        } catch (IOException e) {
+            throw new SnapshotException("Unable to write product snapshot " + file, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Only a stray temporary file is left behind
+                }
+            }
+        }
+        return open(file);
+    }
+
+    // Strings are stored as offset and length in the heap; a null string has length -1
+    private static void putString(ByteBuffer entry, int at, String value, ByteArrayOutputStream heap) {
+        if (value == null) {
+            entry.putInt(at, 0);
+            entry.putInt(at + 4, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if ((long) heap.size() + bytes.length > Integer.MAX_VALUE - HEADER_BYTES) {
+            throw new SnapshotException("Product snapshot would be larger than 2 GB");
+        }
+        entry.putInt(at, heap.size());
+        entry.putInt(at + 4, bytes.length);
+        heap.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Memory-map a snapshot file, checking its format version and checksum.
+     *
+     * @throws SnapshotException If the file is missing, from another format version, or damaged.
+     */
+    public static ProductSnapshot open(Path file) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new SnapshotException("Not a product snapshot: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (NoSuchFileException e) {
+            throw new SnapshotException("No product snapshot at " + file, e);
+        } catch (IOException e) {
+            throw new SnapshotException("Unable to read product snapshot " + file, e);
+        }
+
+        if (buffer.getLong(MAGIC_AT) != MAGIC) {
+            throw new SnapshotException("Not a product snapshot: " + file);
+        }
+        if (buffer.getInt(VERSION_AT) != FORMAT_VERSION || buffer.getInt(ENTRY_BYTES_AT) != ENTRY_BYTES) {
+            throw new SnapshotException("Product snapshot " + file + " is format version " + buffer.getInt(VERSION_AT)
+                    + ", expected " + FORMAT_VERSION);
+        }
+        long expectedSize = HEADER_BYTES + (long) buffer.getInt(COUNT_AT) * ENTRY_BYTES + buffer.getLong(HEAP_LENGTH_AT);
+        if (buffer.getInt(COUNT_AT) < 0 || expectedSize != buffer.capacity()) {
+            throw new SnapshotException("Product snapshot " + file + " is truncated or damaged");
+        }
+
+        byte[] header = new byte[HEADER_BYTES];
+        buffer.duplicate().get(header);
+        ByteBuffer.wrap(header).putLong(CHECKSUM_AT, 0);
+        CRC32C crc = new CRC32C();
+        crc.update(header);
+        crc.update(buffer.duplicate().position(HEADER_BYTES));
+        if (crc.getValue() != buffer.getLong(CHECKSUM_AT)) {
+            throw new SnapshotException("Product snapshot " + file + " failed its checksum");
+        }
+        return new ProductSnapshot(file, buffer);
+    }
+
+    /**
+     * Open a snapshot file if there is a usable one.
+     *
+     * @return The snapshot, or null if the file is missing, from another format version, or damaged.
+     */
+    public static ProductSnapshot openIfValid(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return open(file);
+        } catch (SnapshotException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The product, or null if it was not in the table when the snapshot was written.
+     */
+    public Product getProductById(int productId) {
+        int position = firstPositionAtLeast(productId);
+        if (position < productCount && buffer.getInt(entryAt(position) + ID_AT) == productId) {
+            return readProduct(position);
+        }
+        return null;
+    }
+
+    /**
+     * @return Up to limit products with an id greater than afterProductId, ordered by id.
+     */
+    public List<Product> getProductPage(int afterProductId, int limit) {
+        int start = afterProductId == Integer.MAX_VALUE ? productCount : firstPositionAtLeast(afterProductId + 1);
+        int end = (int) Math.min(productCount, (long) start + limit);
+        List<Product> products = new ArrayList<>(Math.max(0, end - start));
+        for (int i = start; i < end; i++) {
+            products.add(readProduct(i));
+        }
+        return products;
+    }
+
+    // Binary search over the index for the first entry whose id is productId or more
+    private int firstPositionAtLeast(int productId) {
+        int low = 0;
+        int high = productCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getInt(entryAt(middle) + ID_AT) < productId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Every product, ordered by id.
+     */
+    public List<Product> getProducts() {
+        List<Product> products = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            products.add(readProduct(i));
+        }
+        return products;
+    }
+
+    private Product readProduct(int position) {
+        int at = entryAt(position);
+        Product product = new Product();
+        product.setProductId(buffer.getInt(at + ID_AT));
+        product.setPriceCents(buffer.getLong(at + PRICE_AT));
+        product.setVersion(buffer.getInt(at + ROW_VERSION_AT));
+        product.setName(readString(at + NAME_AT));
+        product.setDescription(readString(at + DESCRIPTION_AT));
+        product.setImageName(readString(at + IMAGE_NAME_AT));
+        return product;
+    }
+
+    private String readString(int at) {
+        int length = buffer.getInt(at + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        // A duplicate per read, so concurrent readers never share a position
+        buffer.duplicate().position(heapStart + buffer.getInt(at)).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int entryAt(int position) {
+        return HEADER_BYTES + position * ENTRY_BYTES;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int size() {
+        return productCount;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    // The product table fingerprint this snapshot was written from
+    public String getFingerprint() {
+        return fingerprint;
+    }
+}
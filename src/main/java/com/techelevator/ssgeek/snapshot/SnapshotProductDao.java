@@ -0,0 +1,158 @@
+package com.techelevator.ssgeek.snapshot;
+
+import com.techelevator.ssgeek.dao.ProductDao;
+import com.techelevator.ssgeek.dao.ProductSnapshotDao;
+import com.techelevator.ssgeek.model.Product;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SnapshotProductDao wraps another ProductDao and answers getProductById() and getProducts() from a
+ * memory-mapped ProductSnapshot when it has one, so those reads never reach the database. Everything
+ * else goes to the wrapped DAO.
+ *
+ * A snapshot file left by an earlier run is opened when the DAO is created, so the catalog can be read
+ * as soon as the program starts. verify() compares the snapshot with the live table and stops using it
+ * if they differ; refresh() writes a new one. Creating, updating or deleting a product through this DAO
+ * stops using the snapshot until the next refresh. Changes made to the product table by anything else
+ * are only noticed by verify().
+ */
+
+public class SnapshotProductDao implements ProductDao {
+
+    private final ProductDao productDao;
+    private final ProductSnapshotDao snapshotDao;
+    private final Path file;
+
+    // Null while reads go to the database
+    private volatile ProductSnapshot snapshot;
+    // Counts writes, so a refresh that overlapped a write is not put into use
+    private final AtomicLong writeCount = new AtomicLong();
+
+    public SnapshotProductDao(ProductDao productDao, ProductSnapshotDao snapshotDao, Path file) {
+        this.productDao = productDao;
+        this.snapshotDao = snapshotDao;
+        this.file = file;
+        this.snapshot = ProductSnapshot.openIfValid(file);
+    }
+
+    /**
+     * Check the snapshot in use against the live product table, and stop using it if they differ.
+     *
+     * @return True if a snapshot is in use and matches the table.
+     */
+    public boolean verify() {
+        ProductSnapshot current = snapshot;
+        if (current == null) {
+            return false;
+        }
+        if (current.getFingerprint().equals(snapshotDao.getProductFingerprint())) {
+            return true;
+        }
+        if (snapshot == current) {
+            snapshot = null;
+        }
+        return false;
+    }
+
+    /**
+     * Write a new snapshot from the live product table and answer reads from it.
+     *
+     * @return The number of products in the new snapshot.
+     */
+    public synchronized int refresh() {
+        long writesBefore = writeCount.get();
+        ProductSnapshot written = ProductSnapshot.write(file, snapshotDao);
+        // A product written through this DAO during the refresh may be missing from the new file;
+        // the next refresh will pick it up
+        if (writeCount.get() == writesBefore) {
+            snapshot = written;
+        }
+        return written.size();
+    }
+
+    /**
+     * @return The snapshot reads are answered from, or null if they go to the database.
+     */
+    public ProductSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public Product getProductById(int productId) {
+        ProductSnapshot current = snapshot;
+        if (current != null) {
+            Product product = current.getProductById(productId);
+            if (product != null) {
+                return product;
+            }
+        }
+        return productDao.getProductById(productId);
+    }
+
+    @Override
+    public List<Product> getProducts() {
+        ProductSnapshot current = snapshot;
+        return current != null ? current.getProducts() : productDao.getProducts();
+    }
+
+    @Override
+    public List<Product> getProductPage(int afterProductId, int limit) {
+        ProductSnapshot current = snapshot;
+        return current != null ? current.getProductPage(afterProductId, limit) : productDao.getProductPage(afterProductId, limit);
+    }
+
+    @Override
+    public List<Product> getProductsWithNoSales() {
+        return productDao.getProductsWithNoSales();
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit) {
+        return productDao.searchProducts(searchText, limit);
+    }
+
+    @Override
+    public List<Product> searchProducts(String searchText, int limit, int offset) {
+        return productDao.searchProducts(searchText, limit, offset);
+    }
+
+    @Override
+    public Product createProduct(Product newProduct) {
+        invalidate();
+        try {
+            return productDao.createProduct(newProduct);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Product updateProduct(Product updatedProduct) {
+        invalidate();
+        try {
+            return productDao.updateProduct(updatedProduct);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public int deleteProductById(int productId) {
+        invalidate();
+        try {
+            return productDao.deleteProductById(productId);
+        } finally {
+            invalidate();
+        }
+    }
+
+    // Called before and after each write, so a refresh that read the table while the write was in
+    // progress is not put into use either
+    private void invalidate() {
+        writeCount.incrementAndGet();
+        snapshot = null;
+    }
+}
@@ -0,0 +1,94 @@
+package com.techelevator.ssgeek.task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PeriodicTask runs a piece of background work on its own daemon thread, immediately and then once per
+ * interval. A run that fails is recorded and the schedule carries on, so the next run tries again.
+ * Subclasses do the work in runOnce() and record anything else about it themselves.
+ */
+
+public abstract class PeriodicTask implements Runnable {
+
+    private final String threadName;
+    // How long stop() waits for a run under way; zero to not wait
+    private final Duration stopTimeout;
+    private ScheduledExecutorService scheduler;
+
+    // Outcome of the most recent run, for display or diagnostics
+    private volatile LocalDateTime lastRunAt;
+    private volatile RuntimeException lastError;
+
+    protected PeriodicTask(String threadName) {
+        this(threadName, Duration.ZERO);
+    }
+
+    protected PeriodicTask(String threadName, Duration stopTimeout) {
+        this.threadName = threadName;
+        this.stopTimeout = stopTimeout;
+    }
+
+    /**
+     * Start on a single daemon thread, immediately and then once per interval.
+     */
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop. A run that is already under way is allowed to finish, and if this task was given a stop
+     * timeout, stop() waits up to that long for it before returning.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            if (!stopTimeout.isZero()) {
+                try {
+                    scheduler.awaitTermination(stopTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            runOnce();
+            lastError = null;
+        } catch (RuntimeException e) {
+            // Keep the schedule alive
+            lastError = e;
+        }
+        lastRunAt = LocalDateTime.now();
+    }
+
+    /**
+     * Do one run's work.
+     *
+     * @throws RuntimeException If the run failed; it is kept as the last error.
+     */
+    protected abstract void runOnce();
+
+    public LocalDateTime getLastRunAt() {
+        return lastRunAt;
+    }
+
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,33 @@
+package com.techelevator.ssgeek.task;
+
+import com.techelevator.ssgeek.snapshot.SnapshotProductDao;
+
+/**
+ * ProductSnapshotTask keeps the product snapshot current in the background. Each run checks the
+ * snapshot in use against the live product table and writes a new one only if they differ, or if
+ * there is no snapshot in use. While runs fail, reads fall back to the database.
+ */
+
+public class ProductSnapshotTask extends PeriodicTask {
+
+    private final SnapshotProductDao productDao;
+
+    private volatile boolean lastRunRewrote;
+
+    public ProductSnapshotTask(SnapshotProductDao productDao) {
+        super("product-snapshot");
+        this.productDao = productDao;
+    }
+
+    @Override
+    protected void runOnce() {
+        lastRunRewrote = !productDao.verify();
+        if (lastRunRewrote) {
+            productDao.refresh();
+        }
+    }
+
+    public boolean getLastRunRewrote() {
+        return lastRunRewrote;
+    }
+}
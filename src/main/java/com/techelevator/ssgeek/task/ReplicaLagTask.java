@@ -0,0 +1,23 @@
+package com.techelevator.ssgeek.task;
+
+import com.techelevator.ssgeek.replica.ReplicaRoutingDataSource;
+
+/**
+ * ReplicaLagTask measures how far behind the primary each read replica is, in the background, so reads
+ * are only sent to replicas that are close behind. A replica that stops being checked stops being read.
+ */
+
+public class ReplicaLagTask extends PeriodicTask {
+
+    private final ReplicaRoutingDataSource routingDataSource;
+
+    public ReplicaLagTask(ReplicaRoutingDataSource routingDataSource) {
+        super("replica-lag");
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    protected void runOnce() {
+        routingDataSource.checkReplicas();
+    }
+}
@@ -0,0 +1,32 @@
+package com.techelevator.ssgeek.task;
+
+import com.techelevator.ssgeek.dao.RollupDao;
+
+import java.time.LocalDate;
+
+/**
+ * RollupRefreshTask keeps the revenue rollup tables up to date in the background. Each run rolls up
+ * the sales dated before today, so the current day is always answered from the live tables. A failed
+ * run is picked up where it stopped by the next.
+ */
+
+public class RollupRefreshTask extends PeriodicTask {
+
+    private final RollupDao rollupDao;
+
+    private volatile int lastSalesAdded;
+
+    public RollupRefreshTask(RollupDao rollupDao) {
+        super("rollup-refresh");
+        this.rollupDao = rollupDao;
+    }
+
+    @Override
+    protected void runOnce() {
+        lastSalesAdded = rollupDao.refreshRollups(LocalDate.now());
+    }
+
+    public int getLastSalesAdded() {
+        return lastSalesAdded;
+    }
+}
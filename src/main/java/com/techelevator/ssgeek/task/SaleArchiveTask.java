@@ -0,0 +1,57 @@
+package com.techelevator.ssgeek.task;
+
+import com.techelevator.ssgeek.dao.SaleArchiveDao;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * SaleArchiveTask looks after the partitioned sale and line_item tables in the background. Each run makes
+ * sure partitions exist for this year and next, so new sales never land in the default partitions, then
+ * archives shipped sales older than the retention period a batch at a time. Batches archived before a
+ * failure stay archived.
+ */
+
+public class SaleArchiveTask extends PeriodicTask {
+
+    // Sales moved per transaction, so no run holds row locks for long
+    private static final int BATCH_SIZE = 1000;
+
+    private final SaleArchiveDao saleArchiveDao;
+    private final Period retention;
+
+    private volatile int lastPartitionsCreated;
+    private volatile int lastSalesArchived;
+
+    public SaleArchiveTask(SaleArchiveDao saleArchiveDao, Period retention) {
+        super("sale-archive");
+        this.saleArchiveDao = saleArchiveDao;
+        this.retention = retention;
+    }
+
+    @Override
+    protected void runOnce() {
+        int archived = 0;
+        try {
+            LocalDate today = LocalDate.now();
+            lastPartitionsCreated = saleArchiveDao.createSalePartitions(today, today.plusYears(1));
+
+            LocalDate saleDateBefore = today.minus(retention);
+            int moved;
+            do {
+                moved = saleArchiveDao.archiveShippedSales(saleDateBefore, BATCH_SIZE);
+                archived += moved;
+            } while (moved == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        } finally {
+            lastSalesArchived = archived;
+        }
+    }
+
+    public int getLastPartitionsCreated() {
+        return lastPartitionsCreated;
+    }
+
+    public int getLastSalesArchived() {
+        return lastSalesArchived;
+    }
+}
@@ -0,0 +1,40 @@
+package com.techelevator.ssgeek.task;
+
+import com.techelevator.ssgeek.buffer.SaleOrderBuffer;
+
+import java.time.Duration;
+
+/**
+ * SaleOrderDrainTask writes the orders waiting in a SaleOrderBuffer to the database in the background.
+ * Each run drains until the backlog is empty or the database fails; a failed run is tried again at the
+ * next interval, from the first order not yet written. stop() waits for a batch being written, and
+ * orders still waiting stay in the log for the next time the program runs.
+ */
+
+public class SaleOrderDrainTask extends PeriodicTask {
+
+    private final SaleOrderBuffer buffer;
+    private final int batchSize;
+
+    private volatile int lastOrdersDrained;
+
+    public SaleOrderDrainTask(SaleOrderBuffer buffer, int batchSize) {
+        super("sale-order-drain", Duration.ofSeconds(30));
+        this.buffer = buffer;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    protected void runOnce() {
+        int drained = 0;
+        try {
+            drained = buffer.drainAll(batchSize);
+        } finally {
+            lastOrdersDrained = drained;
+        }
+    }
+
+    public int getLastOrdersDrained() {
+        return lastOrdersDrained;
+    }
+}
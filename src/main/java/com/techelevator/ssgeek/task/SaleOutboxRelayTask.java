@@ -0,0 +1,58 @@
+package com.techelevator.ssgeek.task;
+
+import com.techelevator.ssgeek.dao.SaleOutboxDao;
+import com.techelevator.ssgeek.outbox.SaleOutboxRelay;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SaleOutboxRelayTask runs sale outbox relays in the background. Each run gives every relay the events
+ * written since the last, then deletes the events all relays have delivered.
+ */
+
+public class SaleOutboxRelayTask extends PeriodicTask {
+
+    private final SaleOutboxDao outboxDao;
+    private final List<SaleOutboxRelay> relays;
+    private final List<String> relayNames = new ArrayList<>();
+
+    private volatile int lastEventsDelivered;
+
+    public SaleOutboxRelayTask(SaleOutboxDao outboxDao, List<SaleOutboxRelay> relays) {
+        super("sale-outbox-relay");
+        this.outboxDao = outboxDao;
+        this.relays = relays;
+        for (SaleOutboxRelay relay : relays) {
+            relayNames.add(relay.getName());
+        }
+    }
+
+    @Override
+    protected void runOnce() {
+        int delivered = 0;
+        RuntimeException error = null;
+        for (SaleOutboxRelay relay : relays) {
+            try {
+                delivered += relay.relay();
+            } catch (RuntimeException e) {
+                // One failing sink doesn't hold up the others; it starts again from its own position
+                error = e;
+            }
+        }
+        try {
+            // Every configured relay counts, including one that has never delivered anything
+            outboxDao.deleteDeliveredEvents(relayNames);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        lastEventsDelivered = delivered;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    public int getLastEventsDelivered() {
+        return lastEventsDelivered;
+    }
+}
@@ -1,5 +1,6 @@
 package com.techelevator.util;
 
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -21,6 +22,9 @@ public interface BasicConsole {
     void printBanner(String message);
     void printBulletedItems(String[] items);
 
+    // Buffered output to the same place as printMessage(); flush it before printing or prompting any other way
+    Writer getOutput();
+
     String getMenuSelection(String[] options);
     String getMenuSelection(String[] options, boolean allowNullResponse);
     Integer getMenuSelectionIndex(String[] options, boolean allowNullResponse);
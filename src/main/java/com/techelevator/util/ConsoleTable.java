@@ -0,0 +1,230 @@
+package com.techelevator.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ConsoleTable prints a list of objects as fixed-width columns under a heading. The column layout,
+ * headings and padding are worked out once, when the first table is printed; each row is then built
+ * in the same reused buffers, without format strings, and the whole table goes through one Writer,
+ * flushed once per page rather than once per line.
+ *
+ * With a row budget, the table is printed a page at a time, the headings repeated at the top of each
+ * page, and the PagePrompt is asked between pages whether to go on. The buffers are shared, so a
+ * ConsoleTable prints one table at a time.
+ */
+
+public class ConsoleTable<T> {
+
+    public enum Align { LEFT, RIGHT }
+
+    /**
+     * Writes the value of one column for one row into a cell.
+     */
+    public interface CellWriter<T> {
+        void write(T row, Cell cell);
+    }
+
+    /**
+     * Asked after each full page whether to print the next one.
+     */
+    public interface PagePrompt {
+        boolean more(int rowsShown, int rowCount);
+    }
+
+    private static final String GAP = "  ";
+    private static final String ELLIPSIS = "...";
+
+    private final List<Column<T>> columns = new ArrayList<>();
+
+    // Worked out from the columns when the first table is printed
+    private String headings;
+    private char[] spaces;
+
+    private final StringBuilder line = new StringBuilder(256);
+    private final Cell cell = new Cell();
+
+    /**
+     * Add a column. A value wider than the column widens its row, as a format width would.
+     */
+    public ConsoleTable<T> column(String heading, int width, Align align, CellWriter<T> writer) {
+        return addColumn(heading, width, align, false, writer);
+    }
+
+    /**
+     * Add a left-aligned column whose values are cut to fit, ending in "...".
+     */
+    public ConsoleTable<T> textColumn(String heading, int width, CellWriter<T> writer) {
+        return addColumn(heading, width, Align.LEFT, true, writer);
+    }
+
+    private ConsoleTable<T> addColumn(String heading, int width, Align align, boolean truncate, CellWriter<T> writer) {
+        if (headings != null) {
+            throw new IllegalStateException("Columns cannot be added once a table has been printed");
+        }
+        columns.add(new Column<>(heading, Math.max(width, heading.length()), align, truncate, writer));
+        return this;
+    }
+
+    /**
+     * Print every row, with no paging.
+     */
+    public void print(List<T> rows, Writer out) {
+        print(rows, out, 0, null);
+    }
+
+    /**
+     * Print the rows a page at a time.
+     *
+     * @param rowsPerPage The most rows on one page, or 0 to print every row as one page.
+     * @param prompt Asked after each page but the last whether to go on; null to always go on.
+     * @throws UncheckedIOException If the Writer fails.
+     */
+    public void print(List<T> rows, Writer out, int rowsPerPage, PagePrompt prompt) {
+        if (headings == null) {
+            layOut();
+        }
+        try {
+            int pageSize = rowsPerPage > 0 ? rowsPerPage : Integer.MAX_VALUE;
+            int shown = 0;
+            do {
+                out.write(headings);
+                int pageEnd = shown + Math.min(pageSize, rows.size() - shown);
+                for (; shown < pageEnd; shown++) {
+                    buildLine(rows.get(shown));
+                    out.append(line);
+                }
+                out.flush();
+            } while (shown < rows.size() && (prompt == null || prompt.more(shown, rows.size())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to print table", e);
+        }
+    }
+
+    private void layOut() {
+        int widest = 0;
+        StringBuilder headingLine = new StringBuilder();
+        StringBuilder ruleLine = new StringBuilder();
+        for (Column<T> column : columns) {
+            widest = Math.max(widest, column.width);
+            if (headingLine.length() > 0) {
+                headingLine.append(GAP);
+                ruleLine.append(GAP);
+            }
+            int padding = column.width - column.heading.length();
+            if (column.align == Align.RIGHT) {
+                headingLine.append(" ".repeat(padding)).append(column.heading);
+            } else {
+                headingLine.append(column.heading).append(" ".repeat(padding));
+            }
+            ruleLine.append("=".repeat(column.width));
+        }
+        spaces = new char[widest];
+        Arrays.fill(spaces, ' ');
+        headings = headingLine + System.lineSeparator() + ruleLine + System.lineSeparator();
+    }
+
+    private void buildLine(T row) {
+        line.setLength(0);
+        for (int i = 0; i < columns.size(); i++) {
+            Column<T> column = columns.get(i);
+            if (i > 0) {
+                line.append(GAP);
+            }
+            cell.value.setLength(0);
+            column.writer.write(row, cell);
+
+            StringBuilder value = cell.value;
+            int length = value.length();
+            if (length > column.width && column.truncate) {
+                line.append(value, 0, column.width - ELLIPSIS.length()).append(ELLIPSIS);
+            } else if (column.align == Align.RIGHT) {
+                line.append(spaces, 0, Math.max(0, column.width - length)).append(value);
+            } else {
+                line.append(value).append(spaces, 0, Math.max(0, column.width - length));
+            }
+        }
+        line.append(System.lineSeparator());
+    }
+
+    private static class Column<T> {
+        private final String heading;
+        private final int width;
+        private final Align align;
+        private final boolean truncate;
+        private final CellWriter<T> writer;
+
+        Column(String heading, int width, Align align, boolean truncate, CellWriter<T> writer) {
+            this.heading = heading;
+            this.width = width;
+            this.align = align;
+            this.truncate = truncate;
+            this.writer = writer;
+        }
+    }
+
+    /**
+     * The value of one column of the row being printed. Values are appended into a buffer that is
+     * reused for every cell.
+     */
+    public static class Cell {
+        private final StringBuilder value = new StringBuilder(64);
+        // NumberFormat only formats into a StringBuffer
+        private final StringBuffer numberBuffer = new StringBuffer(32);
+        private final FieldPosition fieldPosition = new FieldPosition(0);
+
+        public Cell append(String text) {
+            if (text != null) {
+                value.append(text);
+            }
+            return this;
+        }
+
+        public Cell append(long number) {
+            value.append(number);
+            return this;
+        }
+
+        /**
+         * Append a number of cents as a plain amount with two decimal places, such as -12.05.
+         */
+        public Cell appendCents(long cents) {
+            if (cents < 0) {
+                value.append('-');
+            }
+            long absolute = Math.abs(cents);
+            long fraction = absolute % 100;
+            value.append(absolute / 100).append('.');
+            if (fraction < 10) {
+                value.append('0');
+            }
+            value.append(fraction);
+            return this;
+        }
+
+        public Cell append(NumberFormat format, BigDecimal number) {
+            if (number != null) {
+                numberBuffer.setLength(0);
+                format.format(number, numberBuffer, fieldPosition);
+                value.append(numberBuffer);
+            }
+            return this;
+        }
+
+        public Cell append(DateTimeFormatter format, LocalDate date) {
+            if (date != null) {
+                format.formatTo(date, value);
+            }
+            return this;
+        }
+    }
+}
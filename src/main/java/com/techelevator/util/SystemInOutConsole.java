@@ -1,5 +1,8 @@
 package com.techelevator.util;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
@@ -15,6 +18,8 @@ import java.util.Scanner;
 public class SystemInOutConsole implements BasicConsole {
 
     private final Scanner input = new Scanner(System.in);
+    // System.out flushes every line; long lists are written through this instead and flushed once
+    private final Writer output = new BufferedWriter(new OutputStreamWriter(System.out), 64 * 1024);
 
     @Override
     public void pauseOutput() {
@@ -54,6 +59,11 @@ public class SystemInOutConsole implements BasicConsole {
         }
     }
 
+    @Override
+    public Writer getOutput() {
+        return output;
+    }
+
     @Override
     public String getMenuSelection(String[] options) {
         return getMenuSelection(options, false);
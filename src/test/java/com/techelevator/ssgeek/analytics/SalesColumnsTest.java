@@ -0,0 +1,84 @@
+package com.techelevator.ssgeek.analytics;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+public class SalesColumnsTest {
+
+    private SalesColumns columns;
+
+    @Before
+    public void setup() {
+        columns = new SalesColumns();
+        columns.append(1, 1, 1, 1, 999, LocalDate.of(2022, 1, 1));
+        columns.append(1, 2, 1, 1, 1900, LocalDate.of(2022, 1, 1));
+        columns.append(2, 1, 1, 10, 999, LocalDate.of(2022, 2, 1));
+        columns.append(3, 1, 2, 100, 999, LocalDate.of(2022, 3, 1));
+        columns.publish();
+    }
+
+    @Test
+    public void aggregate_by_product_returns_correct_totals() {
+        GroupedTotals totals = columns.aggregate(new SalesQuery(GroupBy.PRODUCT));
+        Assert.assertEquals(2, totals.size());
+        Assert.assertEquals(1, totals.getKey(0));
+        Assert.assertEquals(3, totals.getLineCount(0));
+        Assert.assertEquals(111, totals.getUnits(0));
+        Assert.assertEquals(110889, totals.getRevenueCents(0));
+        Assert.assertEquals(2, totals.getKey(1));
+        Assert.assertEquals(1900, totals.getRevenueCents(1));
+    }
+
+    @Test
+    public void aggregate_applies_date_and_customer_filters() {
+        SalesQuery query = new SalesQuery(GroupBy.MONTH);
+        query.setDateRange(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 3, 1));
+        query.setCustomerId(1);
+
+        GroupedTotals totals = columns.aggregate(query);
+        Assert.assertEquals(2, totals.size());
+        Assert.assertEquals(2022 * 12, totals.getKey(0));
+        Assert.assertEquals(2899, totals.getRevenueCents(0));
+        Assert.assertEquals(9990, totals.getRevenueCents(1));
+    }
+
+    @Test
+    public void appended_rows_are_hidden_until_published() {
+        columns.append(4, 3, 3, 1, 100, LocalDate.of(2022, 4, 1));
+        Assert.assertEquals(4, columns.size());
+
+        Assert.assertEquals(1, columns.publish(42));
+        Assert.assertEquals(5, columns.size());
+        Assert.assertEquals(42, columns.getLoadedBeforeTxid());
+        Assert.assertEquals(3, columns.aggregate(new SalesQuery(GroupBy.CUSTOMER)).size());
+    }
+
+    @Test
+    public void aggregate_over_many_rows_matches_sequential_sum() {
+        SalesColumns large = new SalesColumns();
+        long expectedRevenue = 0;
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 500_000; i++) {
+            int quantity = i % 7 + 1;
+            long price = i % 1000 + 1;
+            large.append(i / 3 + 1, i % 50 + 1, i % 1000 + 1, quantity, price, start.plusDays(i % 900));
+            expectedRevenue += quantity * price;
+        }
+        large.publish();
+
+        GroupedTotals totals = large.aggregate(new SalesQuery(GroupBy.DAY));
+        Assert.assertEquals(900, totals.size());
+        long actualRevenue = 0;
+        int actualLines = 0;
+        for (int g = 0; g < totals.size(); g++) {
+            actualRevenue += totals.getRevenueCents(g);
+            actualLines += totals.getLineCount(g);
+        }
+        Assert.assertEquals(expectedRevenue, actualRevenue);
+        Assert.assertEquals(500_000, actualLines);
+    }
+
+}
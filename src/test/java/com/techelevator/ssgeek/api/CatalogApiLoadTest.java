@@ -0,0 +1,113 @@
+package com.techelevator.ssgeek.api;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CatalogApiLoadTest measures a CatalogApiServer at several numbers of concurrent clients. Each client
+ * is a thread sending one request after another for a fixed time; requests per second and latency
+ * percentiles are printed for each level.
+ *
+ * Usage: CatalogApiLoadTest baseUrl [path,path...] [seconds] [clients,clients...]
+ * For example: CatalogApiLoadTest http://localhost:8082/api/ products/1,customers?limit=50,sales/1 10 1,64,1024
+ */
+
+public class CatalogApiLoadTest {
+
+    // Latencies kept per client; later requests are counted but not sampled
+    private static final int MAX_SAMPLES_PER_CLIENT = 100_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: CatalogApiLoadTest baseUrl [path,path...] [seconds] [clients,clients...]");
+            return;
+        }
+        String baseUrl = args[0].endsWith("/") ? args[0] : args[0] + "/";
+        String[] paths = (args.length > 1 ? args[1] : "products/1,customers?limit=50,sales/1").split(",");
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int[] levels = Arrays.stream((args.length > 3 ? args[3] : "1,64,1024").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest[] requests = new HttpRequest[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            requests[i] = HttpRequest.newBuilder(URI.create(baseUrl + paths[i])).timeout(Duration.ofSeconds(30)).build();
+        }
+
+        System.out.format("%8s %10s %8s %10s %10s %10s%n", "clients", "req/sec", "errors", "p50 ms", "p99 ms", "max ms");
+        for (int clients : levels) {
+            run(client, requests, clients, seconds);
+        }
+    }
+
+    private static void run(HttpClient client, HttpRequest[] requests, int clients, int seconds) throws InterruptedException {
+        AtomicLong okCount = new AtomicLong();
+        AtomicLong errorCount = new AtomicLong();
+        long[][] samples = new long[clients][];
+        int[] sampleCounts = new int[clients];
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            int clientIndex = c;
+            samples[c] = new long[1024];
+            Thread thread = new Thread(() -> {
+                int n = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests[(clientIndex + n) % requests.length];
+                        long requestStart = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            (response.statusCode() == 200 ? okCount : errorCount).incrementAndGet();
+                        } catch (Exception e) {
+                            errorCount.incrementAndGet();
+                        }
+                        if (n < MAX_SAMPLES_PER_CLIENT) {
+                            if (n == samples[clientIndex].length) {
+                                samples[clientIndex] = Arrays.copyOf(samples[clientIndex],
+                                        Math.min(MAX_SAMPLES_PER_CLIENT, n * 2));
+                            }
+                            samples[clientIndex][n] = System.nanoTime() - requestStart;
+                        }
+                        n++;
+                    }
+                } finally {
+                    sampleCounts[clientIndex] = Math.min(n, MAX_SAMPLES_PER_CLIENT);
+                    done.countDown();
+                }
+            }, "client-" + c);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        int total = 0;
+        for (int count : sampleCounts) {
+            total += count;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(samples[c], 0, latencies, offset, sampleCounts[c]);
+            offset += sampleCounts[c];
+        }
+        Arrays.sort(latencies);
+
+        if (total == 0) {
+            System.out.format("%8d %10.0f %8d%n", clients, 0.0, errorCount.get());
+            return;
+        }
+        System.out.format("%8d %10.0f %8d %10.2f %10.2f %10.2f%n", clients, okCount.get() / elapsedSeconds,
+                errorCount.get(), latencies[total / 2] / 1e6, latencies[(int) (total * 0.99)] / 1e6,
+                latencies[total - 1] / 1e6);
+    }
+}
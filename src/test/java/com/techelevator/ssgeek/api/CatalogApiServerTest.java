@@ -0,0 +1,334 @@
+package com.techelevator.ssgeek.api;
+
+import com.techelevator.ssgeek.dao.CustomerDao;
+import com.techelevator.ssgeek.dao.LineItemDao;
+import com.techelevator.ssgeek.dao.ProductDao;
+import com.techelevator.ssgeek.dao.SaleDao;
+import com.techelevator.ssgeek.model.Customer;
+import com.techelevator.ssgeek.model.LineItem;
+import com.techelevator.ssgeek.model.Product;
+import com.techelevator.ssgeek.model.Sale;
+import com.techelevator.ssgeek.model.SaleTotal;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class CatalogApiServerTest {
+
+    private CatalogApiServer server;
+    private FakeCatalog catalog;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Before
+    public void setup() {
+        catalog = new FakeCatalog();
+        server = new CatalogApiServer(catalog, catalog, catalog, catalog, 2);
+        InetSocketAddress address = server.start(new InetSocketAddress("127.0.0.1", 0), 4);
+        baseUrl = "http://127.0.0.1:" + address.getPort() + CatalogApiServer.CONTEXT_PATH;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    public void get_customer_by_id_returns_json() throws Exception {
+        HttpResponse<String> response = get("customers/2");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(null));
+        Assert.assertEquals("{\"customerId\":2,\"name\":\"Customer \\\"2\\\"\",\"streetAddress1\":\"Addr 2-1\","
+                + "\"streetAddress2\":null,\"city\":\"City 2\",\"state\":\"S2\",\"zipCode\":\"22222\",\"version\":3}",
+                response.body());
+        Assert.assertEquals("\"3\"", response.headers().firstValue("ETag").orElse(null));
+    }
+
+    @Test
+    public void matching_if_none_match_returns_304() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "products/1"))
+                .header("If-None-Match", "\"1\"").build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(304, response.statusCode());
+        Assert.assertEquals("", response.body());
+
+        request = HttpRequest.newBuilder(URI.create(baseUrl + "products/1")).header("If-None-Match", "\"0\"").build();
+        Assert.assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    @Test
+    public void sale_etag_changes_with_its_line_items() throws Exception {
+        String etag = get("sales/1").headers().firstValue("ETag").orElse(null);
+        Assert.assertNotNull(etag);
+        Assert.assertEquals(etag, get("sales/1").headers().firstValue("ETag").orElse(null));
+
+        catalog.getProductById(1).setName("Renamed");
+        Assert.assertNotEquals(etag, get("sales/1").headers().firstValue("ETag").orElse(null));
+    }
+
+    @Test
+    public void customer_pages_link_to_the_next_page() throws Exception {
+        HttpResponse<String> response = get("customers?limit=3");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().contains("\"customerId\":3"));
+        Assert.assertFalse(response.body().contains("\"customerId\":4"));
+        Assert.assertTrue(response.body().endsWith("\"next\":\"/api/customers?after=3&limit=3\"}"));
+
+        response = get("customers?after=3&limit=3");
+        Assert.assertTrue(response.body().contains("\"customerId\":4"));
+        Assert.assertTrue(response.body().endsWith("\"next\":null}"));
+    }
+
+    @Test
+    public void get_sale_includes_line_items() throws Exception {
+        HttpResponse<String> response = get("sales/1");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().startsWith("{\"saleId\":1,\"customerId\":1,"));
+        Assert.assertTrue(response.body().contains("\"saleDate\":\"2022-01-01\",\"shipDate\":null"));
+        Assert.assertTrue(response.body().endsWith("\"lineItems\":[{\"lineItemId\":1,\"productId\":1,"
+                + "\"productName\":\"Product 1\",\"quantity\":2,\"price\":9.99,\"extendedPrice\":19.98}]}"));
+    }
+
+    @Test
+    public void related_lists_are_paged_in_id_order() throws Exception {
+        HttpResponse<String> response = get("customers/1/sales?limit=1");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertTrue(response.body().startsWith("{\"items\":[{\"saleId\":1,"));
+        Assert.assertTrue(response.body().endsWith("\"next\":\"/api/customers/1/sales?after=1&limit=1\"}"));
+
+        response = get("sales?unshipped=true&after=1");
+        Assert.assertTrue(response.body().startsWith("{\"items\":[{\"saleId\":2,"));
+    }
+
+    @Test
+    public void unknown_resources_return_404() throws Exception {
+        Assert.assertEquals(404, get("customers/99").statusCode());
+        Assert.assertEquals(404, get("customers/x").statusCode());
+        Assert.assertEquals(404, get("widgets").statusCode());
+        Assert.assertEquals(404, get("sales/1/boxes").statusCode());
+    }
+
+    @Test
+    public void bad_paging_returns_400() throws Exception {
+        Assert.assertEquals(400, get("products?limit=0").statusCode());
+        Assert.assertEquals(400, get("products?limit=" + (CatalogApiServer.MAX_PAGE_SIZE + 1)).statusCode());
+        Assert.assertEquals(400, get("products?after=x").statusCode());
+    }
+
+    @Test
+    public void post_is_not_allowed() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "products"))
+                .POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Assert.assertEquals(405, response.statusCode());
+        Assert.assertEquals("GET", response.headers().firstValue("Allow").orElse(null));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Four customers, two products and three sales, the first two for customer 1
+    private static class FakeCatalog implements CustomerDao, ProductDao, SaleDao, LineItemDao {
+        private final List<Customer> customers = new ArrayList<>();
+        private final List<Product> products = new ArrayList<>();
+        private final List<Sale> sales = new ArrayList<>();
+
+        FakeCatalog() {
+            for (int i = 1; i <= 4; i++) {
+                String name = i == 2 ? "Customer \"2\"" : "Customer " + i;
+                Customer customer = new Customer(i, name, "Addr " + i + "-1", null, "City " + i, "S" + i,
+                        String.valueOf(i).repeat(5));
+                customer.setVersion(i + 1);
+                customers.add(customer);
+            }
+            products.add(new Product(1, "Product 1", "Description 1", new BigDecimal("9.99"), null));
+            products.get(0).setVersion(1);
+            products.add(new Product(2, "Product 2", "Description 2", new BigDecimal("19.00"), null));
+            sales.add(new Sale(1, 1, LocalDate.of(2022, 1, 1), null, "Customer 1"));
+            sales.add(new Sale(2, 1, LocalDate.of(2022, 2, 1), null, "Customer 1"));
+            sales.add(new Sale(3, 2, LocalDate.of(2022, 3, 1), LocalDate.of(2022, 3, 2), "Customer 2"));
+        }
+
+        @Override
+        public Customer getCustomerById(int customerId) {
+            return customers.stream().filter(c -> c.getCustomerId() == customerId).findFirst().orElse(null);
+        }
+
+        @Override
+        public List<Customer> getCustomers() {
+            return customers;
+        }
+
+        @Override
+        public List<Customer> getCustomerPage(int afterCustomerId, int limit) {
+            return customers.stream().filter(c -> c.getCustomerId() > afterCustomerId).limit(limit).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Customer> searchCustomers(String searchText, int limit) {
+            return customers.stream().filter(c -> c.getName().contains(searchText)).limit(limit).collect(Collectors.toList());
+        }
+
+        @Override
+        public Customer createCustomer(Customer newCustomer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Customer updateCustomer(Customer updatedCustomer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Product getProductById(int productId) {
+            return products.stream().filter(p -> p.getProductId() == productId).findFirst().orElse(null);
+        }
+
+        @Override
+        public List<Product> getProducts() {
+            return products;
+        }
+
+        @Override
+        public List<Product> getProductPage(int afterProductId, int limit) {
+            return products.stream().filter(p -> p.getProductId() > afterProductId).limit(limit).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Product> getProductsWithNoSales() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Product> searchProducts(String searchText, int limit) {
+            return searchProducts(searchText, limit, 0);
+        }
+
+        @Override
+        public List<Product> searchProducts(String searchText, int limit, int offset) {
+            return products.stream().filter(p -> p.getName().contains(searchText)).skip(offset).limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public Product createProduct(Product newProduct) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Product updateProduct(Product updatedProduct) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteProductById(int productId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Sale getSaleById(int saleId) {
+            return sales.stream().filter(s -> s.getSaleId() == saleId).findFirst().orElse(null);
+        }
+
+        @Override
+        public List<Sale> getUnshippedSales() {
+            return sales.stream().filter(s -> s.getShipDate() == null).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Sale> getSalePage(int afterSaleId, int limit) {
+            return sales.stream().filter(s -> s.getSaleId() > afterSaleId).limit(limit).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Sale> getSalesByCustomerId(int customerId) {
+            return sales.stream().filter(s -> s.getCustomerId() == customerId).collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Sale> getSalesByProductId(int productId) {
+            return productId == 1 ? sales.subList(0, 1) : new ArrayList<>();
+        }
+
+        @Override
+        public List<SaleTotal> getSaleTotals(List<Integer> saleIds) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Sale createSale(Sale newSale) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, Integer> createSales(Map<String, Sale> salesByOrderKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Sale updateSale(Sale updatedSale) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Integer> shipSales(Collection<Integer> saleIds, LocalDate shipDate) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Integer> shipUnshippedSalesThrough(LocalDate saleDateThrough, LocalDate shipDate) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Sale> claimUnshippedSales(String workerId, int count, Duration leaseTime) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Integer> completeClaimedSales(String workerId, Collection<Integer> saleIds, LocalDate shipDate) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int releaseClaimedSales(String workerId, Collection<Integer> saleIds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int releaseExpiredLeases() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int deleteSaleById(int saleId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<LineItem> getLineItemsBySaleId(int saleId) {
+            List<LineItem> lineItems = new ArrayList<>();
+            if (saleId == 1) {
+                lineItems.add(new LineItem(1, 1, 1, 2, products.get(0).getName(), new BigDecimal("9.99")));
+            }
+            return lineItems;
+        }
+    }
+}
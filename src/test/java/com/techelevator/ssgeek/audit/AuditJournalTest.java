@@ -0,0 +1,212 @@
+package com.techelevator.ssgeek.audit;
+
+import com.techelevator.ssgeek.exception.AuditException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AuditJournalTest {
+
+    private static final AuditRecord RECORD_1 =
+            new AuditRecord(1_650_000_000_000L, AuditAction.CREATE, AuditEntity.CUSTOMER, 1, "admin", "Customer 1");
+    private static final AuditRecord RECORD_2 =
+            new AuditRecord(1_650_000_001_000L, AuditAction.SHIP, AuditEntity.SALE, 12, "ädmin", "shipped ☃");
+    private static final AuditRecord RECORD_3 =
+            new AuditRecord(1_650_000_002_000L, AuditAction.DELETE, AuditEntity.PRODUCT, 4, null, null);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setup() {
+        file = folder.getRoot().toPath().resolve("admin-audit.journal");
+    }
+
+    @Test
+    public void appended_records_read_back_in_order() {
+        for (DurabilityMode mode : DurabilityMode.values()) {
+            Path modeFile = folder.getRoot().toPath().resolve(mode + ".journal");
+            try (AuditJournal journal = AuditJournal.open(modeFile, mode)) {
+                journal.append(RECORD_1);
+                journal.append(List.of(RECORD_2, RECORD_3));
+            }
+
+            List<AuditRecord> records = readAll(modeFile);
+            Assert.assertEquals(3, records.size());
+            assertRecordsMatch(RECORD_1, records.get(0));
+            assertRecordsMatch(RECORD_2, records.get(1));
+            assertRecordsMatch(RECORD_3, records.get(2));
+        }
+    }
+
+    @Test
+    public void reopening_appends_after_existing_records() {
+        try (AuditJournal journal = AuditJournal.open(file, DurabilityMode.SYNC)) {
+            journal.append(RECORD_1);
+        }
+        try (AuditJournal journal = AuditJournal.open(file, DurabilityMode.SYNC)) {
+            journal.append(RECORD_2);
+        }
+
+        List<AuditRecord> records = readAll(file);
+        Assert.assertEquals(2, records.size());
+        assertRecordsMatch(RECORD_2, records.get(1));
+    }
+
+    @Test
+    public void torn_tail_is_reported_and_cut_off_on_open() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(file, DurabilityMode.SYNC)) {
+            journal.append(List.of(RECORD_1, RECORD_2));
+        }
+        long goodLength = Files.size(file);
+        // Part of a third record, as a crash mid-write would leave it
+        byte[] partial = new byte[10];
+        AuditJournal.encode(RECORD_3).get(partial);
+        Files.write(file, partial, StandardOpenOption.APPEND);
+
+        AuditJournalReader.ScanResult result = AuditJournalReader.scan(file, null);
+        Assert.assertEquals(2, result.getRecordCount());
+        Assert.assertEquals(goodLength, result.getValidLength());
+        Assert.assertTrue(result.hasTornTail());
+
+        try (AuditJournal journal = AuditJournal.open(file, DurabilityMode.SYNC)) {
+            journal.append(RECORD_3);
+        }
+        List<AuditRecord> records = readAll(file);
+        Assert.assertEquals(3, records.size());
+        assertRecordsMatch(RECORD_3, records.get(2));
+        Assert.assertFalse(AuditJournalReader.scan(file, null).hasTornTail());
+    }
+
+    @Test
+    public void scan_stops_at_record_failing_crc() throws IOException {
+        try (AuditJournal journal = AuditJournal.open(file, DurabilityMode.SYNC)) {
+            journal.append(List.of(RECORD_1, RECORD_2, RECORD_3));
+        }
+        // Flip a byte in the body of the second record
+        long secondRecord = AuditJournal.HEADER_BYTES + AuditJournal.encode(RECORD_1).remaining();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long position = secondRecord + AuditJournal.RECORD_HEADER_BYTES + 2;
+            channel.read(b, position);
+            b.put(0, (byte) ~b.get(0));
+            b.rewind();
+            channel.write(b, position);
+        }
+
+        AuditJournalReader.ScanResult result = AuditJournalReader.scan(file, null);
+        Assert.assertEquals(1, result.getRecordCount());
+        Assert.assertEquals(secondRecord, result.getValidLength());
+    }
+
+    @Test(expected = AuditException.class)
+    public void open_rejects_a_file_that_is_not_a_journal() throws IOException {
+        Files.write(file, "this is not an audit journal".getBytes());
+        AuditJournal.open(file, DurabilityMode.SYNC);
+    }
+
+    @Test(expected = AuditException.class)
+    public void append_after_close_throws() {
+        AuditJournal journal = AuditJournal.open(file, DurabilityMode.ASYNC);
+        journal.close();
+        journal.append(RECORD_1);
+    }
+
+    @Test
+    public void append_throws_after_an_async_write_fails() throws Exception {
+        AuditJournal journal = AuditJournal.open(file, DurabilityMode.ASYNC);
+        // Closing the journal's channel under it makes the writer's next group fail
+        Field channel = AuditJournal.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(journal)).close();
+
+        journal.append(RECORD_1);
+        for (int i = 0; i < 100 && journal.getLastError() == null; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(journal.getLastError());
+
+        try {
+            journal.append(RECORD_2);
+            Assert.fail("Expected append to report the earlier failure");
+        } catch (AuditException e) {
+            Assert.assertSame(journal.getLastError(), e.getCause());
+        }
+    }
+
+    @Test
+    public void concurrent_appends_share_group_commits() throws InterruptedException {
+        final int threads = 8;
+        final int perThread = 200;
+        List<Thread> writers = new ArrayList<>();
+        try (AuditJournal journal = AuditJournal.open(file, DurabilityMode.SYNC)) {
+            for (int t = 0; t < threads; t++) {
+                int entityId = t;
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.append(new AuditRecord(i, AuditAction.UPDATE, AuditEntity.PRODUCT, entityId, "admin", ""));
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            Assert.assertEquals(threads * perThread, journal.getRecordsWritten());
+            // Each SYNC append waits for its group, so there can't be more groups than appends
+            Assert.assertTrue(journal.getGroupsWritten() <= threads * perThread);
+        }
+
+        List<AuditRecord> records = readAll(file);
+        Assert.assertEquals(threads * perThread, records.size());
+        // Records from one thread stay in the order that thread appended them
+        long[] lastTimestamp = new long[threads];
+        for (AuditRecord record : records) {
+            Assert.assertTrue(record.getTimestampMillis() >= lastTimestamp[record.getEntityId()]);
+            lastTimestamp[record.getEntityId()] = record.getTimestampMillis();
+        }
+    }
+
+    @Test
+    public void list_append_is_written_as_one_group() {
+        List<AuditRecord> shipped = new ArrayList<>();
+        for (int saleId = 1; saleId <= 500; saleId++) {
+            shipped.add(new AuditRecord(0, AuditAction.SHIP, AuditEntity.SALE, saleId, "admin", "shipped"));
+        }
+        try (AuditJournal journal = AuditJournal.open(file, DurabilityMode.SYNC)) {
+            journal.append(shipped);
+            Assert.assertEquals(500, journal.getRecordsWritten());
+            Assert.assertEquals(1, journal.getGroupsWritten());
+        }
+    }
+
+    private List<AuditRecord> readAll(Path journalFile) {
+        List<AuditRecord> records = new ArrayList<>();
+        AuditJournalReader.scan(journalFile, records::add);
+        return records;
+    }
+
+    private void assertRecordsMatch(AuditRecord expected, AuditRecord actual) {
+        Assert.assertEquals(expected.getTimestampMillis(), actual.getTimestampMillis());
+        Assert.assertEquals(expected.getAction(), actual.getAction());
+        Assert.assertEquals(expected.getEntity(), actual.getEntity());
+        Assert.assertEquals(expected.getEntityId(), actual.getEntityId());
+        Assert.assertEquals(expected.getActor(), actual.getActor());
+        Assert.assertEquals(expected.getDetail(), actual.getDetail());
+    }
+}
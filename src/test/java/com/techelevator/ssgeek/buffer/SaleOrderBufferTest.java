@@ -0,0 +1,243 @@
+package com.techelevator.ssgeek.buffer;
+
+import com.techelevator.ssgeek.dao.SaleDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.exception.OrderBufferException;
+import com.techelevator.ssgeek.model.Sale;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SaleOrderBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private SaleOrderLog log;
+    private FakeSaleTable sales;
+
+    @Before
+    public void setup() {
+        file = folder.getRoot().toPath().resolve("sale-orders.wal");
+        log = SaleOrderLog.open(file);
+        sales = new FakeSaleTable();
+    }
+
+    @After
+    public void cleanup() {
+        log.close();
+    }
+
+    @Test
+    public void submitted_orders_drain_in_batches() {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 100);
+        List<String> orderKeys = buffer.submit(List.of(sale(1), sale(2), sale(3), sale(4), sale(5)));
+
+        Assert.assertEquals(5, buffer.getBacklog());
+        Assert.assertEquals(2, buffer.drain(2));
+        Assert.assertEquals(3, buffer.getBacklog());
+        Assert.assertEquals(3, buffer.drainAll(2));
+
+        Assert.assertEquals(0, buffer.getBacklog());
+        Assert.assertEquals(5, buffer.getDrainedCount());
+        Assert.assertEquals(5, sales.saleIdsByOrderKey.size());
+        Assert.assertEquals(List.of(1, 2, 3), sales.customerIdsInCallOrder.subList(0, 3));
+        Assert.assertTrue(sales.saleIdsByOrderKey.keySet().containsAll(orderKeys));
+        Assert.assertTrue(buffer.getLastDrainRate() > 0);
+    }
+
+    @Test
+    public void failed_drain_leaves_orders_waiting() {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 100);
+        buffer.submit(List.of(sale(1), sale(2)));
+        sales.databaseDown = true;
+
+        try {
+            buffer.drain(10);
+            Assert.fail("Expected the drain to fail");
+        } catch (DaoException e) {
+            Assert.assertEquals(2, buffer.getBacklog());
+        }
+
+        sales.databaseDown = false;
+        Assert.assertEquals(2, buffer.drainAll(10));
+        Assert.assertEquals(2, sales.saleIdsByOrderKey.size());
+    }
+
+    @Test
+    public void orders_not_drained_are_recovered_when_log_is_reopened() {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 100);
+        buffer.submit(List.of(sale(1), sale(2), sale(3)));
+        buffer.drain(1);
+        log.close();
+
+        log = SaleOrderLog.open(file);
+        List<BufferedOrder> recovered = log.getRecoveredOrders();
+        Assert.assertEquals(2, recovered.size());
+        Assert.assertEquals(2, recovered.get(0).getCustomerId());
+        Assert.assertEquals(LocalDate.of(2022, 6, 2), recovered.get(0).getSaleDate());
+        Assert.assertNull(recovered.get(0).getShipDate());
+
+        // Sequence numbers carry on after the recovered orders
+        SaleOrderBuffer reopened = new SaleOrderBuffer(log, sales.dao(), 100);
+        reopened.submit(sale(4));
+        Assert.assertEquals(3, reopened.getBacklog());
+        Assert.assertEquals(3, reopened.drainAll(10));
+        Assert.assertEquals(4, sales.saleIdsByOrderKey.size());
+    }
+
+    @Test
+    public void replay_after_crash_does_not_create_orders_twice() {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 100);
+        buffer.submit(List.of(sale(1), sale(2)));
+        // As if the program stopped after the database commit but before the log recorded it
+        sales.dao().createSales(toSales(readLog()));
+        log.close();
+
+        log = SaleOrderLog.open(file);
+        SaleOrderBuffer reopened = new SaleOrderBuffer(log, sales.dao(), 100);
+        Assert.assertEquals(2, reopened.drainAll(10));
+        Assert.assertEquals(2, sales.saleIdsByOrderKey.size());
+        Assert.assertEquals(2, sales.customerIdsInCallOrder.size());
+    }
+
+    @Test
+    public void torn_record_at_end_of_log_is_cut_off() throws IOException {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 100);
+        buffer.submit(List.of(sale(1), sale(2)));
+        log.close();
+        long goodLength = Files.size(file);
+        Files.write(file, new byte[20], StandardOpenOption.APPEND);
+
+        log = SaleOrderLog.open(file);
+        Assert.assertEquals(2, log.getRecoveredOrders().size());
+        Assert.assertEquals(goodLength, Files.size(file));
+    }
+
+    @Test
+    public void full_buffer_refuses_orders() {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 2);
+        buffer.submit(List.of(sale(1), sale(2)));
+
+        try {
+            buffer.submit(sale(3));
+            Assert.fail("Expected the buffer to be full");
+        } catch (OrderBufferException e) {
+            Assert.assertEquals(2, buffer.getBacklog());
+        }
+    }
+
+    @Test
+    public void order_the_database_refuses_is_rejected_without_holding_up_others() {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 100);
+        buffer.submit(List.of(sale(1), sale(FakeSaleTable.MISSING_CUSTOMER_ID), sale(3)));
+
+        Assert.assertEquals(3, buffer.drainAll(10));
+
+        Assert.assertEquals(2, sales.saleIdsByOrderKey.size());
+        Assert.assertEquals(1, buffer.getRejectedOrders().size());
+        Assert.assertEquals(FakeSaleTable.MISSING_CUSTOMER_ID, buffer.getRejectedOrders().get(0).getCustomerId());
+    }
+
+    @Test
+    public void rejected_orders_are_written_to_the_reject_file() throws IOException {
+        SaleOrderBuffer buffer = new SaleOrderBuffer(log, sales.dao(), 100);
+        List<String> orderKeys = buffer.submit(List.of(sale(1), sale(FakeSaleTable.MISSING_CUSTOMER_ID)));
+
+        buffer.drainAll(10);
+        log.close();
+        log = SaleOrderLog.open(file);
+
+        Assert.assertTrue(log.getRecoveredOrders().isEmpty());
+        List<String> rejects = Files.readAllLines(log.getRejectFile());
+        Assert.assertEquals(1, rejects.size());
+        Assert.assertTrue(rejects.get(0).contains("\"orderKey\":\"" + orderKeys.get(1) + "\""));
+        Assert.assertTrue(rejects.get(0).contains("\"customerId\":" + FakeSaleTable.MISSING_CUSTOMER_ID));
+    }
+
+    @Test(expected = OrderBufferException.class)
+    public void order_without_sale_date_is_refused() {
+        new SaleOrderBuffer(log, sales.dao(), 100).submit(new Sale());
+    }
+
+    private List<BufferedOrder> readLog() {
+        try (SaleOrderLog copy = SaleOrderLog.open(file)) {
+            return copy.getRecoveredOrders();
+        }
+    }
+
+    private static Map<String, Sale> toSales(List<BufferedOrder> orders) {
+        Map<String, Sale> salesByOrderKey = new HashMap<>();
+        for (BufferedOrder order : orders) {
+            salesByOrderKey.put(order.getOrderKey().toString(), order.toSale());
+        }
+        return salesByOrderKey;
+    }
+
+    private static Sale sale(int customerId) {
+        Sale sale = new Sale();
+        sale.setCustomerId(customerId);
+        sale.setSaleDate(LocalDate.of(2022, 6, customerId > 0 && customerId <= 28 ? customerId : 1));
+        return sale;
+    }
+
+    // Stands in for the sale table, answering only SaleDao.createSales() the way the database does
+    private static class FakeSaleTable {
+        static final int MISSING_CUSTOMER_ID = 99;
+
+        final Map<String, Integer> saleIdsByOrderKey = new HashMap<>();
+        final List<Integer> customerIdsInCallOrder = new ArrayList<>();
+        boolean databaseDown;
+
+        @SuppressWarnings("unchecked")
+        SaleDao dao() {
+            return (SaleDao) Proxy.newProxyInstance(SaleDao.class.getClassLoader(), new Class<?>[]{SaleDao.class},
+                    (proxy, method, args) -> {
+                        if (!method.getName().equals("createSales")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return createSales((Map<String, Sale>) args[0]);
+                    });
+        }
+
+        private Map<String, Integer> createSales(Map<String, Sale> salesByOrderKey) {
+            if (databaseDown) {
+                throw new DaoException("Unable to connect to server or database",
+                        new CannotGetJdbcConnectionException("down"));
+            }
+            for (Sale sale : salesByOrderKey.values()) {
+                if (sale.getCustomerId() == MISSING_CUSTOMER_ID) {
+                    throw new DaoException("Data integrity violation", new DataIntegrityViolationException("customer"));
+                }
+            }
+            Map<String, Integer> result = new HashMap<>();
+            for (Map.Entry<String, Sale> entry : salesByOrderKey.entrySet()) {
+                Integer saleId = saleIdsByOrderKey.get(entry.getKey());
+                if (saleId == null) {
+                    saleId = saleIdsByOrderKey.size() + 1;
+                    saleIdsByOrderKey.put(entry.getKey(), saleId);
+                    customerIdsInCallOrder.add(entry.getValue().getCustomerId());
+                }
+                result.put(entry.getKey(), saleId);
+            }
+            return result;
+        }
+    }
+}
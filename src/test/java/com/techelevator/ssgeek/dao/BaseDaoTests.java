@@ -1,24 +1,21 @@
 package com.techelevator.ssgeek.dao;
 
-import org.junit.After;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
-import java.sql.SQLException;
 
+// Each test runs in a transaction that is rolled back afterwards. DAOs that run their own
+// TransactionTemplate join it, so they neither commit nor change its isolation level
 @RunWith(SpringRunner.class)
 @ContextConfiguration(classes = TestingDatabaseConfig.class)
+@Transactional
 public abstract class BaseDaoTests {
 
     @Autowired
     protected DataSource dataSource;
 
-    @After
-    public void rollback() throws SQLException {
-        dataSource.getConnection().rollback();
-    }
-
 }
@@ -1,6 +1,7 @@
 package com.techelevator.ssgeek.dao;
 
 import com.techelevator.ssgeek.model.Customer;
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -38,6 +39,42 @@ public class JdbcCustomerDaoTest extends BaseDaoTests{
         Assert.assertEquals(4, testList.size());
     }
 
+    @Test
+    public void getCustomerPage_returns_customers_after_the_given_id() {
+        List<Customer> customers = dao.getCustomerPage(0, 3);
+        Assert.assertEquals(3, customers.size());
+        Assert.assertEquals(1, customers.get(0).getCustomerId());
+
+        customers = dao.getCustomerPage(3, 3);
+        Assert.assertEquals(1, customers.size());
+        Assert.assertEquals(4, customers.get(0).getCustomerId());
+        Assert.assertTrue(dao.getCustomerPage(4, 3).isEmpty());
+    }
+
+    @Test
+    public void searchCustomers_matches_misspelled_names() {
+        List<Customer> testList = dao.searchCustomers("Custmer", 10);
+        Assert.assertEquals(4, testList.size());
+        assertCustomersMatch(CUSTOMER_1, testList.get(0));
+    }
+
+    @Test
+    public void searchCustomers_matches_zip_prefix_and_state() {
+        List<Customer> byZip = dao.searchCustomers("333", 10);
+        Assert.assertEquals(1, byZip.size());
+        Assert.assertEquals(3, byZip.get(0).getCustomerId());
+
+        List<Customer> byState = dao.searchCustomers("s2", 10);
+        Assert.assertEquals(1, byState.size());
+        Assert.assertEquals(2, byState.get(0).getCustomerId());
+    }
+
+    @Test
+    public void searchCustomers_respects_limit_and_ignores_no_match() {
+        Assert.assertEquals(2, dao.searchCustomers("Custmer", 2).size());
+        Assert.assertEquals(0, dao.searchCustomers("Neptune", 10).size());
+    }
+
     @Test
     public void createCustomer_creates_customer() {
         Customer newCustomer = new Customer();
@@ -66,6 +103,36 @@ public class JdbcCustomerDaoTest extends BaseDaoTests{
         assertCustomersMatch(updatedCustomer, retrievedCustomer);
     }
 
+    @Test
+    public void updateCustomer_moves_version_on() {
+        Customer customer = dao.getCustomerById(1);
+        int version = customer.getVersion();
+        customer.setCity("New City");
+
+        Customer updatedCustomer = dao.updateCustomer(customer);
+
+        Assert.assertEquals(version + 1, updatedCustomer.getVersion());
+        Assert.assertEquals(version + 1, dao.getCustomerById(1).getVersion());
+    }
+
+    @Test
+    public void updateCustomer_from_stale_copy_throws_conflict_and_changes_nothing() {
+        Customer first = dao.getCustomerById(1);
+        Customer second = dao.getCustomerById(1);
+        first.setName("First Edit");
+        dao.updateCustomer(first);
+
+        second.setName("Second Edit");
+        try {
+            dao.updateCustomer(second);
+            Assert.fail("Expected a version conflict");
+        } catch (VersionConflictException e) {
+            Assert.assertEquals(second.getVersion(), e.getExpectedVersion());
+            Assert.assertEquals(second.getVersion() + 1, e.getCurrentVersion());
+        }
+        Assert.assertEquals("First Edit", dao.getCustomerById(1).getName());
+    }
+
     private void assertCustomersMatch(Customer expected, Customer actual) {
         Assert.assertEquals(expected.getCustomerId(), actual.getCustomerId());
         Assert.assertEquals(expected.getStreetAddress1(), actual.getStreetAddress1());
@@ -0,0 +1,54 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.export.ExportFormat;
+import com.techelevator.ssgeek.export.ExportTable;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class JdbcExportDaoTest extends BaseDaoTests {
+
+    private JdbcExportDao dao;
+    private Map<ExportTable, StringWriter> outputs;
+
+    @Before
+    public void setup() {
+        dao = new JdbcExportDao(dataSource);
+        outputs = new EnumMap<>(ExportTable.class);
+    }
+
+    @Test
+    public void exportTables_writes_every_row_in_key_order() {
+        Map<ExportTable, Long> rowCounts = dao.exportTables(List.of(ExportTable.PRODUCT, ExportTable.CUSTOMER),
+                table -> ExportFormat.CSV.open(output(table)), false);
+
+        Assert.assertEquals(Long.valueOf(4), rowCounts.get(ExportTable.PRODUCT));
+        Assert.assertEquals(Long.valueOf(4), rowCounts.get(ExportTable.CUSTOMER));
+        String[] lines = outputs.get(ExportTable.PRODUCT).toString().split("\r\n");
+        Assert.assertEquals(5, lines.length);
+        Assert.assertEquals("product_id,name,description,price,image_name", lines[0]);
+        Assert.assertEquals("1,Product 1,Description 1,9.99,product-1.png", lines[1]);
+    }
+
+    @Test
+    public void exportTables_includes_sales_without_line_items() {
+        Map<ExportTable, Long> rowCounts = dao.exportTables(List.of(ExportTable.SALE_LINE_ITEM),
+                table -> ExportFormat.JSONL.open(output(table)), true);
+
+        Assert.assertEquals(Long.valueOf(7), rowCounts.get(ExportTable.SALE_LINE_ITEM));
+        String[] lines = outputs.get(ExportTable.SALE_LINE_ITEM).toString().split("\n");
+        Assert.assertTrue(lines[6].startsWith("{\"sale_id\":4,"));
+        Assert.assertTrue(lines[6].endsWith("\"line_item_id\":null,\"product_id\":null,\"quantity\":null}"));
+    }
+
+    private StringWriter output(ExportTable table) {
+        StringWriter writer = new StringWriter();
+        outputs.put(table, writer);
+        return writer;
+    }
+}
@@ -0,0 +1,111 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.IncomingOrder;
+import com.techelevator.ssgeek.model.LineItem;
+import com.techelevator.ssgeek.model.Sale;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class JdbcOrderIngestDaoTest extends BaseDaoTests {
+
+    private JdbcOrderIngestDao dao;
+    private JdbcSaleDao saleDao;
+
+    @Before
+    public void setup() {
+        dao = new JdbcOrderIngestDao(dataSource);
+        saleDao = new JdbcSaleDao(dataSource);
+    }
+
+    @Test
+    public void getCustomerIds_and_getProductIds_return_every_id() {
+        int[] customerIds = dao.getCustomerIds();
+        Arrays.sort(customerIds);
+        Assert.assertArrayEquals(new int[]{1, 2, 3, 4}, customerIds);
+        Assert.assertEquals(4, dao.getProductIds().length);
+    }
+
+    @Test
+    public void insertOrders_adds_sales_with_their_line_items() {
+        IncomingOrder first = order(1, LocalDate.of(2022, 6, 1), 1, 2);
+        IncomingOrder second = order(2, LocalDate.of(2023, 1, 15), 3, 1);
+        second.getLineItems().add(lineItem(4, 5));
+
+        List<Integer> saleIds = dao.insertOrders(List.of(first, second));
+
+        Assert.assertEquals(2, saleIds.size());
+        Sale firstSale = saleDao.getSaleById(saleIds.get(0));
+        Assert.assertEquals(1, firstSale.getCustomerId());
+        Assert.assertEquals(2, firstSale.getItemCount());
+        Sale secondSale = saleDao.getSaleById(saleIds.get(1));
+        Assert.assertEquals(LocalDate.of(2023, 1, 15), secondSale.getSaleDate());
+        Assert.assertEquals(6, secondSale.getItemCount());
+        Assert.assertEquals(2, saleDao.getLineItemsBySaleId(saleIds.get(1)).size());
+        Assert.assertEquals(1, new JdbcTemplate(dataSource).queryForObject(
+                "SELECT COUNT(*) FROM sale_outbox WHERE sale_id = ? AND event_type = 'CREATED';", Integer.class,
+                saleIds.get(0)).intValue());
+    }
+
+    @Test
+    public void insertOrders_adds_nothing_if_any_order_is_refused() {
+        int salesBefore = saleDao.getSalePage(0, 1000).size();
+
+        // The refused insert aborts the transaction it runs in, so it runs under a savepoint of the test's
+        // transaction, which the DAO joins; rolling back to it lets the test read on
+        TransactionTemplate savepoint = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        try {
+            savepoint.executeWithoutResult(status -> dao.insertOrders(List.of(order(1, LocalDate.of(2022, 6, 1), 1, 1),
+                    order(1, LocalDate.of(2022, 6, 1), 99, 1))));
+            Assert.fail("Expected the unknown product to be refused");
+        } catch (DaoException e) {
+            Assert.assertEquals(salesBefore, saleDao.getSalePage(0, 1000).size());
+        }
+    }
+
+    @Test
+    public void insertOrders_skips_an_order_key_already_added() {
+        IncomingOrder first = order(1, LocalDate.of(2022, 6, 1), 1, 2);
+        first.setOrderKey(UUID.randomUUID().toString());
+        IncomingOrder again = order(1, LocalDate.of(2022, 6, 1), 1, 2);
+        again.setOrderKey(first.getOrderKey());
+        IncomingOrder other = order(2, LocalDate.of(2022, 6, 2), 3, 1);
+
+        List<Integer> firstIds = dao.insertOrders(List.of(first, again));
+        List<Integer> secondIds = dao.insertOrders(List.of(again, other));
+
+        Assert.assertNotNull(firstIds.get(0));
+        Assert.assertNull(firstIds.get(1));
+        Assert.assertNull(secondIds.get(0));
+        Assert.assertNotNull(secondIds.get(1));
+        Assert.assertEquals(1, saleDao.getLineItemsBySaleId(firstIds.get(0)).size());
+        Assert.assertEquals(2, saleDao.getSaleById(firstIds.get(0)).getItemCount());
+    }
+
+    private static IncomingOrder order(int customerId, LocalDate saleDate, int productId, int quantity) {
+        IncomingOrder order = new IncomingOrder();
+        order.setCustomerId(customerId);
+        order.setSaleDate(saleDate);
+        order.getLineItems().add(lineItem(productId, quantity));
+        return order;
+    }
+
+    private static LineItem lineItem(int productId, int quantity) {
+        LineItem lineItem = new LineItem();
+        lineItem.setProductId(productId);
+        lineItem.setQuantity(quantity);
+        return lineItem;
+    }
+}
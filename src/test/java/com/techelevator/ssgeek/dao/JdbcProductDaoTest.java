@@ -2,6 +2,7 @@ package com.techelevator.ssgeek.dao;
 
 import com.techelevator.ssgeek.model.Customer;
 import com.techelevator.ssgeek.model.Product;
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,6 +41,18 @@ public class JdbcProductDaoTest extends BaseDaoTests{
         Assert.assertEquals(4, testList.size());
     }
 
+    @Test
+    public void getProductPage_returns_products_after_the_given_id() {
+        List<Product> products = dao.getProductPage(1, 2);
+        Assert.assertEquals(2, products.size());
+        assertProductsMatch(dao.getProductById(2), products.get(0));
+        assertProductsMatch(dao.getProductById(3), products.get(1));
+
+        products = dao.getProductPage(3, 2);
+        Assert.assertEquals(1, products.size());
+        Assert.assertEquals(4, products.get(0).getProductId());
+    }
+
     @Test
     public void getProductsWithNoSales_returns_correct_list() {
         List<Product> testList = dao.getProductsWithNoSales();
@@ -47,6 +60,28 @@ public class JdbcProductDaoTest extends BaseDaoTests{
         Assert.assertEquals(1, testList.size());
     }
 
+    @Test
+    public void searchProducts_returns_matching_products() {
+        List<Product> testList = dao.searchProducts("product 3", 10);
+        Assert.assertEquals(1, testList.size());
+        assertProductsMatch(dao.getProductById(3), testList.get(0));
+    }
+
+    @Test
+    public void searchProducts_with_no_match_returns_empty_list() {
+        List<Product> testList = dao.searchProducts("telescope", 10);
+        Assert.assertNotNull(testList);
+        Assert.assertEquals(0, testList.size());
+    }
+
+    @Test
+    public void searchProducts_returns_pages() {
+        List<Product> firstPage = dao.searchProducts("description", 3);
+        List<Product> secondPage = dao.searchProducts("description", 3, 3);
+        Assert.assertEquals(3, firstPage.size());
+        Assert.assertEquals(1, secondPage.size());
+    }
+
     @Test
     public void createProduct_creates_product() {
         Product newProduct = new Product();
@@ -73,6 +108,24 @@ public class JdbcProductDaoTest extends BaseDaoTests{
         assertProductsMatch(updatedProduct, retrievedProduct);
     }
 
+    @Test
+    public void updateProduct_from_stale_copy_throws_conflict() {
+        Product first = dao.getProductById(1);
+        Product second = dao.getProductById(1);
+        first.setName("First Edit");
+        Product updatedProduct = dao.updateProduct(first);
+        Assert.assertEquals(second.getVersion() + 1, updatedProduct.getVersion());
+
+        second.setName("Second Edit");
+        try {
+            dao.updateProduct(second);
+            Assert.fail("Expected a version conflict");
+        } catch (VersionConflictException e) {
+            Assert.assertEquals(updatedProduct.getVersion(), e.getCurrentVersion());
+        }
+        Assert.assertEquals("First Edit", dao.getProductById(1).getName());
+    }
+
     @Test
     public void deleteProductById_deletes_product() {
         int rowsAffected = dao.deleteProductById(2);
@@ -0,0 +1,57 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.ProductImage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JdbcProductImageDaoTest extends BaseDaoTests {
+
+    private static final ProductImage IMAGE_1 = new ProductImage("product-1.png",
+            "1111111111111111111111111111111111111111111111111111111111111111", "image/png", 1024, 64, 48);
+
+    private JdbcProductImageDao dao;
+
+    @Before
+    public void setup() {
+        dao = new JdbcProductImageDao(dataSource);
+    }
+
+    @Test
+    public void getImageByName_returns_correct_image() {
+        ProductImage image = dao.getImageByName("product-1.png");
+        Assert.assertNotNull(image);
+        assertImagesMatch(IMAGE_1, image);
+        Assert.assertNotNull(image.getCreatedAt());
+    }
+
+    @Test
+    public void getImageByName_with_unknown_name_returns_null() {
+        Assert.assertNull(dao.getImageByName("product-2.png"));
+    }
+
+    @Test
+    public void getImageByProductId_follows_product_image_name() {
+        assertImagesMatch(IMAGE_1, dao.getImageByProductId(1));
+        Assert.assertNull(dao.getImageByProductId(2));
+    }
+
+    @Test
+    public void saveImage_records_image_once() {
+        String sha256 = "2222222222222222222222222222222222222222222222222222222222222222";
+        ProductImage newImage = new ProductImage(sha256 + ".png", sha256, "image/png", 2048, 32, 32);
+
+        assertImagesMatch(newImage, dao.saveImage(newImage));
+        assertImagesMatch(newImage, dao.saveImage(newImage));
+        assertImagesMatch(newImage, dao.getImageByName(newImage.getImageName()));
+    }
+
+    private void assertImagesMatch(ProductImage expected, ProductImage actual) {
+        Assert.assertEquals(expected.getImageName(), actual.getImageName());
+        Assert.assertEquals(expected.getSha256(), actual.getSha256());
+        Assert.assertEquals(expected.getContentType(), actual.getContentType());
+        Assert.assertEquals(expected.getSizeBytes(), actual.getSizeBytes());
+        Assert.assertEquals(expected.getWidth(), actual.getWidth());
+        Assert.assertEquals(expected.getHeight(), actual.getHeight());
+    }
+}
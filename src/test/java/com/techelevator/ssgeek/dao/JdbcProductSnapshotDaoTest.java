@@ -0,0 +1,48 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.Product;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JdbcProductSnapshotDaoTest extends BaseDaoTests {
+
+    private JdbcProductSnapshotDao dao;
+    private JdbcProductDao productDao;
+
+    @Before
+    public void setup() {
+        dao = new JdbcProductSnapshotDao(dataSource);
+        productDao = new JdbcProductDao(dataSource);
+    }
+
+    @Test
+    public void streamProducts_streams_every_product_in_id_order() {
+        List<Product> products = new ArrayList<>();
+        String fingerprint = dao.streamProducts(products::add);
+
+        Assert.assertEquals(4, products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Assert.assertEquals(i + 1, products.get(i).getProductId());
+        }
+        Assert.assertEquals(999, products.get(0).getPriceCents());
+        Assert.assertEquals("product-1.png", products.get(0).getImageName());
+        Assert.assertEquals(dao.getProductFingerprint(), fingerprint);
+    }
+
+    @Test
+    public void getProductFingerprint_changes_when_a_product_changes() {
+        String before = dao.getProductFingerprint();
+        Assert.assertEquals(32, before.length());
+        Assert.assertEquals(before, dao.getProductFingerprint());
+
+        Product product = productDao.getProductById(2);
+        product.setDescription(product.getDescription() + " (updated)");
+        productDao.updateProduct(product);
+
+        Assert.assertNotEquals(before, dao.getProductFingerprint());
+    }
+}
@@ -0,0 +1,25 @@
+package com.techelevator.ssgeek.dao;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JdbcReplicationDaoTest extends BaseDaoTests {
+
+    private JdbcReplicationDao sut;
+
+    @Before
+    public void setup() {
+        sut = new JdbcReplicationDao(dataSource);
+    }
+
+    @Test
+    public void getCurrentWalPosition_is_a_position_in_the_log() {
+        Assert.assertTrue(sut.getCurrentWalPosition() > 0);
+    }
+
+    @Test
+    public void getReplayedWalPosition_is_negative_on_a_primary() {
+        Assert.assertEquals(-1, sut.getReplayedWalPosition());
+    }
+}
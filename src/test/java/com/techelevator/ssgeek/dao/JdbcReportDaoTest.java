@@ -0,0 +1,70 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.ReportLine;
+import com.techelevator.ssgeek.model.SalesReport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class JdbcReportDaoTest extends BaseDaoTests{
+
+    private JdbcReportDao dao;
+
+    @Before
+    public void setup() {
+        dao = new JdbcReportDao(dataSource);
+    }
+
+    @Test
+    public void getSalesReport_returns_correct_totals() {
+        SalesReport report = dao.getSalesReport(10);
+        Assert.assertNotNull(report);
+        Assert.assertEquals(3, report.getTotalOrders());
+        Assert.assertEquals(123, report.getTotalUnits());
+        Assert.assertEquals(new BigDecimal("1138.78"), report.getTotalRevenue());
+        Assert.assertEquals(3, report.getRevenueByProduct().size());
+        Assert.assertEquals(3, report.getRevenueByMonth().size());
+        Assert.assertEquals(2, report.getRevenueByState().size());
+        Assert.assertEquals(2, report.getTopCustomers().size());
+    }
+
+    @Test
+    public void getRevenueByProduct_returns_products_in_rank_order() {
+        List<ReportLine> lines = dao.getRevenueByProduct();
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals(1, lines.get(0).getKey());
+        Assert.assertEquals(1, lines.get(0).getRank());
+        Assert.assertEquals(111, lines.get(0).getUnits());
+        Assert.assertEquals(new BigDecimal("1108.89"), lines.get(0).getRevenue());
+    }
+
+    @Test
+    public void getRevenueByMonth_returns_months_in_order() {
+        List<ReportLine> lines = dao.getRevenueByMonth();
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals("2022-01", lines.get(0).getLabel());
+        Assert.assertEquals(202201, lines.get(0).getKey());
+        Assert.assertEquals(new BigDecimal("29.98"), lines.get(0).getRevenue());
+        Assert.assertEquals("2022-03", lines.get(2).getLabel());
+    }
+
+    @Test
+    public void getRevenueByState_returns_correct_list() {
+        List<ReportLine> lines = dao.getRevenueByState();
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals("S2", lines.get(0).getLabel());
+        Assert.assertEquals(new BigDecimal("999.00"), lines.get(0).getRevenue());
+    }
+
+    @Test
+    public void getTopCustomers_limits_list_size() {
+        List<ReportLine> lines = dao.getTopCustomers(1);
+        Assert.assertEquals(1, lines.size());
+        Assert.assertEquals(2, lines.get(0).getKey());
+        Assert.assertEquals("Customer 2", lines.get(0).getLabel());
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.ReportLine;
+import com.techelevator.ssgeek.model.Sale;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class JdbcRollupDaoTest extends BaseDaoTests{
+
+    private static final LocalDate FROM_DATE = LocalDate.of(2022, 1, 1);
+    private static final LocalDate TO_DATE = LocalDate.of(2022, 4, 1);
+
+    private JdbcRollupDao dao;
+
+    @Before
+    public void setup() {
+        // Refreshes join the test transaction, so the rollups and watermark are rolled back with it and
+        // every test starts from the empty rollups in test-data.sql
+        dao = new JdbcRollupDao(dataSource);
+    }
+
+    @Test
+    public void refreshRollups_adds_only_new_sales() {
+        Assert.assertEquals(2, dao.refreshRollups(LocalDate.of(2022, 2, 15)));
+        Assert.assertEquals(0, dao.refreshRollups(LocalDate.of(2022, 2, 15)));
+        Assert.assertEquals(1, dao.refreshRollups(TO_DATE));
+    }
+
+    @Test
+    public void getProductRevenue_without_rollups_returns_live_data() {
+        List<ReportLine> lines = dao.getProductRevenue(FROM_DATE, TO_DATE);
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals(1, lines.get(0).getKey());
+        Assert.assertEquals(new BigDecimal("1108.89"), lines.get(0).getRevenue());
+    }
+
+    @Test
+    public void getProductRevenue_combines_rollups_and_live_data() {
+        dao.refreshRollups(LocalDate.of(2022, 2, 15));
+
+        List<ReportLine> lines = dao.getProductRevenue(FROM_DATE, TO_DATE);
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals(1, lines.get(0).getKey());
+        Assert.assertEquals(111, lines.get(0).getUnits());
+        Assert.assertEquals(3, lines.get(0).getOrderCount());
+        Assert.assertEquals(new BigDecimal("1108.89"), lines.get(0).getRevenue());
+    }
+
+    @Test
+    public void getStateRevenue_with_partial_range_returns_correct_list() {
+        dao.refreshRollups(TO_DATE);
+
+        List<ReportLine> lines = dao.getStateRevenue(LocalDate.of(2022, 1, 15), TO_DATE);
+        Assert.assertEquals(2, lines.size());
+        Assert.assertEquals("S2", lines.get(0).getLabel());
+        Assert.assertEquals(new BigDecimal("999.00"), lines.get(0).getRevenue());
+        Assert.assertEquals(new BigDecimal("109.80"), lines.get(1).getRevenue());
+    }
+
+    @Test
+    public void deleting_a_rolled_up_sale_takes_it_out_of_the_rollups() {
+        dao.refreshRollups(TO_DATE);
+
+        new JdbcSaleDao(dataSource).deleteSaleById(1);
+
+        List<ReportLine> lines = dao.getProductRevenue(FROM_DATE, TO_DATE);
+        Assert.assertEquals(new BigDecimal("9.90"), revenueOf(lines, 4));
+        Assert.assertNull(revenueOf(lines, 2));
+    }
+
+    @Test
+    public void redating_a_rolled_up_sale_moves_its_revenue() {
+        dao.refreshRollups(TO_DATE);
+        JdbcSaleDao saleDao = new JdbcSaleDao(dataSource);
+        Sale sale = saleDao.getSaleById(3);
+        sale.setSaleDate(LocalDate.of(2022, 5, 1));
+
+        saleDao.updateSale(sale);
+
+        Assert.assertEquals(new BigDecimal("109.89"), revenueOf(dao.getProductRevenue(FROM_DATE, TO_DATE), 1));
+        LocalDate mayFirst = LocalDate.of(2022, 5, 1);
+        LocalDate juneFirst = LocalDate.of(2022, 6, 1);
+        Assert.assertEquals(new BigDecimal("999.00"), revenueOf(dao.getProductRevenue(mayFirst, juneFirst), 1));
+    }
+
+    @Test
+    public void rebuildRollups_adds_all_sales() {
+        dao.refreshRollups(TO_DATE);
+
+        Assert.assertEquals(3, dao.rebuildRollups(TO_DATE));
+    }
+
+    private BigDecimal revenueOf(List<ReportLine> lines, int key) {
+        for (ReportLine line : lines) {
+            if (line.getKey() == key) {
+                return line.getRevenue();
+            }
+        }
+        return null;
+    }
+
+}
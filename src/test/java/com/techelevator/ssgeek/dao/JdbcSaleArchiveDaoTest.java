@@ -0,0 +1,117 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.Sale;
+import com.techelevator.ssgeek.model.SalesReport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class JdbcSaleArchiveDaoTest extends BaseDaoTests {
+
+    private JdbcSaleArchiveDao dao;
+    private JdbcSaleDao saleDao;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setup() {
+        dao = new JdbcSaleArchiveDao(dataSource);
+        saleDao = new JdbcSaleDao(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    public void createSalePartitions_adds_only_missing_years() {
+        Assert.assertEquals(2, dao.createSalePartitions(LocalDate.of(2031, 6, 1), LocalDate.of(2032, 1, 1)));
+        Assert.assertEquals(0, dao.createSalePartitions(LocalDate.of(2031, 1, 1), LocalDate.of(2032, 12, 31)));
+    }
+
+    @Test
+    public void archiveShippedSales_moves_shipped_sales_with_their_line_items() {
+        markRolledUp(LocalDate.of(2022, 12, 31));
+
+        Assert.assertEquals(2, dao.archiveShippedSales(LocalDate.of(2022, 2, 15), 10));
+
+        Assert.assertEquals(0, count("SELECT COUNT(*) FROM sale WHERE sale_id IN (2, 4);"));
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM sale WHERE sale_id = 1;"));
+        Assert.assertEquals(2, count("SELECT COUNT(*) FROM line_item_archive WHERE sale_id = 2;"));
+        Assert.assertEquals(0, count("SELECT COUNT(*) FROM line_item WHERE sale_id = 2;"));
+        // The totals are archived as they were, not as moving the line items left them
+        Assert.assertEquals(20, count("SELECT item_count FROM sale_archive WHERE sale_id = 2;"));
+        Assert.assertEquals(0, dao.archiveShippedSales(LocalDate.of(2022, 2, 15), 10));
+    }
+
+    @Test
+    public void archiveShippedSales_moves_at_most_one_batch() {
+        markRolledUp(LocalDate.of(2022, 12, 31));
+
+        Assert.assertEquals(1, dao.archiveShippedSales(LocalDate.of(2022, 12, 31), 1));
+        Assert.assertEquals(1, dao.archiveShippedSales(LocalDate.of(2022, 12, 31), 1));
+        Assert.assertEquals(0, dao.archiveShippedSales(LocalDate.of(2022, 12, 31), 1));
+    }
+
+    @Test
+    public void archiveShippedSales_keeps_sales_not_yet_rolled_up() {
+        Assert.assertEquals(0, dao.archiveShippedSales(LocalDate.of(2022, 12, 31), 10));
+
+        markRolledUp(LocalDate.of(2022, 1, 15));
+        Assert.assertEquals(1, dao.archiveShippedSales(LocalDate.of(2022, 12, 31), 10));
+        Assert.assertEquals(1, count("SELECT COUNT(*) FROM sale WHERE sale_id = 2;"));
+    }
+
+    @Test
+    public void archived_sales_are_still_read() {
+        SalesReport before = new JdbcReportDao(dataSource).getSalesReport(10);
+        markRolledUp(LocalDate.of(2022, 12, 31));
+        dao.archiveShippedSales(LocalDate.of(2022, 2, 15), 10);
+
+        Sale archived = saleDao.getSaleById(2);
+        Assert.assertNotNull(archived);
+        Assert.assertEquals(20, archived.getItemCount());
+        Assert.assertEquals(2, saleDao.getLineItemsBySaleId(2).size());
+        Assert.assertEquals(2, saleDao.getSalesByCustomerId(1).size());
+        Assert.assertEquals(2, saleDao.getSaleTotals(List.of(1, 2)).size());
+
+        SalesReport after = new JdbcReportDao(dataSource).getSalesReport(10);
+        Assert.assertEquals(before.getTotalRevenue(), after.getTotalRevenue());
+        Assert.assertEquals(before.getTotalOrders(), after.getTotalOrders());
+    }
+
+    @Test
+    public void archived_sales_cannot_be_updated() {
+        markRolledUp(LocalDate.of(2022, 12, 31));
+        dao.archiveShippedSales(LocalDate.of(2022, 2, 15), 10);
+
+        Sale archived = saleDao.getSaleById(2);
+        archived.setShipDate(LocalDate.of(2022, 3, 1));
+        try {
+            saleDao.updateSale(archived);
+            Assert.fail("Expected DaoException");
+        } catch (DaoException e) {
+            Assert.assertTrue(e.getMessage().contains("archived"));
+        }
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void archived_sale_id_cannot_be_used_again() {
+        markRolledUp(LocalDate.of(2022, 12, 31));
+        dao.archiveShippedSales(LocalDate.of(2022, 2, 15), 10);
+
+        jdbcTemplate.update("INSERT INTO sale (sale_id, customer_id, sale_date) VALUES (2, 1, '2022-02-01');");
+    }
+
+    // Marks every sale written before this test as rolled up
+    private void markRolledUp(LocalDate rolledThrough) {
+        jdbcTemplate.update("UPDATE rollup_watermark SET rolled_through = ?, last_txid = txid_current() " +
+                "WHERE rollup_name = 'sales';", rolledThrough);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, int.class);
+    }
+}
@@ -3,13 +3,20 @@ package com.techelevator.ssgeek.dao;
 import com.techelevator.ssgeek.model.LineItem;
 import com.techelevator.ssgeek.model.Product;
 import com.techelevator.ssgeek.model.Sale;
+import com.techelevator.ssgeek.model.SaleEvent;
+import com.techelevator.ssgeek.model.SaleTotal;
+import com.techelevator.ssgeek.exception.VersionConflictException;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 public class JdbcSaleDaoTest extends BaseDaoTests{
 
@@ -42,6 +49,19 @@ public class JdbcSaleDaoTest extends BaseDaoTests{
         Assert.assertEquals(2, sales.size());
     }
 
+    @Test
+    public void getSalePage_returns_sales_after_the_given_id() {
+        List<Sale> sales = dao.getSalePage(0, 3);
+        Assert.assertEquals(3, sales.size());
+        Assert.assertEquals(1, sales.get(0).getSaleId());
+        Assert.assertEquals(3, sales.get(2).getSaleId());
+
+        sales = dao.getSalePage(3, 3);
+        Assert.assertEquals(1, sales.size());
+        Assert.assertEquals(4, sales.get(0).getSaleId());
+        Assert.assertTrue(dao.getSalePage(4, 3).isEmpty());
+    }
+
     @Test
     public void getSalesByCustomerId_returns_correct_list_size() {
         List<Sale> sales = dao.getSalesByCustomerId(1);
@@ -70,6 +90,29 @@ public class JdbcSaleDaoTest extends BaseDaoTests{
         assertSalesMatch(createdSale, retrievedSale);
     }
 
+    @Test
+    public void createSales_creates_each_order_key_once() {
+        Sale first = new Sale();
+        first.setCustomerId(1);
+        first.setSaleDate(LocalDate.of(2022, 6, 1));
+        Sale second = new Sale();
+        second.setCustomerId(2);
+        second.setSaleDate(LocalDate.of(2022, 6, 2));
+        String firstKey = "6f1f0b1e-8a51-4c7e-9d1a-3f0c2b7e5a01";
+        String secondKey = "6f1f0b1e-8a51-4c7e-9d1a-3f0c2b7e5a02";
+
+        Map<String, Integer> created = dao.createSales(Map.of(firstKey, first));
+        Map<String, Integer> replayed = dao.createSales(Map.of(firstKey, first, secondKey, second));
+
+        Assert.assertEquals(created.get(firstKey), replayed.get(firstKey));
+        Assert.assertEquals(2, replayed.size());
+        Sale retrievedSale = dao.getSaleById(replayed.get(secondKey));
+        Assert.assertEquals(2, retrievedSale.getCustomerId());
+        Assert.assertEquals(1, dao.getSalesByCustomerId(1).stream()
+                .filter(sale -> sale.getSaleDate().equals(LocalDate.of(2022, 6, 1))).count());
+        Assert.assertEquals(List.of(SaleEvent.CREATED), getOutboxEventTypes(created.get(firstKey)));
+    }
+
     @Test
     public void updateSale_updates_sale() {
         Sale saleToUpdate = dao.getSaleById(1);
@@ -81,6 +124,126 @@ public class JdbcSaleDaoTest extends BaseDaoTests{
         assertSalesMatch(updatedSale, retrievedSale);
     }
 
+    @Test
+    public void updateSale_from_stale_copy_throws_conflict() {
+        Sale first = dao.getSaleById(1);
+        Sale second = dao.getSaleById(1);
+        first.setShipDate(LocalDate.of(2022, 3, 3));
+        dao.updateSale(first);
+
+        second.setShipDate(LocalDate.of(2022, 4, 4));
+        try {
+            dao.updateSale(second);
+            Assert.fail("Expected a version conflict");
+        } catch (VersionConflictException e) {
+            Assert.assertEquals(second.getVersion(), e.getExpectedVersion());
+        }
+        Assert.assertEquals(LocalDate.of(2022, 3, 3), dao.getSaleById(1).getShipDate());
+    }
+
+    @Test
+    public void changing_line_items_moves_sale_version_on() {
+        int version = dao.getSaleById(1).getVersion();
+
+        new JdbcProductDao(dataSource).deleteProductById(2);
+
+        Assert.assertEquals(version + 1, dao.getSaleById(1).getVersion());
+    }
+
+    @Test
+    public void shipSales_ships_only_unshipped_sales() {
+        LocalDate shipDate = LocalDate.of(2022, 5, 5);
+        int version = dao.getSaleById(1).getVersion();
+
+        List<Integer> shipped = dao.shipSales(List.of(3, 1, 2, 99), shipDate);
+
+        Assert.assertEquals(List.of(1, 3), shipped);
+        Assert.assertEquals(shipDate, dao.getSaleById(1).getShipDate());
+        Assert.assertEquals(version + 1, dao.getSaleById(1).getVersion());
+        Assert.assertEquals(LocalDate.of(2022, 2, 2), dao.getSaleById(2).getShipDate());
+        Assert.assertTrue(dao.shipSales(List.of(1, 3), shipDate).isEmpty());
+    }
+
+    @Test
+    public void shipUnshippedSalesThrough_ships_sales_on_or_before_date() {
+        LocalDate shipDate = LocalDate.of(2022, 5, 5);
+
+        List<Integer> shipped = dao.shipUnshippedSalesThrough(LocalDate.of(2022, 2, 28), shipDate);
+
+        Assert.assertEquals(List.of(1), shipped);
+        Assert.assertNull(dao.getSaleById(3).getShipDate());
+        Assert.assertEquals(List.of(3), dao.shipUnshippedSalesThrough(LocalDate.of(2022, 3, 1), shipDate));
+        Assert.assertTrue(dao.getUnshippedSales().isEmpty());
+    }
+
+    @Test
+    public void claimUnshippedSales_hands_each_sale_to_one_worker() {
+        List<Sale> first = dao.claimUnshippedSales("worker-1", 1, Duration.ofMinutes(5));
+        List<Sale> second = dao.claimUnshippedSales("worker-2", 5, Duration.ofMinutes(5));
+
+        Assert.assertEquals(1, first.size());
+        Assert.assertEquals(1, first.get(0).getSaleId());
+        Assert.assertEquals(1, second.size());
+        Assert.assertEquals(3, second.get(0).getSaleId());
+        Assert.assertTrue(dao.claimUnshippedSales("worker-3", 5, Duration.ofMinutes(5)).isEmpty());
+    }
+
+    @Test
+    public void completeClaimedSales_ships_only_sales_the_worker_holds() {
+        dao.claimUnshippedSales("worker-1", 1, Duration.ofMinutes(5));
+        LocalDate shipDate = LocalDate.of(2022, 5, 5);
+
+        Assert.assertTrue(dao.completeClaimedSales("worker-2", List.of(1), shipDate).isEmpty());
+        Assert.assertEquals(List.of(1), dao.completeClaimedSales("worker-1", List.of(1, 3), shipDate));
+        Assert.assertEquals(shipDate, dao.getSaleById(1).getShipDate());
+        Assert.assertNull(dao.getSaleById(3).getShipDate());
+    }
+
+    @Test
+    public void expired_lease_puts_sale_back_in_queue() {
+        dao.claimUnshippedSales("worker-1", 1, Duration.ZERO);
+
+        List<Sale> reclaimed = dao.claimUnshippedSales("worker-2", 1, Duration.ofMinutes(5));
+
+        Assert.assertEquals(1, reclaimed.get(0).getSaleId());
+        Assert.assertTrue(dao.completeClaimedSales("worker-1", List.of(1), LocalDate.of(2022, 5, 5)).isEmpty());
+    }
+
+    @Test
+    public void releaseClaimedSales_puts_sales_back_in_queue() {
+        dao.claimUnshippedSales("worker-1", 2, Duration.ofMinutes(5));
+
+        Assert.assertEquals(0, dao.releaseClaimedSales("worker-2", List.of(1, 3)));
+        Assert.assertEquals(2, dao.releaseClaimedSales("worker-1", List.of(1, 3)));
+        Assert.assertEquals(2, dao.claimUnshippedSales("worker-2", 5, Duration.ofMinutes(5)).size());
+    }
+
+    @Test
+    public void sale_changes_write_outbox_events() {
+        Sale newSale = new Sale();
+        newSale.setCustomerId(1);
+        newSale.setSaleDate(LocalDate.of(2022, 1, 1));
+        int saleId = dao.createSale(newSale).getSaleId();
+
+        Sale sale = dao.getSaleById(saleId);
+        sale.setSaleDate(LocalDate.of(2022, 1, 2));
+        sale = dao.updateSale(sale);
+        sale.setShipDate(LocalDate.of(2022, 1, 3));
+        dao.updateSale(sale);
+        dao.deleteSaleById(saleId);
+
+        Assert.assertEquals(List.of(SaleEvent.CREATED, SaleEvent.UPDATED, SaleEvent.SHIPPED, SaleEvent.DELETED),
+                getOutboxEventTypes(saleId));
+    }
+
+    @Test
+    public void shipSales_writes_an_event_per_sale_shipped() {
+        dao.shipSales(List.of(1, 2), LocalDate.of(2022, 5, 5));
+
+        Assert.assertEquals(List.of(SaleEvent.SHIPPED), getOutboxEventTypes(1));
+        Assert.assertTrue(getOutboxEventTypes(2).isEmpty());
+    }
+
     @Test
     public void deleteSaleById_deletes_sale() {
         int rowsAffected = dao.deleteSaleById(2);
@@ -91,6 +254,62 @@ public class JdbcSaleDaoTest extends BaseDaoTests{
         Assert.assertNull(retrievedSale);
     }
 
+    @Test
+    public void getSaleById_returns_stored_totals() {
+        Sale testSale = dao.getSaleById(1);
+        Assert.assertEquals(3, testSale.getItemCount());
+        Assert.assertEquals(new BigDecimal("29.98"), testSale.getTotalAmount());
+    }
+
+    @Test
+    public void getSaleTotals_returns_totals_for_valid_ids() {
+        List<SaleTotal> saleTotals = dao.getSaleTotals(List.of(3, 1, -1));
+        Assert.assertEquals(2, saleTotals.size());
+        Assert.assertEquals(1, saleTotals.get(0).getSaleId());
+        Assert.assertEquals(3, saleTotals.get(1).getSaleId());
+        Assert.assertEquals(100, saleTotals.get(1).getItemCount());
+        Assert.assertEquals(new BigDecimal("999.00"), saleTotals.get(1).getTotalAmount());
+    }
+
+    @Test
+    public void deleting_line_items_updates_stored_totals() {
+        new JdbcProductDao(dataSource).deleteProductById(2);
+
+        Sale testSale = dao.getSaleById(1);
+        Assert.assertEquals(2, testSale.getItemCount());
+        Assert.assertEquals(new BigDecimal("10.98"), testSale.getTotalAmount());
+    }
+
+    @Test
+    public void product_price_change_leaves_sold_lines_at_their_price() {
+        JdbcProductDao productDao = new JdbcProductDao(dataSource);
+        Product product = productDao.getProductById(1);
+        product.setPrice(new BigDecimal("50.00"));
+        productDao.updateProduct(product);
+        new JdbcTemplate(dataSource).update("UPDATE line_item SET quantity = quantity WHERE sale_id = 1;");
+
+        Sale testSale = dao.getSaleById(1);
+        Assert.assertEquals(new BigDecimal("29.98"), testSale.getTotalAmount());
+        Assert.assertEquals(999, dao.getLineItemsBySaleId(1).get(0).getPriceCents());
+    }
+
+    @Test(expected = DataIntegrityViolationException.class)
+    public void sale_id_is_unique_across_partitions() {
+        new JdbcTemplate(dataSource).update(
+                "INSERT INTO sale (sale_id, customer_id, sale_date) VALUES (1, 1, '2023-06-01');");
+    }
+
+    @Test
+    public void moving_a_sale_to_another_year_keeps_its_id() {
+        Sale sale = dao.getSaleById(4);
+        sale.setSaleDate(LocalDate.of(2023, 6, 1));
+        dao.updateSale(sale);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Assert.assertEquals(1, (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM sale_id_registry WHERE sale_id = 4;", int.class));
+    }
+
     @Test
     public void getLineItemsBySaleId_returns_correct_list_size() {
         List<LineItem> lineItems = dao.getLineItemsBySaleId(1);
@@ -98,6 +317,11 @@ public class JdbcSaleDaoTest extends BaseDaoTests{
         Assert.assertEquals(3, lineItems.size());
     }
 
+    private List<String> getOutboxEventTypes(int saleId) {
+        return new JdbcTemplate(dataSource).queryForList(
+                "SELECT event_type FROM sale_outbox WHERE sale_id = ? ORDER BY event_id;", String.class, saleId);
+    }
+
     public void assertSalesMatch(Sale expected, Sale actual) {
         Assert.assertEquals(expected.getSaleId(), actual.getSaleId());
         Assert.assertEquals(expected.getSaleDate(), actual.getSaleDate());
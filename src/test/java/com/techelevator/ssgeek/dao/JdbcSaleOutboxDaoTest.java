@@ -0,0 +1,83 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.model.SaleEvent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class JdbcSaleOutboxDaoTest extends BaseDaoTests {
+
+    private JdbcSaleOutboxDao dao;
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setup() {
+        dao = new JdbcSaleOutboxDao(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // Events from long finished transactions, with ids out of transaction order. The ids are well
+        // above any the sequence hands out in other tests
+        addEvent(900010, 2, 1, SaleEvent.SHIPPED);
+        addEvent(900011, 1, 1, SaleEvent.CREATED);
+        addEvent(900012, 2, 3, SaleEvent.UPDATED);
+    }
+
+    @Test
+    public void getUndeliveredEvents_returns_events_in_transaction_order() {
+        List<SaleEvent> events = dao.getUndeliveredEvents("test", 10);
+
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals(900011, events.get(0).getEventId());
+        Assert.assertEquals(900010, events.get(1).getEventId());
+        Assert.assertEquals(900012, events.get(2).getEventId());
+        Assert.assertEquals(SaleEvent.CREATED, events.get(0).getEventType());
+        Assert.assertTrue(events.get(0).getPayload().contains("\"saleId\" : 1"));
+    }
+
+    @Test
+    public void getUndeliveredEvents_skips_events_of_unfinished_transactions() {
+        new JdbcSaleDao(dataSource).deleteSaleById(4);
+
+        Assert.assertEquals(3, dao.getUndeliveredEvents("test", 10).size());
+    }
+
+    @Test
+    public void markDelivered_moves_the_relay_past_the_event() {
+        List<SaleEvent> events = dao.getUndeliveredEvents("test", 2);
+        dao.markDelivered("test", events.get(1));
+
+        List<SaleEvent> remaining = dao.getUndeliveredEvents("test", 10);
+        Assert.assertEquals(1, remaining.size());
+        Assert.assertEquals(900012, remaining.get(0).getEventId());
+        Assert.assertEquals(3, dao.getUndeliveredEvents("other", 10).size());
+    }
+
+    @Test
+    public void deleteDeliveredEvents_keeps_events_any_relay_still_needs() {
+        Assert.assertEquals(0, dao.deleteDeliveredEvents(List.of("first", "second")));
+
+        List<SaleEvent> events = dao.getUndeliveredEvents("first", 10);
+        dao.markDelivered("first", events.get(2));
+        dao.markDelivered("second", events.get(0));
+
+        Assert.assertEquals(1, dao.deleteDeliveredEvents(List.of("first", "second")));
+        Assert.assertEquals(2, dao.getUndeliveredEvents("second", 10).size());
+    }
+
+    @Test
+    public void deleteDeliveredEvents_keeps_events_for_a_relay_that_has_not_run() {
+        List<SaleEvent> events = dao.getUndeliveredEvents("first", 10);
+        dao.markDelivered("first", events.get(2));
+
+        Assert.assertEquals(0, dao.deleteDeliveredEvents(List.of("first", "never-run")));
+        Assert.assertEquals(3, dao.getUndeliveredEvents("never-run", 10).size());
+        Assert.assertEquals(3, dao.deleteDeliveredEvents(List.of("first")));
+    }
+
+    private void addEvent(long eventId, long txid, int saleId, String eventType) {
+        jdbcTemplate.update("INSERT INTO sale_outbox (event_id, txid, sale_id, event_type, payload) " +
+                "VALUES (?, ?, ?, ?, json_build_object('saleId', ?));", eventId, txid, saleId, eventType, saleId);
+    }
+}
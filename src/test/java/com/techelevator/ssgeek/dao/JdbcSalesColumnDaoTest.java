@@ -0,0 +1,94 @@
+package com.techelevator.ssgeek.dao;
+
+import com.techelevator.ssgeek.analytics.GroupBy;
+import com.techelevator.ssgeek.analytics.GroupedTotals;
+import com.techelevator.ssgeek.analytics.SalesColumns;
+import com.techelevator.ssgeek.analytics.SalesQuery;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class JdbcSalesColumnDaoTest extends BaseDaoTests{
+
+    private JdbcSalesColumnDao dao;
+
+    @Before
+    public void setup() {
+        dao = new JdbcSalesColumnDao(dataSource);
+    }
+
+    @Test
+    public void appendNewSales_loads_all_line_items_once() {
+        SalesColumns columns = new SalesColumns();
+
+        Assert.assertEquals(6, dao.appendNewSales(columns));
+        Assert.assertTrue(columns.getLoadedBeforeTxid() > 0);
+        Assert.assertEquals(0, dao.appendNewSales(columns));
+    }
+
+    @Test
+    public void aggregate_matches_columnar_aggregate() {
+        SalesColumns columns = new SalesColumns();
+        dao.appendNewSales(columns);
+
+        for (GroupBy groupBy : GroupBy.values()) {
+            SalesQuery query = new SalesQuery(groupBy);
+            GroupedTotals inSql = dao.aggregate(query, columns.getLoadedBeforeTxid());
+            Assert.assertTrue(groupBy.toString(), columns.aggregate(query).matches(inSql));
+        }
+    }
+
+    // Needs transactions that really commit, one after the other, so it runs outside the test transaction
+    // on connections of its own and deletes what it added
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void appendNewSales_loads_sales_that_commit_out_of_order() throws SQLException {
+        DriverManagerDataSource testDatabase = (DriverManagerDataSource) dataSource;
+        DriverManagerDataSource database = new DriverManagerDataSource(testDatabase.getUrl(),
+                testDatabase.getUsername(), testDatabase.getPassword());
+        JdbcSalesColumnDao separateDao = new JdbcSalesColumnDao(database);
+        SalesColumns columns = new SalesColumns();
+        separateDao.appendNewSales(columns);
+        int loaded = columns.size();
+
+        int firstSaleId = 0;
+        int secondSaleId = 0;
+        try (Connection first = database.getConnection(); Connection second = database.getConnection()) {
+            first.setAutoCommit(false);
+            second.setAutoCommit(false);
+            // The first sale gets the lower id and transaction id, but commits last
+            firstSaleId = addSale(first);
+            secondSaleId = addSale(second);
+            second.commit();
+
+            Assert.assertEquals(0, separateDao.appendNewSales(columns));
+
+            first.commit();
+            Assert.assertEquals(2, separateDao.appendNewSales(columns));
+            Assert.assertEquals(loaded + 2, columns.size());
+            Assert.assertEquals(0, separateDao.appendNewSales(columns));
+        } finally {
+            JdbcTemplate cleanup = new JdbcTemplate(database);
+            cleanup.update("DELETE FROM line_item WHERE sale_id IN (?, ?);", firstSaleId, secondSaleId);
+            cleanup.update("DELETE FROM sale WHERE sale_id IN (?, ?);", firstSaleId, secondSaleId);
+        }
+    }
+
+    private int addSale(Connection connection) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        Integer saleId = jdbcTemplate.queryForObject("INSERT INTO sale (customer_id, sale_date) " +
+                "VALUES (1, '2022-06-01') RETURNING sale_id;", Integer.class);
+        jdbcTemplate.update("INSERT INTO line_item (sale_id, sale_date, product_id, quantity) " +
+                "VALUES (?, '2022-06-01', 1, 1);", saleId);
+        return saleId;
+    }
+
+}
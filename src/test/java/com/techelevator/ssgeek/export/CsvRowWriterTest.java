@@ -0,0 +1,31 @@
+package com.techelevator.ssgeek.export;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+
+public class CsvRowWriterTest {
+
+    @Test
+    public void writes_header_and_rows_with_crlf() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvRowWriter writer = new CsvRowWriter(out);
+        writer.start(new String[] {"id", "price", "sale_date", "note"});
+        writer.write(new Object[] {1, new BigDecimal("9.90"), Date.valueOf(LocalDate.of(2022, 1, 2)), null});
+        writer.finish();
+        Assert.assertEquals("id,price,sale_date,note\r\n1,9.90,2022-01-02,\r\n", out.toString());
+    }
+
+    @Test
+    public void quotes_fields_with_commas_quotes_and_line_breaks() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvRowWriter writer = new CsvRowWriter(out);
+        writer.write(new Object[] {"a,b", "say \"hi\"", "two\nlines", "plain"});
+        Assert.assertEquals("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",plain\r\n", out.toString());
+    }
+}
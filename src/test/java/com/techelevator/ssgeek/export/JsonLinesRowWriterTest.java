@@ -0,0 +1,34 @@
+package com.techelevator.ssgeek.export;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+
+public class JsonLinesRowWriterTest {
+
+    @Test
+    public void writes_one_object_per_row() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonLinesRowWriter writer = new JsonLinesRowWriter(out);
+        writer.start(new String[] {"id", "price", "sale_date", "note"});
+        writer.write(new Object[] {1, new BigDecimal("9.90"), Date.valueOf(LocalDate.of(2022, 1, 2)), null});
+        writer.write(new Object[] {2, BigDecimal.ONE, null, "x"});
+        writer.finish();
+        Assert.assertEquals("{\"id\":1,\"price\":9.90,\"sale_date\":\"2022-01-02\",\"note\":null}\n" +
+                "{\"id\":2,\"price\":1,\"sale_date\":null,\"note\":\"x\"}\n", out.toString());
+    }
+
+    @Test
+    public void escapes_strings() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonLinesRowWriter writer = new JsonLinesRowWriter(out);
+        writer.start(new String[] {"name"});
+        writer.write(new Object[] {"\"quoted\" \\ tab\t line\n bell\u0007"});
+        Assert.assertEquals("{\"name\":\"\\\"quoted\\\" \\\\ tab\\t line\\n bell\\u0007\"}\n", out.toString());
+    }
+}
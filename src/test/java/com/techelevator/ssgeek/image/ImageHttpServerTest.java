@@ -0,0 +1,135 @@
+package com.techelevator.ssgeek.image;
+
+import com.techelevator.ssgeek.model.ProductImage;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+
+public class ImageHttpServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageStore store;
+    private ImageHttpServer server;
+    private HotImageCache cache;
+    private HttpClient client;
+    private String baseUrl;
+    private ProductImage image;
+    private byte[] png;
+
+    @Before
+    public void setup() throws IOException {
+        store = new ImageStore(folder.getRoot().toPath());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", out);
+        png = out.toByteArray();
+        image = store.store(new ByteArrayInputStream(png));
+
+        cache = new HotImageCache(1024 * 1024, 2);
+        server = new ImageHttpServer(store, cache);
+        InetSocketAddress address = server.start(new InetSocketAddress("127.0.0.1", 0), 2);
+        baseUrl = "http://127.0.0.1:" + address.getPort() + ImageHttpServer.CONTEXT_PATH;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @After
+    public void cleanup() {
+        server.stop();
+    }
+
+    @Test
+    public void get_returns_image_with_etag() throws Exception {
+        HttpResponse<byte[]> response = get(image.getImageName(), null, null);
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertArrayEquals(png, response.body());
+        Assert.assertEquals("\"" + image.getSha256() + "\"", response.headers().firstValue("ETag").orElse(null));
+        Assert.assertEquals("image/png", response.headers().firstValue("Content-Type").orElse(null));
+    }
+
+    @Test
+    public void get_with_matching_etag_returns_not_modified() throws Exception {
+        HttpResponse<byte[]> response = get(image.getImageName(), "If-None-Match", "\"" + image.getSha256() + "\"");
+        Assert.assertEquals(304, response.statusCode());
+        Assert.assertEquals(0, response.body().length);
+    }
+
+    @Test
+    public void get_with_range_returns_partial_content() throws Exception {
+        HttpResponse<byte[]> response = get(image.getImageName(), "Range", "bytes=8-15");
+        Assert.assertEquals(206, response.statusCode());
+        Assert.assertArrayEquals(Arrays.copyOfRange(png, 8, 16), response.body());
+        Assert.assertEquals("bytes 8-15/" + png.length, response.headers().firstValue("Content-Range").orElse(null));
+
+        response = get(image.getImageName(), "Range", "bytes=-4");
+        Assert.assertArrayEquals(Arrays.copyOfRange(png, png.length - 4, png.length), response.body());
+
+        response = get(image.getImageName(), "Range", "bytes=" + png.length + "-");
+        Assert.assertEquals(416, response.statusCode());
+    }
+
+    @Test
+    public void thumbnail_is_only_cached_for_good_once_it_is_made() throws Exception {
+        HttpResponse<byte[]> response = get(image.getImageName() + "?size=20", null, null);
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertArrayEquals(png, response.body());
+        Assert.assertEquals("no-cache", response.headers().firstValue("Cache-Control").orElse(null));
+
+        store.storeVariant(image.getImageName(), 20, new BufferedImage(20, 15, BufferedImage.TYPE_INT_RGB));
+        response = get(image.getImageName() + "?size=20", "If-None-Match", "\"" + image.getSha256() + "\"");
+        Assert.assertEquals(200, response.statusCode());
+        Assert.assertEquals(20, ImageIO.read(new ByteArrayInputStream(response.body())).getWidth());
+        Assert.assertEquals("public, max-age=31536000, immutable",
+                response.headers().firstValue("Cache-Control").orElse(null));
+    }
+
+    @Test
+    public void get_unknown_image_returns_not_found() throws Exception {
+        Assert.assertEquals(404, get("product-1.png", null, null).statusCode());
+        Assert.assertEquals(404, get(image.getSha256().replace('a', 'b').replace('0', '1') + ".png", null, null).statusCode());
+    }
+
+    @Test
+    public void repeated_requests_are_served_from_the_cache() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<byte[]> response = get(image.getImageName(), null, null);
+            Assert.assertArrayEquals(png, response.body());
+        }
+        Assert.assertEquals(1, cache.getEntryCount());
+        Assert.assertEquals(png.length, cache.getUsedBytes());
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void parseRange_handles_open_suffix_and_bad_ranges() {
+        Assert.assertArrayEquals(new long[] {0, 99}, ImageHttpServer.parseRange("bytes=0-", 100));
+        Assert.assertArrayEquals(new long[] {90, 99}, ImageHttpServer.parseRange("bytes=-10", 100));
+        Assert.assertArrayEquals(new long[] {50, 99}, ImageHttpServer.parseRange("bytes=50-500", 100));
+        Assert.assertArrayEquals(new long[0], ImageHttpServer.parseRange("bytes=0-1,5-6", 100));
+        Assert.assertNull(ImageHttpServer.parseRange("bytes=100-", 100));
+        Assert.assertNull(ImageHttpServer.parseRange("bytes=20-10", 100));
+    }
+
+    private HttpResponse<byte[]> get(String imageName, String header, String value) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + imageName));
+        if (header != null) {
+            request.header(header, value);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
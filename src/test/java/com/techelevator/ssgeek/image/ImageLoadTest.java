@@ -0,0 +1,103 @@
+package com.techelevator.ssgeek.image;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ImageLoadTest requests images from an ImageHttpServer as fast as it can from several threads for a
+ * fixed time, then prints requests per second, throughput and latency percentiles.
+ *
+ * Usage: ImageLoadTest imageUrl[,imageUrl...] [threads] [seconds]
+ * For example: ImageLoadTest http://localhost:8081/images/abcd...png 32 20
+ */
+
+public class ImageLoadTest {
+
+    // Latencies kept per thread; later requests are counted but not sampled
+    private static final int MAX_SAMPLES_PER_THREAD = 200_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: ImageLoadTest imageUrl[,imageUrl...] [threads] [seconds]");
+            return;
+        }
+        String[] urls = args[0].split(",");
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        HttpRequest[] requests = new HttpRequest[urls.length];
+        for (int i = 0; i < urls.length; i++) {
+            requests[i] = HttpRequest.newBuilder(URI.create(urls[i])).timeout(Duration.ofSeconds(30)).build();
+        }
+
+        AtomicLong okCount = new AtomicLong();
+        AtomicLong errorCount = new AtomicLong();
+        AtomicLong byteCount = new AtomicLong();
+        long[][] samples = new long[threads][];
+        int[] sampleCounts = new int[threads];
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int threadIndex = t;
+            samples[t] = new long[MAX_SAMPLES_PER_THREAD];
+            Thread thread = new Thread(() -> {
+                int n = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = requests[(threadIndex + n) % requests.length];
+                        long requestStart = System.nanoTime();
+                        try {
+                            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                            if (response.statusCode() == 200 || response.statusCode() == 206) {
+                                okCount.incrementAndGet();
+                                byteCount.addAndGet(response.body().length);
+                            } else {
+                                errorCount.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errorCount.incrementAndGet();
+                        }
+                        if (n < MAX_SAMPLES_PER_THREAD) {
+                            samples[threadIndex][n] = System.nanoTime() - requestStart;
+                        }
+                        n++;
+                    }
+                } finally {
+                    sampleCounts[threadIndex] = Math.min(n, MAX_SAMPLES_PER_THREAD);
+                    done.countDown();
+                }
+            }, "load-" + t);
+            thread.start();
+        }
+        done.await();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        int total = 0;
+        for (int count : sampleCounts) {
+            total += count;
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(samples[t], 0, latencies, offset, sampleCounts[t]);
+            offset += sampleCounts[t];
+        }
+        Arrays.sort(latencies);
+
+        System.out.format("%d threads, %.1f s: %d ok, %d errors%n", threads, elapsedSeconds, okCount.get(), errorCount.get());
+        System.out.format("%.0f requests/sec, %.1f MB/sec%n", okCount.get() / elapsedSeconds, byteCount.get() / elapsedSeconds / 1e6);
+        if (total > 0) {
+            System.out.format("latency p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", latencies[total / 2] / 1e6,
+                    latencies[(int) (total * 0.99)] / 1e6, latencies[total - 1] / 1e6);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.techelevator.ssgeek.image;
+
+import com.techelevator.ssgeek.exception.ImageException;
+import com.techelevator.ssgeek.model.ProductImage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class ImageStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageStore store;
+    private byte[] png;
+
+    @Before
+    public void setup() throws IOException {
+        store = new ImageStore(folder.getRoot().toPath());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "png", out);
+        png = out.toByteArray();
+    }
+
+    @Test
+    public void store_names_image_by_hash_and_reads_dimensions() {
+        ProductImage image = store.store(new ByteArrayInputStream(png));
+        Assert.assertEquals(64, image.getSha256().length());
+        Assert.assertEquals(image.getSha256() + ".png", image.getImageName());
+        Assert.assertEquals("image/png", image.getContentType());
+        Assert.assertEquals(png.length, image.getSizeBytes());
+        Assert.assertEquals(64, image.getWidth());
+        Assert.assertEquals(48, image.getHeight());
+
+        Path file = store.pathOf(image.getImageName());
+        Assert.assertEquals(folder.getRoot().toPath().resolve(image.getSha256().substring(0, 2))
+                .resolve(image.getSha256().substring(2, 4)).resolve(image.getImageName()), file);
+        Assert.assertTrue(store.contains(image.getImageName()));
+    }
+
+    @Test
+    public void store_keeps_one_copy_of_the_same_content() throws IOException {
+        ProductImage first = store.store(new ByteArrayInputStream(png));
+        ProductImage second = store.store(new ByteArrayInputStream(png));
+        Assert.assertEquals(first.getImageName(), second.getImageName());
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath())) {
+            Assert.assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void store_rejects_non_images_and_leaves_no_temp_file() throws IOException {
+        Assert.assertThrows(ImageException.class,
+                () -> store.store(new ByteArrayInputStream("not an image".getBytes())));
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath())) {
+            Assert.assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void reads_return_the_stored_bytes() {
+        ProductImage image = store.store(new ByteArrayInputStream(png));
+
+        ByteBuffer mapped = store.map(image.getImageName());
+        byte[] mappedBytes = new byte[mapped.remaining()];
+        mapped.get(mappedBytes);
+        Assert.assertArrayEquals(png, mappedBytes);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long sent = store.transferTo(image.getImageName(), 10, 20, Channels.newChannel(out));
+        Assert.assertEquals(20, sent);
+        byte[] expected = new byte[20];
+        System.arraycopy(png, 10, expected, 0, 20);
+        Assert.assertArrayEquals(expected, out.toByteArray());
+    }
+
+    @Test
+    public void pathOf_rejects_names_the_store_did_not_give_out() {
+        Assert.assertFalse(store.contains("product-1.png"));
+        Assert.assertThrows(ImageException.class, () -> store.pathOf("../../etc/passwd"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.techelevator.ssgeek.image;
+
+import com.techelevator.ssgeek.model.ProductImage;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+
+public class ThumbnailPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageStore store;
+    private ThumbnailPipeline pipeline;
+    private ProductImage image;
+
+    @Before
+    public void setup() throws IOException {
+        store = new ImageStore(folder.getRoot().toPath());
+        pipeline = new ThumbnailPipeline(store, 8, 64, 256);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_ARGB), "png", out);
+        image = store.store(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @After
+    public void cleanup() {
+        pipeline.shutdown(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void generateVariants_writes_each_size_largest_first() throws IOException {
+        List<Path> variants = pipeline.generateVariants(image.getImageName());
+        Assert.assertEquals(2, variants.size());
+        assertSize(variants.get(0), 256, 128);
+        assertSize(variants.get(1), 64, 32);
+        Assert.assertEquals(store.variantPathOf(image.getImageName(), 64), variants.get(1));
+    }
+
+    @Test
+    public void generateVariants_keeps_existing_files() throws IOException {
+        Path variant = pipeline.generateVariants(image.getImageName()).get(0);
+        long modified = Files.getLastModifiedTime(variant).toMillis();
+        Files.setLastModifiedTime(variant, FileTime.fromMillis(modified - 60_000));
+
+        pipeline.generateVariants(image.getImageName());
+        Assert.assertEquals(modified - 60_000, Files.getLastModifiedTime(variant).toMillis());
+    }
+
+    @Test
+    public void submit_makes_variants_in_the_background() {
+        Assert.assertTrue(pipeline.submit(image.getImageName()));
+        Assert.assertTrue(pipeline.shutdown(Duration.ofSeconds(10)));
+
+        Assert.assertTrue(Files.exists(store.variantPathOf(image.getImageName(), 256)));
+        Assert.assertTrue(Files.exists(store.variantPathOf(image.getImageName(), 64)));
+        Assert.assertEquals(1, pipeline.getProcessedCount());
+        Assert.assertEquals(0, pipeline.getFailedCount());
+        Assert.assertEquals(0, pipeline.getQueueDepth());
+        Assert.assertTrue(pipeline.getMaxMillis() > 0);
+    }
+
+    @Test
+    public void submit_ignores_images_not_in_the_store() {
+        Assert.assertFalse(pipeline.submit("product-1.png"));
+        Assert.assertEquals(0, pipeline.getRejectedCount());
+    }
+
+    private static void assertSize(Path file, int width, int height) throws IOException {
+        BufferedImage variant = ImageIO.read(file.toFile());
+        Assert.assertEquals(width, variant.getWidth());
+        Assert.assertEquals(height, variant.getHeight());
+    }
+}
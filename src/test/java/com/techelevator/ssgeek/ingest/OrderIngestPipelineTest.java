@@ -0,0 +1,208 @@
+package com.techelevator.ssgeek.ingest;
+
+import com.techelevator.ssgeek.dao.OrderIngestDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.IncomingOrder;
+import com.techelevator.ssgeek.model.LineItem;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class OrderIngestPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path ordersFile;
+    private Path rejectFile;
+    private FakeIngestDao ingestDao;
+
+    @Before
+    public void setup() {
+        ordersFile = folder.getRoot().toPath().resolve("orders.jsonl");
+        rejectFile = folder.getRoot().toPath().resolve("orders.rejects.jsonl");
+        ingestDao = new FakeIngestDao();
+    }
+
+    @Test
+    public void parseOrder_reads_sale_and_line_items() {
+        IncomingOrder order = OrderIngestPipeline.parseOrder("{\"customerId\": 2, \"saleDate\": \"2022-06-01\", " +
+                "\"shipDate\": null, \"lineItems\": [{\"productId\": 3, \"quantity\": 4}, {\"productId\": 1, \"quantity\": 1}]}");
+
+        Assert.assertEquals(2, order.getCustomerId());
+        Assert.assertEquals(LocalDate.of(2022, 6, 1), order.getSaleDate());
+        Assert.assertNull(order.getShipDate());
+        Assert.assertEquals(2, order.getLineItems().size());
+        Assert.assertEquals(3, order.getLineItems().get(0).getProductId());
+        Assert.assertEquals(4, order.getLineItems().get(0).getQuantity());
+    }
+
+    @Test
+    public void every_good_line_is_inserted_across_many_chunks() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            lines.add(orderLine(1 + i % 3, 1 + i % 2, 1 + i % 5));
+        }
+        Files.write(ordersFile, lines, StandardCharsets.UTF_8);
+
+        // Small chunks and batches, so lines are spread over many chunks and parser threads
+        IngestReport report = new OrderIngestPipeline(ingestDao, 4, 3, 7, 1024).run(ordersFile, rejectFile, null);
+
+        Assert.assertEquals(1000, report.getLinesRead());
+        Assert.assertEquals(1000, report.getOrdersInserted());
+        Assert.assertEquals(1000, report.getLineItemsInserted());
+        Assert.assertEquals(0, report.getRejected());
+        Assert.assertEquals(1000, ingestDao.inserted.size());
+        Assert.assertEquals(Files.size(ordersFile), report.getBytesRead());
+        Assert.assertTrue(ingestDao.largestBatch <= 7);
+    }
+
+    @Test
+    public void bad_lines_go_to_reject_file_and_the_rest_are_inserted() throws IOException {
+        Files.write(ordersFile, List.of(
+                orderLine(1, 1, 1),
+                "not json",
+                orderLine(99, 1, 1),
+                orderLine(1, 99, 1),
+                orderLine(1, 1, 0),
+                "{\"customerId\": 1, \"saleDate\": \"June\", \"lineItems\": []}",
+                "",
+                orderLine(2, 2, 2)), StandardCharsets.UTF_8);
+
+        IngestReport report = new OrderIngestPipeline(ingestDao, 2, 2, 10).run(ordersFile, rejectFile, null);
+
+        Assert.assertEquals(7, report.getLinesRead());
+        Assert.assertEquals(2, report.getOrdersInserted());
+        Assert.assertEquals(5, report.getRejected());
+        List<String> rejects = Files.readAllLines(rejectFile, StandardCharsets.UTF_8);
+        Assert.assertEquals(5, rejects.size());
+        Assert.assertTrue(rejects.stream().anyMatch(line -> line.contains("Unknown customer 99")));
+        Assert.assertTrue(rejects.stream().anyMatch(line -> line.contains("Unknown product 99")));
+        Assert.assertTrue(rejects.stream().anyMatch(line -> line.contains("Quantity must be at least 1")));
+        Assert.assertTrue(rejects.stream().anyMatch(line -> line.contains("saleDate must be a date")));
+        Assert.assertTrue(rejects.stream().anyMatch(line -> line.contains("\"line\":\"not json\"")));
+    }
+
+    @Test
+    public void order_refused_by_database_is_rejected_without_losing_its_batch() throws IOException {
+        ingestDao.refusedCustomerId = 3;
+        Files.write(ordersFile, List.of(orderLine(1, 1, 1), orderLine(3, 1, 1), orderLine(2, 1, 1)),
+                StandardCharsets.UTF_8);
+
+        IngestReport report = new OrderIngestPipeline(ingestDao, 1, 1, 10).run(ordersFile, rejectFile, null);
+
+        Assert.assertEquals(2, report.getOrdersInserted());
+        Assert.assertEquals(1, report.getRejected());
+        Assert.assertTrue(Files.readString(rejectFile).contains("Refused by the database"));
+    }
+
+    @Test
+    public void running_a_file_again_inserts_nothing_more() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lines.add(orderLine(1 + i % 3, 1, 1));
+        }
+        Files.write(ordersFile, lines, StandardCharsets.UTF_8);
+        OrderIngestPipeline pipeline = new OrderIngestPipeline(ingestDao, 2, 2, 7, 512);
+
+        IngestReport first = pipeline.run(ordersFile, rejectFile, null);
+        IngestReport second = pipeline.run(ordersFile, rejectFile, null);
+
+        Assert.assertEquals(100, first.getOrdersInserted());
+        Assert.assertEquals(0, second.getOrdersInserted());
+        Assert.assertEquals(100, second.getAlreadyLoaded());
+        Assert.assertEquals(100, ingestDao.inserted.size());
+    }
+
+    @Test
+    public void orders_with_the_same_order_id_are_inserted_once() throws IOException {
+        Files.write(ordersFile, List.of(
+                "{\"orderId\": \"A-1\", " + orderLine(1, 1, 1).substring(1),
+                "{\"orderId\": 7, " + orderLine(2, 1, 1).substring(1),
+                "{\"orderId\": \"A-1\", " + orderLine(1, 1, 1).substring(1)), StandardCharsets.UTF_8);
+
+        IngestReport report = new OrderIngestPipeline(ingestDao, 1, 1, 10).run(ordersFile, rejectFile, null);
+
+        Assert.assertEquals(2, report.getOrdersInserted());
+        Assert.assertEquals(1, report.getAlreadyLoaded());
+        Assert.assertEquals(0, report.getRejected());
+    }
+
+    @Test(expected = DaoException.class)
+    public void database_failure_stops_the_run() throws IOException {
+        ingestDao.databaseDown = true;
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lines.add(orderLine(1, 1, 1));
+        }
+        Files.write(ordersFile, lines, StandardCharsets.UTF_8);
+
+        new OrderIngestPipeline(ingestDao, 2, 2, 5, 512).run(ordersFile, rejectFile, null);
+    }
+
+    private static String orderLine(int customerId, int productId, int quantity) {
+        return String.format("{\"customerId\": %d, \"saleDate\": \"2022-06-01\", \"shipDate\": null, " +
+                "\"lineItems\": [{\"productId\": %d, \"quantity\": %d}]}", customerId, productId, quantity);
+    }
+
+    private static class FakeIngestDao implements OrderIngestDao {
+        final List<IncomingOrder> inserted = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> orderKeys = new HashSet<>();
+        volatile int largestBatch;
+        volatile int refusedCustomerId = -1;
+        volatile boolean databaseDown;
+
+        @Override
+        public int[] getCustomerIds() {
+            return new int[]{1, 2, 3};
+        }
+
+        @Override
+        public int[] getProductIds() {
+            return new int[]{1, 2};
+        }
+
+        @Override
+        public synchronized List<Integer> insertOrders(List<IncomingOrder> orders) {
+            if (databaseDown) {
+                throw new DaoException("Unable to connect to server or database",
+                        new CannotGetJdbcConnectionException("down"));
+            }
+            for (IncomingOrder order : orders) {
+                if (order.getCustomerId() == refusedCustomerId) {
+                    throw new DaoException("Data integrity violation", new DataIntegrityViolationException("refused"));
+                }
+                for (LineItem lineItem : order.getLineItems()) {
+                    Assert.assertTrue(lineItem.getQuantity() > 0);
+                }
+            }
+            largestBatch = Math.max(largestBatch, orders.size());
+            List<Integer> saleIds = new ArrayList<>();
+            for (IncomingOrder order : orders) {
+                Assert.assertNotNull(order.getOrderKey());
+                if (orderKeys.add(order.getOrderKey())) {
+                    inserted.add(order);
+                    saleIds.add(inserted.size());
+                } else {
+                    saleIds.add(null);
+                }
+            }
+            return saleIds;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.techelevator.ssgeek.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class MoneyTest {
+
+    @Test
+    public void toCents_rounds_like_decimal_column() {
+        Assert.assertEquals(999, Money.toCents(new BigDecimal("9.99")));
+        Assert.assertEquals(1000, Money.toCents(new BigDecimal("9.995")));
+        Assert.assertEquals(1900, Money.toCents(BigDecimal.valueOf(19)));
+        Assert.assertEquals(new BigDecimal("9.99"), Money.toBigDecimal(999));
+    }
+
+    @Test
+    public void arithmetic_throws_on_overflow() {
+        Assert.assertEquals(Long.MAX_VALUE, Money.add(Long.MAX_VALUE - 1, 1));
+        Assert.assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        Assert.assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+    }
+
+    @Test
+    public void format_returns_dollars_and_cents() {
+        Assert.assertEquals("9.99", Money.format(999));
+        Assert.assertEquals("0.05", Money.format(5));
+        Assert.assertEquals("-0.05", Money.format(-5));
+        Assert.assertEquals("1234.50", Money.ofCents(123450).toString());
+    }
+
+    @Test
+    public void extendedTotalCents_matches_big_decimal_total() {
+        List<LineItem> lineItems = List.of(
+                new LineItem(1, 1, 1, 10, "Product 1", new BigDecimal("9.99")),
+                new LineItem(2, 1, 2, 3, "Product 2", new BigDecimal("221999.99")));
+
+        BigDecimal expected = BigDecimal.ZERO;
+        for (LineItem lineItem : lineItems) {
+            expected = expected.add(lineItem.getExtendedPrice());
+        }
+        Assert.assertEquals(Money.toCents(expected), Money.extendedTotalCents(lineItems));
+        Assert.assertEquals(Money.of(expected), Money.ofCents(999).times(10).plus(Money.ofCents(22199999).times(3)));
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.techelevator.ssgeek.outbox;
+
+import com.techelevator.ssgeek.dao.SaleOutboxDao;
+import com.techelevator.ssgeek.model.SaleEvent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SaleOutboxRelayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeOutboxDao outboxDao;
+    private List<SaleEvent> received;
+
+    @Before
+    public void setup() {
+        outboxDao = new FakeOutboxDao();
+        for (int i = 1; i <= 5; i++) {
+            SaleEvent event = new SaleEvent();
+            event.setEventId(i);
+            event.setTransactionId(100 + i);
+            event.setSaleId(i);
+            event.setEventType(SaleEvent.CREATED);
+            event.setPayload("{\"saleId\" : " + i + "}");
+            event.setCreatedAt(LocalDateTime.of(2022, 1, 1, 12, 0));
+            outboxDao.events.add(event);
+        }
+        received = new ArrayList<>();
+    }
+
+    @Test
+    public void relay_delivers_every_event_in_batches() {
+        SaleOutboxRelay relay = new SaleOutboxRelay("listener", outboxDao, received::addAll, 2);
+
+        Assert.assertEquals(5, relay.relay());
+        Assert.assertEquals(5, received.size());
+        Assert.assertEquals(5, received.get(4).getEventId());
+        Assert.assertEquals(0, relay.relay());
+        // A short batch means the relay is up to date, so each run stops without an empty read
+        Assert.assertEquals(4, outboxDao.getUndeliveredCalls);
+    }
+
+    @Test
+    public void failed_delivery_is_retried_from_the_same_position() {
+        int[] calls = {0};
+        SaleEventSink failingOnce = events -> {
+            if (calls[0]++ == 1) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            received.addAll(events);
+        };
+        SaleOutboxRelay relay = new SaleOutboxRelay("listener", outboxDao, failingOnce, 2);
+
+        try {
+            relay.relay();
+            Assert.fail("Expected the sink failure");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(2, received.size());
+        }
+        Assert.assertEquals(3, relay.relay());
+        Assert.assertEquals(3, received.get(2).getEventId());
+    }
+
+    @Test
+    public void file_sink_appends_json_lines() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("sale-events.jsonl");
+        SaleOutboxRelay relay = new SaleOutboxRelay("file", outboxDao, new FileSaleEventSink(file), 3);
+
+        relay.relay();
+
+        List<String> lines = Files.readAllLines(file);
+        Assert.assertEquals(5, lines.size());
+        Assert.assertEquals("{\"eventId\":1,\"type\":\"CREATED\",\"saleId\":1,\"createdAt\":\"2022-01-01T12:00\"," +
+                "\"sale\":{\"saleId\" : 1}}", lines.get(0));
+    }
+
+    // Holds the events and relay positions in memory, ordered as the database would return them
+    private static class FakeOutboxDao implements SaleOutboxDao {
+        private final List<SaleEvent> events = new ArrayList<>();
+        private final Map<String, Integer> delivered = new HashMap<>();
+        private int getUndeliveredCalls;
+
+        @Override
+        public List<SaleEvent> getUndeliveredEvents(String relayName, int limit) {
+            getUndeliveredCalls++;
+            int from = delivered.getOrDefault(relayName, 0);
+            return new ArrayList<>(events.subList(from, Math.min(events.size(), from + limit)));
+        }
+
+        @Override
+        public void markDelivered(String relayName, SaleEvent lastEvent) {
+            delivered.put(relayName, events.indexOf(lastEvent) + 1);
+        }
+
+        @Override
+        public int deleteDeliveredEvents(List<String> relayNames) {
+            return 0;
+        }
+    }
+}
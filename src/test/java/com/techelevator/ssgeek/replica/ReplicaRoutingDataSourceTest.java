@@ -0,0 +1,288 @@
+package com.techelevator.ssgeek.replica;
+
+import com.techelevator.ssgeek.dao.ReplicationDao;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_BYTES = 1000;
+
+    private FakeDatabase primary;
+    private FakeDatabase replica1;
+    private FakeDatabase replica2;
+    private ReplicaRoutingDataSource router;
+
+    @Before
+    public void setup() {
+        primary = new FakeDatabase("primary");
+        replica1 = new FakeDatabase("replica1");
+        replica2 = new FakeDatabase("replica2");
+        primary.position = 5000;
+        replica1.replayed = 5000;
+        replica2.replayed = 5000;
+        router = new ReplicaRoutingDataSource(primary.dataSource(), primary, List.of(replica1.dataSource(), replica2.dataSource()),
+                List.of(replica1, replica2), MAX_LAG_BYTES, Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void connections_outside_read_go_to_the_primary() throws SQLException {
+        router.checkReplicas();
+
+        Assert.assertEquals("primary", connect());
+        Assert.assertEquals("primary", router.write(this::connectUnchecked));
+    }
+
+    @Test
+    public void reads_go_to_caught_up_replicas_in_turn() {
+        router.checkReplicas();
+
+        String first = router.read(this::connectUnchecked);
+        String second = router.read(this::connectUnchecked);
+
+        Assert.assertTrue(first.startsWith("replica"));
+        Assert.assertTrue(second.startsWith("replica"));
+        Assert.assertNotEquals(first, second);
+        Assert.assertEquals(0, router.getPrimaryReads());
+    }
+
+    @Test
+    public void reads_go_to_the_primary_before_replicas_are_checked() {
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+        Assert.assertEquals(1, router.getPrimaryReads());
+    }
+
+    @Test
+    public void replicas_too_far_behind_are_skipped() {
+        replica1.replayed = primary.position - MAX_LAG_BYTES - 1;
+        router.checkReplicas();
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("replica2", router.read(this::connectUnchecked));
+        }
+        Assert.assertFalse(router.getReplicas().get(0).isAvailable());
+        Assert.assertEquals(MAX_LAG_BYTES + 1, router.getReplicas().get(0).getLagBytes());
+    }
+
+    @Test
+    public void reads_after_a_write_wait_for_a_replica_to_replay_it() {
+        router.checkReplicas();
+
+        router.write(() -> primary.position += 100);
+
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+
+        // Within the allowed lag, but not yet past this thread's write
+        replica1.replayed = primary.position - 1;
+        router.checkReplicas();
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+
+        replica2.replayed = primary.position;
+        router.checkReplicas();
+        Assert.assertEquals("replica2", router.read(this::connectUnchecked));
+    }
+
+    @Test
+    public void write_is_not_failed_when_the_position_cannot_be_read() {
+        router.checkReplicas();
+        primary.positionDown = true;
+
+        long written = router.write(() -> primary.position += 100);
+
+        Assert.assertEquals(5100, written);
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+
+        // Even caught-up replicas wait until a check succeeds
+        replica1.replayed = primary.position;
+        replica2.replayed = primary.position;
+        try {
+            router.checkReplicas();
+            Assert.fail("Expected the check to fail while the primary position can't be read");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("primary", router.read(this::connectUnchecked));
+        }
+
+        primary.positionDown = false;
+        router.checkReplicas();
+        Assert.assertTrue(router.read(this::connectUnchecked).startsWith("replica"));
+    }
+
+    @Test
+    public void pinned_reads_wait_for_a_replica_to_replay_the_checked_position() {
+        router.checkReplicas();
+        primary.positionDown = true;
+        router.write(() -> primary.position += 100);
+        primary.positionDown = false;
+
+        replica1.replayed = primary.position - 1;
+        replica2.replayed = primary.position - 1;
+        router.checkReplicas();
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+
+        replica1.replayed = primary.position;
+        router.checkReplicas();
+        Assert.assertEquals("replica1", router.read(this::connectUnchecked));
+    }
+
+    @Test
+    public void a_check_begun_before_a_later_write_does_not_unpin_the_thread() {
+        router.checkReplicas();
+        primary.positionDown = true;
+        router.write(() -> primary.position += 100);
+        primary.positionDown = false;
+        replica1.replayed = primary.position;
+        replica2.replayed = primary.position;
+
+        // The check has read the primary position when this thread writes again
+        replica1.onReplayedRead = () -> router.write(() -> primary.position += 100);
+        router.checkReplicas();
+
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+
+        replica1.replayed = primary.position;
+        router.checkReplicas();
+        Assert.assertEquals("replica1", router.read(this::connectUnchecked));
+    }
+
+    @Test
+    public void connections_with_credentials_go_to_the_primary() throws SQLException {
+        router.checkReplicas();
+
+        Assert.assertEquals("primary", router.getConnection("user", "secret").toString());
+        Assert.assertEquals("primary", router.read(() -> {
+            try {
+                return router.getConnection("user", "secret").toString();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        Assert.assertEquals(1, router.getPrimaryReads());
+    }
+
+    @Test
+    public void other_threads_read_from_replicas_after_a_write() throws InterruptedException {
+        router.checkReplicas();
+        router.write(() -> primary.position += 100);
+
+        String[] other = new String[1];
+        Thread thread = new Thread(() -> other[0] = router.read(this::connectUnchecked));
+        thread.start();
+        thread.join();
+
+        Assert.assertTrue(other[0].startsWith("replica"));
+    }
+
+    @Test
+    public void unreachable_replicas_are_skipped() {
+        router.checkReplicas();
+        replica1.down = true;
+        replica2.down = true;
+
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+        Assert.assertFalse(router.getReplicas().get(0).isAvailable());
+        Assert.assertNotNull(router.getReplicas().get(1).getLastError());
+
+        replica1.down = false;
+        router.checkReplicas();
+        Assert.assertEquals("replica1", router.read(this::connectUnchecked));
+    }
+
+    @Test
+    public void a_database_that_is_not_a_replica_is_skipped() {
+        replica1.replayed = -1;
+        replica2.replayed = -1;
+        router.checkReplicas();
+
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+        Assert.assertNotNull(router.getReplicas().get(0).getLastError());
+    }
+
+    @Test
+    public void replicas_not_checked_recently_are_skipped() throws InterruptedException {
+        router = new ReplicaRoutingDataSource(primary.dataSource(), primary, List.of(replica1.dataSource()),
+                List.of(replica1), MAX_LAG_BYTES, Duration.ofMillis(20));
+        router.checkReplicas();
+        Assert.assertEquals("replica1", router.read(this::connectUnchecked));
+
+        Thread.sleep(50);
+
+        Assert.assertEquals("primary", router.read(this::connectUnchecked));
+    }
+
+    private String connect() throws SQLException {
+        return router.getConnection().toString();
+    }
+
+    private String connectUnchecked() {
+        try {
+            return connect();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A database whose connections only say which database they came from.
+     */
+    private static class FakeDatabase implements ReplicationDao {
+        private final String name;
+        private long position;
+        private long replayed;
+        private boolean down;
+        private boolean positionDown;
+        // Run once, the next time the replayed position is read
+        private Runnable onReplayedRead;
+
+        FakeDatabase(String name) {
+            this.name = name;
+        }
+
+        DataSource dataSource() {
+            return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("getConnection")) {
+                            if (down) {
+                                throw new SQLException(name + " is down");
+                            }
+                            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                                    (connection, connectionMethod, connectionArgs) -> {
+                                        if (connectionMethod.getName().equals("toString")) {
+                                            return name;
+                                        }
+                                        throw new UnsupportedOperationException(connectionMethod.getName());
+                                    });
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        @Override
+        public long getCurrentWalPosition() {
+            if (positionDown) {
+                throw new IllegalStateException(name + " position can't be read");
+            }
+            return position;
+        }
+
+        @Override
+        public long getReplayedWalPosition() {
+            if (onReplayedRead != null) {
+                Runnable action = onReplayedRead;
+                onReplayedRead = null;
+                action.run();
+            }
+            if (down) {
+                throw new IllegalStateException(name + " is down");
+            }
+            return replayed;
+        }
+    }
+}
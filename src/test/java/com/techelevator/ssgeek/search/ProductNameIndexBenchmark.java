@@ -0,0 +1,83 @@
+package com.techelevator.ssgeek.search;
+
+import com.techelevator.ssgeek.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ProductNameIndexBenchmark builds a ProductNameIndex over generated product names, reports how much
+ * heap it uses, and times type-ahead sessions that type out search words one letter at a time.
+ *
+ * Usage: ProductNameIndexBenchmark [productCount] [sessions]
+ */
+
+public class ProductNameIndexBenchmark {
+
+    private static final String[] ADJECTIVES = {"Cosmic", "Lunar", "Solar", "Stellar", "Galactic", "Orbital",
+            "Martian", "Jovian", "Nebula", "Comet", "Astro", "Rocket", "Zero-G", "Meteor", "Quasar", "Pulsar"};
+    private static final String[] NOUNS = {"Mug", "T-Shirt", "Poster", "Telescope", "Backpack", "Hoodie", "Keychain",
+            "Puzzle", "Lamp", "Globe", "Model Kit", "Sticker", "Notebook", "Socks", "Cap", "Blanket"};
+    private static final String[] WORDS = {"saturn", "tshirt", "telesc", "astro mug", "ocket", "nebula hood", "xyzzy"};
+
+    public static void main(String[] args) {
+        int productCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(productCount);
+        for (int id = 1; id <= productCount; id++) {
+            Product product = new Product();
+            product.setProductId(id);
+            product.setName(ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                    + " " + Long.toString(random.nextInt(1 << 30), 36));
+            product.setPriceCents(99 + random.nextInt(100_000));
+            products.add(product);
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        ProductNameIndex index = ProductNameIndex.build(products);
+        double buildMillis = (System.nanoTime() - start) / 1e6;
+        long heapAfter = usedHeap();
+        System.out.format("Indexed %d products in %.1f ms%n", index.size(), buildMillis);
+        System.out.format("Index arrays %.1f MB, measured heap growth %.1f MB%n",
+                index.estimatedMemoryBytes() / 1e6, (heapAfter - heapBefore) / 1e6);
+
+        // Each session types one word a letter at a time and times every keystroke
+        long[] keystrokeNanos = new long[sessions * 16];
+        int keystrokes = 0;
+        for (int s = 0; s < sessions; s++) {
+            String word = WORDS[s % WORDS.length];
+            TypeAhead typeAhead = index.typeAhead(25);
+            for (int length = 1; length <= word.length() && keystrokes < keystrokeNanos.length; length++) {
+                long keyStart = System.nanoTime();
+                typeAhead.update(word.substring(0, length));
+                keystrokeNanos[keystrokes++] = System.nanoTime() - keyStart;
+            }
+            // Keep a write in the mix so searches also see the overlay
+            if (s % 100 == 0) {
+                Product product = products.get(random.nextInt(productCount));
+                product.setName(product.getName() + " Deluxe");
+                index.put(product);
+            }
+        }
+        long[] sorted = Arrays.copyOf(keystrokeNanos, keystrokes);
+        Arrays.sort(sorted);
+        System.out.format("%d keystrokes  p50 %.3f ms  p99 %.3f ms  max %.3f ms%n", keystrokes,
+                sorted[keystrokes / 2] / 1e6, sorted[keystrokes * 99 / 100] / 1e6, sorted[keystrokes - 1] / 1e6);
+
+        // Keep the products list alive until after the heap was measured
+        System.out.format("(%d source products)%n", products.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
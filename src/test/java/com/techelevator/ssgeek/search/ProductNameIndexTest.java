@@ -0,0 +1,128 @@
+package com.techelevator.ssgeek.search;
+
+import com.techelevator.ssgeek.model.Product;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductNameIndexTest {
+
+    private ProductNameIndex index;
+
+    @Before
+    public void setup() {
+        List<Product> products = new ArrayList<>();
+        products.add(product(1, "Solar System Mug"));
+        products.add(product(2, "Mars T-Shirt"));
+        products.add(product(3, "Moon Lamp"));
+        products.add(product(4, "Marshmallow Rocket"));
+        products.add(product(5, "Saturn Poster"));
+        index = ProductNameIndex.build(products);
+    }
+
+    @Test
+    public void search_returns_prefix_matches_before_infix_matches() {
+        assertIds(index.search("mar", 10), 2, 4);
+        assertIds(index.search("ars", 10), 2, 4);
+        assertIds(index.search("lamp", 10), 3);
+    }
+
+    @Test
+    public void short_search_text_only_matches_prefixes() {
+        assertIds(index.search("m", 10), 2, 4, 3);
+        assertIds(index.search("ar", 10));
+    }
+
+    @Test
+    public void search_ignores_case_and_respects_limit() {
+        assertIds(index.search("SOLAR sys", 10), 1);
+        assertIds(index.search("s", 1), 5);
+        assertIds(index.search("on", 10));
+        Assert.assertEquals(0, index.search("pluto", 10).size());
+    }
+
+    @Test
+    public void search_returns_id_name_and_price() {
+        Product product = index.search("moon", 10).get(0);
+        Assert.assertEquals(3, product.getProductId());
+        Assert.assertEquals("Moon Lamp", product.getName());
+        Assert.assertEquals(1999, product.getPriceCents());
+    }
+
+    @Test
+    public void put_and_remove_are_visible_to_search() {
+        index.put(product(6, "Martian Globe"));
+        index.put(product(2, "Jupiter T-Shirt"));
+        index.remove(4);
+
+        assertIds(index.search("mar", 10), 6);
+        assertIds(index.search("t-shirt", 10), 2);
+        Assert.assertEquals(5, index.size());
+    }
+
+    @Test
+    public void overlay_matches_are_merged_into_name_and_id_order() {
+        index.put(product(6, "Mare Tranquillitatis Map"));
+        index.put(product(7, "Comet Marker Set"));
+
+        assertIds(index.search("mar", 10), 6, 2, 4, 7);
+        assertIds(index.search("mar", 2), 6, 2);
+        assertIds(index.search("ars", 10), 2, 4);
+        assertIds(index.search("arke", 10), 7);
+
+        index.put(product(3, "Lunar Marble"));
+        assertIds(index.search("mar", 10), 6, 2, 4, 3, 7);
+        assertIds(index.search("mar", 4), 6, 2, 4, 3);
+    }
+
+    @Test
+    public void replace_all_drops_the_overlay() {
+        index.put(product(6, "Martian Globe"));
+        List<Product> products = new ArrayList<>();
+        products.add(product(7, "Comet Keychain"));
+        index.replaceAll(products);
+
+        Assert.assertEquals(1, index.size());
+        assertIds(index.search("mar", 10));
+        assertIds(index.search("comet", 10), 7);
+    }
+
+    @Test
+    public void type_ahead_narrows_as_the_query_grows() {
+        TypeAhead typeAhead = index.typeAhead(10);
+        assertIds(typeAhead.update("m"), 2, 4, 3);
+        assertIds(typeAhead.update("ma"), 2, 4);
+        assertIds(typeAhead.update("mar"), 2, 4);
+        assertIds(typeAhead.update("ar"));
+        assertIds(typeAhead.update("ars"), 2, 4);
+        assertIds(typeAhead.update("marsh"), 4);
+        assertIds(typeAhead.update("mo"), 3);
+    }
+
+    @Test
+    public void type_ahead_sees_changes_made_between_keystrokes() {
+        TypeAhead typeAhead = index.typeAhead(10);
+        assertIds(typeAhead.update("ma"), 2, 4);
+        index.put(product(6, "Martian Globe"));
+        assertIds(typeAhead.update("mar"), 2, 4, 6);
+    }
+
+    private static Product product(int id, String name) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setName(name);
+        product.setPriceCents(1999);
+        return product;
+    }
+
+    private static void assertIds(List<Product> products, int... expectedIds) {
+        int[] actualIds = new int[products.size()];
+        for (int i = 0; i < actualIds.length; i++) {
+            actualIds[i] = products.get(i).getProductId();
+        }
+        Assert.assertArrayEquals(expectedIds, actualIds);
+    }
+}
@@ -0,0 +1,58 @@
+package com.techelevator.ssgeek.shard;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class ShardRouterTest {
+
+    @Test
+    public void shardForId_matches_ids_allocated_by_each_shard() {
+        ShardRouter router = new ShardRouter(3);
+        // configure_shard(i, 3) allocates i + 1, i + 4, i + 7...
+        for (int shard = 0; shard < 3; shard++) {
+            for (int id = shard + 1; id < 30; id += 3) {
+                Assert.assertEquals("id " + id, shard, router.shardForId(id));
+            }
+        }
+    }
+
+    @Test
+    public void shardForNewCustomer_takes_each_shard_in_turn() {
+        ShardRouter router = new ShardRouter(3);
+
+        int[] shards = new int[6];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = router.shardForNewCustomer();
+        }
+
+        Assert.assertArrayEquals(new int[]{0, 1, 2, 0, 1, 2}, shards);
+    }
+
+    @Test
+    public void groupByShard_splits_ids_keeping_their_order() {
+        ShardRouter router = new ShardRouter(2);
+
+        Map<Integer, List<Integer>> byShard = router.groupByShard(List.of(6, 1, 4, 3, 2), Integer::intValue);
+
+        Assert.assertEquals(List.of(0, 1), List.copyOf(byShard.keySet()));
+        Assert.assertEquals(List.of(1, 3), byShard.get(0));
+        Assert.assertEquals(List.of(6, 4, 2), byShard.get(1));
+    }
+
+    @Test
+    public void single_shard_holds_every_id() {
+        ShardRouter router = new ShardRouter(1);
+
+        Assert.assertEquals(0, router.shardForId(1));
+        Assert.assertEquals(0, router.shardForId(1000));
+        Assert.assertEquals(0, router.shardForNewCustomer());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void no_shards_is_rejected() {
+        new ShardRouter(0);
+    }
+}
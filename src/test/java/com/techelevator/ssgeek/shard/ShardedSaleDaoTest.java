@@ -0,0 +1,244 @@
+package com.techelevator.ssgeek.shard;
+
+import com.techelevator.ssgeek.dao.JdbcShardDao;
+import com.techelevator.ssgeek.exception.DaoException;
+import com.techelevator.ssgeek.model.Customer;
+import com.techelevator.ssgeek.model.Sale;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the sharded DAOs against two temporary databases on the local PostgreSQL server, each loaded
+ * from test-data.sql and emptied of customers and sales before every test.
+ */
+
+public class ShardedSaleDaoTest {
+
+    private static final int SHARD_COUNT = 2;
+    private static final String DB_NAME_PREFIX = "SSGeekShard";
+
+    private static SingleConnectionDataSource adminDataSource;
+    private static JdbcTemplate adminJdbcTemplate;
+    private static final List<DataSource> shardDataSources = new ArrayList<>();
+
+    private ShardSet shardSet;
+
+    @BeforeClass
+    public static void createShards() throws SQLException {
+        adminDataSource = new SingleConnectionDataSource();
+        adminDataSource.setUrl("jdbc:postgresql://localhost:5432/postgres");
+        adminDataSource.setUsername("postgres");
+        adminDataSource.setPassword("postgres1");
+        adminJdbcTemplate = new JdbcTemplate(adminDataSource);
+
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            adminJdbcTemplate.update("DROP DATABASE IF EXISTS \"" + DB_NAME_PREFIX + i + "\";");
+            adminJdbcTemplate.update("CREATE DATABASE \"" + DB_NAME_PREFIX + i + "\";");
+
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:postgresql://localhost:5432/" + DB_NAME_PREFIX + i, "postgres", "postgres1");
+            try (Connection connection = dataSource.getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("test-data.sql"));
+            }
+            shardDataSources.add(dataSource);
+        }
+    }
+
+    @AfterClass
+    public static void dropShards() {
+        if (adminDataSource != null) {
+            for (int i = 0; i < shardDataSources.size(); i++) {
+                adminJdbcTemplate.update("DROP DATABASE \"" + DB_NAME_PREFIX + i + "\";");
+            }
+            adminDataSource.destroy();
+        }
+    }
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            JdbcTemplate shard = new JdbcTemplate(shardDataSources.get(i));
+            shard.update("TRUNCATE line_item, sale, sale_id_registry, sale_order_key, customer CASCADE;");
+            new JdbcShardDao(shardDataSources.get(i)).configureShard(i, SHARD_COUNT);
+        }
+        shardSet = ShardSet.connect(shardDataSources);
+    }
+
+    @After
+    public void close() {
+        shardSet.close();
+    }
+
+    @Test
+    public void configureShard_is_read_back() {
+        Assert.assertArrayEquals(new int[]{1, 2}, new JdbcShardDao(shardDataSources.get(1)).getShardConfiguration());
+    }
+
+    @Test(expected = DaoException.class)
+    public void connect_rejects_shards_in_the_wrong_order() {
+        ShardSet.connect(List.of(shardDataSources.get(1), shardDataSources.get(0)));
+    }
+
+    @Test
+    public void rows_on_the_wrong_shard_are_refused() {
+        JdbcTemplate shard0 = new JdbcTemplate(shardDataSources.get(0));
+        // Customer 2 belongs on shard 1
+        shard0.update("INSERT INTO customer (customer_id, name, street_address1, city, state, zip_code) " +
+                "VALUES (2, 'Misplaced', '1 Main St', 'Columbus', 'OH', '43215');");
+
+        try {
+            ShardSet.connect(shardDataSources);
+            Assert.fail("Expected connect to find the misplaced customer");
+        } catch (DaoException e) {
+            Assert.assertEquals(1, new JdbcShardDao(shardDataSources.get(0)).countMisplacedRows(0, SHARD_COUNT));
+        }
+        try {
+            new JdbcShardDao(shardDataSources.get(0)).configureShard(0, SHARD_COUNT);
+            Assert.fail("Expected configure_shard to refuse the misplaced customer");
+        } catch (DaoException e) {
+            Assert.assertEquals(0, new JdbcShardDao(shardDataSources.get(1)).countMisplacedRows(1, SHARD_COUNT));
+        }
+    }
+
+    @Test
+    public void customers_are_spread_over_the_shards_by_id() {
+        List<Customer> created = createCustomers(4);
+
+        Assert.assertEquals(List.of(1, 2, 3, 4), ids(created, Customer::getCustomerId));
+        for (Customer customer : created) {
+            Assert.assertEquals(1, countRows(customer.getCustomerId() % 2 == 1 ? 0 : 1,
+                    "customer WHERE customer_id = " + customer.getCustomerId()));
+            Assert.assertEquals(customer.getName(),
+                    shardSet.getCustomerDao().getCustomerById(customer.getCustomerId()).getName());
+        }
+        Assert.assertEquals(List.of(1, 2, 3, 4), ids(shardSet.getCustomerDao().getCustomers(), Customer::getCustomerId));
+        Assert.assertEquals(List.of(2, 3), ids(shardSet.getCustomerDao().getCustomerPage(1, 2), Customer::getCustomerId));
+    }
+
+    @Test
+    public void sales_are_created_on_their_customers_shard() {
+        List<Customer> customers = createCustomers(2);
+
+        Sale first = shardSet.getSaleDao().createSale(newSale(customers.get(0).getCustomerId(), null));
+        Sale second = shardSet.getSaleDao().createSale(newSale(customers.get(1).getCustomerId(), null));
+
+        Assert.assertEquals(0, new ShardRouter(SHARD_COUNT).shardForId(first.getSaleId()));
+        Assert.assertEquals(1, new ShardRouter(SHARD_COUNT).shardForId(second.getSaleId()));
+        Assert.assertEquals(1, countRows(0, "sale"));
+        Assert.assertEquals(1, countRows(1, "sale"));
+        Assert.assertEquals(customers.get(1).getCustomerId(),
+                shardSet.getSaleDao().getSaleById(second.getSaleId()).getCustomerId());
+    }
+
+    @Test
+    public void cross_shard_reads_are_merged_in_sale_id_order() {
+        List<Customer> customers = createCustomers(2);
+        List<Integer> saleIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            for (Customer customer : customers) {
+                Sale sale = shardSet.getSaleDao().createSale(newSale(customer.getCustomerId(), null));
+                addLineItem(sale, 2);
+                saleIds.add(sale.getSaleId());
+            }
+        }
+        saleIds.sort(null);
+
+        Assert.assertEquals(saleIds, ids(shardSet.getSaleDao().getUnshippedSales(), Sale::getSaleId));
+        Assert.assertEquals(saleIds, ids(shardSet.getSaleDao().getSalesByProductId(2), Sale::getSaleId));
+        Assert.assertEquals(saleIds.subList(1, 4),
+                ids(shardSet.getSaleDao().getSalePage(saleIds.get(0), 3), Sale::getSaleId));
+        Assert.assertEquals(1, shardSet.getLineItemDao().getLineItemsBySaleId(saleIds.get(1)).size());
+    }
+
+    @Test
+    public void shipSales_ships_on_every_shard_holding_the_sales() {
+        List<Customer> customers = createCustomers(2);
+        List<Integer> saleIds = new ArrayList<>();
+        for (Customer customer : customers) {
+            saleIds.add(shardSet.getSaleDao().createSale(newSale(customer.getCustomerId(), null)).getSaleId());
+        }
+
+        List<Integer> shipped = shardSet.getSaleDao().shipSales(saleIds, LocalDate.of(2024, 1, 2));
+
+        Assert.assertEquals(saleIds.stream().sorted().collect(Collectors.toList()), shipped);
+        Assert.assertTrue(shardSet.getSaleDao().getUnshippedSales().isEmpty());
+    }
+
+    @Test
+    public void claimUnshippedSales_claims_from_more_than_one_shard() {
+        List<Customer> customers = createCustomers(2);
+        for (Customer customer : customers) {
+            shardSet.getSaleDao().createSale(newSale(customer.getCustomerId(), null));
+        }
+
+        List<Sale> claimed = shardSet.getSaleDao().claimUnshippedSales("worker-1", 5, Duration.ofMinutes(1));
+
+        Assert.assertEquals(2, claimed.size());
+        Assert.assertTrue(shardSet.getSaleDao().claimUnshippedSales("worker-2", 5, Duration.ofMinutes(1)).isEmpty());
+    }
+
+    @Test(expected = DaoException.class)
+    public void updateSale_cannot_move_a_sale_to_another_shard() {
+        List<Customer> customers = createCustomers(2);
+        Sale sale = shardSet.getSaleDao().createSale(newSale(customers.get(0).getCustomerId(), null));
+
+        sale.setCustomerId(customers.get(1).getCustomerId());
+        shardSet.getSaleDao().updateSale(sale);
+    }
+
+    private List<Customer> createCustomers(int count) {
+        List<Customer> created = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer();
+            customer.setName("Shard Customer " + i);
+            customer.setStreetAddress1("Addr " + i);
+            customer.setCity("City");
+            customer.setState("SS");
+            customer.setZipCode("12345");
+            created.add(shardSet.getCustomerDao().createCustomer(customer));
+        }
+        return created;
+    }
+
+    private Sale newSale(int customerId, LocalDate shipDate) {
+        Sale sale = new Sale();
+        sale.setCustomerId(customerId);
+        sale.setSaleDate(LocalDate.of(2024, 1, 1));
+        sale.setShipDate(shipDate);
+        return sale;
+    }
+
+    private void addLineItem(Sale sale, int productId) {
+        new JdbcTemplate(shardDataSources.get(new ShardRouter(SHARD_COUNT).shardForId(sale.getSaleId()))).update(
+                "INSERT INTO line_item (sale_id, sale_date, product_id, quantity) VALUES (?, ?, ?, 1);",
+                sale.getSaleId(), sale.getSaleDate(), productId);
+    }
+
+    private int countRows(int shard, String from) {
+        Integer count = new JdbcTemplate(shardDataSources.get(shard)).queryForObject("SELECT COUNT(*) FROM " + from, Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private static <T> List<Integer> ids(List<T> items, ToIntFunction<T> id) {
+        return items.stream().map(id::applyAsInt).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,234 @@
+package com.techelevator.ssgeek.snapshot;
+
+import com.techelevator.ssgeek.dao.ProductDao;
+import com.techelevator.ssgeek.dao.ProductSnapshotDao;
+import com.techelevator.ssgeek.exception.SnapshotException;
+import com.techelevator.ssgeek.model.Product;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+public class ProductSnapshotTest {
+
+    private static final String FINGERPRINT_1 = "0123456789abcdef0123456789abcdef";
+    private static final String FINGERPRINT_2 = "fedcba9876543210fedcba9876543210";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private FakeSnapshotDao snapshotDao;
+
+    @Before
+    public void setup() {
+        file = folder.getRoot().toPath().resolve("product-snapshot.bin");
+        snapshotDao = new FakeSnapshotDao();
+        snapshotDao.products.add(new Product(1, "Product 1", "Description 1", new BigDecimal("9.99"), "product-1.png"));
+        snapshotDao.products.add(new Product(2, "Prodüct 2 ☃", "Description 2", new BigDecimal("19.00"), null));
+        snapshotDao.products.add(new Product(4, "Product 4", "", new BigDecimal("0.99"), "product-4.png"));
+    }
+
+    @Test
+    public void write_then_open_reads_every_product() {
+        ProductSnapshot.write(file, snapshotDao);
+        ProductSnapshot snapshot = ProductSnapshot.open(file);
+
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertEquals(FINGERPRINT_1, snapshot.getFingerprint());
+        List<Product> products = snapshot.getProducts();
+        Assert.assertEquals(3, products.size());
+        for (int i = 0; i < products.size(); i++) {
+            assertProductsMatch(snapshotDao.products.get(i), products.get(i));
+        }
+    }
+
+    @Test
+    public void getProductById_finds_products_by_binary_search() {
+        ProductSnapshot snapshot = ProductSnapshot.write(file, snapshotDao);
+
+        assertProductsMatch(snapshotDao.products.get(0), snapshot.getProductById(1));
+        assertProductsMatch(snapshotDao.products.get(1), snapshot.getProductById(2));
+        assertProductsMatch(snapshotDao.products.get(2), snapshot.getProductById(4));
+        Assert.assertNull(snapshot.getProductById(3));
+        Assert.assertNull(snapshot.getProductById(0));
+        Assert.assertNull(snapshot.getProductById(99));
+    }
+
+    @Test
+    public void getProductPage_starts_after_the_given_id() {
+        ProductSnapshot snapshot = ProductSnapshot.write(file, snapshotDao);
+
+        List<Product> page = snapshot.getProductPage(0, 2);
+        Assert.assertEquals(2, page.size());
+        Assert.assertEquals(1, page.get(0).getProductId());
+        Assert.assertEquals(2, page.get(1).getProductId());
+        page = snapshot.getProductPage(2, 2);
+        Assert.assertEquals(1, page.size());
+        Assert.assertEquals(4, page.get(0).getProductId());
+        Assert.assertTrue(snapshot.getProductPage(4, 2).isEmpty());
+        Assert.assertTrue(snapshot.getProductPage(Integer.MAX_VALUE, 2).isEmpty());
+    }
+
+    @Test
+    public void empty_table_writes_empty_snapshot() {
+        snapshotDao.products.clear();
+        ProductSnapshot snapshot = ProductSnapshot.write(file, snapshotDao);
+
+        Assert.assertEquals(0, snapshot.size());
+        Assert.assertTrue(snapshot.getProducts().isEmpty());
+        Assert.assertNull(snapshot.getProductById(1));
+    }
+
+    @Test
+    public void damaged_file_fails_checksum() throws IOException {
+        ProductSnapshot.write(file, snapshotDao);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        try {
+            ProductSnapshot.open(file);
+            Assert.fail("Expected a checksum failure");
+        } catch (SnapshotException e) {
+            Assert.assertTrue(e.getMessage().contains("checksum"));
+        }
+        Assert.assertNull(ProductSnapshot.openIfValid(file));
+    }
+
+    @Test
+    public void truncated_or_missing_file_is_not_valid() throws IOException {
+        Assert.assertNull(ProductSnapshot.openIfValid(file));
+        ProductSnapshot.write(file, snapshotDao);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+
+        Assert.assertNull(ProductSnapshot.openIfValid(file));
+    }
+
+    @Test
+    public void snapshot_dao_serves_reads_from_snapshot_and_drops_it_on_write() {
+        CountingProductDao database = new CountingProductDao(snapshotDao.products);
+        SnapshotProductDao productDao = new SnapshotProductDao(database, snapshotDao, file);
+        Assert.assertNull(productDao.getSnapshot());
+        Assert.assertFalse(productDao.verify());
+
+        Assert.assertEquals(3, productDao.refresh());
+        Assert.assertTrue(productDao.verify());
+        Assert.assertEquals("Product 1", productDao.getProductById(1).getName());
+        Assert.assertEquals(3, productDao.getProducts().size());
+        Assert.assertEquals(0, database.reads);
+
+        productDao.deleteProductById(4);
+        Assert.assertNull(productDao.getSnapshot());
+        Assert.assertEquals(2, productDao.getProducts().size());
+        Assert.assertEquals(1, database.reads);
+    }
+
+    @Test
+    public void snapshot_dao_opens_existing_file_and_verify_catches_table_changes() {
+        ProductSnapshot.write(file, snapshotDao);
+        SnapshotProductDao productDao = new SnapshotProductDao(new CountingProductDao(snapshotDao.products),
+                snapshotDao, file);
+        Assert.assertNotNull(productDao.getSnapshot());
+        Assert.assertTrue(productDao.verify());
+
+        snapshotDao.fingerprint = FINGERPRINT_2;
+        Assert.assertFalse(productDao.verify());
+        Assert.assertNull(productDao.getSnapshot());
+    }
+
+    private static void assertProductsMatch(Product expected, Product actual) {
+        Assert.assertEquals(expected.getProductId(), actual.getProductId());
+        Assert.assertEquals(expected.getName(), actual.getName());
+        Assert.assertEquals(expected.getDescription(), actual.getDescription());
+        Assert.assertEquals(expected.getPriceCents(), actual.getPriceCents());
+        Assert.assertEquals(expected.getImageName(), actual.getImageName());
+    }
+
+    private static class FakeSnapshotDao implements ProductSnapshotDao {
+        private final List<Product> products = new ArrayList<>();
+        private String fingerprint = FINGERPRINT_1;
+
+        @Override
+        public String getProductFingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        public String streamProducts(Consumer<Product> consumer) {
+            products.forEach(consumer);
+            return fingerprint;
+        }
+    }
+
+    private static class CountingProductDao implements ProductDao {
+        private final List<Product> products;
+        private int reads;
+
+        CountingProductDao(List<Product> products) {
+            this.products = products;
+        }
+
+        @Override
+        public Product getProductById(int productId) {
+            reads++;
+            return products.stream().filter(p -> p.getProductId() == productId).findFirst().orElse(null);
+        }
+
+        @Override
+        public List<Product> getProducts() {
+            reads++;
+            return new ArrayList<>(products);
+        }
+
+        @Override
+        public List<Product> getProductPage(int afterProductId, int limit) {
+            reads++;
+            return products.stream().filter(p -> p.getProductId() > afterProductId).limit(limit)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<Product> getProductsWithNoSales() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Product> searchProducts(String searchText, int limit) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<Product> searchProducts(String searchText, int limit, int offset) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Product createProduct(Product newProduct) {
+            products.add(newProduct);
+            return newProduct;
+        }
+
+        @Override
+        public Product updateProduct(Product updatedProduct) {
+            return updatedProduct;
+        }
+
+        @Override
+        public int deleteProductById(int productId) {
+            return products.removeIf(p -> p.getProductId() == productId) ? 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.techelevator.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConsoleTableTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private final ConsoleTable<String[]> table = new ConsoleTable<String[]>()
+            .column("Id", 4, ConsoleTable.Align.RIGHT, (row, cell) -> cell.append(row[0]))
+            .textColumn("Name", 8, (row, cell) -> cell.append(row[1]))
+            .column("ST", 2, ConsoleTable.Align.LEFT, (row, cell) -> cell.append(row[2]));
+
+    @Test
+    public void print_lines_up_columns_under_the_headings() {
+        StringWriter out = new StringWriter();
+
+        table.print(List.of(new String[]{"1", "Ann", "OH"}, new String[]{"12345", "Bob", null}), out);
+
+        Assert.assertEquals(
+                "  Id  Name      ST" + NL +
+                "====  ========  ==" + NL +
+                "   1  Ann       OH" + NL +
+                "12345  Bob         " + NL, out.toString());
+    }
+
+    @Test
+    public void print_cuts_long_text_to_fit() {
+        StringWriter out = new StringWriter();
+
+        table.print(List.<String[]>of(new String[]{"7", "Alexandria", "VA"}), out);
+
+        Assert.assertTrue(out.toString().endsWith("   7  Alexa...  VA" + NL));
+    }
+
+    @Test
+    public void print_pages_until_the_prompt_says_stop() {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            rows.add(new String[]{String.valueOf(i), "Row " + i, "XX"});
+        }
+        StringWriter out = new StringWriter();
+        List<String> prompts = new ArrayList<>();
+
+        table.print(rows, out, 4, (shown, total) -> {
+            prompts.add(shown + "/" + total);
+            return shown < 8;
+        });
+
+        Assert.assertEquals(List.of("4/10", "8/10"), prompts);
+        String printed = out.toString();
+        Assert.assertTrue(printed.contains("Row 8"));
+        Assert.assertFalse(printed.contains("Row 9"));
+        // Headings at the top of each page
+        Assert.assertEquals(3, printed.split("  Id  Name", -1).length);
+    }
+
+    @Test
+    public void appendCents_writes_two_decimal_places() {
+        ConsoleTable<Long> amounts = new ConsoleTable<Long>()
+                .column("Amount", 8, ConsoleTable.Align.RIGHT, (cents, cell) -> cell.appendCents(cents));
+        StringWriter out = new StringWriter();
+
+        amounts.print(List.of(123456L, 5L, -1205L), out);
+
+        Assert.assertTrue(out.toString().endsWith(
+                " 1234.56" + NL +
+                "    0.05" + NL +
+                "  -12.05" + NL));
+    }
+}